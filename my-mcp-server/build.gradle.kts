@@ -1,14 +1,17 @@
 plugins {
     java
     application
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "com.example"
 version = "1.0.0"
 
 java {
-    sourceCompatibility = JavaVersion.VERSION_17
-    targetCompatibility = JavaVersion.VERSION_17
+    // 21 for virtual threads (--execution-mode=virtual-threads)
+    toolchain {
+        languageVersion.set(JavaLanguageVersion.of(21))
+    }
 }
 
 repositories {
@@ -32,6 +35,7 @@ dependencies {
     // Testing
     testImplementation("org.junit.jupiter:junit-jupiter:5.10.0")
     testImplementation("io.projectreactor:reactor-test:3.5.0")
+    testImplementation("com.squareup.okhttp3:mockwebserver:4.12.0")
 }
 
 application {
@@ -42,6 +46,24 @@ tasks.test {
     useJUnitPlatform()
 }
 
+// Benchmarks live in src/jmh/java; run with ./gradlew jmh
+jmh {
+    jmhVersion.set("1.37")
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    // Reports allocation rate (gc.alloc.rate.norm = bytes per operation) next to latency
+    profilers.add("gc")
+    // Machine-readable results for comparing commits; override with -PjmhResults=<file>
+    resultFormat.set("JSON")
+    resultsFile.set(
+        (findProperty("jmhResults") as String?)?.let { file(it) }
+            ?: layout.buildDirectory.file("reports/jmh/results.json").get().asFile
+    )
+    // Run a subset with -PjmhIncludes=<regex>, e.g. -PjmhIncludes=ToolDispatch
+    (findProperty("jmhIncludes") as String?)?.let { includes.add(it) }
+}
+
 tasks.jar {
     manifest {
         attributes["Main-Class"] = "com.example.mcp.McpServerApplication"
@@ -49,3 +71,59 @@ tasks.jar {
     duplicatesStrategy = DuplicatesStrategy.EXCLUDE
     from(configurations.runtimeClasspath.get().map { if (it.isDirectory) it else zipTree(it) })
 }
+
+// Load-test harness in src/loadtest/java: a stub search backend and a stdio client driver
+val loadtest: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output + configurations.runtimeClasspath.get()
+    runtimeClasspath += output + compileClasspath
+}
+
+// ./gradlew loadTest -PloadTestArgs="--rate=200 --duration-seconds=60 --latency-ms=50"
+// Options are documented on LoadTestDriver
+tasks.register<JavaExec>("loadTest") {
+    group = "verification"
+    description = "Drives the fat jar over stdio at a fixed rate against a stub search backend"
+    dependsOn(tasks.jar)
+    classpath = loadtest.runtimeClasspath
+    mainClass.set("com.example.mcp.loadtest.LoadTestDriver")
+    val userArgs = (findProperty("loadTestArgs") as String?)?.split(" ")?.filter { it.isNotBlank() } ?: emptyList()
+    // The first occurrence of an option wins, so --jar in loadTestArgs overrides this one
+    args(userArgs + "--jar=${tasks.jar.get().archiveFile.get().asFile.absolutePath}")
+}
+
+// ./gradlew stubBackend -PstubArgs="--port=9000 --latency-ms=200 --error-rate=0.05"
+tasks.register<JavaExec>("stubBackend") {
+    group = "verification"
+    description = "Runs the stub search backend on its own"
+    classpath = loadtest.runtimeClasspath
+    mainClass.set("com.example.mcp.loadtest.StubSearchBackend")
+    args((findProperty("stubArgs") as String?)?.split(" ")?.filter { it.isNotBlank() } ?: emptyList())
+}
+
+// Class-data-sharing archive for faster stdio startup. Launch with
+// java -XX:SharedArchiveFile=build/cds/my-mcp-server.jsa -jar build/libs/my-mcp-server-1.0.0.jar
+val cdsArchiveFile = layout.buildDirectory.file("cds/my-mcp-server.jsa")
+
+tasks.register<Exec>("cdsArchive") {
+    group = "build"
+    description = "Builds an AppCDS archive for the fat jar from a training run"
+    val jarFile = tasks.jar.flatMap { it.archiveFile }
+    val launcher = javaToolchains.launcherFor(java.toolchain)
+    inputs.file(jarFile)
+    outputs.file(cdsArchiveFile)
+    doFirst {
+        val archive = cdsArchiveFile.get().asFile
+        archive.parentFile.mkdirs()
+        executable = launcher.get().executablePath.asFile.absolutePath
+        args(
+            "-XX:ArchiveClassesAtExit=${archive.absolutePath}",
+            "-jar", jarFile.get().asFile.absolutePath,
+            "--training-run"
+        )
+    }
+}
+
+// StartupBenchmark launches the fat jar with and without the archive
+tasks.named("jmh") {
+    dependsOn("cdsArchive")
+}
@@ -0,0 +1,132 @@
+package com.example.mcp;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures stdio startup as a client sees it: from launching the fat jar to receiving the
+ * response to the first {@code tools/list}.
+ * 
+ * {@code launch=cds} adds the class-data-sharing archive built by {@code ./gradlew cdsArchive}.
+ * The jar and archive paths default to the Gradle build outputs and can be overridden with
+ * {@code -Dmcp.benchmark.jar} and {@code -Dmcp.benchmark.cdsArchive}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 15)
+public class StartupBenchmark {
+    
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    
+    private static final String INITIALIZE = """
+        {"jsonrpc":"2.0","id":1,"method":"initialize","params":{"protocolVersion":"2025-03-26",\
+        "capabilities":{},"clientInfo":{"name":"startup-benchmark","version":"1.0"}}}
+        """;
+    private static final String INITIALIZED = """
+        {"jsonrpc":"2.0","method":"notifications/initialized"}
+        """;
+    private static final String TOOLS_LIST = """
+        {"jsonrpc":"2.0","id":2,"method":"tools/list","params":{}}
+        """;
+    
+    @Param({"default", "cds"})
+    public String launch;
+    
+    private List<String> command;
+    private Process process;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        Path jar = Path.of(System.getProperty("mcp.benchmark.jar", "build/libs/my-mcp-server-1.0.0.jar"));
+        Path archive = Path.of(System.getProperty("mcp.benchmark.cdsArchive", "build/cds/my-mcp-server.jsa"));
+        if (!Files.isRegularFile(jar)) {
+            throw new IllegalStateException("Fat jar not found at " + jar.toAbsolutePath() + "; run ./gradlew jar");
+        }
+        
+        command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command().orElse("java"));
+        if (launch.equals("cds")) {
+            if (!Files.isRegularFile(archive)) {
+                throw new IllegalStateException("CDS archive not found at " + archive.toAbsolutePath() + "; run ./gradlew cdsArchive");
+            }
+            command.add("-XX:SharedArchiveFile=" + archive.toAbsolutePath());
+        }
+        command.add("-jar");
+        command.add(jar.toAbsolutePath().toString());
+    }
+    
+    @Benchmark
+    public JsonNode timeToFirstToolsList() throws IOException {
+        process = new ProcessBuilder(command)
+            .redirectError(ProcessBuilder.Redirect.DISCARD)
+            .start();
+        OutputStream stdin = process.getOutputStream();
+        BufferedReader stdout = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        
+        send(stdin, INITIALIZE);
+        awaitResponse(stdout, 1);
+        send(stdin, INITIALIZED + TOOLS_LIST);
+        return awaitResponse(stdout, 2);
+    }
+    
+    @TearDown(Level.Invocation)
+    public void stopServer() throws InterruptedException {
+        if (process != null) {
+            process.destroyForcibly();
+            process.waitFor();
+            process = null;
+        }
+    }
+    
+    private static void send(OutputStream stdin, String messages) throws IOException {
+        stdin.write(messages.getBytes(StandardCharsets.UTF_8));
+        stdin.flush();
+    }
+    
+    /**
+     * Reads server output until the response with the given ID arrives.
+     * 
+     * @param stdout the server's stdout
+     * @param id the request ID
+     * @return the response
+     * @throws IOException if the server exits first
+     */
+    private static JsonNode awaitResponse(BufferedReader stdout, int id) throws IOException {
+        String line;
+        while ((line = stdout.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            JsonNode message = objectMapper.readTree(line);
+            if (message.path("id").asInt(-1) == id) {
+                return message;
+            }
+        }
+        throw new IOException("Server exited before responding to request " + id);
+    }
+}
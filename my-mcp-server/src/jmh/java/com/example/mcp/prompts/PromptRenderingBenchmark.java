@@ -0,0 +1,51 @@
+package com.example.mcp.prompts;
+
+import io.modelcontextprotocol.spec.McpSchema.GetPromptResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures rendering the bundled prompts, both directly from the compiled template and
+ * through the prompts/get handler.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PromptRenderingBenchmark {
+    
+    @Param({"research:quick", "research:comprehensive", "fact-check"})
+    public String prompt;
+    
+    private String name;
+    private Map<String, String> arguments;
+    private PromptTemplate template;
+    
+    @Setup
+    public void setUp() {
+        String[] parts = prompt.split(":");
+        name = parts[0];
+        arguments = name.equals("research")
+            ? Map.of("topic", "renewable energy storage", "depth", parts[1])
+            : Map.of("claim", "The Great Wall of China is visible from space with the naked eye");
+        template = PromptDefinitions.registry().get(name);
+    }
+    
+    @Benchmark
+    public GetPromptResult render() {
+        return template.render(arguments);
+    }
+    
+    @Benchmark
+    public GetPromptResult handler() {
+        return PromptHandlers.handleGetPrompt(name, arguments).block();
+    }
+}
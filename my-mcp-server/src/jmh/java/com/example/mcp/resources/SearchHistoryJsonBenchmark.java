@@ -0,0 +1,55 @@
+package com.example.mcp.resources;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures serializing resource://search/history at several history sizes, with queries
+ * that need no escaping and queries that need a lot.
+ * 
+ * Each parameter combination runs in its own fork, so the static history holds exactly
+ * {@code historySize} entries.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Dmcp.history.capacity=10000")
+public class SearchHistoryJsonBenchmark {
+    
+    @Param({"10", "100", "1000", "10000"})
+    public int historySize;
+    
+    @Param({"plain", "quoted"})
+    public String queryShape;
+    
+    private String query;
+    
+    @Setup
+    public void setUp() {
+        query = switch (queryShape) {
+            case "plain" -> "latest java virtual thread benchmarks";
+            case "quoted" -> "\"exact phrase\" with C:\\path and\ttabs\nacross lines";
+            default -> throw new IllegalArgumentException("Unknown query shape: " + queryShape);
+        };
+        
+        Instant now = Instant.now();
+        for (int i = 0; i < historySize; i++) {
+            ResourceHandlers.addToSearchHistory(new SearchHistory.Entry(query + " " + i, now, 120, 5, i % 3 == 0));
+        }
+    }
+    
+    @Benchmark
+    public String historyJson() {
+        return ResourceHandlers.getSearchHistoryJson();
+    }
+}
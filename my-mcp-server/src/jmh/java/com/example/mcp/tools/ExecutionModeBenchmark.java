@@ -0,0 +1,108 @@
+package com.example.mcp.tools;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the execution modes on a burst of concurrent slow searches: OkHttp's async
+ * dispatcher, blocking calls on virtual threads, and blocking calls on Reactor's bounded
+ * elastic pool.
+ * 
+ * Each operation issues {@code concurrency} searches at once against a stub server that
+ * answers after {@code latencyMillis}. The {@code peakPlatformThreads} counter reports how
+ * many platform threads the JVM needed; virtual threads are not included in it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class ExecutionModeBenchmark {
+    
+    @Param({"ASYNC", "VIRTUAL_THREADS", "BOUNDED_ELASTIC"})
+    public ExecutionMode mode;
+    
+    @Param({"100", "1000"})
+    public int concurrency;
+    
+    @Param({"50"})
+    public long latencyMillis;
+    
+    private StubSearchServer server;
+    private OkHttpClient httpClient;
+    private SearchProvider provider;
+    
+    /**
+     * Peak number of live platform threads during the iteration.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Threads {
+        
+        private static final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        
+        public long peakPlatformThreads;
+        
+        @Setup(Level.Iteration)
+        public void reset() {
+            threadBean.resetPeakThreadCount();
+            peakPlatformThreads = 0;
+        }
+        
+        void sample() {
+            peakPlatformThreads = Math.max(peakPlatformThreads, threadBean.getPeakThreadCount());
+        }
+    }
+    
+    @Setup
+    public void setUp() throws IOException {
+        server = new StubSearchServer(SearchPayloads.response(10), latencyMillis);
+        
+        // Raise the dispatcher and pool limits so the comparison is about threads, not queueing
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(concurrency);
+        dispatcher.setMaxRequestsPerHost(concurrency);
+        httpClient = new OkHttpClient.Builder()
+            .dispatcher(dispatcher)
+            .connectionPool(new ConnectionPool(concurrency, 1, TimeUnit.MINUTES))
+            .build();
+        provider = new DuckDuckGoSearchProvider(httpClient, server.endpoint(), mode);
+    }
+    
+    @TearDown
+    public void tearDown() {
+        server.close();
+        httpClient.dispatcher().executorService().shutdown();
+        httpClient.connectionPool().evictAll();
+    }
+    
+    @Benchmark
+    public long concurrentSlowSearches(Threads threads) {
+        Long completed = Flux.range(0, concurrency)
+            .flatMap(i -> mode.run(provider.search("query " + i, 5)), concurrency)
+            .count()
+            .block();
+        threads.sample();
+        return completed != null ? completed : 0;
+    }
+}
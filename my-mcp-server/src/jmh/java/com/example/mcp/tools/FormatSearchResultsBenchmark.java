@@ -0,0 +1,55 @@
+package com.example.mcp.tools;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures turning a search response into the JSON and markdown returned by the websearch
+ * tool, alone and together with parsing the raw payload.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FormatSearchResultsBenchmark {
+    
+    @Param({"5", "500"})
+    public int relatedTopics;
+    
+    @Param({"5", "10"})
+    public int numResults;
+    
+    private byte[] payload;
+    private SearchResponse response;
+    
+    @Setup
+    public void setUp() throws IOException {
+        payload = SearchPayloads.response(relatedTopics);
+        response = DuckDuckGoResponseParser.parse(new ByteArrayInputStream(payload), numResults);
+    }
+    
+    @Benchmark
+    public String format() {
+        return ToolHandlers.formatSearchResults(response, "java programming", numResults);
+    }
+    
+    @Benchmark
+    public String formatJson() {
+        return SearchResultsJson.write(response, "java programming", numResults);
+    }
+    
+    @Benchmark
+    public String parseAndFormat() throws IOException {
+        SearchResponse parsed = DuckDuckGoResponseParser.parse(new ByteArrayInputStream(payload), numResults);
+        return ToolHandlers.formatSearchResults(parsed, "java programming", numResults);
+    }
+}
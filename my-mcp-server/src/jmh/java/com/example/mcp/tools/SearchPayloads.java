@@ -0,0 +1,45 @@
+package com.example.mcp.tools;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Synthetic DuckDuckGo Instant Answer API payloads shaped like real responses.
+ */
+final class SearchPayloads {
+    
+    private SearchPayloads() {
+    }
+    
+    /**
+     * Builds a response with an abstract and the given number of related topics.
+     * Each topic carries the icon object and HTML result that the real API includes.
+     * 
+     * @param relatedTopics number of related topics
+     * @return the JSON payload as UTF-8 bytes
+     */
+    static byte[] response(int relatedTopics) {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"Abstract\":\"Java is a high-level, class-based, object-oriented programming language ")
+            .append("that is designed to have as few implementation dependencies as possible.\",")
+            .append("\"AbstractSource\":\"Wikipedia\",")
+            .append("\"AbstractText\":\"Java is a high-level, class-based, object-oriented programming language.\",")
+            .append("\"AbstractURL\":\"https://en.wikipedia.org/wiki/Java_(programming_language)\",")
+            .append("\"Answer\":\"\",\"AnswerType\":\"\",\"Definition\":\"\",\"Entity\":\"programming language\",")
+            .append("\"Heading\":\"Java (programming language)\",\"Image\":\"/i/java.png\",")
+            .append("\"RelatedTopics\":[");
+        for (int i = 0; i < relatedTopics; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"FirstURL\":\"https://duckduckgo.com/Topic_").append(i).append("\",")
+                .append("\"Icon\":{\"Height\":\"\",\"URL\":\"/i/topic").append(i).append(".png\",\"Width\":\"\"},")
+                .append("\"Result\":\"<a href=\\\"https://duckduckgo.com/Topic_").append(i).append("\\\">Topic ")
+                .append(i).append("</a> A related topic with a description of moderate length.\",")
+                .append("\"Text\":\"Topic ").append(i).append(" A related topic with a description of moderate length.\"}");
+        }
+        json.append("],\"Results\":[],\"Type\":\"A\",")
+            .append("\"meta\":{\"attribution\":null,\"blockgroup\":null,\"created_date\":null,")
+            .append("\"description\":\"Wikipedia\",\"dev_milestone\":\"live\",\"id\":\"wikipedia_fathead\"}}");
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
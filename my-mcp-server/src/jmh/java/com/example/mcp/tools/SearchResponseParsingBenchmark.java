@@ -0,0 +1,70 @@
+package com.example.mcp.tools;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the streaming response parser with the previous tree-based path,
+ * which copied the whole body into a String and built a full JsonNode tree.
+ * 
+ * Run with the gc profiler (enabled in build.gradle.kts) to compare
+ * allocation per operation as well as latency.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SearchResponseParsingBenchmark {
+    
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    
+    @Param({"5", "50", "500"})
+    public int relatedTopics;
+    
+    @Param({"5", "10"})
+    public int numResults;
+    
+    private byte[] payload;
+    
+    @Setup
+    public void setUp() {
+        payload = SearchPayloads.response(relatedTopics);
+    }
+    
+    @Benchmark
+    public SearchResponse streaming() throws IOException {
+        return DuckDuckGoResponseParser.parse(new ByteArrayInputStream(payload), numResults);
+    }
+    
+    @Benchmark
+    public SearchResponse tree() throws IOException {
+        // Equivalent of response.body().string() followed by objectMapper.readTree(...)
+        String body = new String(payload, StandardCharsets.UTF_8);
+        JsonNode root = objectMapper.readTree(body);
+        
+        List<SearchResult> results = new ArrayList<>();
+        for (JsonNode topic : root.path("RelatedTopics")) {
+            if (results.size() >= numResults) break;
+            
+            String text = topic.path("Text").asText("");
+            if (!text.isEmpty()) {
+                results.add(new SearchResult(text, topic.path("FirstURL").asText("")));
+            }
+        }
+        return new SearchResponse(root.path("Abstract").asText(""), root.path("AbstractURL").asText(""), results, null);
+    }
+}
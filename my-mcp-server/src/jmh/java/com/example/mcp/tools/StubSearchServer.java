@@ -0,0 +1,75 @@
+package com.example.mcp.tools;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Local HTTP server that answers every request with a fixed DuckDuckGo-style payload,
+ * optionally after a delay, so end-to-end benchmarks measure the server rather than the
+ * network. Requests are handled on virtual threads, so delayed requests do not queue
+ * behind each other.
+ */
+final class StubSearchServer implements AutoCloseable {
+    
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    
+    /**
+     * Starts a server on an ephemeral loopback port that answers immediately.
+     * 
+     * @param payload the response body for every request
+     * @throws IOException if the server cannot be started
+     */
+    StubSearchServer(byte[] payload) throws IOException {
+        this(payload, 0);
+    }
+    
+    /**
+     * Starts a server on an ephemeral loopback port.
+     * 
+     * @param payload the response body for every request
+     * @param delayMillis how long to wait before answering each request
+     * @throws IOException if the server cannot be started
+     */
+    StubSearchServer(byte[] payload, long delayMillis) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+        server.createContext("/", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            if (delayMillis > 0) {
+                try {
+                    Thread.sleep(delayMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            exchange.getResponseHeaders().set("Content-Type", "application/x-javascript");
+            exchange.sendResponseHeaders(200, payload.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(payload);
+            }
+        });
+        server.setExecutor(executor);
+        server.start();
+    }
+    
+    /**
+     * Returns the base URL of the server.
+     * 
+     * @return the endpoint URL
+     */
+    String endpoint() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+    }
+    
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.mcp.tools;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.modelcontextprotocol.spec.McpSchema.CallToolResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end websearch dispatch against a local stub search server: argument handling,
+ * cache lookup, the HTTP round trip, streaming parse, formatting and history recording.
+ * 
+ * {@code cacheMiss} uses a fresh query on every call so each one goes upstream;
+ * {@code cacheHit} repeats one query so only the first does. The fork raises the upstream
+ * rate and concurrency limits out of reach, so cache misses measure dispatch rather than
+ * waiting for the admission token bucket.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = {
+    "-Dmcp.upstream.ratePerSecond=1e9",
+    "-Dmcp.upstream.burst=1000000",
+    "-Dmcp.upstream.initialConcurrency=1024",
+    "-Dmcp.upstream.maxConcurrency=1024",
+    "-Dmcp.upstream.maxQueued=100000"})
+public class ToolDispatchBenchmark {
+    
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    
+    @Param({"5", "500"})
+    public int relatedTopics;
+    
+    private StubSearchServer server;
+    private ObjectNode repeatedQuery;
+    private long sequence;
+    
+    @Setup
+    public void setUp() throws IOException {
+        server = new StubSearchServer(SearchPayloads.response(relatedTopics));
+        ToolHandlers.setSearchEndpoint(server.endpoint());
+        repeatedQuery = arguments("java programming");
+    }
+    
+    @TearDown
+    public void tearDown() {
+        server.close();
+    }
+    
+    @Benchmark
+    public CallToolResult cacheMiss() {
+        return ToolHandlers.handleWebSearch(arguments("java programming " + sequence++)).block();
+    }
+    
+    @Benchmark
+    public CallToolResult cacheHit() {
+        return ToolHandlers.handleWebSearch(repeatedQuery).block();
+    }
+    
+    private static ObjectNode arguments(String query) {
+        ObjectNode arguments = objectMapper.createObjectNode();
+        arguments.put("query", query);
+        arguments.put("numResults", 5);
+        return arguments;
+    }
+}
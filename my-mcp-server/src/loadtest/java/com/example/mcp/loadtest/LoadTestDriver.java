@@ -0,0 +1,451 @@
+package com.example.mcp.loadtest;
+
+import com.example.mcp.metrics.LatencyHistogram;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives a server over stdio with websearch calls at a fixed rate and reports throughput
+ * and latency percentiles.
+ * 
+ * The server is launched from the fat jar with its search endpoint pointed at a
+ * {@link StubSearchBackend} started in this process, or at {@code --endpoint} if given, so
+ * results are not distorted by DuckDuckGo's latency or rate limits. Against the stub, the
+ * server's own upstream rate and concurrency limits are raised out of reach
+ * ({@link #UNBOUNDED_UPSTREAM}), so results measure the server rather than its admission
+ * queue; {@code --jvm-arg} options come later on the command line and override them. Calls are sent
+ * open-loop: each has an intended send time on a fixed schedule, and its latency is measured
+ * from that time rather than from when it was actually written. A server that stalls
+ * therefore shows up as high latency for every call it delayed, instead of slowing the
+ * driver down and hiding the stall (coordinated omission).
+ * 
+ * Options, as {@code --name=value}:
+ * <ul>
+ *   <li>{@code --jar}: the server's fat jar (default {@code build/libs/my-mcp-server-1.0.0.jar})</li>
+ *   <li>{@code --rate}: calls per second (default 50)</li>
+ *   <li>{@code --duration-seconds} and {@code --warmup-seconds}: how long to measure, after
+ *       a warm-up whose calls are not counted (default 30 and 5)</li>
+ *   <li>{@code --queries}: a file with one query per line; blank lines and lines starting
+ *       with {@code #} are skipped (default a built-in mix)</li>
+ *   <li>{@code --unique-fraction}: the fraction of calls made unique so they miss the result
+ *       cache (default 0.2)</li>
+ *   <li>{@code --num-results}: the numResults argument of each call (default 5)</li>
+ *   <li>{@code --endpoint}: an external search backend to use instead of the stub</li>
+ *   <li>{@code --latency-ms}, {@code --jitter-ms}, {@code --error-rate} and {@code --topics}:
+ *       the stub backend's behaviour (default 100, 20, 0 and 20)</li>
+ *   <li>{@code --jvm-arg}: an extra JVM option for the server, such as
+ *       {@code -Dmcp.execution.mode=virtual-threads} or {@code -Dmcp.upstream.ratePerSecond=10};
+ *       may be repeated</li>
+ *   <li>{@code --server-log}: a file for the server's stderr (default discarded)</li>
+ *   <li>{@code --report}: a file to write the results to as JSON</li>
+ *   <li>{@code --max-p99-ms} and {@code --max-error-rate}: fail with exit status 1 if the
+ *       p99 latency or the fraction of failed calls is higher</li>
+ * </ul>
+ */
+public final class LoadTestDriver {
+    
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    
+    /** How long to wait for outstanding calls once sending stops. */
+    private static final long DRAIN_NANOS = TimeUnit.SECONDS.toNanos(30);
+    
+    /** Upstream admission settings that cannot bind against the stub backend. */
+    private static final List<String> UNBOUNDED_UPSTREAM = List.of(
+        "-Dmcp.upstream.ratePerSecond=1e9",
+        "-Dmcp.upstream.burst=1000000",
+        "-Dmcp.upstream.initialConcurrency=4096",
+        "-Dmcp.upstream.maxConcurrency=4096",
+        "-Dmcp.upstream.maxQueued=1000000",
+        "-Dmcp.upstream.queueTimeoutMillis=60000");
+    
+    private static final List<String> DEFAULT_QUERIES = List.of(
+        "java virtual threads", "model context protocol", "duckduckgo instant answer api",
+        "jackson streaming parser", "okhttp connection pool", "project reactor backpressure",
+        "gradle toolchains", "jvm garbage collectors", "http keep-alive", "json-rpc 2.0",
+        "coordinated omission", "hdr histogram", "lru cache", "circuit breaker pattern",
+        "exponential backoff jitter", "class data sharing", "jmh benchmarks", "utf-8 encoding",
+        "tcp slow start", "linux epoll");
+    
+    private static final String INITIALIZE = """
+        {"jsonrpc":"2.0","id":0,"method":"initialize","params":{"protocolVersion":"2025-03-26",\
+        "capabilities":{},"clientInfo":{"name":"load-test","version":"1.0"}}}
+        """;
+    private static final String INITIALIZED = """
+        {"jsonrpc":"2.0","method":"notifications/initialized"}
+        """;
+    
+    private LoadTestDriver() {
+    }
+    
+    /**
+     * The outcome of a run.
+     * 
+     * @param sent calls sent during the measured period
+     * @param completed measured calls that were answered
+     * @param toolErrors measured calls answered with a tool error result
+     * @param protocolErrors measured calls answered with a JSON-RPC error
+     * @param unanswered measured calls still outstanding when the run ended
+     * @param seconds the length of the measured period
+     * @param latency the latency of answered calls, from their intended send time
+     */
+    record Report(long sent, long completed, long toolErrors, long protocolErrors, long unanswered,
+                  double seconds, LatencyHistogram latency) {
+        
+        double throughput() {
+            return completed / seconds;
+        }
+        
+        double errorRate() {
+            return sent == 0 ? 0 : (double) (toolErrors + protocolErrors + unanswered) / sent;
+        }
+    }
+    
+    /**
+     * Runs a load test.
+     * 
+     * @param args the options described on the class
+     * @throws Exception if the server cannot be started or a report cannot be written
+     */
+    public static void main(String[] args) throws Exception {
+        Path jar = Path.of(option(args, "--jar", "build/libs/my-mcp-server-1.0.0.jar"));
+        if (!Files.isRegularFile(jar)) {
+            throw new IllegalStateException("Fat jar not found at " + jar.toAbsolutePath() + "; run ./gradlew jar");
+        }
+        double rate = Double.parseDouble(option(args, "--rate", "50"));
+        long durationSeconds = Long.parseLong(option(args, "--duration-seconds", "30"));
+        long warmupSeconds = Long.parseLong(option(args, "--warmup-seconds", "5"));
+        double uniqueFraction = Double.parseDouble(option(args, "--unique-fraction", "0.2"));
+        int numResults = Integer.parseInt(option(args, "--num-results", "5"));
+        String queryFile = option(args, "--queries", null);
+        List<String> queries = queryFile == null ? DEFAULT_QUERIES : readQueries(Path.of(queryFile));
+        
+        StubSearchBackend backend = null;
+        String endpoint = option(args, "--endpoint", null);
+        if (endpoint == null) {
+            backend = new StubSearchBackend(0,
+                Long.parseLong(option(args, "--latency-ms", "100")),
+                Long.parseLong(option(args, "--jitter-ms", "20")),
+                Double.parseDouble(option(args, "--error-rate", "0")),
+                Integer.parseInt(option(args, "--topics", "20")));
+            endpoint = backend.endpoint();
+        }
+        
+        List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command().orElse("java"));
+        if (backend != null) {
+            command.addAll(UNBOUNDED_UPSTREAM);
+        }
+        command.addAll(options(args, "--jvm-arg"));
+        command.add("-Dmcp.search.endpoints=" + endpoint);
+        command.add("-jar");
+        command.add(jar.toAbsolutePath().toString());
+        String serverLog = option(args, "--server-log", null);
+        Process process = new ProcessBuilder(command)
+            .redirectError(serverLog == null ? ProcessBuilder.Redirect.DISCARD
+                : ProcessBuilder.Redirect.to(Path.of(serverLog).toFile()))
+            .start();
+        
+        Report report;
+        try {
+            System.out.printf("Driving %s at %.1f calls/s for %d s after a %d s warm-up, against %s%n",
+                jar.getFileName(), rate, durationSeconds, warmupSeconds, endpoint);
+            report = run(process, queries, uniqueFraction, numResults, rate,
+                TimeUnit.SECONDS.toNanos(warmupSeconds), TimeUnit.SECONDS.toNanos(durationSeconds));
+        } finally {
+            process.destroy();
+            if (!process.waitFor(5, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+            if (backend != null) {
+                backend.close();
+            }
+        }
+        
+        print(report, backend);
+        String reportFile = option(args, "--report", null);
+        if (reportFile != null) {
+            Files.writeString(Path.of(reportFile), toJson(report, rate, endpoint));
+        }
+        
+        List<String> failures = new ArrayList<>();
+        String maxP99 = option(args, "--max-p99-ms", null);
+        if (maxP99 != null && millis(report.latency().snapshot().p99()) > Double.parseDouble(maxP99)) {
+            failures.add(String.format("p99 %.1f ms is above %s ms", millis(report.latency().snapshot().p99()), maxP99));
+        }
+        String maxErrorRate = option(args, "--max-error-rate", null);
+        if (maxErrorRate != null && report.errorRate() > Double.parseDouble(maxErrorRate)) {
+            failures.add(String.format("error rate %.4f is above %s", report.errorRate(), maxErrorRate));
+        }
+        if (!failures.isEmpty()) {
+            System.out.println("FAILED: " + String.join("; ", failures));
+            System.exit(1);
+        }
+    }
+    
+    /**
+     * Initializes the server, then sends calls on schedule and collects their responses.
+     * 
+     * @param process the server process
+     * @param queries the queries to draw from
+     * @param uniqueFraction the fraction of calls made unique
+     * @param numResults the numResults argument of each call
+     * @param rate calls per second
+     * @param warmupNanos how long to send before measuring
+     * @param durationNanos how long to measure
+     * @return the results of the measured period
+     * @throws IOException if the server exits or cannot be written to
+     * @throws InterruptedException if interrupted while waiting for responses
+     */
+    static Report run(Process process, List<String> queries, double uniqueFraction, int numResults, double rate,
+                      long warmupNanos, long durationNanos) throws IOException, InterruptedException {
+        OutputStream stdin = process.getOutputStream();
+        BufferedReader stdout = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        send(stdin, INITIALIZE);
+        awaitResponse(stdout, 0);
+        send(stdin, INITIALIZED);
+        
+        // Intended send time of each outstanding call, negated for warm-up calls that are not measured
+        Map<Long, Long> outstanding = new ConcurrentHashMap<>();
+        LatencyHistogram latency = new LatencyHistogram();
+        AtomicLong completed = new AtomicLong();
+        AtomicLong toolErrors = new AtomicLong();
+        AtomicLong protocolErrors = new AtomicLong();
+        
+        Thread reader = Thread.ofPlatform().name("load-test-reader").daemon().start(() -> {
+            try {
+                String line;
+                while ((line = stdout.readLine()) != null) {
+                    long now = System.nanoTime();
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    JsonNode message = objectMapper.readTree(line);
+                    if (!message.has("id")) {
+                        continue;
+                    }
+                    Long intended = outstanding.remove(message.get("id").asLong());
+                    if (intended == null || intended < 0) {
+                        continue;
+                    }
+                    completed.incrementAndGet();
+                    latency.record(now - intended);
+                    if (message.has("error")) {
+                        protocolErrors.incrementAndGet();
+                    } else if (message.path("result").path("isError").asBoolean(false)) {
+                        toolErrors.incrementAndGet();
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Stopped reading server output: " + e.getMessage());
+            }
+        });
+        
+        long interval = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        long start = System.nanoTime();
+        long measureFrom = start + warmupNanos;
+        long end = measureFrom + durationNanos;
+        long sent = 0;
+        for (long id = 1; ; id++) {
+            long intended = start + (id - 1) * interval;
+            if (intended >= end) {
+                break;
+            }
+            long wait;
+            while ((wait = intended - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            boolean measured = intended >= measureFrom;
+            // The time is recorded before writing, so a blocked write counts against the server
+            outstanding.put(id, measured ? intended : -1L);
+            send(stdin, call(id, nextQuery(queries, uniqueFraction, id), numResults));
+            if (measured) {
+                sent++;
+            }
+        }
+        
+        long drainUntil = System.nanoTime() + DRAIN_NANOS;
+        while (!outstanding.isEmpty() && System.nanoTime() < drainUntil && reader.isAlive()) {
+            Thread.sleep(10);
+        }
+        long unanswered = outstanding.values().stream().filter(intended -> intended >= 0).count();
+        return new Report(sent, completed.get(), toolErrors.get(), protocolErrors.get(), unanswered,
+            durationNanos / 1e9, latency);
+    }
+    
+    /**
+     * Returns the value of a {@code --name=value} option.
+     * 
+     * @param args the command-line arguments
+     * @param name the option name, including the leading dashes
+     * @param defaultValue the value if the option is absent
+     * @return the first value given, or the default
+     */
+    static String option(String[] args, String name, String defaultValue) {
+        List<String> values = options(args, name);
+        return values.isEmpty() ? defaultValue : values.get(0);
+    }
+    
+    /**
+     * Returns every value of a repeatable {@code --name=value} option.
+     * 
+     * @param args the command-line arguments
+     * @param name the option name, including the leading dashes
+     * @return the values in order
+     */
+    private static List<String> options(String[] args, String name) {
+        String prefix = name + "=";
+        List<String> values = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith(prefix)) {
+                values.add(arg.substring(prefix.length()));
+            }
+        }
+        return values;
+    }
+    
+    /**
+     * Picks the query for a call, making it unique with the given probability.
+     * 
+     * @param queries the queries to draw from
+     * @param uniqueFraction the probability of a unique query
+     * @param id the call ID, which makes the query unique
+     * @return the query
+     */
+    private static String nextQuery(List<String> queries, double uniqueFraction, long id) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String query = queries.get(random.nextInt(queries.size()));
+        return random.nextDouble() < uniqueFraction ? query + " " + id : query;
+    }
+    
+    /**
+     * Builds a websearch tools/call request.
+     * 
+     * @param id the request ID
+     * @param query the query
+     * @param numResults the number of results to ask for
+     * @return the request as a line of JSON
+     */
+    private static String call(long id, String query, int numResults) {
+        ObjectNode request = objectMapper.createObjectNode();
+        request.put("jsonrpc", "2.0");
+        request.put("id", id);
+        request.put("method", "tools/call");
+        ObjectNode params = request.putObject("params");
+        params.put("name", "websearch");
+        params.putObject("arguments").put("query", query).put("numResults", numResults);
+        return request + "\n";
+    }
+    
+    /**
+     * Reads a query file.
+     * 
+     * @param file the file, with one query per line
+     * @return the queries
+     * @throws IOException if the file cannot be read or has no queries
+     */
+    private static List<String> readQueries(Path file) throws IOException {
+        List<String> queries = Files.readAllLines(file).stream()
+            .map(String::strip)
+            .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+            .toList();
+        if (queries.isEmpty()) {
+            throw new IOException("No queries in " + file);
+        }
+        return queries;
+    }
+    
+    private static void send(OutputStream stdin, String messages) throws IOException {
+        stdin.write(messages.getBytes(StandardCharsets.UTF_8));
+        stdin.flush();
+    }
+    
+    /**
+     * Reads server output until the response with the given ID arrives.
+     * 
+     * @param stdout the server's stdout
+     * @param id the request ID
+     * @throws IOException if the server exits first
+     */
+    private static void awaitResponse(BufferedReader stdout, int id) throws IOException {
+        String line;
+        while ((line = stdout.readLine()) != null) {
+            if (!line.isBlank() && objectMapper.readTree(line).path("id").asInt(-1) == id) {
+                return;
+            }
+        }
+        throw new IOException("Server exited before responding to request " + id);
+    }
+    
+    /**
+     * Prints a report to standard output.
+     * 
+     * @param report the report
+     * @param backend the stub backend, or null if an external endpoint was used
+     */
+    private static void print(Report report, StubSearchBackend backend) {
+        LatencyHistogram.Snapshot latency = report.latency().snapshot();
+        System.out.printf("Sent:        %d%n", report.sent());
+        System.out.printf("Completed:   %d (%.1f calls/s)%n", report.completed(), report.throughput());
+        System.out.printf("Errors:      %d tool, %d protocol, %d unanswered (%.2f%%)%n",
+            report.toolErrors(), report.protocolErrors(), report.unanswered(), 100 * report.errorRate());
+        System.out.printf("Latency ms:  p50 %.1f  p99 %.1f  p99.9 %.1f  max %.1f  mean %.1f%n",
+            millis(latency.p50()), millis(latency.p99()), millis(report.latency().percentile(0.999)),
+            millis(latency.max()), latency.mean() / 1e6);
+        if (backend != null) {
+            System.out.printf("Backend:     %d requests, %d injected errors%n", backend.requests(), backend.errors());
+        }
+    }
+    
+    /**
+     * Writes a report as JSON, for comparing runs.
+     * 
+     * @param report the report
+     * @param rate the target rate
+     * @param endpoint the search endpoint
+     * @return the JSON text
+     * @throws IOException if the report cannot be serialized
+     */
+    private static String toJson(Report report, double rate, String endpoint) throws IOException {
+        LatencyHistogram.Snapshot latency = report.latency().snapshot();
+        ObjectNode json = objectMapper.createObjectNode();
+        json.put("targetRate", rate);
+        json.put("endpoint", endpoint);
+        json.put("seconds", report.seconds());
+        json.put("sent", report.sent());
+        json.put("completed", report.completed());
+        json.put("throughput", report.throughput());
+        json.put("toolErrors", report.toolErrors());
+        json.put("protocolErrors", report.protocolErrors());
+        json.put("unanswered", report.unanswered());
+        json.put("errorRate", report.errorRate());
+        ObjectNode millis = json.putObject("latencyMillis");
+        millis.put("p50", millis(latency.p50()));
+        millis.put("p90", millis(latency.p90()));
+        millis.put("p99", millis(latency.p99()));
+        millis.put("p999", millis(report.latency().percentile(0.999)));
+        millis.put("max", millis(latency.max()));
+        millis.put("mean", latency.mean() / 1e6);
+        return objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(json);
+    }
+    
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+}
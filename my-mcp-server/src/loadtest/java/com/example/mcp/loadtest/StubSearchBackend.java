@@ -0,0 +1,171 @@
+package com.example.mcp.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local HTTP server that imitates the DuckDuckGo Instant Answer API, for load tests.
+ * 
+ * Every request is answered with a payload of {@code topics} related topics after a
+ * latency drawn uniformly from {@code latencyMillis ± jitterMillis}. A fraction
+ * {@code errorRate} of requests fails with a {@code 503} instead. Requests are handled on
+ * virtual threads, so slow responses do not queue behind each other.
+ * 
+ * Run it on its own with {@code ./gradlew stubBackend -PstubArgs="--port=9000 --latency-ms=200"},
+ * and point a server at it with {@code -Dmcp.search.endpoints=http://127.0.0.1:9000/}.
+ */
+public final class StubSearchBackend implements AutoCloseable {
+    
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final byte[] payload;
+    private final long latencyMillis;
+    private final long jitterMillis;
+    private final double errorRate;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    
+    /**
+     * Starts a backend on the loopback interface.
+     * 
+     * @param port the port, or 0 for an ephemeral port
+     * @param latencyMillis the mean time before answering
+     * @param jitterMillis how far each latency may be from the mean, either way
+     * @param errorRate the fraction of requests answered with a 503, between 0 and 1
+     * @param topics the number of related topics in each payload
+     * @throws IOException if the server cannot be started
+     */
+    public StubSearchBackend(int port, long latencyMillis, long jitterMillis, double errorRate, int topics)
+        throws IOException {
+        this.payload = payload(topics);
+        this.latencyMillis = latencyMillis;
+        this.jitterMillis = Math.min(jitterMillis, latencyMillis);
+        this.errorRate = errorRate;
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 4096);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+    
+    /**
+     * Runs a backend until the process is stopped.
+     * 
+     * @param args {@code --port}, {@code --latency-ms}, {@code --jitter-ms}, {@code --error-rate}
+     *             and {@code --topics}, as {@code --name=value}
+     * @throws Exception if the server cannot be started
+     */
+    public static void main(String[] args) throws Exception {
+        StubSearchBackend backend = new StubSearchBackend(
+            Integer.parseInt(LoadTestDriver.option(args, "--port", "9000")),
+            Long.parseLong(LoadTestDriver.option(args, "--latency-ms", "100")),
+            Long.parseLong(LoadTestDriver.option(args, "--jitter-ms", "0")),
+            Double.parseDouble(LoadTestDriver.option(args, "--error-rate", "0")),
+            Integer.parseInt(LoadTestDriver.option(args, "--topics", "20")));
+        Runtime.getRuntime().addShutdownHook(new Thread(backend::close));
+        System.out.println("Stub search backend listening on " + backend.endpoint());
+        Thread.currentThread().join();
+    }
+    
+    /**
+     * Returns the base URL of the backend.
+     * 
+     * @return the endpoint URL
+     */
+    public String endpoint() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+    }
+    
+    /**
+     * Returns the number of requests received.
+     * 
+     * @return the request count
+     */
+    public long requests() {
+        return requests.sum();
+    }
+    
+    /**
+     * Returns the number of requests answered with an injected error.
+     * 
+     * @return the error count
+     */
+    public long errors() {
+        return errors.sum();
+    }
+    
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+    
+    /**
+     * Answers one request after the configured latency.
+     * 
+     * @param exchange the exchange
+     * @throws IOException if writing the response fails
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.increment();
+        exchange.getRequestBody().readAllBytes();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long delay = latencyMillis + (jitterMillis == 0 ? 0 : random.nextLong(-jitterMillis, jitterMillis + 1));
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                exchange.close();
+                return;
+            }
+        }
+        if (random.nextDouble() < errorRate) {
+            errors.increment();
+            exchange.sendResponseHeaders(503, -1);
+            exchange.close();
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/x-javascript");
+        exchange.sendResponseHeaders(200, payload.length);
+        try (OutputStream body = exchange.getResponseBody()) {
+            body.write(payload);
+        }
+    }
+    
+    /**
+     * Builds a response shaped like the real API's, with an abstract and related topics.
+     * 
+     * @param topics the number of related topics
+     * @return the JSON payload as UTF-8 bytes
+     */
+    private static byte[] payload(int topics) {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"Abstract\":\"Java is a high-level, class-based, object-oriented programming language.\",")
+            .append("\"AbstractSource\":\"Wikipedia\",")
+            .append("\"AbstractURL\":\"https://en.wikipedia.org/wiki/Java_(programming_language)\",")
+            .append("\"Heading\":\"Java (programming language)\",\"Image\":\"/i/java.png\",")
+            .append("\"RelatedTopics\":[");
+        for (int i = 0; i < topics; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"FirstURL\":\"https://duckduckgo.com/Topic_").append(i).append("\",")
+                .append("\"Icon\":{\"Height\":\"\",\"URL\":\"/i/topic").append(i).append(".png\",\"Width\":\"\"},")
+                .append("\"Result\":\"<a href=\\\"https://duckduckgo.com/Topic_").append(i).append("\\\">Topic ")
+                .append(i).append("</a> A related topic with a description of moderate length.\",")
+                .append("\"Text\":\"Topic ").append(i).append(" A related topic with a description of moderate length.\"}");
+        }
+        json.append("],\"Results\":[],\"Type\":\"A\"}");
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
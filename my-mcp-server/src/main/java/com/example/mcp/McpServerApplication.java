@@ -1,8 +1,14 @@
 package com.example.mcp;
 
+import com.example.mcp.config.RuntimeConfig;
+import com.example.mcp.config.ServerConfig;
+import com.example.mcp.tools.ExecutionMode;
 import com.example.mcp.tools.ToolHandlers;
 import com.example.mcp.resources.ResourceHandlers;
 import com.example.mcp.prompts.PromptHandlers;
+import com.example.mcp.metrics.PrometheusFileExporter;
+import com.example.mcp.transport.StreamableHttpTransport;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.modelcontextprotocol.server.McpServer;
 import io.modelcontextprotocol.server.McpServerBuilder;
 import io.modelcontextprotocol.server.transport.StdioServerTransport;
@@ -10,10 +16,29 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import reactor.core.Disposable;
 
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+
 /**
  * Main entry point for the MCP Server application.
  * 
  * This server provides web search capabilities through the Model Context Protocol.
+ * 
+ * Options:
+ * <ul>
+ *   <li>{@code --config=<file>}: a JSON configuration file, reloaded when it changes (default
+ *       the {@code mcp.config.file} system property or {@code MCP_CONFIG_FILE} environment
+ *       variable, if set; see {@link com.example.mcp.config.ConfigLoader})</li>
+ *   <li>{@code --execution-mode=async|virtual-threads|bounded-elastic}: how tool calls run
+ *       (default {@code async}, or the {@code execution.mode} setting)</li>
+ *   <li>{@code --transport=stdio|http}: serve one client over stdio (default), or many
+ *       clients over streamable HTTP</li>
+ *   <li>{@code --host=<address>} and {@code --port=<port>}: where the HTTP transport listens
+ *       (default {@code 127.0.0.1:8080})</li>
+ *   <li>{@code --training-run}: start up, exercise the common request paths and exit; used to
+ *       build the class-data-sharing archive (see the {@code cdsArchive} Gradle task)</li>
+ * </ul>
  */
 public class McpServerApplication {
     
@@ -23,6 +48,21 @@ public class McpServerApplication {
         log.info("Starting MCP Server...");
         
         try {
+            String configFile = option(args, "--config", null);
+            RuntimeConfig config = RuntimeConfig.initialize(configFile == null ? null : Path.of(configFile));
+            ServerConfig.Startup startup = config.current().startup();
+            config.watch();
+            
+            ToolHandlers.setExecutionMode(ExecutionMode.parse(
+                option(args, "--execution-mode", startup.executionMode())));
+            
+            PrometheusFileExporter metricsExporter = PrometheusFileExporter.fromConfig(startup);
+            
+            if ("http".equals(option(args, "--transport", "stdio"))) {
+                startHttp(args, metricsExporter);
+                return;
+            }
+            
             McpServer server = createServer();
             StdioServerTransport transport = new StdioServerTransport();
             
@@ -34,11 +74,20 @@ public class McpServerApplication {
                 log.info("Shutting down MCP server");
                 serverDisposable.dispose();
                 server.stop().block();
+                if (metricsExporter != null) {
+                    metricsExporter.close();
+                }
             }));
             
             log.info("MCP Server started successfully");
             
-            // Keep running
+            if (Arrays.asList(args).contains("--training-run")) {
+                trainingRun();
+                System.exit(0);
+            }
+            
+            // Keep running. Unlike the HTTP transport, no connections are warmed up or kept
+            // alive: the one client may never search, so the HTTP client is built on first use
             Thread.currentThread().join();
             
         } catch (Exception e) {
@@ -47,6 +96,73 @@ public class McpServerApplication {
         }
     }
     
+    /**
+     * Runs the request paths a typical session uses, so that a JVM started with
+     * {@code -XX:ArchiveClassesAtExit} archives the classes they load. The search goes to a
+     * local port that refuses connections, so the run needs no network.
+     */
+    private static void trainingRun() {
+        log.info("Training run: exercising request paths");
+        ToolHandlers.listTools().block();
+        PromptHandlers.listPrompts().block();
+        PromptHandlers.getPrompt("research", Map.of("topic", "class data sharing")).block();
+        ResourceHandlers.listResources().block();
+        ResourceHandlers.readResource("resource://config").block();
+        ResourceHandlers.readResource("resource://metrics").block();
+        
+        ToolHandlers.setSearchEndpoint("http://127.0.0.1:1/");
+        ToolHandlers.callTool("websearch", new ObjectMapper().createObjectNode().put("query", "training run")).block();
+    }
+    
+    /**
+     * Serves clients over the streamable HTTP transport until the process is stopped.
+     * 
+     * @param args the command-line arguments
+     * @param metricsExporter the metrics exporter, or null
+     * @throws Exception if the transport cannot be started
+     */
+    private static void startHttp(String[] args, PrometheusFileExporter metricsExporter) throws Exception {
+        StreamableHttpTransport transport = new StreamableHttpTransport(
+            option(args, "--host", "127.0.0.1"),
+            Integer.parseInt(option(args, "--port", "8080")),
+            RuntimeConfig.global().current().startup().sessionIdle());
+        PromptHandlers.watchTemplates();
+        transport.start();
+        ToolHandlers.maintainConnections(() -> transport.sessionCount() > 0);
+        
+        // Graceful shutdown
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            log.info("Shutting down MCP server");
+            transport.close();
+            if (metricsExporter != null) {
+                metricsExporter.close();
+            }
+        }));
+        
+        log.info("MCP Server started successfully");
+        
+        // Keep running
+        Thread.currentThread().join();
+    }
+    
+    /**
+     * Returns the value of a {@code --name=value} command-line option.
+     * 
+     * @param args the command-line arguments
+     * @param name the option name, including the leading dashes
+     * @param defaultValue the value if the option is absent
+     * @return the option value
+     */
+    private static String option(String[] args, String name, String defaultValue) {
+        String prefix = name + "=";
+        for (String arg : args) {
+            if (arg.startsWith(prefix)) {
+                return arg.substring(prefix.length());
+            }
+        }
+        return defaultValue;
+    }
+    
     /**
      * Creates and configures the MCP server with all handlers.
      * 
@@ -0,0 +1,384 @@
+package com.example.mcp.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Reads a {@link ServerConfig} from a JSON file, the environment and system properties.
+ * 
+ * The file holds settings as nested objects, so {@code {"search": {"deadlineMillis": 5000}}}
+ * sets {@code search.deadlineMillis}; lists are JSON arrays. Each setting can be overridden
+ * by an environment variable named after its key, upper-cased with words separated by
+ * underscores and prefixed with {@code MCP_} ({@code MCP_SEARCH_DEADLINE_MILLIS}), and that
+ * in turn by a system property of the key prefixed with {@code mcp.}
+ * ({@code -Dmcp.search.deadlineMillis=5000}). Settings set nowhere take their defaults.
+ * 
+ * Values are validated as a whole, so a configuration that loads is always consistent, for
+ * example never with a default deadline longer than the maximum.
+ */
+public final class ConfigLoader {
+    
+    private static final Logger log = LoggerFactory.getLogger(ConfigLoader.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    
+    /** The public DuckDuckGo Instant Answer API. */
+    private static final String DEFAULT_ENDPOINT = "https://api.duckduckgo.com/";
+    
+    private final Path file;
+    private final Map<String, String> environment;
+    private final Properties systemProperties;
+    
+    /**
+     * Creates a loader.
+     * 
+     * @param file the configuration file, or null to use only the environment and system properties
+     * @param environment the environment variables
+     * @param systemProperties the system properties
+     */
+    public ConfigLoader(Path file, Map<String, String> environment, Properties systemProperties) {
+        this.file = file;
+        this.environment = environment;
+        this.systemProperties = systemProperties;
+    }
+    
+    /**
+     * Creates a loader for this process's environment and system properties.
+     * 
+     * @param file the configuration file, or null for the one named by the {@code mcp.config.file}
+     *             system property or the {@code MCP_CONFIG_FILE} environment variable, if any
+     * @return the loader
+     */
+    public static ConfigLoader fromEnvironment(Path file) {
+        if (file == null) {
+            String name = System.getProperty("mcp.config.file", System.getenv("MCP_CONFIG_FILE"));
+            file = name == null || name.isBlank() ? null : Path.of(name);
+        }
+        return new ConfigLoader(file, System.getenv(), System.getProperties());
+    }
+    
+    /**
+     * Returns the configuration file.
+     * 
+     * @return the file, or null if there is none
+     */
+    public Path file() {
+        return file;
+    }
+    
+    /**
+     * Loads and validates the configuration. Settings in the file that are not recognized are
+     * logged and ignored.
+     * 
+     * @return the configuration
+     * @throws IOException if the file cannot be read or is not a JSON object
+     * @throws IllegalArgumentException if a value is invalid
+     */
+    public ServerConfig load() throws IOException {
+        Map<String, String> fileValues = file == null ? Map.of() : readFile(file);
+        Set<String> read = new HashSet<>();
+        ServerConfig config = parse(key -> {
+            read.add(key);
+            String value = systemProperties.getProperty("mcp." + key);
+            if (value == null) {
+                value = environment.get(environmentName(key));
+            }
+            return value != null ? value : fileValues.get(key);
+        });
+        for (String key : fileValues.keySet()) {
+            if (!read.contains(key)) {
+                log.warn("Ignoring unknown setting {} in {}", key, file);
+            }
+        }
+        return config;
+    }
+    
+    /**
+     * Returns the environment variable that overrides a setting.
+     * 
+     * @param key the setting key, such as {@code search.deadlineMillis}
+     * @return the variable name, such as {@code MCP_SEARCH_DEADLINE_MILLIS}
+     */
+    public static String environmentName(String key) {
+        StringBuilder name = new StringBuilder("MCP_");
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c == '.' || c == '-') {
+                name.append('_');
+            } else if (Character.isUpperCase(c)) {
+                name.append('_').append(c);
+            } else {
+                name.append(Character.toUpperCase(c));
+            }
+        }
+        return name.toString();
+    }
+    
+    /**
+     * Builds and validates a configuration.
+     * 
+     * @param source returns the raw value of a key, or null if it is not set
+     * @return the configuration
+     * @throws IllegalArgumentException if a value is invalid
+     */
+    static ServerConfig parse(Function<String, String> source) {
+        Values values = new Values(source);
+        
+        ServerConfig.Search search = new ServerConfig.Search(
+            values.list("search.endpoints", DEFAULT_ENDPOINT),
+            values.choice("search.strategy", "hedged", "hedged", "fan-out"),
+            values.integer("search.maxResults", 10, 1),
+            values.integer("search.defaultResults", 5, 1),
+            values.millis("search.deadlineMillis", 10_000, 1),
+            values.millis("search.maxDeadlineMillis", 30_000, 1),
+            values.integer("search.maxRetries", 2, 0),
+            values.millis("search.retryBackoffMillis", 100, 0),
+            values.millis("search.retryMaxBackoffMillis", 2000, 0),
+            values.millis("search.hedgeInitialDelayMillis", 2000, 1),
+            values.millis("search.hedgeMinDelayMillis", 100, 1),
+            values.integer("search.batchMaxQueries", 20, 1),
+            values.integer("search.batchConcurrency", 4, 1));
+        for (String endpoint : search.endpoints()) {
+            values.require(isHttpUrl(endpoint), "search.endpoints", "not an http or https URL: " + endpoint);
+        }
+        values.require(search.defaultResults() <= search.maxResults(), "search.defaultResults",
+            "larger than search.maxResults");
+        values.require(search.deadline().compareTo(search.maxDeadline()) <= 0, "search.deadlineMillis",
+            "longer than search.maxDeadlineMillis");
+        values.require(search.retryBackoff().compareTo(search.retryMaxBackoff()) <= 0, "search.retryBackoffMillis",
+            "longer than search.retryMaxBackoffMillis");
+        values.require(search.hedgeMinDelay().compareTo(search.hedgeInitialDelay()) <= 0, "search.hedgeMinDelayMillis",
+            "longer than search.hedgeInitialDelayMillis");
+        
+        ServerConfig.Upstream upstream = new ServerConfig.Upstream(
+            values.millis("upstream.attemptTimeoutMillis", 5000, 1),
+            values.decimal("upstream.ratePerSecond", 10),
+            values.integer("upstream.burst", 20, 1),
+            values.integer("upstream.initialConcurrency", 16, 1),
+            values.integer("upstream.maxConcurrency", 64, 1),
+            values.integer("upstream.maxQueued", 256, 0),
+            values.millis("upstream.queueTimeoutMillis", 5000, 1),
+            values.integer("upstream.breakerFailures", 5, 1),
+            values.seconds("upstream.breakerOpenSeconds", 30, 1));
+        values.require(upstream.initialConcurrency() <= upstream.maxConcurrency(), "upstream.initialConcurrency",
+            "larger than upstream.maxConcurrency");
+        
+        ServerConfig.Pool pool = new ServerConfig.Pool(
+            values.integer("pool.maxRequests", 64, 1),
+            values.integer("pool.maxRequestsPerHost", 64, 1),
+            values.integer("pool.maxIdleConnections", 5, 0),
+            values.seconds("pool.keepAliveSeconds", 300, 1),
+            values.seconds("pool.pingIntervalSeconds", 60, 0),
+            values.seconds("pool.dnsTtlSeconds", 60, 0),
+            values.integer("pool.dnsMaxEntries", 256, 1));
+        
+        ServerConfig.Cache cache = new ServerConfig.Cache(
+            values.seconds("cache.ttlSeconds", 600, 1),
+            values.seconds("cache.staleSeconds", 300, 0),
+            values.integer("cache.maxEntries", 1000, 1),
+            values.number("cache.maxWeight", 8L * 1024 * 1024, 1));
+        
+        // A default longer than a lowered maximum is cut to the maximum rather than rejected
+        int maxChars = values.integer("fetch.maxChars", 100_000, 1);
+        ServerConfig.Fetch fetch = new ServerConfig.Fetch(
+            values.millis("fetch.timeoutMillis", 15_000, 1),
+            Math.min(values.integer("fetch.defaultChars", 20_000, 1), maxChars),
+            maxChars,
+            values.number("fetch.maxBytes", 2L * 1024 * 1024, 1),
+            values.seconds("fetch.freshSeconds", 60, 0),
+            values.integer("fetch.cacheEntries", 100, 1),
+            values.number("fetch.cacheWeight", 4L * 1024 * 1024, 1),
+            values.bool("fetch.allowPrivateAddresses", false));
+        
+        ServerConfig.History history = new ServerConfig.History(values.integer("history.capacity", 1000, 1));
+        ServerConfig.Notifications notifications = new ServerConfig.Notifications(
+            values.millis("notifications.debounceMillis", 250, 1));
+        
+        ServerConfig.Startup startup = new ServerConfig.Startup(
+            values.choice("execution.mode", "async", "async", "virtual-threads", "bounded-elastic"),
+            values.seconds("http.sessionIdleSeconds", 600, 1),
+            values.path("prompts.dir"),
+            values.path("metrics.prometheusFile"),
+            values.seconds("metrics.prometheusIntervalSeconds", 15, 1),
+            values.path("cache.dir"),
+            values.integer("cache.segmentBytes", 16 * 1024 * 1024, 4096),
+            values.seconds("cache.compactionSeconds", 300, 1),
+            values.bool("pool.warmUp", true));
+        
+        return new ServerConfig(search, upstream, pool, cache, fetch, history, notifications, startup);
+    }
+    
+    /**
+     * Reads a configuration file into dotted keys.
+     * 
+     * @param file the file
+     * @return raw values by key
+     * @throws IOException if the file cannot be read or is not a JSON object
+     */
+    private static Map<String, String> readFile(Path file) throws IOException {
+        JsonNode root = objectMapper.readTree(Files.readString(file));
+        if (root == null || !root.isObject()) {
+            throw new IOException("Configuration file " + file + " must hold a JSON object");
+        }
+        Map<String, String> values = new LinkedHashMap<>();
+        flatten("", root, values);
+        return values;
+    }
+    
+    /**
+     * Adds the settings in a JSON object to a map, joining nested field names with dots.
+     * 
+     * @param prefix the key of the object, followed by a dot, or empty at the root
+     * @param node the object
+     * @param values receives raw values by key; arrays are joined with commas and nulls are skipped
+     */
+    private static void flatten(String prefix, JsonNode node, Map<String, String> values) {
+        Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            String key = prefix + field.getKey();
+            JsonNode value = field.getValue();
+            if (value.isObject()) {
+                flatten(key + ".", value, values);
+            } else if (value.isArray()) {
+                List<String> items = new ArrayList<>();
+                value.forEach(item -> items.add(item.asText()));
+                values.put(key, String.join(",", items));
+            } else if (!value.isNull()) {
+                values.put(key, value.asText());
+            }
+        }
+    }
+    
+    private static boolean isHttpUrl(String endpoint) {
+        try {
+            URI uri = URI.create(endpoint);
+            return uri.getHost() != null
+                && ("http".equalsIgnoreCase(uri.getScheme()) || "https".equalsIgnoreCase(uri.getScheme()));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+    
+    /**
+     * Typed access to raw values, with defaults and range checks.
+     */
+    private static final class Values {
+        
+        private final Function<String, String> source;
+        
+        Values(Function<String, String> source) {
+            this.source = source;
+        }
+        
+        String raw(String key) {
+            String value = source.apply(key);
+            return value == null || value.isBlank() ? null : value.trim();
+        }
+        
+        int integer(String key, int defaultValue, int min) {
+            return (int) number(key, defaultValue, min, Integer.MAX_VALUE);
+        }
+        
+        long number(String key, long defaultValue, long min) {
+            return number(key, defaultValue, min, Long.MAX_VALUE);
+        }
+        
+        long number(String key, long defaultValue, long min, long max) {
+            String value = raw(key);
+            if (value == null) {
+                return defaultValue;
+            }
+            long parsed;
+            try {
+                parsed = Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                throw invalid(key, "not a whole number: " + value);
+            }
+            require(parsed >= min && parsed <= max, key, parsed < min ? "less than " + min : "too large");
+            return parsed;
+        }
+        
+        double decimal(String key, double defaultValue) {
+            String value = raw(key);
+            if (value == null) {
+                return defaultValue;
+            }
+            double parsed;
+            try {
+                parsed = Double.parseDouble(value);
+            } catch (NumberFormatException e) {
+                throw invalid(key, "not a number: " + value);
+            }
+            require(parsed > 0 && Double.isFinite(parsed), key, "must be positive");
+            return parsed;
+        }
+        
+        boolean bool(String key, boolean defaultValue) {
+            return Boolean.parseBoolean(choice(key, String.valueOf(defaultValue), "true", "false"));
+        }
+        
+        Duration millis(String key, long defaultMillis, long min) {
+            return Duration.ofMillis(number(key, defaultMillis, min));
+        }
+        
+        Duration seconds(String key, long defaultSeconds, long min) {
+            return Duration.ofSeconds(number(key, defaultSeconds, min));
+        }
+        
+        String choice(String key, String defaultValue, String... choices) {
+            String value = raw(key);
+            if (value == null) {
+                return defaultValue;
+            }
+            for (String choice : choices) {
+                if (choice.equalsIgnoreCase(value)) {
+                    return choice;
+                }
+            }
+            throw invalid(key, "expected one of " + String.join(", ", choices) + ", got " + value);
+        }
+        
+        List<String> list(String key, String defaultValue) {
+            String value = raw(key);
+            List<String> items = new ArrayList<>();
+            for (String item : (value == null ? defaultValue : value).split(",")) {
+                if (!item.isBlank()) {
+                    items.add(item.trim());
+                }
+            }
+            require(!items.isEmpty(), key, "must not be empty");
+            return items;
+        }
+        
+        String path(String key) {
+            return raw(key);
+        }
+        
+        void require(boolean condition, String key, String problem) {
+            if (!condition) {
+                throw invalid(key, problem);
+            }
+        }
+        
+        IllegalArgumentException invalid(String key, String problem) {
+            return new IllegalArgumentException("Invalid value for " + key + ": " + problem);
+        }
+    }
+}
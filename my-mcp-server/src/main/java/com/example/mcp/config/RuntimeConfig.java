@@ -0,0 +1,278 @@
+package com.example.mcp.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The configuration in effect, and its reloading.
+ * 
+ * The current {@link ServerConfig} is one immutable value behind a volatile reference, so a
+ * reload replaces every setting at once: code that reads {@link #current()} once per request
+ * sees either the old or the new configuration, never a mix. After the swap, listeners
+ * resize caches, pools and limits in the order they were added.
+ * 
+ * A reload that fails to read or validate leaves the running configuration untouched.
+ * Changes to {@link ServerConfig.Startup} settings are reported but not applied, so the
+ * configuration in effect always describes what the server is actually doing.
+ */
+public final class RuntimeConfig {
+    
+    private static final Logger log = LoggerFactory.getLogger(RuntimeConfig.class);
+    
+    /** Quiet period after a file change, so an editor's burst of writes causes one reload. */
+    private static final long RELOAD_SETTLE_MILLIS = 100;
+    
+    private static volatile RuntimeConfig global;
+    
+    private final ConfigLoader loader;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private volatile State state;
+    private WatchService watchService;
+    
+    /**
+     * A configuration and when it took effect.
+     * 
+     * @param config the configuration
+     * @param loadedAt when it was loaded
+     * @param reloads the number of reloads that changed a setting
+     */
+    private record State(ServerConfig config, Instant loadedAt, long reloads) {
+    }
+    
+    /**
+     * Receives configuration changes.
+     */
+    @FunctionalInterface
+    public interface Listener {
+        
+        /**
+         * Called after a reload replaced the configuration; {@link #current()} already
+         * returns the new one.
+         * 
+         * @param previous the configuration before the reload
+         * @param current the configuration now in effect
+         */
+        void changed(ServerConfig previous, ServerConfig current);
+    }
+    
+    /**
+     * Creates a runtime configuration and loads it.
+     * 
+     * @param loader reads the configuration
+     * @throws IOException if the configuration file cannot be read
+     * @throws IllegalArgumentException if a value is invalid
+     */
+    public RuntimeConfig(ConfigLoader loader) throws IOException {
+        this.loader = loader;
+        this.state = new State(loader.load(), Instant.now(), 0);
+    }
+    
+    /**
+     * Returns the process-wide configuration, loading it on first use from the file named by
+     * {@code mcp.config.file} or {@code MCP_CONFIG_FILE}, if any.
+     * 
+     * @return the global configuration
+     * @throws UncheckedIOException if the configuration file cannot be read
+     */
+    public static RuntimeConfig global() {
+        RuntimeConfig config = global;
+        if (config == null) {
+            synchronized (RuntimeConfig.class) {
+                config = global;
+                if (config == null) {
+                    try {
+                        config = new RuntimeConfig(ConfigLoader.fromEnvironment(null));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("Cannot read configuration", e);
+                    }
+                    global = config;
+                }
+            }
+        }
+        return config;
+    }
+    
+    /**
+     * Loads the process-wide configuration from a file. Call once at startup, before anything
+     * reads the configuration.
+     * 
+     * @param file the configuration file, or null for the one named by {@code mcp.config.file}
+     *             or {@code MCP_CONFIG_FILE}, if any
+     * @return the global configuration
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if a value is invalid
+     */
+    public static synchronized RuntimeConfig initialize(Path file) throws IOException {
+        global = new RuntimeConfig(ConfigLoader.fromEnvironment(file));
+        return global;
+    }
+    
+    /**
+     * Returns the configuration in effect.
+     * 
+     * @return the current configuration
+     */
+    public ServerConfig current() {
+        return state.config();
+    }
+    
+    /**
+     * Returns when the configuration in effect was loaded.
+     * 
+     * @return the load time
+     */
+    public Instant loadedAt() {
+        return state.loadedAt();
+    }
+    
+    /**
+     * Returns how many reloads have changed a setting.
+     * 
+     * @return the reload count
+     */
+    public long reloads() {
+        return state.reloads();
+    }
+    
+    /**
+     * Returns the configuration file.
+     * 
+     * @return the file, or null if settings come only from the environment and defaults
+     */
+    public Path file() {
+        return loader.file();
+    }
+    
+    /**
+     * Adds a listener for configuration changes.
+     * 
+     * @param listener the listener
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+    
+    /**
+     * Reloads the configuration and applies what changed.
+     * 
+     * @return the keys whose values changed, empty if nothing changed or the reload failed
+     */
+    public synchronized Set<String> reload() {
+        ServerConfig previous = state.config();
+        ServerConfig next;
+        try {
+            next = loader.load();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Keeping the current configuration, reload failed: {}", e.getMessage());
+            return Set.of();
+        }
+        
+        Set<String> restartRequired = new TreeSet<>(next.changedKeys(previous));
+        restartRequired.retainAll(ServerConfig.STARTUP_KEYS);
+        if (!restartRequired.isEmpty()) {
+            log.warn("Settings only take effect on restart and were not applied: {}", restartRequired);
+            next = next.withStartupOf(previous);
+        }
+        Set<String> changed = next.changedKeys(previous);
+        if (changed.isEmpty()) {
+            return changed;
+        }
+        
+        state = new State(next, Instant.now(), state.reloads() + 1);
+        log.info("Configuration reloaded, changed: {}", changed);
+        for (Listener listener : listeners) {
+            try {
+                listener.changed(previous, next);
+            } catch (RuntimeException e) {
+                log.warn("Failed to apply configuration change", e);
+            }
+        }
+        return changed;
+    }
+    
+    /**
+     * Starts a daemon thread that reloads the configuration when the file changes. Does
+     * nothing if there is no file or it is already watched.
+     */
+    public synchronized void watch() {
+        Path file = loader.file();
+        if (file == null || watchService != null) {
+            return;
+        }
+        Path directory = file.toAbsolutePath().getParent();
+        try {
+            watchService = directory.getFileSystem().newWatchService();
+            directory.register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            log.warn("Cannot watch configuration file {}: {}", file, e.getMessage());
+            watchService = null;
+            return;
+        }
+        
+        Thread watcher = new Thread(() -> watchLoop(watchService, file.getFileName()), "config-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+        log.info("Watching configuration file {}", file);
+    }
+    
+    /**
+     * Stops watching the configuration file.
+     */
+    public synchronized void close() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                log.debug("Failed to close configuration watcher", e);
+            }
+            watchService = null;
+        }
+    }
+    
+    /**
+     * Waits for changes to the file and reloads after each burst of events.
+     * 
+     * @param service the watch service on the file's directory
+     * @param fileName the file's name within the directory
+     */
+    private void watchLoop(WatchService service, Path fileName) {
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                boolean changed = false;
+                do {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        changed |= fileName.equals(event.context());
+                    }
+                    key.reset();
+                } while ((key = service.poll(RELOAD_SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null);
+                
+                if (changed) {
+                    log.debug("Configuration file changed, reloading");
+                    reload();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            log.debug("Configuration watcher closed");
+        }
+    }
+}
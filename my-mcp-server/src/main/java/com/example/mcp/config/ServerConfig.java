@@ -0,0 +1,264 @@
+package com.example.mcp.config;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The server's runtime configuration: one immutable, validated value per setting.
+ * 
+ * Every setting has a dotted key, such as {@code search.deadlineMillis}, under which it is
+ * read from the configuration file, the environment and system properties (see
+ * {@link ConfigLoader}) and reported in {@code resource://config}. The {@link Startup}
+ * settings are read once; the rest are applied on reload without a restart.
+ * 
+ * @param search websearch limits, deadlines and endpoints
+ * @param upstream per-endpoint admission control, circuit breaking and attempt timeout
+ * @param pool the outbound HTTP dispatcher and connection pool
+ * @param cache the websearch result cache
+ * @param fetch fetch_url limits and page cache
+ * @param history the search history
+ * @param notifications resource change notifications
+ * @param startup settings that only take effect on restart
+ */
+public record ServerConfig(Search search, Upstream upstream, Pool pool, Cache cache, Fetch fetch,
+                           History history, Notifications notifications, Startup startup) {
+    
+    /** Keys of the {@link Startup} settings, which a reload does not change. */
+    public static final Set<String> STARTUP_KEYS = Set.of("execution.mode", "http.sessionIdleSeconds", "prompts.dir",
+        "metrics.prometheusFile", "metrics.prometheusIntervalSeconds", "cache.dir", "cache.segmentBytes",
+        "cache.compactionSeconds", "pool.warmUp");
+    
+    /**
+     * Websearch settings.
+     * 
+     * @param endpoints DuckDuckGo-compatible endpoints, primary first
+     * @param strategy how several endpoints are used: {@code hedged} or {@code fan-out}
+     * @param maxResults the most results a search may ask for, and the number fetched upstream
+     * @param defaultResults the number of results when a search does not ask
+     * @param deadline how long a search may take, across retries, unless it asks for another deadline
+     * @param maxDeadline the longest deadline a search may ask for
+     * @param maxRetries how many times a failed upstream call may be retried
+     * @param retryBackoff the backoff cap before the first retry
+     * @param retryMaxBackoff the backoff cap that doubling stops at
+     * @param hedgeInitialDelay how long a hedged search waits for the primary before the
+     *                          primary's latency has been observed
+     * @param hedgeMinDelay the shortest a hedged search waits for the primary
+     * @param batchMaxQueries the most queries one websearch_batch call may run
+     * @param batchConcurrency how many queries of one websearch_batch call run at once
+     */
+    public record Search(List<String> endpoints, String strategy, int maxResults, int defaultResults,
+                         Duration deadline, Duration maxDeadline, int maxRetries, Duration retryBackoff,
+                         Duration retryMaxBackoff, Duration hedgeInitialDelay, Duration hedgeMinDelay,
+                         int batchMaxQueries, int batchConcurrency) {
+        
+        public Search {
+            endpoints = List.copyOf(endpoints);
+        }
+    }
+    
+    /**
+     * Settings for each upstream endpoint.
+     * 
+     * @param attemptTimeout how long one upstream attempt may take, from connecting to the last byte
+     * @param ratePerSecond the sustained request rate allowed by the token bucket
+     * @param burst the token bucket size
+     * @param initialConcurrency the starting adaptive concurrency limit
+     * @param maxConcurrency the largest adaptive concurrency limit
+     * @param maxQueued the most searches waiting for admission
+     * @param queueTimeout how long a search may wait for admission
+     * @param breakerFailures consecutive failures that open the circuit breaker
+     * @param breakerOpen how long the breaker stays open before letting a probe through
+     */
+    public record Upstream(Duration attemptTimeout, double ratePerSecond, int burst, int initialConcurrency,
+                           int maxConcurrency, int maxQueued, Duration queueTimeout, int breakerFailures,
+                           Duration breakerOpen) {
+    }
+    
+    /**
+     * Outbound HTTP dispatcher and connection pool settings.
+     * 
+     * @param maxRequests the most concurrent asynchronous requests
+     * @param maxRequestsPerHost the most concurrent asynchronous requests to one host
+     * @param maxIdleConnections the most idle connections kept for reuse
+     * @param keepAlive how long an idle connection is kept
+     * @param pingInterval how long a search endpoint may go unused before a ping keeps its
+     *                     connection open, or zero to not ping
+     * @param dnsTtl how long a resolved host name is cached, or zero to not cache
+     * @param dnsMaxEntries the most host names cached
+     */
+    public record Pool(int maxRequests, int maxRequestsPerHost, int maxIdleConnections, Duration keepAlive,
+                       Duration pingInterval, Duration dnsTtl, int dnsMaxEntries) {
+    }
+    
+    /**
+     * Websearch result cache settings.
+     * 
+     * @param ttl how long an entry is fresh
+     * @param staleWindow how long an expired entry may still be served while it refreshes
+     * @param maxEntries the most cached searches
+     * @param maxWeight the most characters of cached results
+     */
+    public record Cache(Duration ttl, Duration staleWindow, int maxEntries, long maxWeight) {
+    }
+    
+    /**
+     * fetch_url settings.
+     * 
+     * @param timeout how long a fetch may take unless it asks for another timeout
+     * @param defaultChars the characters of text returned when a fetch does not ask
+     * @param maxChars the most characters of text a fetch may ask for
+     * @param maxBytes the most bytes of a body read
+     * @param freshFor how long a cached page is served without revalidation
+     * @param cacheEntries the most cached pages
+     * @param cacheWeight the most characters of cached text
+     * @param allowPrivateAddresses whether URLs on loopback, private and link-local addresses may be fetched
+     */
+    public record Fetch(Duration timeout, int defaultChars, int maxChars, long maxBytes, Duration freshFor,
+                        int cacheEntries, long cacheWeight, boolean allowPrivateAddresses) {
+    }
+    
+    /**
+     * Search history settings.
+     * 
+     * @param capacity the most searches kept
+     */
+    public record History(int capacity) {
+    }
+    
+    /**
+     * Resource change notification settings.
+     * 
+     * @param debounce the window in which changes to one resource are coalesced
+     */
+    public record Notifications(Duration debounce) {
+    }
+    
+    /**
+     * Settings that are read once at startup.
+     * 
+     * @param executionMode how tool calls run, unless {@code --execution-mode} is given
+     * @param sessionIdle how long an idle HTTP transport session is kept
+     * @param promptsDir the prompt template directory, or null for the bundled templates only
+     * @param prometheusFile the file metrics are exported to, or null to not export
+     * @param prometheusInterval how often metrics are exported
+     * @param cacheDir the directory of the result cache's disk tier, or null for none
+     * @param cacheSegmentBytes the size of a disk cache segment
+     * @param cacheCompaction how often the disk cache is compacted
+     * @param warmUp whether the HTTP transport opens connections to the search endpoints at startup
+     */
+    public record Startup(String executionMode, Duration sessionIdle, String promptsDir, String prometheusFile,
+                          Duration prometheusInterval, String cacheDir, int cacheSegmentBytes,
+                          Duration cacheCompaction, boolean warmUp) {
+    }
+    
+    /**
+     * Returns the configuration used when nothing is set.
+     * 
+     * @return the defaults
+     */
+    public static ServerConfig defaults() {
+        return ConfigLoader.parse(key -> null);
+    }
+    
+    /**
+     * Returns this configuration with the startup settings of another.
+     * 
+     * @param running the configuration whose startup settings are kept
+     * @return the combined configuration
+     */
+    public ServerConfig withStartupOf(ServerConfig running) {
+        return new ServerConfig(search, upstream, pool, cache, fetch, history, notifications, running.startup());
+    }
+    
+    /**
+     * Returns the keys whose values differ from another configuration.
+     * 
+     * @param other the configuration to compare with
+     * @return the differing keys, sorted
+     */
+    public Set<String> changedKeys(ServerConfig other) {
+        Map<String, Object> mine = toMap();
+        Map<String, Object> theirs = other.toMap();
+        Set<String> changed = new TreeSet<>();
+        for (Map.Entry<String, Object> setting : mine.entrySet()) {
+            if (!Objects.equals(setting.getValue(), theirs.get(setting.getKey()))) {
+                changed.add(setting.getKey());
+            }
+        }
+        return changed;
+    }
+    
+    /**
+     * Returns every setting by key, in the units its key names: durations as whole
+     * milliseconds or seconds, lists as lists, unset paths as null.
+     * 
+     * @return the settings, grouped by section in a stable order
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("search.endpoints", search.endpoints());
+        map.put("search.strategy", search.strategy());
+        map.put("search.maxResults", search.maxResults());
+        map.put("search.defaultResults", search.defaultResults());
+        map.put("search.deadlineMillis", search.deadline().toMillis());
+        map.put("search.maxDeadlineMillis", search.maxDeadline().toMillis());
+        map.put("search.maxRetries", search.maxRetries());
+        map.put("search.retryBackoffMillis", search.retryBackoff().toMillis());
+        map.put("search.retryMaxBackoffMillis", search.retryMaxBackoff().toMillis());
+        map.put("search.hedgeInitialDelayMillis", search.hedgeInitialDelay().toMillis());
+        map.put("search.hedgeMinDelayMillis", search.hedgeMinDelay().toMillis());
+        map.put("search.batchMaxQueries", search.batchMaxQueries());
+        map.put("search.batchConcurrency", search.batchConcurrency());
+        
+        map.put("upstream.attemptTimeoutMillis", upstream.attemptTimeout().toMillis());
+        map.put("upstream.ratePerSecond", upstream.ratePerSecond());
+        map.put("upstream.burst", upstream.burst());
+        map.put("upstream.initialConcurrency", upstream.initialConcurrency());
+        map.put("upstream.maxConcurrency", upstream.maxConcurrency());
+        map.put("upstream.maxQueued", upstream.maxQueued());
+        map.put("upstream.queueTimeoutMillis", upstream.queueTimeout().toMillis());
+        map.put("upstream.breakerFailures", upstream.breakerFailures());
+        map.put("upstream.breakerOpenSeconds", upstream.breakerOpen().toSeconds());
+        
+        map.put("pool.maxRequests", pool.maxRequests());
+        map.put("pool.maxRequestsPerHost", pool.maxRequestsPerHost());
+        map.put("pool.maxIdleConnections", pool.maxIdleConnections());
+        map.put("pool.keepAliveSeconds", pool.keepAlive().toSeconds());
+        map.put("pool.pingIntervalSeconds", pool.pingInterval().toSeconds());
+        map.put("pool.dnsTtlSeconds", pool.dnsTtl().toSeconds());
+        map.put("pool.dnsMaxEntries", pool.dnsMaxEntries());
+        map.put("pool.warmUp", startup.warmUp());
+        
+        map.put("cache.ttlSeconds", cache.ttl().toSeconds());
+        map.put("cache.staleSeconds", cache.staleWindow().toSeconds());
+        map.put("cache.maxEntries", cache.maxEntries());
+        map.put("cache.maxWeight", cache.maxWeight());
+        map.put("cache.dir", startup.cacheDir());
+        map.put("cache.segmentBytes", startup.cacheSegmentBytes());
+        map.put("cache.compactionSeconds", startup.cacheCompaction().toSeconds());
+        
+        map.put("fetch.timeoutMillis", fetch.timeout().toMillis());
+        map.put("fetch.defaultChars", fetch.defaultChars());
+        map.put("fetch.maxChars", fetch.maxChars());
+        map.put("fetch.maxBytes", fetch.maxBytes());
+        map.put("fetch.freshSeconds", fetch.freshFor().toSeconds());
+        map.put("fetch.cacheEntries", fetch.cacheEntries());
+        map.put("fetch.cacheWeight", fetch.cacheWeight());
+        map.put("fetch.allowPrivateAddresses", fetch.allowPrivateAddresses());
+        
+        map.put("history.capacity", history.capacity());
+        map.put("notifications.debounceMillis", notifications.debounce().toMillis());
+        
+        map.put("execution.mode", startup.executionMode());
+        map.put("http.sessionIdleSeconds", startup.sessionIdle().toSeconds());
+        map.put("prompts.dir", startup.promptsDir());
+        map.put("metrics.prometheusFile", startup.prometheusFile());
+        map.put("metrics.prometheusIntervalSeconds", startup.prometheusInterval().toSeconds());
+        return map;
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.mcp.json;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Writes JSON payloads with pooled, reusable Jackson generators.
+ * 
+ * Each pooled buffer holds one streaming {@link JsonGenerator} bound to a reusable
+ * character buffer. A payload is written in a single pass, with Jackson's escaping, and
+ * the generator, its internal buffer and the output buffer are all kept for the next
+ * payload, so the only allocation per payload is the resulting string. Buffers are
+ * borrowed per payload rather than per thread, so virtual threads share the same few.
+ */
+public final class JsonOutput {
+    
+    /** Buffers that grew past this many characters are dropped instead of pooled. */
+    private static final int MAX_RETAINED_CHARS = 256 * 1024;
+    private static final int POOL_SIZE = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+    
+    private static final JsonFactory jsonFactory = new JsonFactory();
+    private static final ArrayBlockingQueue<Buffer> pool = new ArrayBlockingQueue<>(POOL_SIZE);
+    
+    /**
+     * Writes a payload to a generator.
+     */
+    @FunctionalInterface
+    public interface Content {
+        
+        /**
+         * Writes one complete JSON value.
+         * 
+         * @param json the generator
+         * @throws IOException if writing fails
+         */
+        void writeTo(JsonGenerator json) throws IOException;
+    }
+    
+    private JsonOutput() {
+    }
+    
+    /**
+     * Writes a payload to a string.
+     * 
+     * @param content writes exactly one JSON value
+     * @return the JSON text
+     */
+    public static String write(Content content) {
+        Buffer buffer = pool.poll();
+        if (buffer == null) {
+            buffer = new Buffer();
+        }
+        String json;
+        try {
+            content.writeTo(buffer.generator);
+            buffer.generator.flush();
+            json = buffer.text.toString();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        // A failed payload leaves its generator mid-value, so only buffers that got here are pooled
+        if (buffer.text.capacity() <= MAX_RETAINED_CHARS) {
+            buffer.text.setLength(0);
+            pool.offer(buffer);
+        }
+        return json;
+    }
+    
+    /**
+     * A generator and the buffer it writes to.
+     */
+    private static final class Buffer {
+        
+        final StringBuilder text = new StringBuilder(1024);
+        final JsonGenerator generator;
+        
+        Buffer() {
+            try {
+                generator = jsonFactory.createGenerator(new StringBuilderWriter(text));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            // Payloads are written back to back as root values; nothing goes between them
+            generator.setRootValueSeparator(null);
+        }
+    }
+    
+    /**
+     * Unsynchronized writer that appends to a string builder.
+     */
+    private static final class StringBuilderWriter extends Writer {
+        
+        private final StringBuilder text;
+        
+        StringBuilderWriter(StringBuilder text) {
+            this.text = text;
+        }
+        
+        @Override
+        public void write(char[] chars, int offset, int length) {
+            text.append(chars, offset, length);
+        }
+        
+        @Override
+        public void write(String string, int offset, int length) {
+            text.append(string, offset, offset + length);
+        }
+        
+        @Override
+        public void write(int c) {
+            text.append((char) c);
+        }
+        
+        @Override
+        public void flush() {
+        }
+        
+        @Override
+        public void close() {
+        }
+    }
+}
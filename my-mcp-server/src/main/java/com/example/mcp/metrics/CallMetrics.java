@@ -0,0 +1,103 @@
+package com.example.mcp.metrics;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * Call count, error count, cancellation count, in-flight gauge and latency histogram for one
+ * named operation. Cancelled calls are neither errors nor part of the latency histogram.
+ */
+public final class CallMetrics {
+    
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LatencyHistogram latency = new LatencyHistogram();
+    
+    /**
+     * Point-in-time values.
+     * 
+     * @param calls the number of calls started
+     * @param errors the number of calls that failed
+     * @param cancelled the number of calls abandoned by their caller before finishing
+     * @param inFlight the number of calls currently running
+     * @param latency the latency summary of finished calls
+     */
+    public record Snapshot(long calls, long errors, long cancelled, int inFlight, LatencyHistogram.Snapshot latency) {
+    }
+    
+    /**
+     * Marks the start of a call.
+     * 
+     * @return the start time, to pass to {@link #stop}
+     */
+    public long start() {
+        calls.increment();
+        inFlight.incrementAndGet();
+        return System.nanoTime();
+    }
+    
+    /**
+     * Marks the end of a call started with {@link #start}.
+     * 
+     * @param startNanos the value returned by {@link #start}
+     * @param failed whether the call failed
+     */
+    public void stop(long startNanos, boolean failed) {
+        latency.record(System.nanoTime() - startNanos);
+        inFlight.decrementAndGet();
+        if (failed) {
+            errors.increment();
+        }
+    }
+    
+    /**
+     * Marks the end of a call started with {@link #start} that was cancelled. Its duration
+     * is not recorded: it says how long the caller waited, not how long the call takes.
+     */
+    public void cancelled() {
+        inFlight.decrementAndGet();
+        cancelled.increment();
+    }
+    
+    /**
+     * Times a call from subscription until it completes or fails, and counts it as cancelled
+     * if its subscriber cancels first.
+     * 
+     * @param call the call to time
+     * @param isError whether a successfully emitted value represents a failure
+     * @param <T> the result type
+     * @return the timed call
+     */
+    public <T> Mono<T> record(Mono<T> call, Predicate<? super T> isError) {
+        return Mono.defer(() -> {
+            long start = start();
+            AtomicBoolean failed = new AtomicBoolean();
+            return call
+                .doOnNext(value -> failed.set(isError.test(value)))
+                .doOnError(e -> failed.set(true))
+                .doFinally(signal -> {
+                    if (signal == SignalType.CANCEL) {
+                        cancelled();
+                    } else {
+                        stop(start, failed.get());
+                    }
+                });
+        });
+    }
+    
+    /**
+     * Returns the current values.
+     * 
+     * @return the snapshot
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(calls.sum(), errors.sum(), cancelled.sum(), inFlight.get(), latency.snapshot());
+    }
+}
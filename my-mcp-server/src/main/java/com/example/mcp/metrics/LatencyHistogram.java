@@ -0,0 +1,154 @@
+package com.example.mcp.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with log-linear buckets.
+ * 
+ * Each power of two is split into 16 linear sub-buckets, so any recorded value is
+ * reported within about 3% of its true value while the whole nanosecond range fits in
+ * 960 counters. Recording is one atomic increment plus two adders and never allocates.
+ */
+public final class LatencyHistogram {
+    
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+    
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+    
+    /**
+     * Point-in-time latency summary, in nanoseconds.
+     * 
+     * @param count the number of recorded values
+     * @param sum the sum of recorded values
+     * @param p50 the median
+     * @param p90 the 90th percentile
+     * @param p99 the 99th percentile
+     * @param max the largest recorded value
+     */
+    public record Snapshot(long count, long sum, long p50, long p90, long p99, long max) {
+        
+        /**
+         * Returns the mean of the recorded values.
+         * 
+         * @return the mean in nanoseconds, or 0 if nothing was recorded
+         */
+        public double mean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+    }
+    
+    /**
+     * Records a value.
+     * 
+     * @param nanos the latency in nanoseconds; negative values are recorded as 0
+     */
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        counts.incrementAndGet(bucket(value));
+        sum.add(value);
+        
+        long current;
+        while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+            // retry until max is at least value
+        }
+    }
+    
+    /**
+     * Returns the current summary. Values recorded concurrently may or may not be included.
+     * 
+     * @return the latency summary
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            count += copy[i];
+        }
+        long maxValue = max.get();
+        return new Snapshot(
+            count,
+            sum.sum(),
+            percentile(copy, count, 0.50, maxValue),
+            percentile(copy, count, 0.90, maxValue),
+            percentile(copy, count, 0.99, maxValue),
+            maxValue
+        );
+    }
+    
+    /**
+     * Returns one percentile of the values recorded so far, such as the 99.9th, which the
+     * snapshot does not include.
+     * 
+     * @param quantile the quantile, between 0 and 1
+     * @return the percentile in nanoseconds, or 0 if nothing was recorded
+     */
+    public long percentile(double quantile) {
+        long[] copy = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            count += copy[i];
+        }
+        return percentile(copy, count, quantile, max.get());
+    }
+    
+    /**
+     * Returns the bucket a value falls in.
+     * 
+     * @param value a non-negative value
+     * @return the bucket index
+     */
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+    
+    /**
+     * Returns the value reported for a bucket: the middle of its range.
+     * 
+     * @param bucket the bucket index
+     * @return the representative value
+     */
+    static long bucketValue(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lower + ((1L << shift) >>> 1);
+    }
+    
+    /**
+     * Finds a percentile in a copy of the bucket counts.
+     * 
+     * @param counts the bucket counts
+     * @param total the total count
+     * @param quantile the quantile, between 0 and 1
+     * @param maxValue the largest recorded value, which bounds the result
+     * @return the percentile, or 0 if nothing was recorded
+     */
+    private static long percentile(long[] counts, long total, double quantile, long maxValue) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(bucketValue(i), maxValue);
+            }
+        }
+        return maxValue;
+    }
+}
@@ -0,0 +1,272 @@
+package com.example.mcp.metrics;
+
+import com.example.mcp.json.JsonOutput;
+
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Registry of call metrics for tools, prompts, resources and upstream HTTP hosts, plus
+ * named gauges.
+ * 
+ * Lookups of existing metrics are a single concurrent map read, and recording is lock-free,
+ * so metrics can stay on in production. Each category holds a bounded number of names;
+ * once it is full, further names are recorded under {@value #OVERFLOW_NAME}.
+ */
+public final class MetricsRegistry {
+    
+    static final String OVERFLOW_NAME = "other";
+    
+    private static final MetricsRegistry global = new MetricsRegistry(64);
+    
+    /**
+     * The kinds of operation that are measured.
+     */
+    public enum Category {
+        TOOL("tools", "mcp_tool"),
+        PROMPT("prompts", "mcp_prompt"),
+        RESOURCE("resources", "mcp_resource"),
+        UPSTREAM("upstream", "mcp_upstream_http");
+        
+        private final String jsonName;
+        private final String metricPrefix;
+        
+        Category(String jsonName, String metricPrefix) {
+            this.jsonName = jsonName;
+            this.metricPrefix = metricPrefix;
+        }
+    }
+    
+    private final int maxNamesPerCategory;
+    private final Map<Category, ConcurrentMap<String, CallMetrics>> metrics = new EnumMap<>(Category.class);
+    private final ConcurrentMap<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+    
+    /**
+     * Creates a registry.
+     * 
+     * @param maxNamesPerCategory the maximum number of distinct names per category
+     */
+    public MetricsRegistry(int maxNamesPerCategory) {
+        this.maxNamesPerCategory = maxNamesPerCategory;
+        for (Category category : Category.values()) {
+            metrics.put(category, new ConcurrentHashMap<>());
+        }
+    }
+    
+    /**
+     * Returns the registry shared by the whole server.
+     * 
+     * @return the global registry
+     */
+    public static MetricsRegistry global() {
+        return global;
+    }
+    
+    /**
+     * Returns the metrics for a tool.
+     * 
+     * @param name the tool name
+     * @return the tool's metrics
+     */
+    public CallMetrics tool(String name) {
+        return calls(Category.TOOL, name);
+    }
+    
+    /**
+     * Returns the metrics for a prompt.
+     * 
+     * @param name the prompt name
+     * @return the prompt's metrics
+     */
+    public CallMetrics prompt(String name) {
+        return calls(Category.PROMPT, name);
+    }
+    
+    /**
+     * Returns the metrics for a resource.
+     * 
+     * @param uri the resource URI
+     * @return the resource's metrics
+     */
+    public CallMetrics resource(String uri) {
+        return calls(Category.RESOURCE, uri);
+    }
+    
+    /**
+     * Returns the metrics for HTTP calls to an upstream host.
+     * 
+     * @param host the upstream host
+     * @return the host's metrics
+     */
+    public CallMetrics upstream(String host) {
+        return calls(Category.UPSTREAM, host);
+    }
+    
+    /**
+     * Returns the metrics for a name in a category, creating them on first use.
+     * 
+     * @param category the category
+     * @param name the name
+     * @return the metrics
+     */
+    public CallMetrics calls(Category category, String name) {
+        ConcurrentMap<String, CallMetrics> byName = metrics.get(category);
+        CallMetrics existing = byName.get(name);
+        if (existing != null) {
+            return existing;
+        }
+        String key = byName.size() < maxNamesPerCategory ? name : OVERFLOW_NAME;
+        return byName.computeIfAbsent(key, k -> new CallMetrics());
+    }
+    
+    /**
+     * Registers a gauge, replacing any gauge with the same name.
+     * 
+     * @param name the gauge name, in snake_case
+     * @param value reads the current value
+     */
+    public void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+    
+    /**
+     * Renders all metrics as JSON. Latencies are in milliseconds.
+     * 
+     * @return the JSON text
+     */
+    public String toJson() {
+        return JsonOutput.write(json -> {
+            json.writeStartObject();
+            for (Category category : Category.values()) {
+                json.writeObjectFieldStart(category.jsonName);
+                for (Map.Entry<String, CallMetrics> entry : sorted(metrics.get(category)).entrySet()) {
+                    CallMetrics.Snapshot s = entry.getValue().snapshot();
+                    LatencyHistogram.Snapshot latency = s.latency();
+                    json.writeObjectFieldStart(entry.getKey());
+                    json.writeNumberField("calls", s.calls());
+                    json.writeNumberField("errors", s.errors());
+                    json.writeNumberField("inFlight", s.inFlight());
+                    json.writeNumberField("cancelled", s.cancelled());
+                    json.writeObjectFieldStart("latencyMs");
+                    json.writeFieldName("p50");
+                    json.writeNumber(millis(latency.p50()));
+                    json.writeFieldName("p90");
+                    json.writeNumber(millis(latency.p90()));
+                    json.writeFieldName("p99");
+                    json.writeNumber(millis(latency.p99()));
+                    json.writeFieldName("max");
+                    json.writeNumber(millis(latency.max()));
+                    json.writeFieldName("mean");
+                    json.writeNumber(millis(latency.mean()));
+                    json.writeEndObject();
+                    json.writeEndObject();
+                }
+                json.writeEndObject();
+            }
+            
+            json.writeObjectFieldStart("gauges");
+            for (Map.Entry<String, LongSupplier> gauge : sorted(gauges).entrySet()) {
+                json.writeNumberField(gauge.getKey(), gauge.getValue().getAsLong());
+            }
+            json.writeEndObject();
+            
+            json.writeStringField("timestamp", Instant.now().toString());
+            json.writeEndObject();
+        });
+    }
+    
+    /**
+     * Renders all metrics in the Prometheus text exposition format. Latencies are
+     * summaries in seconds.
+     * 
+     * @return the exposition text
+     */
+    public String toPrometheus() {
+        StringBuilder text = new StringBuilder(2048);
+        
+        for (Category category : Category.values()) {
+            Map<String, CallMetrics> byName = sorted(metrics.get(category));
+            if (byName.isEmpty()) {
+                continue;
+            }
+            Map<String, CallMetrics.Snapshot> snapshots = new TreeMap<>();
+            byName.forEach((name, calls) -> snapshots.put(name, calls.snapshot()));
+            String prefix = category.metricPrefix;
+            
+            text.append("# TYPE ").append(prefix).append("_calls_total counter\n");
+            snapshots.forEach((name, s) -> sample(text, prefix + "_calls_total", name, null, s.calls()));
+            text.append("# TYPE ").append(prefix).append("_errors_total counter\n");
+            snapshots.forEach((name, s) -> sample(text, prefix + "_errors_total", name, null, s.errors()));
+            text.append("# TYPE ").append(prefix).append("_cancelled_total counter\n");
+            snapshots.forEach((name, s) -> sample(text, prefix + "_cancelled_total", name, null, s.cancelled()));
+            text.append("# TYPE ").append(prefix).append("_in_flight gauge\n");
+            snapshots.forEach((name, s) -> sample(text, prefix + "_in_flight", name, null, s.inFlight()));
+            
+            text.append("# TYPE ").append(prefix).append("_latency_seconds summary\n");
+            snapshots.forEach((name, s) -> {
+                LatencyHistogram.Snapshot latency = s.latency();
+                sample(text, prefix + "_latency_seconds", name, "0.5", seconds(latency.p50()));
+                sample(text, prefix + "_latency_seconds", name, "0.9", seconds(latency.p90()));
+                sample(text, prefix + "_latency_seconds", name, "0.99", seconds(latency.p99()));
+                sample(text, prefix + "_latency_seconds_sum", name, null, seconds(latency.sum()));
+                sample(text, prefix + "_latency_seconds_count", name, null, latency.count());
+            });
+            text.append("# TYPE ").append(prefix).append("_latency_seconds_max gauge\n");
+            snapshots.forEach((name, s) -> sample(text, prefix + "_latency_seconds_max", name, null,
+                seconds(s.latency().max())));
+        }
+        
+        for (Map.Entry<String, LongSupplier> gauge : sorted(gauges).entrySet()) {
+            String metric = "mcp_" + gauge.getKey();
+            text.append("# TYPE ").append(metric).append(" gauge\n");
+            text.append(metric).append(' ').append(gauge.getValue().getAsLong()).append('\n');
+        }
+        
+        return text.toString();
+    }
+    
+    /**
+     * Appends one Prometheus sample line.
+     * 
+     * @param text the output
+     * @param metric the metric name
+     * @param name the value of the name label
+     * @param quantile the value of the quantile label, or null for none
+     * @param value the sample value
+     */
+    private static void sample(StringBuilder text, String metric, String name, String quantile, Object value) {
+        text.append(metric).append("{name=\"");
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            switch (c) {
+                case '\\' -> text.append("\\\\");
+                case '"' -> text.append("\\\"");
+                case '\n' -> text.append("\\n");
+                default -> text.append(c);
+            }
+        }
+        text.append('"');
+        if (quantile != null) {
+            text.append(",quantile=\"").append(quantile).append('"');
+        }
+        text.append("} ").append(value).append('\n');
+    }
+    
+    private static <V> Map<String, V> sorted(Map<String, V> map) {
+        return new TreeMap<>(map);
+    }
+    
+    private static String millis(double nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0);
+    }
+    
+    private static String seconds(double nanos) {
+        return String.format(Locale.ROOT, "%.9f", nanos / 1_000_000_000.0);
+    }
+}
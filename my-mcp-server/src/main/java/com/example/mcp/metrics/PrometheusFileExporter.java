@@ -0,0 +1,89 @@
+package com.example.mcp.metrics;
+
+import com.example.mcp.config.ServerConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically writes the metrics in Prometheus text format to a file, for scraping by a
+ * node exporter textfile collector or similar.
+ * 
+ * Each dump is written to a temporary file and moved into place, so readers never see a
+ * partial file.
+ */
+public final class PrometheusFileExporter implements AutoCloseable {
+    
+    private static final Logger log = LoggerFactory.getLogger(PrometheusFileExporter.class);
+    
+    private final MetricsRegistry registry;
+    private final Path file;
+    private final ScheduledExecutorService scheduler;
+    
+    /**
+     * Starts exporting.
+     * 
+     * @param registry the metrics to export
+     * @param file the file to write
+     * @param interval how often to write it
+     */
+    public PrometheusFileExporter(MetricsRegistry registry, Path file, Duration interval) {
+        this.registry = registry;
+        this.file = file.toAbsolutePath();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "prometheus-file-exporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = interval.toMillis();
+        scheduler.scheduleAtFixedRate(this::export, millis, millis, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Starts exporting the global registry if {@code metrics.prometheusFile} is set.
+     * The interval is {@code metrics.prometheusIntervalSeconds}.
+     * 
+     * @param startup the startup settings
+     * @return the exporter, or null if exporting is not configured
+     */
+    public static PrometheusFileExporter fromConfig(ServerConfig.Startup startup) {
+        String file = startup.prometheusFile();
+        if (file == null) {
+            return null;
+        }
+        Duration interval = startup.prometheusInterval();
+        log.info("Writing Prometheus metrics to {} every {}s", file, interval.toSeconds());
+        return new PrometheusFileExporter(MetricsRegistry.global(), Path.of(file), interval);
+    }
+    
+    /**
+     * Writes the current metrics to the file.
+     */
+    public void export() {
+        try {
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.writeString(temp, registry.toPrometheus(), StandardCharsets.UTF_8);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Failed to write Prometheus metrics to {}: {}", file, e.getMessage());
+        }
+    }
+    
+    /**
+     * Stops exporting after writing the metrics one last time.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        export();
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.mcp.prompts;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A text template compiled once into alternating literal and placeholder segments.
+ * 
+ * Placeholders are written as {@code {{name}}}. Rendering sizes the output exactly and
+ * appends the segments in one pass, so the only allocations are the result string and
+ * its buffer.
+ */
+final class CompiledTemplate {
+    
+    private static final String OPEN = "{{";
+    private static final String CLOSE = "}}";
+    
+    /** literals[i] precedes placeholders[i]; the final literal follows the last placeholder. */
+    private final String[] literals;
+    private final String[] placeholders;
+    private final int literalLength;
+    
+    private CompiledTemplate(String[] literals, String[] placeholders) {
+        this.literals = literals;
+        this.placeholders = placeholders;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+    
+    /**
+     * Compiles a template.
+     * 
+     * @param text the template text
+     * @return the compiled template
+     */
+    static CompiledTemplate compile(String text) {
+        List<String> literals = new ArrayList<>();
+        List<String> placeholders = new ArrayList<>();
+        
+        int position = 0;
+        while (true) {
+            int open = text.indexOf(OPEN, position);
+            int close = open < 0 ? -1 : text.indexOf(CLOSE, open + OPEN.length());
+            if (close < 0) {
+                break;
+            }
+            literals.add(text.substring(position, open));
+            placeholders.add(text.substring(open + OPEN.length(), close).trim());
+            position = close + CLOSE.length();
+        }
+        literals.add(text.substring(position));
+        
+        return new CompiledTemplate(literals.toArray(String[]::new), placeholders.toArray(String[]::new));
+    }
+    
+    /**
+     * Renders the template. Placeholders that resolve to null render as empty text.
+     * 
+     * @param values resolves a placeholder name to its value
+     * @return the rendered text
+     */
+    String render(Function<String, String> values) {
+        if (placeholders.length == 0) {
+            return literals[0];
+        }
+        
+        String[] resolved = new String[placeholders.length];
+        int length = literalLength;
+        for (int i = 0; i < placeholders.length; i++) {
+            String value = values.apply(placeholders[i]);
+            resolved[i] = value != null ? value : "";
+            length += resolved[i].length();
+        }
+        
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < placeholders.length; i++) {
+            sb.append(literals[i]).append(resolved[i]);
+        }
+        sb.append(literals[placeholders.length]);
+        return sb.toString();
+    }
+    
+}
@@ -1,67 +1,49 @@
 package com.example.mcp.prompts;
 
+import com.example.mcp.config.RuntimeConfig;
 import io.modelcontextprotocol.spec.McpSchema.Prompt;
-import io.modelcontextprotocol.spec.McpSchema.PromptArgument;
 
+import java.nio.file.Path;
 import java.util.List;
 
 /**
  * Defines all available prompts for the MCP server.
+ * 
+ * Prompts are generated from the bundled templates plus any templates in the directory
+ * named by the {@code prompts.dir} setting.
  */
 public class PromptDefinitions {
     
+    /** Loads the templates on first use rather than at startup. */
+    private static final class Registry {
+        static final PromptTemplateRegistry INSTANCE = new PromptTemplateRegistry(templateDirectory());
+    }
+    
     /**
      * Returns the list of all available prompts.
      * 
      * @return list of prompt definitions
      */
     public static List<Prompt> getPrompts() {
-        return List.of(
-            createResearchPrompt(),
-            createFactCheckPrompt()
-        );
+        return Registry.INSTANCE.prompts();
     }
     
     /**
-     * Creates the research assistant prompt.
+     * Returns the template registry the prompts are generated from.
      * 
-     * @return research prompt
+     * @return the template registry
      */
-    private static Prompt createResearchPrompt() {
-        return new Prompt(
-            "research",
-            "Generate a research prompt for investigating a topic using web search",
-            List.of(
-                new PromptArgument(
-                    "topic",
-                    "The topic to research",
-                    true
-                ),
-                new PromptArgument(
-                    "depth",
-                    "Research depth: 'quick', 'standard', or 'comprehensive'",
-                    false
-                )
-            )
-        );
+    static PromptTemplateRegistry registry() {
+        return Registry.INSTANCE;
     }
     
     /**
-     * Creates the fact-checking prompt.
+     * Returns the template directory from the configuration.
      * 
-     * @return fact-check prompt
+     * @return the template directory, or null if only the bundled templates are used
      */
-    private static Prompt createFactCheckPrompt() {
-        return new Prompt(
-            "fact-check",
-            "Generate a fact-checking prompt to verify claims using web search",
-            List.of(
-                new PromptArgument(
-                    "claim",
-                    "The claim or statement to fact-check",
-                    true
-                )
-            )
-        );
+    static Path templateDirectory() {
+        String directory = RuntimeConfig.global().current().startup().promptsDir();
+        return directory != null ? Path.of(directory) : null;
     }
 }
@@ -1,10 +1,10 @@
 package com.example.mcp.prompts;
 
+import com.example.mcp.metrics.MetricsRegistry;
+import com.example.mcp.snapshot.VersionedSnapshot;
 import io.modelcontextprotocol.server.McpServer;
 import io.modelcontextprotocol.spec.McpSchema.GetPromptResult;
-import io.modelcontextprotocol.spec.McpSchema.PromptMessage;
-import io.modelcontextprotocol.spec.McpSchema.Role;
-import io.modelcontextprotocol.spec.McpSchema.TextContent;
+import io.modelcontextprotocol.spec.McpSchema.Prompt;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import reactor.core.publisher.Mono;
@@ -18,6 +18,9 @@ import java.util.Map;
 public class PromptHandlers {
     
     private static final Logger log = LoggerFactory.getLogger(PromptHandlers.class);
+    private static final VersionedSnapshot<List<Prompt>> promptList = new VersionedSnapshot<>(
+        () -> PromptDefinitions.registry().version(),
+        version -> PromptDefinitions.getPrompts());
     
     /**
      * Registers all prompt handlers with the MCP server.
@@ -26,153 +29,66 @@ public class PromptHandlers {
      */
     public static void register(McpServer server) {
         // Register prompt list handler
-        server.addPromptListHandler(() -> {
-            log.debug("Listing available prompts");
-            return Mono.just(PromptDefinitions.getPrompts());
-        });
+        server.addPromptListHandler(PromptHandlers::listPrompts);
         
         // Register prompt get handler
-        server.addPromptGetHandler(PromptHandlers::handleGetPrompt);
-    }
-    
-    /**
-     * Handles getting a prompt by name with arguments.
-     * 
-     * @param name the prompt name
-     * @param arguments the prompt arguments
-     * @return the prompt result
-     */
-    private static Mono<GetPromptResult> handleGetPrompt(String name, Map<String, String> arguments) {
-        log.info("Getting prompt: {} with arguments: {}", name, arguments);
+        server.addPromptGetHandler(PromptHandlers::getPrompt);
         
-        switch (name) {
-            case "research":
-                return handleResearchPrompt(arguments);
-            case "fact-check":
-                return handleFactCheckPrompt(arguments);
-            default:
-                return Mono.error(new IllegalArgumentException("Unknown prompt: " + name));
-        }
+        watchTemplates();
     }
     
     /**
-     * Handles the research prompt generation.
-     * 
-     * @param arguments the prompt arguments
-     * @return the prompt result
+     * Starts reloading templates when the template directory changes. Without a template
+     * directory this does nothing, and the bundled templates are loaded on first use.
      */
-    private static Mono<GetPromptResult> handleResearchPrompt(Map<String, String> arguments) {
-        String topic = arguments.getOrDefault("topic", "general topic");
-        String depth = arguments.getOrDefault("depth", "standard");
-        
-        String description = "Research prompt for: " + topic + " (depth: " + depth + ")";
-        
-        String systemMessage = buildResearchSystemMessage(depth);
-        String userMessage = buildResearchUserMessage(topic, depth);
-        
-        List<PromptMessage> messages = List.of(
-            new PromptMessage(Role.USER, new TextContent(systemMessage)),
-            new PromptMessage(Role.ASSISTANT, new TextContent(
-                "I'll help you research \"" + topic + "\" using web search. " +
-                "I'll conduct a " + depth + " investigation and provide you with comprehensive findings."
-            )),
-            new PromptMessage(Role.USER, new TextContent(userMessage))
-        );
-        
-        log.debug("Generated research prompt for topic: {} ({})", topic, depth);
-        
-        return Mono.just(new GetPromptResult(description, messages));
+    public static void watchTemplates() {
+        if (PromptDefinitions.templateDirectory() != null) {
+            PromptDefinitions.registry().watch();
+        }
     }
     
     /**
-     * Builds the system message for research prompts.
+     * Lists the available prompts. Shared by all transports.
      * 
-     * @param depth the research depth
-     * @return the system message
+     * @return the prompt definitions
      */
-    private static String buildResearchSystemMessage(String depth) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("You are a research assistant with web search capabilities. ");
-        
-        switch (depth) {
-            case "quick":
-                sb.append("Provide a brief overview with 2-3 key points from search results.");
-                break;
-            case "comprehensive":
-                sb.append("Conduct thorough research with multiple searches, cross-reference sources, ");
-                sb.append("and provide detailed analysis with citations.");
-                break;
-            default: // standard
-                sb.append("Search for relevant information and summarize key findings with sources.");
-        }
-        
-        return sb.toString();
+    public static Mono<List<Prompt>> listPrompts() {
+        log.debug("Listing available prompts");
+        return promptList.mono();
     }
     
     /**
-     * Builds the user message for research prompts.
+     * Renders a prompt and records its metrics. Shared by all transports.
      * 
-     * @param topic the research topic
-     * @param depth the research depth
-     * @return the user message
+     * @param name the prompt name
+     * @param arguments the prompt arguments
+     * @return the prompt result
      */
-    private static String buildResearchUserMessage(String topic, String depth) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("Please research the following topic: ").append(topic).append("\n\n");
-        
-        switch (depth) {
-            case "quick":
-                sb.append("I need a quick summary. Focus on the most important points.");
-                break;
-            case "comprehensive":
-                sb.append("Please conduct comprehensive research including:\n");
-                sb.append("1. Background and context\n");
-                sb.append("2. Current state and recent developments\n");
-                sb.append("3. Key perspectives and debates\n");
-                sb.append("4. Reliable sources and citations\n");
-                sb.append("5. Summary and key takeaways");
-                break;
-            default: // standard
-                sb.append("Please provide a balanced overview with key facts and sources.");
-        }
-        
-        return sb.toString();
+    public static Mono<GetPromptResult> getPrompt(String name, Map<String, String> arguments) {
+        return MetricsRegistry.global().prompt(name).record(handleGetPrompt(name, arguments), result -> false);
     }
     
     /**
-     * Handles the fact-check prompt generation.
+     * Handles getting a prompt by name with arguments.
      * 
+     * @param name the prompt name
      * @param arguments the prompt arguments
      * @return the prompt result
      */
-    private static Mono<GetPromptResult> handleFactCheckPrompt(Map<String, String> arguments) {
-        String claim = arguments.getOrDefault("claim", "");
+    static Mono<GetPromptResult> handleGetPrompt(String name, Map<String, String> arguments) {
+        log.info("Getting prompt: {} with arguments: {}", name, arguments);
         
-        if (claim.isEmpty()) {
-            return Mono.error(new IllegalArgumentException("Missing required 'claim' argument"));
+        PromptTemplate template = PromptDefinitions.registry().get(name);
+        if (template == null) {
+            return Mono.error(new IllegalArgumentException("Unknown prompt: " + name));
         }
         
-        String description = "Fact-check prompt for claim verification";
-        
-        List<PromptMessage> messages = List.of(
-            new PromptMessage(Role.USER, new TextContent(
-                "You are a fact-checker with web search capabilities. Your job is to verify claims " +
-                "by searching for reliable sources and evidence. Always cite your sources and " +
-                "rate the claim as: TRUE, FALSE, PARTIALLY TRUE, or UNVERIFIABLE."
-            )),
-            new PromptMessage(Role.ASSISTANT, new TextContent(
-                "I'll fact-check the claim by searching for reliable sources and evidence. " +
-                "I'll provide a clear verdict with supporting sources."
-            )),
-            new PromptMessage(Role.USER, new TextContent(
-                "Please fact-check the following claim:\n\n\"" + claim + "\"\n\n" +
-                "Search for evidence both supporting and contradicting this claim, " +
-                "then provide your assessment."
-            ))
-        );
-        
-        log.debug("Generated fact-check prompt for claim: {}", claim);
-        
-        return Mono.just(new GetPromptResult(description, messages));
+        try {
+            GetPromptResult result = template.render(arguments);
+            log.debug("Generated {} prompt", name);
+            return Mono.just(result);
+        } catch (IllegalArgumentException e) {
+            return Mono.error(e);
+        }
     }
 }
@@ -0,0 +1,210 @@
+package com.example.mcp.prompts;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.modelcontextprotocol.spec.McpSchema.GetPromptResult;
+import io.modelcontextprotocol.spec.McpSchema.Prompt;
+import io.modelcontextprotocol.spec.McpSchema.PromptArgument;
+import io.modelcontextprotocol.spec.McpSchema.PromptMessage;
+import io.modelcontextprotocol.spec.McpSchema.Role;
+import io.modelcontextprotocol.spec.McpSchema.TextContent;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * A prompt loaded from a template file and compiled for rendering.
+ * 
+ * A template declares the prompt's arguments, a result description and a list of
+ * messages, all of which may contain {@code {{argument}}} placeholders. It may also
+ * name a variant argument: the value of that argument selects a set of extra values
+ * (for example the instructions for each research depth) that placeholders can use.
+ * Only declared arguments are taken from the caller; any other placeholder comes from the
+ * template, so a caller cannot replace the template's own text.
+ * 
+ * Instances are immutable, so a render in progress is unaffected by a reload.
+ */
+final class PromptTemplate {
+    
+    private record Argument(String name, String description, boolean required, String defaultValue) {
+    }
+    
+    private record Message(Role role, CompiledTemplate text) {
+    }
+    
+    private final String name;
+    private final String description;
+    private final List<Argument> arguments;
+    private final Map<String, String> defaults;
+    private final Set<String> declared;
+    private final CompiledTemplate resultDescription;
+    private final List<Message> messages;
+    private final String variantArgument;
+    private final Map<String, Map<String, String>> variants;
+    private final String defaultVariant;
+    private final Prompt prompt;
+    
+    private PromptTemplate(String name, String description, List<Argument> arguments,
+                           CompiledTemplate resultDescription, List<Message> messages, String variantArgument,
+                           Map<String, Map<String, String>> variants, String defaultVariant) {
+        this.name = name;
+        this.description = description;
+        this.arguments = arguments;
+        this.resultDescription = resultDescription;
+        this.messages = messages;
+        this.variantArgument = variantArgument;
+        this.variants = variants;
+        this.defaultVariant = defaultVariant;
+        
+        Map<String, String> defaultValues = new HashMap<>();
+        Set<String> names = new HashSet<>();
+        List<PromptArgument> promptArguments = new ArrayList<>();
+        for (Argument argument : arguments) {
+            names.add(argument.name());
+            if (argument.defaultValue() != null) {
+                defaultValues.put(argument.name(), argument.defaultValue());
+            }
+            promptArguments.add(new PromptArgument(argument.name(), argument.description(), argument.required()));
+        }
+        this.defaults = Map.copyOf(defaultValues);
+        this.declared = Set.copyOf(names);
+        this.prompt = new Prompt(name, description, List.copyOf(promptArguments));
+    }
+    
+    /**
+     * Parses and compiles a template.
+     * 
+     * @param root the template JSON
+     * @return the compiled template
+     * @throws IllegalArgumentException if the template is invalid
+     */
+    static PromptTemplate parse(JsonNode root) {
+        String name = requiredText(root, "name");
+        
+        List<Argument> arguments = new ArrayList<>();
+        for (JsonNode argument : root.path("arguments")) {
+            arguments.add(new Argument(
+                requiredText(argument, "name"),
+                argument.path("description").asText(""),
+                argument.path("required").asBoolean(false),
+                argument.hasNonNull("default") ? argument.get("default").asText() : null
+            ));
+        }
+        
+        List<Message> messages = new ArrayList<>();
+        for (JsonNode message : root.path("messages")) {
+            Role role = Role.valueOf(requiredText(message, "role").toUpperCase(Locale.ROOT));
+            messages.add(new Message(role, CompiledTemplate.compile(requiredText(message, "text"))));
+        }
+        if (messages.isEmpty()) {
+            throw new IllegalArgumentException("Prompt template '" + name + "' has no messages");
+        }
+        
+        Map<String, Map<String, String>> variants = new HashMap<>();
+        root.path("variants").fields().forEachRemaining(variant -> {
+            Map<String, String> values = new HashMap<>();
+            variant.getValue().fields().forEachRemaining(value -> values.put(value.getKey(), value.getValue().asText()));
+            variants.put(variant.getKey(), Map.copyOf(values));
+        });
+        
+        String variantArgument = root.path("variantArgument").asText(null);
+        String defaultVariant = root.path("defaultVariant").asText(null);
+        if (variantArgument != null && (defaultVariant == null || !variants.containsKey(defaultVariant))) {
+            throw new IllegalArgumentException("Prompt template '" + name + "' needs a defaultVariant listed in variants");
+        }
+        
+        return new PromptTemplate(
+            name,
+            root.path("description").asText(""),
+            List.copyOf(arguments),
+            CompiledTemplate.compile(root.path("resultDescription").asText("")),
+            List.copyOf(messages),
+            variantArgument,
+            Map.copyOf(variants),
+            defaultVariant
+        );
+    }
+    
+    /**
+     * Returns the prompt name.
+     * 
+     * @return the name
+     */
+    String name() {
+        return name;
+    }
+    
+    /**
+     * Returns the prompt definition advertised in prompts/list.
+     * 
+     * @return the prompt definition
+     */
+    Prompt prompt() {
+        return prompt;
+    }
+    
+    /**
+     * Renders the prompt for the given arguments. Arguments the template does not declare
+     * are ignored.
+     * 
+     * @param args the prompt arguments
+     * @return the rendered prompt
+     * @throws IllegalArgumentException if a required argument without a default is missing
+     */
+    GetPromptResult render(Map<String, String> args) {
+        for (Argument argument : arguments) {
+            if (argument.required() && argument.defaultValue() == null) {
+                String value = args.get(argument.name());
+                if (value == null || value.isEmpty()) {
+                    throw new IllegalArgumentException("Missing required '" + argument.name() + "' argument");
+                }
+            }
+        }
+        
+        Map<String, String> variant = selectVariant(args);
+        Function<String, String> values = key -> {
+            String value = declared.contains(key) ? args.get(key) : null;
+            if (value == null) {
+                value = defaults.get(key);
+            }
+            if (value == null && variant != null) {
+                value = variant.get(key);
+            }
+            return value;
+        };
+        
+        List<PromptMessage> rendered = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            rendered.add(new PromptMessage(message.role(), new TextContent(message.text().render(values))));
+        }
+        return new GetPromptResult(resultDescription.render(values), rendered);
+    }
+    
+    /**
+     * Selects the variant values for the variant argument, falling back to the default variant.
+     * 
+     * @param args the prompt arguments
+     * @return the variant values, or null if the template has no variants
+     */
+    private Map<String, String> selectVariant(Map<String, String> args) {
+        if (variantArgument == null) {
+            return null;
+        }
+        String key = args.getOrDefault(variantArgument, defaults.get(variantArgument));
+        Map<String, String> variant = key != null ? variants.get(key) : null;
+        return variant != null ? variant : variants.get(defaultVariant);
+    }
+    
+    private static String requiredText(JsonNode node, String field) {
+        String value = node.path(field).asText("");
+        if (value.isEmpty()) {
+            throw new IllegalArgumentException("Prompt template is missing '" + field + "'");
+        }
+        return value;
+    }
+}
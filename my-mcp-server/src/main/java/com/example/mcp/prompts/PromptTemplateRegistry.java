@@ -0,0 +1,252 @@
+package com.example.mcp.prompts;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.modelcontextprotocol.spec.McpSchema.Prompt;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Loads prompt templates and keeps them current.
+ * 
+ * The bundled templates under {@code prompts/} on the classpath are loaded first, then
+ * every {@code *.json} file in the template directory, if one is configured. A file whose
+ * template has the same name as a bundled one replaces it.
+ * 
+ * The compiled templates are held in an immutable map that is swapped on reload, so
+ * {@code prompts/get} calls never wait for a reload and always see a consistent set.
+ */
+public final class PromptTemplateRegistry {
+    
+    private static final Logger log = LoggerFactory.getLogger(PromptTemplateRegistry.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    
+    private static final String BUNDLED_PATH = "prompts/";
+    /** Quiet period after a file change, so an editor's burst of writes causes one reload. */
+    private static final long RELOAD_SETTLE_MILLIS = 100;
+    
+    private final Path directory;
+    private final AtomicLong version = new AtomicLong();
+    private volatile Templates current;
+    private WatchService watchService;
+    
+    /**
+     * One consistent set of loaded templates.
+     * 
+     * @param byName the templates keyed by prompt name
+     * @param prompts the prompt definitions, in load order
+     */
+    private record Templates(Map<String, PromptTemplate> byName, List<Prompt> prompts) {
+    }
+    
+    /**
+     * Creates a registry and loads the templates.
+     * 
+     * @param directory the template directory, or null to use only the bundled templates
+     */
+    public PromptTemplateRegistry(Path directory) {
+        this.directory = directory;
+        reload();
+    }
+    
+    /**
+     * Returns the template with the given name.
+     * 
+     * @param name the prompt name
+     * @return the template, or null if there is none
+     */
+    PromptTemplate get(String name) {
+        return current.byName().get(name);
+    }
+    
+    /**
+     * Returns the prompt definitions generated from the template metadata.
+     * 
+     * @return the prompt definitions, bundled templates first
+     */
+    public List<Prompt> prompts() {
+        return current.prompts();
+    }
+    
+    /**
+     * Returns a counter that changes every time the templates are reloaded.
+     * 
+     * @return the template version
+     */
+    public long version() {
+        return version.get();
+    }
+    
+    /**
+     * Reloads all templates. A file that cannot be read or parsed is skipped with a
+     * warning; the other templates are still replaced.
+     */
+    public synchronized void reload() {
+        Map<String, PromptTemplate> loaded = new LinkedHashMap<>();
+        loadBundled(loaded);
+        if (directory != null) {
+            loadDirectory(loaded);
+        }
+        
+        List<Prompt> definitions = new ArrayList<>(loaded.size());
+        for (PromptTemplate template : loaded.values()) {
+            definitions.add(template.prompt());
+        }
+        
+        current = new Templates(Map.copyOf(loaded), List.copyOf(definitions));
+        version.incrementAndGet();
+        log.info("Loaded {} prompt templates", loaded.size());
+    }
+    
+    /**
+     * Starts a daemon thread that reloads the templates when a file in the template
+     * directory changes. Does nothing if no directory is configured or it is already watched.
+     */
+    public synchronized void watch() {
+        if (directory == null || watchService != null) {
+            return;
+        }
+        try {
+            watchService = directory.getFileSystem().newWatchService();
+            directory.register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException e) {
+            log.warn("Cannot watch prompt template directory {}: {}", directory, e.getMessage());
+            watchService = null;
+            return;
+        }
+        
+        Thread watcher = new Thread(() -> watchLoop(watchService), "prompt-template-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+        log.info("Watching prompt template directory {}", directory);
+    }
+    
+    /**
+     * Stops watching the template directory.
+     */
+    public synchronized void close() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                log.debug("Failed to close prompt template watcher", e);
+            }
+            watchService = null;
+        }
+    }
+    
+    /**
+     * Waits for directory changes and reloads after each burst of events.
+     * 
+     * @param service the watch service
+     */
+    private void watchLoop(WatchService service) {
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                do {
+                    key.pollEvents();
+                    key.reset();
+                } while ((key = service.poll(RELOAD_SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null);
+                
+                log.debug("Prompt template directory changed, reloading");
+                reload();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            log.debug("Prompt template watcher closed");
+        }
+    }
+    
+    /**
+     * Loads the bundled templates listed in {@code prompts/index}.
+     * 
+     * @param loaded receives the templates
+     */
+    private void loadBundled(Map<String, PromptTemplate> loaded) {
+        ClassLoader classLoader = PromptTemplateRegistry.class.getClassLoader();
+        try (InputStream index = classLoader.getResourceAsStream(BUNDLED_PATH + "index")) {
+            if (index == null) {
+                log.warn("No bundled prompt templates found");
+                return;
+            }
+            BufferedReader reader = new BufferedReader(new InputStreamReader(index, StandardCharsets.UTF_8));
+            String file;
+            while ((file = reader.readLine()) != null) {
+                file = file.trim();
+                if (file.isEmpty()) {
+                    continue;
+                }
+                try (InputStream in = classLoader.getResourceAsStream(BUNDLED_PATH + file)) {
+                    if (in == null) {
+                        log.warn("Bundled prompt template {} is missing", file);
+                        continue;
+                    }
+                    add(loaded, PromptTemplate.parse(objectMapper.readTree(in)));
+                } catch (IOException | IllegalArgumentException e) {
+                    log.warn("Skipping bundled prompt template {}: {}", file, e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Failed to read bundled prompt template index", e);
+        }
+    }
+    
+    /**
+     * Loads the templates in the template directory, in file name order.
+     * 
+     * @param loaded receives the templates, replacing any with the same name
+     */
+    private void loadDirectory(Map<String, PromptTemplate> loaded) {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*.json")) {
+            stream.forEach(files::add);
+        } catch (IOException e) {
+            log.warn("Cannot read prompt template directory {}: {}", directory, e.getMessage());
+            return;
+        }
+        files.sort(null);
+        
+        for (Path file : files) {
+            try (InputStream in = Files.newInputStream(file)) {
+                add(loaded, PromptTemplate.parse(objectMapper.readTree(in)));
+            } catch (IOException | IllegalArgumentException e) {
+                log.warn("Skipping prompt template {}: {}", file, e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Adds a template, replacing any earlier template with the same name.
+     * 
+     * @param loaded the templates loaded so far
+     * @param template the template to add
+     */
+    private static void add(Map<String, PromptTemplate> loaded, PromptTemplate template) {
+        if (loaded.put(template.name(), template) != null) {
+            log.debug("Prompt template {} overridden", template.name());
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.mcp.resources;
+
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Coalesces resource change events into at most one notification per URI per window.
+ * 
+ * The first change after a quiet period schedules a flush one window later; every
+ * further change to any URI before that flush is folded into it. A burst of changes
+ * therefore produces roughly one notification per window, and no changes produce none.
+ */
+class ResourceChangeNotifier {
+    
+    private volatile long windowMillis;
+    private final Scheduler scheduler;
+    private final Consumer<String> publisher;
+    
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final LongAdder changes = new LongAdder();
+    private final LongAdder published = new LongAdder();
+    
+    /**
+     * Creates a notifier.
+     * 
+     * @param window the coalescing window
+     * @param scheduler the scheduler that runs flushes
+     * @param publisher sends the notification for a URI
+     */
+    ResourceChangeNotifier(Duration window, Scheduler scheduler, Consumer<String> publisher) {
+        this.windowMillis = window.toMillis();
+        this.scheduler = scheduler;
+        this.publisher = publisher;
+    }
+    
+    /**
+     * Changes the coalescing window. A flush already scheduled keeps its time.
+     * 
+     * @param window the new window
+     */
+    void setWindow(Duration window) {
+        windowMillis = window.toMillis();
+    }
+    
+    /**
+     * Records that a resource changed. Cheap and non-blocking.
+     * 
+     * @param uri the resource URI
+     */
+    void markChanged(String uri) {
+        changes.increment();
+        pending.add(uri);
+        if (flushScheduled.compareAndSet(false, true)) {
+            scheduler.schedule(this::flush, windowMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    /**
+     * Returns the number of change events received.
+     * 
+     * @return change count
+     */
+    long changes() {
+        return changes.sum();
+    }
+    
+    /**
+     * Returns the number of notifications sent.
+     * 
+     * @return notification count
+     */
+    long published() {
+        return published.sum();
+    }
+    
+    /**
+     * Sends one notification for every URI that changed during the window.
+     */
+    private void flush() {
+        // Clear the flag first so a change arriving during the flush schedules another one
+        flushScheduled.set(false);
+        Iterator<String> uris = pending.iterator();
+        while (uris.hasNext()) {
+            String uri = uris.next();
+            uris.remove();
+            published.increment();
+            publisher.accept(uri);
+        }
+    }
+}
@@ -23,6 +23,20 @@ public class ResourceDefinitions {
                 "application/json",
                 null
             ),
+            new Resource(
+                "resource://search/cache",
+                "Search Cache Statistics",
+                "Hit, miss and eviction counters for the websearch result cache",
+                "application/json",
+                null
+            ),
+            new Resource(
+                "resource://metrics",
+                "Server Metrics",
+                "Call counts, error counts and latency percentiles for tools, prompts, resources and upstream HTTP calls",
+                "application/json",
+                null
+            ),
             new Resource(
                 "resource://config",
                 "Server Configuration",
@@ -1,17 +1,32 @@
 package com.example.mcp.resources;
 
+import com.example.mcp.config.RuntimeConfig;
+import com.example.mcp.config.ServerConfig;
+import com.example.mcp.json.JsonOutput;
+import com.example.mcp.metrics.MetricsRegistry;
+import com.example.mcp.snapshot.VersionedSnapshot;
+import com.example.mcp.tools.DiskResultStore;
+import com.example.mcp.tools.SearchResultCache;
+import com.example.mcp.tools.ToolHandlers;
+import com.fasterxml.jackson.core.JsonGenerator;
 import io.modelcontextprotocol.server.McpServer;
 import io.modelcontextprotocol.spec.McpSchema.ReadResourceResult;
+import io.modelcontextprotocol.spec.McpSchema.Resource;
+import io.modelcontextprotocol.spec.McpSchema.ResourcesUpdatedNotification;
 import io.modelcontextprotocol.spec.McpSchema.TextResourceContents;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.io.IOException;
 import java.time.Instant;
-import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 /**
  * Handles resource operations for the MCP server.
@@ -19,8 +34,34 @@ import java.util.concurrent.ConcurrentHashMap;
 public class ResourceHandlers {
     
     private static final Logger log = LoggerFactory.getLogger(ResourceHandlers.class);
-    private static final Map<String, Boolean> subscriptions = new ConcurrentHashMap<>();
-    private static final List<String> searchHistory = new ArrayList<>();
+    /** Listeners per subscribed URI: one for the stdio client, one per subscribed HTTP session. */
+    private static final Map<String, Set<Consumer<String>>> subscribers = new ConcurrentHashMap<>();
+    private static final SearchHistory searchHistory =
+        new SearchHistory(RuntimeConfig.global().current().history().capacity());
+    // Notify subscribers of changes, coalesced per window
+    private static final ResourceChangeNotifier changeNotifier = new ResourceChangeNotifier(
+        RuntimeConfig.global().current().notifications().debounce(),
+        Schedulers.parallel(),
+        ResourceHandlers::publishUpdated);
+    
+    private static final VersionedSnapshot<List<Resource>> resourceList =
+        VersionedSnapshot.of(ResourceDefinitions::getResources);
+    private static final VersionedSnapshot<ReadResourceResult> configSnapshot =
+        new VersionedSnapshot<>(() -> 0, version -> createTextResult("resource://config", getConfigJson(version)));
+    private static final VersionedSnapshot<ReadResourceResult> historySnapshot =
+        new VersionedSnapshot<>(searchHistory::totalPublished,
+            version -> createTextResult("resource://search/history", getSearchHistoryJson()));
+    
+    static {
+        RuntimeConfig.global().addListener((previous, current) -> {
+            if (current.history().capacity() != searchHistory.capacity()) {
+                searchHistory.resize(current.history().capacity());
+                historySnapshot.invalidate();
+            }
+            changeNotifier.setWindow(current.notifications().debounce());
+            invalidateConfig();
+        });
+    }
     
     /**
      * Registers all resource handlers with the MCP server.
@@ -28,37 +69,123 @@ public class ResourceHandlers {
      * @param server the MCP server to register handlers with
      */
     public static void register(McpServer server) {
+        Consumer<String> client = uri -> sendResourceUpdated(server, uri);
+        
         // Register resource list handler
-        server.addResourceListHandler(() -> {
-            log.debug("Listing available resources");
-            return Mono.just(ResourceDefinitions.getResources());
-        });
+        server.addResourceListHandler(ResourceHandlers::listResources);
         
         // Register resource read handler
-        server.addResourceReadHandler(ResourceHandlers::handleRead);
+        server.addResourceReadHandler(ResourceHandlers::readResource);
         
         // Register resource subscribe handler
-        server.addResourceSubscribeHandler(ResourceHandlers::handleSubscribe);
+        server.addResourceSubscribeHandler(uri -> handleSubscribe(uri, client));
         
         // Register resource unsubscribe handler
-        server.addResourceUnsubscribeHandler(ResourceHandlers::handleUnsubscribe);
+        server.addResourceUnsubscribeHandler(uri -> handleUnsubscribe(uri, client));
+    }
+    
+    /**
+     * Lists the available resources. Shared by all transports.
+     * 
+     * @return the resource definitions
+     */
+    public static Mono<List<Resource>> listResources() {
+        log.debug("Listing available resources");
+        return resourceList.mono();
+    }
+    
+    /**
+     * Reads a resource and records its metrics. Shared by all transports.
+     * 
+     * @param uri the resource URI
+     * @return the resource content
+     */
+    public static Mono<ReadResourceResult> readResource(String uri) {
+        return MetricsRegistry.global().resource(uri).record(handleRead(uri), result -> false);
+    }
+    
+    /**
+     * Subscribes a client to changes of a resource.
+     * 
+     * @param uri the resource URI
+     * @param listener receives the URI, after coalescing, whenever the resource changes
+     */
+    public static void subscribe(String uri, Consumer<String> listener) {
+        subscribers.compute(uri, (key, listeners) -> {
+            Set<Consumer<String>> set = listeners != null ? listeners : ConcurrentHashMap.newKeySet();
+            set.add(listener);
+            return set;
+        });
+    }
+    
+    /**
+     * Removes a client's subscription to a resource.
+     * 
+     * @param uri the resource URI
+     * @param listener the listener passed to {@link #subscribe}
+     */
+    public static void unsubscribe(String uri, Consumer<String> listener) {
+        subscribers.computeIfPresent(uri, (key, listeners) -> {
+            listeners.remove(listener);
+            return listeners.isEmpty() ? null : listeners;
+        });
+    }
+    
+    /**
+     * Adds a completed search to the history.
+     * Safe to call from any thread; never blocks.
+     * 
+     * @param entry the search to add
+     */
+    public static void addToSearchHistory(SearchHistory.Entry entry) {
+        searchHistory.record(entry);
+        notifyChanged("resource://search/history");
+        notifyChanged("resource://search/cache");
+    }
+    
+    /**
+     * Records that a resource changed. Subscribers are notified once the coalescing
+     * window closes; changes to resources nobody subscribed to are ignored.
+     * 
+     * @param uri the resource URI
+     */
+    public static void notifyChanged(String uri) {
+        if (subscribers.containsKey(uri)) {
+            changeNotifier.markChanged(uri);
+        }
     }
     
     /**
-     * Adds a search query to the history.
+     * Passes a coalesced change to every listener still subscribed to the resource.
      * 
-     * @param query the search query to add
+     * @param uri the resource URI
      */
-    public static void addToSearchHistory(String query) {
-        synchronized (searchHistory) {
-            searchHistory.add(String.format("[%s] %s", Instant.now(), query));
-            // Keep only last 100 entries
-            while (searchHistory.size() > 100) {
-                searchHistory.remove(0);
+    private static void publishUpdated(String uri) {
+        Set<Consumer<String>> listeners = subscribers.get(uri);
+        if (listeners == null) {
+            return;
+        }
+        log.debug("Notifying {} subscribers that {} changed", listeners.size(), uri);
+        for (Consumer<String> listener : listeners) {
+            try {
+                listener.accept(uri);
+            } catch (RuntimeException e) {
+                log.warn("Failed to notify subscriber of {}", uri, e);
             }
         }
     }
     
+    /**
+     * Sends a resources/updated notification to the stdio client.
+     * 
+     * @param server the MCP server
+     * @param uri the resource URI
+     */
+    private static void sendResourceUpdated(McpServer server, String uri) {
+        server.notifyResourcesUpdated(new ResourcesUpdatedNotification(uri))
+            .subscribe(null, e -> log.warn("Failed to send update notification for {}", uri, e));
+    }
+    
     /**
      * Handles reading a resource by URI.
      * 
@@ -70,11 +197,17 @@ public class ResourceHandlers {
         
         switch (uri) {
             case "resource://search/history":
-                return Mono.just(createTextResult(uri, getSearchHistoryJson()));
-                
+                return historySnapshot.mono();
+            
+            case "resource://search/cache":
+                return Mono.just(createTextResult(uri, getSearchCacheJson()));
+            
             case "resource://config":
-                return Mono.just(createTextResult(uri, getConfigJson()));
-                
+                return configSnapshot.mono();
+            
+            case "resource://metrics":
+                return Mono.fromSupplier(() -> createTextResult(uri, MetricsRegistry.global().toJson()));
+            
             default:
                 log.warn("Unknown resource requested: {}", uri);
                 return Mono.error(new IllegalArgumentException("Unknown resource URI: " + uri));
@@ -82,57 +215,162 @@ public class ResourceHandlers {
     }
     
     /**
-     * Gets the search history as JSON.
+     * Gets the search history as JSON. The result is cached by {@code historySnapshot}, so
+     * {@code snapshotAt} is when it was built.
      * 
      * @return JSON string of search history
      */
-    private static String getSearchHistoryJson() {
-        StringBuilder json = new StringBuilder();
-        json.append("{\n");
-        json.append("  \"searchHistory\": [\n");
-        
-        synchronized (searchHistory) {
-            for (int i = 0; i < searchHistory.size(); i++) {
-                json.append("    \"").append(escapeJson(searchHistory.get(i))).append("\"");
-                if (i < searchHistory.size() - 1) {
-                    json.append(",");
-                }
-                json.append("\n");
+    static String getSearchHistoryJson() {
+        List<SearchHistory.Entry> entries = searchHistory.snapshot();
+        return JsonOutput.write(json -> {
+            json.writeStartObject();
+            json.writeArrayFieldStart("searchHistory");
+            for (SearchHistory.Entry entry : entries) {
+                json.writeStartObject();
+                json.writeStringField("query", entry.query());
+                json.writeStringField("timestamp", entry.timestamp().toString());
+                json.writeNumberField("latencyMs", entry.latencyMillis());
+                json.writeNumberField("resultCount", entry.resultCount());
+                json.writeBooleanField("cacheHit", entry.cacheHit());
+                json.writeEndObject();
             }
-        }
-        
-        json.append("  ],\n");
-        json.append("  \"totalSearches\": ").append(searchHistory.size()).append(",\n");
-        json.append("  \"timestamp\": \"").append(Instant.now()).append("\"\n");
-        json.append("}");
-        
-        return json.toString();
+            json.writeEndArray();
+            json.writeNumberField("retained", entries.size());
+            json.writeNumberField("capacity", searchHistory.capacity());
+            json.writeNumberField("totalSearches", searchHistory.totalRecorded());
+            json.writeStringField("snapshotAt", Instant.now().toString());
+            json.writeEndObject();
+        });
+    }
+    
+    /**
+     * Gets the websearch cache statistics as JSON.
+     * 
+     * @return JSON string of cache statistics
+     */
+    private static String getSearchCacheJson() {
+        SearchResultCache.Stats stats = ToolHandlers.getSearchCacheStats();
+        DiskResultStore.Stats disk = ToolHandlers.getDiskCacheStats();
+        return JsonOutput.write(json -> {
+            json.writeStartObject();
+            json.writeNumberField("hits", stats.hits());
+            json.writeNumberField("staleHits", stats.staleHits());
+            json.writeNumberField("misses", stats.misses());
+            json.writeNumberField("hitRatio", Math.round(stats.hitRatio() * 10_000) / 10_000.0);
+            json.writeNumberField("diskHits", stats.tierHits());
+            json.writeNumberField("staleOnError", stats.staleOnError());
+            json.writeNumberField("evictions", stats.evictions());
+            json.writeNumberField("expirations", stats.expirations());
+            json.writeNumberField("size", stats.size());
+            json.writeNumberField("weight", stats.weight());
+            if (disk == null) {
+                json.writeNullField("disk");
+            } else {
+                json.writeObjectFieldStart("disk");
+                json.writeNumberField("entries", disk.entries());
+                json.writeNumberField("segments", disk.segments());
+                json.writeNumberField("bytes", disk.bytes());
+                json.writeNumberField("writes", disk.writes());
+                json.writeNumberField("compactedSegments", disk.compactedSegments());
+                json.writeEndObject();
+            }
+            json.writeStringField("timestamp", Instant.now().toString());
+            json.writeEndObject();
+        });
     }
     
     /**
-     * Gets the server configuration as JSON.
+     * Rebuilds the configuration snapshot after a configuration value changed.
+     */
+    public static void invalidateConfig() {
+        configSnapshot.invalidate();
+        notifyChanged("resource://config");
+    }
+    
+    /**
+     * Gets the server configuration as JSON: every setting in effect, grouped by the first
+     * part of its key, and where it was loaded from. The result is cached by
+     * {@code configSnapshot}, so {@code snapshotAt} is when it was built.
      * 
+     * @param version the snapshot version
      * @return JSON string of configuration
      */
-    private static String getConfigJson() {
-        return """
-            {
-              "serverName": "my-mcp-server",
-              "version": "1.0.0",
-              "tools": ["websearch"],
-              "capabilities": {
-                "tools": true,
-                "resources": true,
-                "prompts": true
-              },
-              "searchConfig": {
-                "maxResults": 10,
-                "defaultResults": 5,
-                "timeout": 30
-              },
-              "timestamp": "%s"
+    private static String getConfigJson(long version) {
+        RuntimeConfig config = RuntimeConfig.global();
+        Map<String, Map<String, Object>> sections = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> setting : config.current().toMap().entrySet()) {
+            int dot = setting.getKey().indexOf('.');
+            sections.computeIfAbsent(setting.getKey().substring(0, dot), section -> new LinkedHashMap<>())
+                .put(setting.getKey().substring(dot + 1), setting.getValue());
+        }
+        return JsonOutput.write(json -> {
+            json.writeStartObject();
+            json.writeStringField("serverName", "my-mcp-server");
+            json.writeStringField("version", "1.0.0");
+            json.writeArrayFieldStart("tools");
+            for (String tool : List.of("websearch", "websearch_batch", "fetch_url")) {
+                json.writeString(tool);
+            }
+            json.writeEndArray();
+            json.writeObjectFieldStart("capabilities");
+            json.writeBooleanField("tools", true);
+            json.writeBooleanField("resources", true);
+            json.writeBooleanField("prompts", true);
+            json.writeEndObject();
+            json.writeObjectFieldStart("settings");
+            for (Map.Entry<String, Map<String, Object>> section : sections.entrySet()) {
+                json.writeObjectFieldStart(section.getKey());
+                for (Map.Entry<String, Object> setting : section.getValue().entrySet()) {
+                    json.writeFieldName(setting.getKey());
+                    writeSetting(json, setting.getValue());
+                }
+                json.writeEndObject();
+            }
+            json.writeEndObject();
+            json.writeArrayFieldStart("restartRequired");
+            for (String key : ServerConfig.STARTUP_KEYS.stream().sorted().toList()) {
+                json.writeString(key);
+            }
+            json.writeEndArray();
+            json.writeStringField("configFile", config.file() == null ? null : config.file().toString());
+            json.writeStringField("loadedAt", config.loadedAt().toString());
+            json.writeNumberField("reloads", config.reloads());
+            json.writeObjectFieldStart("circuitBreakers");
+            for (Map.Entry<String, String> breaker : ToolHandlers.getCircuitBreakerStates().entrySet()) {
+                json.writeStringField(breaker.getKey(), breaker.getValue());
+            }
+            json.writeEndObject();
+            json.writeNumberField("configVersion", version);
+            json.writeStringField("snapshotAt", Instant.now().toString());
+            json.writeEndObject();
+        });
+    }
+    
+    /**
+     * Writes one setting value.
+     * 
+     * @param json the generator
+     * @param value a number, string, list of strings or null
+     * @throws IOException if writing fails
+     */
+    private static void writeSetting(JsonGenerator json, Object value) throws IOException {
+        if (value instanceof List<?> list) {
+            json.writeStartArray();
+            for (Object item : list) {
+                json.writeString(String.valueOf(item));
             }
-            """.formatted(Instant.now());
+            json.writeEndArray();
+        } else if (value instanceof Integer number) {
+            json.writeNumber(number);
+        } else if (value instanceof Long number) {
+            json.writeNumber(number);
+        } else if (value instanceof Double number) {
+            json.writeNumber(number);
+        } else if (value == null) {
+            json.writeNull();
+        } else {
+            json.writeString(value.toString());
+        }
     }
     
     /**
@@ -148,29 +386,16 @@ public class ResourceHandlers {
         );
     }
     
-    /**
-     * Escapes special characters for JSON strings.
-     * 
-     * @param text the text to escape
-     * @return escaped text
-     */
-    private static String escapeJson(String text) {
-        return text.replace("\\", "\\\\")
-                   .replace("\"", "\\\"")
-                   .replace("\n", "\\n")
-                   .replace("\r", "\\r")
-                   .replace("\t", "\\t");
-    }
-    
     /**
      * Handles resource subscription.
      * 
      * @param uri the resource URI to subscribe to
+     * @param client the client's listener
      * @return empty mono
      */
-    private static Mono<Void> handleSubscribe(String uri) {
+    private static Mono<Void> handleSubscribe(String uri, Consumer<String> client) {
         log.info("Client subscribed to resource: {}", uri);
-        subscriptions.put(uri, true);
+        subscribe(uri, client);
         return Mono.empty();
     }
     
@@ -178,11 +403,12 @@ public class ResourceHandlers {
      * Handles resource unsubscription.
      * 
      * @param uri the resource URI to unsubscribe from
+     * @param client the client's listener
      * @return empty mono
      */
-    private static Mono<Void> handleUnsubscribe(String uri) {
+    private static Mono<Void> handleUnsubscribe(String uri, Consumer<String> client) {
         log.info("Client unsubscribed from resource: {}", uri);
-        subscriptions.remove(uri);
+        unsubscribe(uri, client);
         return Mono.empty();
     }
 }
@@ -0,0 +1,142 @@
+package com.example.mcp.resources;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fixed-capacity, lock-free ring buffer of recent searches.
+ * 
+ * Any number of threads may record concurrently: each claims a sequence number with a
+ * single atomic increment and publishes its entry into the slot for that sequence.
+ * Snapshots never block writers; a slot that is mid-write or already overwritten by a
+ * newer entry is detected by its sequence number and skipped.
+ * 
+ * The capacity can be changed while the history is in use. The most recent entries are
+ * carried over; a search recorded at the moment of the change may be lost.
+ */
+public class SearchHistory {
+    
+    /**
+     * A recorded search.
+     * 
+     * @param query the search query
+     * @param timestamp when the search completed
+     * @param latencyMillis time taken to answer the search
+     * @param resultCount number of results returned
+     * @param cacheHit whether the results came from the cache
+     */
+    public record Entry(String query, Instant timestamp, long latencyMillis, int resultCount, boolean cacheHit) {
+    }
+    
+    private record Slot(long sequence, Entry entry) {
+    }
+    
+    private volatile AtomicReferenceArray<Slot> slots;
+    private final AtomicLong nextSequence = new AtomicLong();
+    private final AtomicLong published = new AtomicLong();
+    
+    /**
+     * Creates a history that keeps the most recent entries.
+     * 
+     * @param capacity the maximum number of entries kept
+     */
+    public SearchHistory(int capacity) {
+        this.slots = new AtomicReferenceArray<>(checkCapacity(capacity));
+    }
+    
+    /**
+     * Records a search, overwriting the oldest entry once the buffer is full.
+     * 
+     * @param entry the search to record
+     */
+    public void record(Entry entry) {
+        AtomicReferenceArray<Slot> current = slots;
+        long sequence = nextSequence.getAndIncrement();
+        current.set(indexOf(sequence, current), new Slot(sequence, entry));
+        published.incrementAndGet();
+    }
+    
+    /**
+     * Returns the retained entries, oldest first.
+     * 
+     * @return a snapshot of the history
+     */
+    public List<Entry> snapshot() {
+        AtomicReferenceArray<Slot> current = slots;
+        long end = nextSequence.get();
+        long start = Math.max(0, end - current.length());
+        List<Entry> entries = new ArrayList<>((int) (end - start));
+        
+        for (long sequence = start; sequence < end; sequence++) {
+            Slot slot = current.get(indexOf(sequence, current));
+            if (slot != null && slot.sequence() == sequence) {
+                entries.add(slot.entry());
+            }
+        }
+        return entries;
+    }
+    
+    /**
+     * Returns the number of searches recorded since startup, including overwritten ones.
+     * 
+     * @return total recorded searches
+     */
+    public long totalRecorded() {
+        return nextSequence.get();
+    }
+    
+    /**
+     * Returns the number of searches whose entries have been written. Unlike
+     * {@link #totalRecorded}, it only changes once a new entry is visible to
+     * {@link #snapshot}, so it can version a cached snapshot.
+     * 
+     * @return total published searches
+     */
+    public long totalPublished() {
+        return published.get();
+    }
+    
+    /**
+     * Returns the maximum number of entries kept.
+     * 
+     * @return the capacity
+     */
+    public int capacity() {
+        return slots.length();
+    }
+    
+    /**
+     * Changes the capacity, keeping the most recent entries that fit.
+     * 
+     * @param capacity the new maximum number of entries kept
+     */
+    public synchronized void resize(int capacity) {
+        AtomicReferenceArray<Slot> current = slots;
+        if (checkCapacity(capacity) == current.length()) {
+            return;
+        }
+        AtomicReferenceArray<Slot> resized = new AtomicReferenceArray<>(capacity);
+        long end = nextSequence.get();
+        for (long sequence = Math.max(0, end - Math.min(capacity, current.length())); sequence < end; sequence++) {
+            Slot slot = current.get(indexOf(sequence, current));
+            if (slot != null && slot.sequence() == sequence) {
+                resized.set(indexOf(sequence, resized), slot);
+            }
+        }
+        slots = resized;
+    }
+    
+    private static int checkCapacity(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Search history capacity must be positive: " + capacity);
+        }
+        return capacity;
+    }
+    
+    private static int indexOf(long sequence, AtomicReferenceArray<Slot> slots) {
+        return (int) (sequence % slots.length());
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.mcp.snapshot;
+
+import reactor.core.publisher.Mono;
+
+import java.util.function.LongFunction;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * A response payload built once and served until its source changes.
+ * 
+ * Reads return the same pre-built value and {@link Mono} instance, so serving a snapshot
+ * allocates nothing. The payload is rebuilt, and its version incremented, when
+ * {@link #invalidate()} is called or when the tracked source version moves on.
+ * 
+ * Nothing is built until the first read, so creating a snapshot during class
+ * initialization does not load the data behind it at startup. After that,
+ * {@link #invalidate()} rebuilds eagerly on the calling thread, while a change of the source
+ * version is picked up by the next read. Payloads should therefore not carry the time they
+ * are served at; a time in a payload is the time it was built.
+ * 
+ * @param <T> the payload type
+ */
+public final class VersionedSnapshot<T> {
+    
+    private record State<T>(long version, long sourceVersion, T value, Mono<T> mono) {
+    }
+    
+    private final LongSupplier sourceVersion;
+    private final LongFunction<T> builder;
+    private volatile State<T> state;
+    
+    /**
+     * Creates a snapshot that is rebuilt whenever the source version changes.
+     * 
+     * @param sourceVersion returns the current version of the underlying data
+     * @param builder builds the payload, given the snapshot version it will be published as
+     */
+    public VersionedSnapshot(LongSupplier sourceVersion, LongFunction<T> builder) {
+        this.sourceVersion = sourceVersion;
+        this.builder = builder;
+    }
+    
+    /**
+     * Creates a snapshot of data that only changes when {@link #invalidate()} is called.
+     * 
+     * @param builder builds the payload
+     * @param <T> the payload type
+     * @return the snapshot
+     */
+    public static <T> VersionedSnapshot<T> of(Supplier<T> builder) {
+        return new VersionedSnapshot<>(() -> 0, version -> builder.get());
+    }
+    
+    /**
+     * Returns the current payload.
+     * 
+     * @return the payload
+     */
+    public T get() {
+        return current().value();
+    }
+    
+    /**
+     * Returns the current payload as a ready-made Mono.
+     * 
+     * @return the payload
+     */
+    public Mono<T> mono() {
+        return current().mono();
+    }
+    
+    /**
+     * Returns the version of the current payload. Starts at 1 and increases on every rebuild.
+     * 
+     * @return the version
+     */
+    public long version() {
+        return current().version();
+    }
+    
+    /**
+     * Rebuilds the payload because the data behind it changed.
+     */
+    public synchronized void invalidate() {
+        state = build(current().version() + 1, sourceVersion.getAsLong());
+    }
+    
+    /**
+     * Returns the current state, rebuilding it first if the source has moved on.
+     * 
+     * @return the current state
+     */
+    private State<T> current() {
+        State<T> current = state;
+        if (current != null && current.sourceVersion() == sourceVersion.getAsLong()) {
+            return current;
+        }
+        synchronized (this) {
+            long source = sourceVersion.getAsLong();
+            if (state == null) {
+                state = build(1, source);
+            } else if (state.sourceVersion() != source) {
+                state = build(state.version() + 1, source);
+            }
+            return state;
+        }
+    }
+    
+    private State<T> build(long version, long source) {
+        T value = builder.apply(version);
+        return new State<>(version, source, value, Mono.just(value));
+    }
+}
@@ -0,0 +1,257 @@
+package com.example.mcp.tools;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limits concurrent upstream calls, adapting the limit to observed latency (AIMD).
+ * 
+ * The limit grows by about one for every limit's worth of successful calls while they are
+ * fast, that is within {@code tolerance} times the lowest recent latency, and shrinks
+ * multiplicatively when calls slow down, time out or are throttled. Calls over the limit
+ * wait in a bounded FIFO queue for a permit, up to a caller-supplied maximum wait.
+ */
+final class AdaptiveConcurrencyLimiter {
+    
+    /** How a call ended, as far as the limit is concerned. */
+    enum Outcome {
+        /** The call succeeded; its latency is a sample. */
+        SUCCESS,
+        /** The upstream is overloaded: it timed out or throttled the call. */
+        DROPPED,
+        /** The call says nothing about load, for example because it was cancelled. */
+        IGNORED
+    }
+    
+    /** Samples per latency window; the lowest latency of the last full window is the baseline. */
+    private static final int WINDOW_SAMPLES = 100;
+    private static final double LATENCY_TOLERANCE = 2.0;
+    private static final double SLOW_BACKOFF = 0.9;
+    private static final double DROP_BACKOFF = 0.5;
+    
+    private final int minLimit;
+    private final int maxLimit;
+    private final int maxQueued;
+    private final Scheduler timer;
+    
+    private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+    private double limit;
+    private int inFlight;
+    private long baselineNanos = Long.MAX_VALUE;
+    private long windowMinNanos = Long.MAX_VALUE;
+    private int windowSamples;
+    
+    /**
+     * A granted slot. Release it exactly once when the call ends; further releases are ignored.
+     */
+    final class Permit {
+        
+        private final AtomicBoolean released = new AtomicBoolean();
+        
+        /**
+         * Returns the slot and feeds the call's outcome into the limit.
+         * 
+         * @param outcome how the call ended
+         * @param latencyNanos the call's latency, used for {@link Outcome#SUCCESS}
+         */
+        void release(Outcome outcome, long latencyNanos) {
+            if (released.compareAndSet(false, true)) {
+                AdaptiveConcurrencyLimiter.this.release(outcome, latencyNanos);
+            }
+        }
+    }
+    
+    private final class Waiter {
+        static final int WAITING = 0;
+        static final int GRANTED = 1;
+        static final int CANCELLED = 2;
+        
+        final MonoSink<Permit> sink;
+        final AtomicInteger state = new AtomicInteger(WAITING);
+        /** Exists before the waiter can be granted, so a racing cancel always finds it. */
+        final Permit permit = new Permit();
+        volatile Disposable timeout;
+        
+        Waiter(MonoSink<Permit> sink) {
+            this.sink = sink;
+        }
+    }
+    
+    /**
+     * Creates a limiter.
+     * 
+     * @param initialLimit the starting limit
+     * @param minLimit the lowest the limit may fall
+     * @param maxLimit the highest the limit may grow
+     * @param maxQueued how many calls may wait for a permit; further calls are rejected at once
+     */
+    AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, int maxQueued) {
+        this(initialLimit, minLimit, maxLimit, maxQueued, Schedulers.parallel());
+    }
+    
+    AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, int maxQueued, Scheduler timer) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Limits must satisfy 1 <= min <= max");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.maxQueued = maxQueued;
+        this.timer = timer;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+    
+    /**
+     * Acquires a permit, waiting in the queue if the limit is reached.
+     * 
+     * @param maxWait the longest to wait for a permit
+     * @return the permit; fails with {@link UpstreamOverloadedException} if the queue is full
+     *         or the wait times out
+     */
+    Mono<Permit> acquire(Duration maxWait) {
+        return Mono.create(sink -> {
+            Waiter waiter = new Waiter(sink);
+            String rejection = null;
+            boolean granted = false;
+            synchronized (this) {
+                if (inFlight < (int) limit && waiters.isEmpty()) {
+                    inFlight++;
+                    granted = true;
+                } else if (waiters.size() >= maxQueued || maxWait.isZero() || maxWait.isNegative()) {
+                    rejection = waiters.size() + " calls already waiting for one of " + (int) limit + " upstream slots";
+                } else {
+                    waiters.add(waiter);
+                }
+            }
+            
+            if (granted) {
+                sink.success(waiter.permit);
+                return;
+            }
+            if (rejection != null) {
+                sink.error(new UpstreamOverloadedException(rejection));
+                return;
+            }
+            
+            waiter.timeout = timer.schedule(() -> {
+                if (waiter.state.compareAndSet(Waiter.WAITING, Waiter.CANCELLED)) {
+                    remove(waiter);
+                    sink.error(new UpstreamOverloadedException(
+                        "no upstream slot became free within " + maxWait.toMillis() + "ms"));
+                }
+            }, maxWait.toNanos(), TimeUnit.NANOSECONDS);
+            sink.onCancel(() -> {
+                if (waiter.state.compareAndSet(Waiter.WAITING, Waiter.CANCELLED)) {
+                    remove(waiter);
+                    waiter.timeout.dispose();
+                } else if (waiter.state.get() == Waiter.GRANTED) {
+                    // Granted while being cancelled: the permit may never reach a subscriber
+                    waiter.permit.release(Outcome.IGNORED, 0);
+                }
+            });
+        });
+    }
+    
+    /**
+     * Returns the current concurrency limit.
+     * 
+     * @return the limit
+     */
+    synchronized int limit() {
+        return (int) limit;
+    }
+    
+    /**
+     * Returns the number of permits held.
+     * 
+     * @return the in-flight call count
+     */
+    synchronized int inFlight() {
+        return inFlight;
+    }
+    
+    /**
+     * Returns the number of calls waiting for a permit.
+     * 
+     * @return the queue length
+     */
+    synchronized int queued() {
+        return waiters.size();
+    }
+    
+    /**
+     * Removes a waiter that timed out or was cancelled.
+     * 
+     * @param waiter the waiter
+     */
+    private synchronized void remove(Waiter waiter) {
+        waiters.remove(waiter);
+    }
+    
+    /**
+     * Returns a permit, adjusts the limit and hands freed slots to waiters.
+     * 
+     * @param outcome how the call ended
+     * @param latencyNanos the call's latency
+     */
+    private void release(Outcome outcome, long latencyNanos) {
+        List<Waiter> granted = new ArrayList<>();
+        synchronized (this) {
+            inFlight--;
+            adjust(outcome, latencyNanos);
+            while (inFlight < (int) limit && !waiters.isEmpty()) {
+                Waiter waiter = waiters.poll();
+                if (waiter.state.compareAndSet(Waiter.WAITING, Waiter.GRANTED)) {
+                    inFlight++;
+                    granted.add(waiter);
+                }
+            }
+        }
+        for (Waiter waiter : granted) {
+            // Null if granted before acquire() scheduled it; the timeout then finds the waiter granted
+            Disposable timeout = waiter.timeout;
+            if (timeout != null) {
+                timeout.dispose();
+            }
+            waiter.sink.success(waiter.permit);
+        }
+    }
+    
+    /**
+     * Applies one call's outcome to the limit. Called with the lock held.
+     * 
+     * @param outcome how the call ended
+     * @param latencyNanos the call's latency
+     */
+    private void adjust(Outcome outcome, long latencyNanos) {
+        switch (outcome) {
+            case DROPPED -> limit = Math.max(minLimit, limit * DROP_BACKOFF);
+            case SUCCESS -> {
+                windowMinNanos = Math.min(windowMinNanos, latencyNanos);
+                if (++windowSamples >= WINDOW_SAMPLES || baselineNanos == Long.MAX_VALUE) {
+                    baselineNanos = windowMinNanos;
+                    windowMinNanos = Long.MAX_VALUE;
+                    windowSamples = 0;
+                }
+                if (latencyNanos > baselineNanos * LATENCY_TOLERANCE) {
+                    limit = Math.max(minLimit, limit * SLOW_BACKOFF);
+                } else if (inFlight + 1 >= limit / 2) {
+                    // Only grow a limit that is actually being used
+                    limit = Math.min(maxLimit, limit + 1 / limit);
+                }
+            }
+            case IGNORED -> {
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.mcp.tools;
+
+import reactor.core.publisher.Mono;
+
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Admission control in front of one upstream search provider.
+ * 
+ * A token bucket caps the request rate and an {@link AdaptiveConcurrencyLimiter} caps the
+ * number of calls in flight. A search waits for both for up to the maximum queue time. If
+ * the wait would be longer, or the queue is full, it fails at once with an
+ * {@link UpstreamOverloadedException} rather than tying up a thread and a socket until the
+ * upstream's read timeout. A search that takes a token but is then rejected or cancelled
+ * before it gets a slot puts the token back, so turned-away searches do not use up the rate
+ * budget of admitted ones.
+ */
+final class AdmissionControlledSearchProvider implements SearchProvider {
+    
+    private final SearchProvider delegate;
+    private final TokenBucket rateLimit;
+    private final AdaptiveConcurrencyLimiter concurrencyLimit;
+    private final Duration maxQueueTime;
+    private final LongAdder rejected = new LongAdder();
+    
+    /**
+     * Creates the admission layer.
+     * 
+     * @param delegate the provider being protected
+     * @param rateLimit limits the request rate
+     * @param concurrencyLimit limits concurrent calls
+     * @param maxQueueTime the longest a search may wait for admission
+     */
+    AdmissionControlledSearchProvider(SearchProvider delegate, TokenBucket rateLimit,
+                                      AdaptiveConcurrencyLimiter concurrencyLimit, Duration maxQueueTime) {
+        this.delegate = delegate;
+        this.rateLimit = rateLimit;
+        this.concurrencyLimit = concurrencyLimit;
+        this.maxQueueTime = maxQueueTime;
+    }
+    
+    @Override
+    public String name() {
+        return delegate.name();
+    }
+    
+    @Override
+    public Mono<SearchResponse> search(String query, int maxResults) {
+        return Mono.defer(() -> {
+            long deadline = System.nanoTime() + maxQueueTime.toNanos();
+            long wait = rateLimit.reserve(maxQueueTime.toNanos());
+            if (wait < 0) {
+                rejected.increment();
+                return Mono.error(new UpstreamOverloadedException(
+                    "request rate limit reached, no slot within " + maxQueueTime.toMillis() + "ms"));
+            }
+            
+            Mono<Void> rateDelay = wait == 0 ? Mono.empty() : Mono.delay(Duration.ofNanos(wait)).then();
+            AtomicBoolean admitted = new AtomicBoolean();
+            return rateDelay
+                .then(Mono.defer(() -> concurrencyLimit.acquire(Duration.ofNanos(deadline - System.nanoTime()))))
+                .doOnNext(permit -> admitted.set(true))
+                .doOnError(e -> {
+                    rejected.increment();
+                    rateLimit.refund();
+                })
+                .doOnCancel(() -> {
+                    if (admitted.compareAndSet(false, true)) {
+                        rateLimit.refund();
+                    }
+                })
+                .flatMap(permit -> call(permit, query, maxResults));
+        });
+    }
+    
+    /**
+     * Returns how many searches were turned away.
+     * 
+     * @return the rejection count
+     */
+    long rejected() {
+        return rejected.sum();
+    }
+    
+    /**
+     * Returns the concurrency limiter, for metrics.
+     * 
+     * @return the limiter
+     */
+    AdaptiveConcurrencyLimiter concurrencyLimit() {
+        return concurrencyLimit;
+    }
+    
+    /**
+     * Makes the upstream call while holding a permit, and reports its outcome to the limiter.
+     * 
+     * @param permit the permit
+     * @param query the search query
+     * @param maxResults the maximum number of related results
+     * @return the search response
+     */
+    private Mono<SearchResponse> call(AdaptiveConcurrencyLimiter.Permit permit, String query, int maxResults) {
+        long start = System.nanoTime();
+        return delegate.search(query, maxResults)
+            .doOnSuccess(response -> permit.release(AdaptiveConcurrencyLimiter.Outcome.SUCCESS, System.nanoTime() - start))
+            .doOnError(e -> permit.release(outcome(e), System.nanoTime() - start))
+            .doOnCancel(() -> permit.release(AdaptiveConcurrencyLimiter.Outcome.IGNORED, 0));
+    }
+    
+    /**
+     * Classifies a failed call: timeouts and throttling mean the upstream is overloaded,
+     * other failures say nothing about load.
+     * 
+     * @param error the failure
+     * @return the outcome
+     */
+    private static AdaptiveConcurrencyLimiter.Outcome outcome(Throwable error) {
+        if (error instanceof InterruptedIOException
+            || error instanceof HttpStatusException status && status.overloaded()) {
+            return AdaptiveConcurrencyLimiter.Outcome.DROPPED;
+        }
+        return AdaptiveConcurrencyLimiter.Outcome.IGNORED;
+    }
+}
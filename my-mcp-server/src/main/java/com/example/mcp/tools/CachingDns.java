@@ -0,0 +1,155 @@
+package com.example.mcp.tools;
+
+import okhttp3.Dns;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * A DNS resolver that remembers answers for a fixed time.
+ * 
+ * OkHttp resolves a host each time it opens a connection, so without a cache every
+ * connection that the pool had to drop pays for a lookup. Answers are kept for the TTL in a
+ * bounded, least recently used map. When a host's answer has expired and resolving it again
+ * fails, the expired addresses are used, so a resolver outage does not break calls to hosts
+ * that are already known. Failed lookups are not cached.
+ */
+final class CachingDns implements Dns {
+    
+    private final Dns delegate;
+    private final LongSupplier nanoClock;
+    private final Map<String, Answer> answers = new LinkedHashMap<>(16, 0.75f, true);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder staleOnError = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private volatile long ttlNanos;
+    private volatile int maxEntries;
+    
+    /**
+     * A resolved host.
+     * 
+     * @param addresses the host's addresses
+     * @param resolvedAt when it was resolved, in {@code nanoClock} time
+     */
+    private record Answer(List<InetAddress> addresses, long resolvedAt) {
+    }
+    
+    /**
+     * Cache counters.
+     * 
+     * @param hits lookups answered from the cache
+     * @param misses lookups passed to the resolver
+     * @param staleOnError lookups answered with expired addresses because the resolver failed
+     * @param failures lookups that failed
+     * @param size hosts cached
+     */
+    record Stats(long hits, long misses, long staleOnError, long failures, int size) {
+    }
+    
+    /**
+     * Creates a cache in front of the system resolver.
+     * 
+     * @param ttl how long an answer is kept, or zero to not cache
+     * @param maxEntries the most hosts cached
+     */
+    CachingDns(Duration ttl, int maxEntries) {
+        this(Dns.SYSTEM, ttl, maxEntries, System::nanoTime);
+    }
+    
+    /**
+     * Creates a cache with an explicit resolver and clock, for tests.
+     * 
+     * @param delegate resolves hosts that are not cached
+     * @param ttl how long an answer is kept, or zero to not cache
+     * @param maxEntries the most hosts cached
+     * @param nanoClock the time source
+     */
+    CachingDns(Dns delegate, Duration ttl, int maxEntries, LongSupplier nanoClock) {
+        this.delegate = delegate;
+        this.nanoClock = nanoClock;
+        this.ttlNanos = ttl.toNanos();
+        this.maxEntries = maxEntries;
+    }
+    
+    @Override
+    public List<InetAddress> lookup(String hostname) throws UnknownHostException {
+        Answer cached;
+        synchronized (answers) {
+            cached = answers.get(hostname);
+        }
+        long now = nanoClock.getAsLong();
+        if (cached != null && now - cached.resolvedAt() < ttlNanos) {
+            hits.increment();
+            return cached.addresses();
+        }
+        
+        misses.increment();
+        List<InetAddress> addresses;
+        try {
+            addresses = List.copyOf(delegate.lookup(hostname));
+        } catch (UnknownHostException | RuntimeException e) {
+            if (cached != null) {
+                staleOnError.increment();
+                return cached.addresses();
+            }
+            failures.increment();
+            throw e;
+        }
+        if (ttlNanos > 0) {
+            synchronized (answers) {
+                answers.put(hostname, new Answer(addresses, now));
+                evictOverCapacity();
+            }
+        }
+        return addresses;
+    }
+    
+    /**
+     * Changes the TTL and bound. Answers already cached are judged by the new TTL; if the
+     * cache is over the new bound, least recently used hosts are dropped at once.
+     * 
+     * @param ttl how long an answer is kept, or zero to not cache
+     * @param maxEntries the most hosts cached
+     */
+    void reconfigure(Duration ttl, int maxEntries) {
+        synchronized (answers) {
+            this.ttlNanos = ttl.toNanos();
+            this.maxEntries = maxEntries;
+            if (ttlNanos == 0) {
+                answers.clear();
+            }
+            evictOverCapacity();
+        }
+    }
+    
+    /**
+     * Returns the current counters.
+     * 
+     * @return cache statistics
+     */
+    Stats stats() {
+        synchronized (answers) {
+            return new Stats(hits.sum(), misses.sum(), staleOnError.sum(), failures.sum(), answers.size());
+        }
+    }
+    
+    /**
+     * Drops least recently used hosts until the cache is within its bound. Call while
+     * holding the lock on {@code answers}.
+     */
+    private void evictOverCapacity() {
+        Iterator<Answer> eldest = answers.values().iterator();
+        while (answers.size() > maxEntries && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.mcp.tools;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Stops calls to an upstream that keeps failing, so that callers fail fast instead of each
+ * waiting for a timeout.
+ * 
+ * The breaker opens after a run of consecutive failures. While open, every call is refused.
+ * Once the open period has passed, a single probe call is let through: if it succeeds the
+ * breaker closes, if it fails the breaker opens again for another period.
+ */
+final class CircuitBreaker {
+    
+    private static final Logger log = LoggerFactory.getLogger(CircuitBreaker.class);
+    
+    /**
+     * Breaker states.
+     */
+    enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+    
+    private final String name;
+    private final int failureThreshold;
+    private final long openNanos;
+    private final Consumer<State> listener;
+    private final LongSupplier clock;
+    private final LongAdder shortCircuited = new LongAdder();
+    
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openUntil;
+    private boolean probeInFlight;
+    
+    /**
+     * Creates a closed breaker.
+     * 
+     * @param name the upstream name, for logs
+     * @param failureThreshold consecutive failures that open the breaker
+     * @param openDuration how long the breaker stays open before a probe is allowed
+     * @param listener notified after every state change, outside the breaker's lock
+     */
+    CircuitBreaker(String name, int failureThreshold, Duration openDuration, Consumer<State> listener) {
+        this(name, failureThreshold, openDuration, listener, System::nanoTime);
+    }
+    
+    CircuitBreaker(String name, int failureThreshold, Duration openDuration, Consumer<State> listener,
+                   LongSupplier clock) {
+        if (failureThreshold < 1) {
+            throw new IllegalArgumentException("Failure threshold must be positive");
+        }
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+        this.listener = listener;
+        this.clock = clock;
+    }
+    
+    /**
+     * Asks to make a call. Every call that is allowed must be followed by exactly one of
+     * {@link #onSuccess}, {@link #onFailure} or {@link #onIgnored}.
+     * 
+     * @return true if the call may go ahead
+     */
+    boolean tryAcquire() {
+        State changed = null;
+        synchronized (this) {
+            switch (state) {
+                case CLOSED:
+                    return true;
+                case OPEN:
+                    if (clock.getAsLong() - openUntil < 0) {
+                        break;
+                    }
+                    state = State.HALF_OPEN;
+                    changed = state;
+                    probeInFlight = true;
+                    break;
+                case HALF_OPEN:
+                    if (!probeInFlight) {
+                        probeInFlight = true;
+                        return true;
+                    }
+                    break;
+            }
+        }
+        if (changed == null) {
+            shortCircuited.increment();
+            return false;
+        }
+        stateChanged(changed);
+        return true;
+    }
+    
+    /**
+     * Records a successful call.
+     */
+    void onSuccess() {
+        synchronized (this) {
+            consecutiveFailures = 0;
+            probeInFlight = false;
+            if (state == State.CLOSED) {
+                return;
+            }
+            state = State.CLOSED;
+        }
+        stateChanged(State.CLOSED);
+    }
+    
+    /**
+     * Records a call that failed in a way that says the upstream is unhealthy.
+     */
+    void onFailure() {
+        synchronized (this) {
+            probeInFlight = false;
+            consecutiveFailures++;
+            if (state == State.OPEN || state == State.CLOSED && consecutiveFailures < failureThreshold) {
+                return;
+            }
+            state = State.OPEN;
+            openUntil = clock.getAsLong() + openNanos;
+        }
+        stateChanged(State.OPEN);
+    }
+    
+    /**
+     * Records a call that ended without saying anything about the upstream's health, such
+     * as a cancelled call or one rejected by local admission control.
+     */
+    synchronized void onIgnored() {
+        probeInFlight = false;
+    }
+    
+    /**
+     * Returns the current state.
+     * 
+     * @return the state
+     */
+    synchronized State state() {
+        return state;
+    }
+    
+    /**
+     * Returns how many calls were refused while the breaker was open.
+     * 
+     * @return the refused call count
+     */
+    long shortCircuited() {
+        return shortCircuited.sum();
+    }
+    
+    private void stateChanged(State newState) {
+        if (newState == State.OPEN) {
+            log.warn("Circuit breaker for {} opened after repeated failures", name);
+        } else {
+            log.info("Circuit breaker for {} is {}", name, newState);
+        }
+        listener.accept(newState);
+    }
+}
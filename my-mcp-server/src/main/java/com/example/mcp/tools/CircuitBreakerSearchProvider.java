@@ -0,0 +1,82 @@
+package com.example.mcp.tools;
+
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+
+/**
+ * Puts a {@link CircuitBreaker} in front of a search provider.
+ * 
+ * While the breaker is open, searches fail at once with a {@link CircuitOpenException}
+ * without touching the upstream, so that callers can fall back to cached results or to
+ * another endpoint.
+ */
+final class CircuitBreakerSearchProvider implements SearchProvider {
+    
+    private final SearchProvider delegate;
+    private final CircuitBreaker breaker;
+    private final String upstream;
+    
+    /**
+     * Creates the provider.
+     * 
+     * @param delegate the provider being protected
+     * @param breaker the breaker for the delegate's upstream
+     * @param upstream the upstream name, used in error messages
+     */
+    CircuitBreakerSearchProvider(SearchProvider delegate, CircuitBreaker breaker, String upstream) {
+        this.delegate = delegate;
+        this.breaker = breaker;
+        this.upstream = upstream;
+    }
+    
+    @Override
+    public String name() {
+        return delegate.name();
+    }
+    
+    @Override
+    public Mono<SearchResponse> search(String query, int maxResults) {
+        return Mono.defer(() -> {
+            if (!breaker.tryAcquire()) {
+                return Mono.error(new CircuitOpenException(upstream));
+            }
+            return delegate.search(query, maxResults)
+                .doOnSuccess(response -> breaker.onSuccess())
+                .doOnError(e -> {
+                    if (isUpstreamFailure(e)) {
+                        breaker.onFailure();
+                    } else {
+                        breaker.onIgnored();
+                    }
+                })
+                .doOnCancel(breaker::onIgnored);
+        });
+    }
+    
+    /**
+     * Returns the breaker, for metrics.
+     * 
+     * @return the breaker
+     */
+    CircuitBreaker breaker() {
+        return breaker;
+    }
+    
+    /**
+     * Tells failures of the upstream apart from failures that say nothing about its health.
+     * Connection errors, timeouts and 408, 429 and 5xx responses are upstream failures;
+     * other responses and searches turned away by local admission control are not.
+     * 
+     * @param error the failure
+     * @return true if the failure counts against the upstream
+     */
+    static boolean isUpstreamFailure(Throwable error) {
+        if (error instanceof HttpStatusException status) {
+            return status.transientFailure();
+        }
+        return error instanceof IOException
+            && !(error instanceof UpstreamOverloadedException)
+            && !(error instanceof CircuitOpenException);
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.mcp.tools;
+
+import java.io.IOException;
+
+/**
+ * Thrown instead of calling an upstream whose circuit breaker is open.
+ */
+public class CircuitOpenException extends IOException {
+    
+    /**
+     * Creates an exception.
+     * 
+     * @param upstream the name of the unavailable upstream
+     */
+    public CircuitOpenException(String upstream) {
+        super("upstream " + upstream + " is unavailable after repeated failures");
+    }
+}
@@ -0,0 +1,216 @@
+package com.example.mcp.tools;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Search provider that combines several providers to cut tail latency.
+ * 
+ * In {@link Strategy#HEDGED} mode the primary provider is queried first and the n-th backup
+ * is started only if nothing has answered after n hedge delays, derived from the primary's
+ * observed p95 latency, or as soon as the previous provider fails. The first successful
+ * response wins and the others are cancelled.
+ * 
+ * In {@link Strategy#FAN_OUT} mode all providers are queried at once and their results
+ * are merged and deduplicated by URL. The merged response is returned as soon as it holds
+ * enough results, or once every provider has answered.
+ */
+public class CompositeSearchProvider implements SearchProvider {
+    
+    private static final Logger log = LoggerFactory.getLogger(CompositeSearchProvider.class);
+    
+    /**
+     * How requests are distributed across providers.
+     */
+    public enum Strategy {
+        HEDGED,
+        FAN_OUT
+    }
+    
+    private final List<SearchProvider> providers;
+    private final Strategy strategy;
+    private final Duration initialHedgeDelay;
+    private final Duration minHedgeDelay;
+    private final LatencyTracker primaryLatency = new LatencyTracker(256, 0.95, 20);
+    
+    /**
+     * Creates a composite provider.
+     * 
+     * @param providers the providers, primary first
+     * @param strategy how requests are distributed
+     * @param initialHedgeDelay hedge delay used until enough latency samples are collected
+     * @param minHedgeDelay lower bound for the p95-based hedge delay
+     */
+    public CompositeSearchProvider(List<SearchProvider> providers, Strategy strategy,
+                                   Duration initialHedgeDelay, Duration minHedgeDelay) {
+        if (providers.isEmpty()) {
+            throw new IllegalArgumentException("At least one search provider is required");
+        }
+        this.providers = List.copyOf(providers);
+        this.strategy = strategy;
+        this.initialHedgeDelay = initialHedgeDelay;
+        this.minHedgeDelay = minHedgeDelay;
+    }
+    
+    @Override
+    public String name() {
+        List<String> names = new ArrayList<>();
+        for (SearchProvider provider : providers) {
+            names.add(provider.name());
+        }
+        return strategy.name().toLowerCase(Locale.ROOT) + names;
+    }
+    
+    @Override
+    public Mono<SearchResponse> search(String query, int maxResults) {
+        return strategy == Strategy.HEDGED ? hedged(query, maxResults) : fanOut(query, maxResults);
+    }
+    
+    /**
+     * Returns the current hedge delay.
+     * 
+     * @return the delay before a backup provider is started
+     */
+    Duration hedgeDelay() {
+        long p95 = primaryLatency.percentileNanos();
+        if (p95 < 0) {
+            return initialHedgeDelay;
+        }
+        return Duration.ofNanos(Math.max(p95, minHedgeDelay.toNanos()));
+    }
+    
+    /**
+     * Queries providers one after another, each after a hedge delay, and returns the first answer.
+     * 
+     * @param query the search query
+     * @param maxResults the maximum number of related results
+     * @return the first successful response
+     */
+    private Mono<SearchResponse> hedged(String query, int maxResults) {
+        return Mono.defer(() -> {
+            Duration delay = hedgeDelay();
+            List<Mono<SearchResponse>> attempts = new ArrayList<>();
+            List<Throwable> errors = new ArrayList<>();
+            Mono<Void> previousFailed = Mono.never();
+            
+            for (int i = 0; i < providers.size(); i++) {
+                SearchProvider provider = providers.get(i);
+                Sinks.Empty<Void> failed = Sinks.empty();
+                Mono<SearchResponse> attempt = provider.search(query, maxResults)
+                    .doOnError(e -> {
+                        log.warn("Search provider {} failed: {}", provider.name(), e.getMessage());
+                        synchronized (errors) {
+                            errors.add(e);
+                        }
+                        failed.tryEmitEmpty();
+                    });
+                
+                if (i == 0) {
+                    // A primary cancelled because a backup won took at least this long; dropping
+                    // those samples would bias the p95, and so the hedge delay, downwards.
+                    long start = System.nanoTime();
+                    attempt = attempt
+                        .doOnNext(r -> primaryLatency.record(System.nanoTime() - start))
+                        .doOnCancel(() -> primaryLatency.record(System.nanoTime() - start));
+                } else {
+                    Mono<SearchResponse> backup = attempt;
+                    attempt = Mono.firstWithSignal(Mono.delay(delay.multipliedBy(i)).then(), previousFailed)
+                        .then(Mono.defer(() -> {
+                            log.debug("Hedging search for '{}' to {}", query, provider.name());
+                            return backup;
+                        }));
+                }
+                
+                attempts.add(attempt);
+                previousFailed = failed.asMono();
+            }
+            
+            return Mono.firstWithValue(attempts)
+                .onErrorMap(NoSuchElementException.class, e -> lastError(errors, e));
+        });
+    }
+    
+    /**
+     * Picks the error to report when every hedged provider has failed, so that callers see
+     * the upstream failure rather than Reactor's "all sources completed with error".
+     * 
+     * @param errors the errors of the providers, in the order they failed
+     * @param fallback the error to report if no provider error was recorded
+     * @return the last provider error, with the earlier ones suppressed
+     */
+    private static Throwable lastError(List<Throwable> errors, Throwable fallback) {
+        synchronized (errors) {
+            if (errors.isEmpty()) {
+                return fallback;
+            }
+            Throwable last = errors.get(errors.size() - 1);
+            for (Throwable earlier : errors.subList(0, errors.size() - 1)) {
+                if (earlier != last) {
+                    last.addSuppressed(earlier);
+                }
+            }
+            return last;
+        }
+    }
+    
+    /**
+     * Queries all providers at once and merges their results.
+     * 
+     * @param query the search query
+     * @param maxResults the maximum number of related results
+     * @return the merged response
+     */
+    private Mono<SearchResponse> fanOut(String query, int maxResults) {
+        return Flux.fromIterable(providers)
+            .flatMap(provider -> provider.search(query, maxResults)
+                .onErrorResume(e -> {
+                    log.warn("Search provider {} failed: {}", provider.name(), e.getMessage());
+                    return Mono.empty();
+                }))
+            .filter(response -> response.unparsedPreview() == null)
+            .scan(new SearchResponse("", "", List.of(), null), (merged, next) -> merge(merged, next, maxResults))
+            .takeUntil(merged -> merged.results().size() >= maxResults)
+            .last()
+            .filter(merged -> merged.hasAbstract() || !merged.results().isEmpty())
+            .switchIfEmpty(Mono.error(new IOException("No search provider returned results")));
+    }
+    
+    /**
+     * Merges two responses, keeping the first abstract and deduplicating results by canonical URL.
+     * 
+     * @param merged the results merged so far
+     * @param next the next response
+     * @param maxResults the maximum number of related results
+     * @return the merged response
+     */
+    static SearchResponse merge(SearchResponse merged, SearchResponse next, int maxResults) {
+        List<SearchResult> results = new ArrayList<>(merged.results());
+        Set<String> seen = new HashSet<>();
+        for (SearchResult result : results) {
+            seen.add(ResultRanker.dedupeKey(result));
+        }
+        for (SearchResult result : next.results()) {
+            if (results.size() >= maxResults) break;
+            if (seen.add(ResultRanker.dedupeKey(result))) {
+                results.add(result);
+            }
+        }
+        
+        if (merged.hasAbstract()) {
+            return new SearchResponse(merged.abstractText(), merged.abstractUrl(), results, null);
+        }
+        return new SearchResponse(next.abstractText(), next.abstractUrl(), results, null);
+    }
+}
@@ -0,0 +1,578 @@
+package com.example.mcp.tools;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Disk-backed store for cached results that survives restarts.
+ * 
+ * Records are appended to memory-mapped segment files and located through an in-memory
+ * index, so a read is a hash lookup plus decompressing bytes that are usually already in the
+ * page cache. Each record is
+ * 
+ * <pre>
+ * int magic | int crc32 | int keyLength | int valueLength | int rawLength | long writtenAtMillis | key | value
+ * </pre>
+ * 
+ * where the value is deflated and the CRC covers everything after it. The magic number is
+ * written last, so a record cut short by a crash is never mistaken for a complete one.
+ * 
+ * On open, every segment is scanned up to its first invalid record to rebuild the index;
+ * expired records are skipped and the newest record for a key wins. Compaction copies the
+ * live records out of segments that are mostly dead and deletes them.
+ * 
+ * Several processes may share a directory. Each appends only to segments it created and
+ * holds a file lock on its current segment, so compaction never deletes a segment another
+ * process is still writing. Records written by other running processes become visible
+ * on the next restart.
+ */
+public final class DiskResultStore implements AutoCloseable {
+    
+    private static final Logger log = LoggerFactory.getLogger(DiskResultStore.class);
+    
+    private static final int MAGIC = 0x4D435231;
+    private static final int HEADER_BYTES = 28;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    
+    private final Path directory;
+    private final long maxAgeMillis;
+    private final int segmentBytes;
+    private final LongSupplier clock;
+    
+    private final Map<String, Location> index = new ConcurrentHashMap<>();
+    private final Map<Path, Segment> segments = new ConcurrentHashMap<>();
+    private Segment active;
+    private boolean closed;
+    private ScheduledExecutorService compactor;
+    
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder compactedSegments = new LongAdder();
+    
+    /**
+     * A segment file and its mapping. The mapping stays readable after the file is closed
+     * or deleted.
+     */
+    private static final class Segment {
+        final Path path;
+        final MappedByteBuffer buffer;
+        final FileChannel channel;
+        final FileLock lock;
+        volatile int end;
+        
+        Segment(Path path, MappedByteBuffer buffer, FileChannel channel, FileLock lock) {
+            this.path = path;
+            this.buffer = buffer;
+            this.channel = channel;
+            this.lock = lock;
+        }
+    }
+    
+    /**
+     * Where the newest record for a key is.
+     * 
+     * @param segment the segment holding the record
+     * @param offset the record's offset in the segment
+     * @param length the record's length in bytes
+     * @param writtenAtMillis when the value was stored
+     */
+    private record Location(Segment segment, int offset, int length, long writtenAtMillis) {
+    }
+    
+    /**
+     * A stored value.
+     * 
+     * @param value the value
+     * @param ageMillis how long ago it was stored
+     */
+    public record Entry(byte[] value, long ageMillis) {
+    }
+    
+    /**
+     * Point-in-time store statistics.
+     */
+    public record Stats(int entries, int segments, long bytes, long hits, long misses, long writes,
+                        long compactedSegments) {
+    }
+    
+    private DiskResultStore(Path directory, Duration maxAge, int segmentBytes, LongSupplier clock) {
+        this.directory = directory;
+        this.maxAgeMillis = maxAge.toMillis();
+        this.segmentBytes = segmentBytes;
+        this.clock = clock;
+    }
+    
+    /**
+     * Opens a store and recovers the records already in its directory.
+     * 
+     * @param directory the directory holding the segment files; created if missing
+     * @param maxAge how long a record is kept
+     * @param segmentBytes the size of each segment file
+     * @return the store
+     * @throws IOException if the directory cannot be read
+     */
+    public static DiskResultStore open(Path directory, Duration maxAge, int segmentBytes) throws IOException {
+        return open(directory, maxAge, segmentBytes, System::currentTimeMillis);
+    }
+    
+    static DiskResultStore open(Path directory, Duration maxAge, int segmentBytes, LongSupplier clock) throws IOException {
+        Files.createDirectories(directory);
+        DiskResultStore store = new DiskResultStore(directory, maxAge, segmentBytes, clock);
+        store.recover();
+        return store;
+    }
+    
+    /**
+     * Returns the stored value for a key.
+     * 
+     * @param key the key
+     * @return the value and its age, or null if there is no unexpired value
+     */
+    public Entry get(String key) {
+        Location location = index.get(key);
+        long age = location == null ? 0 : clock.getAsLong() - location.writtenAtMillis();
+        if (location == null || age >= maxAgeMillis) {
+            misses.increment();
+            return null;
+        }
+        try {
+            byte[] value = decompress(location.segment().buffer, location.offset());
+            hits.increment();
+            return new Entry(value, Math.max(0, age));
+        } catch (DataFormatException e) {
+            log.warn("Dropping unreadable cache record for '{}' in {}", key, location.segment().path);
+            index.remove(key, location);
+            misses.increment();
+            return null;
+        }
+    }
+    
+    /**
+     * Appends a value, replacing any earlier value for the key. Write failures are logged
+     * and otherwise ignored, since the store is only a cache.
+     * 
+     * @param key the key
+     * @param value the value
+     */
+    public void put(String key, byte[] value) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] compressed = compress(value);
+        append(key, keyBytes, compressed, value.length, clock.getAsLong());
+    }
+    
+    /**
+     * Returns a cache tier backed by this store.
+     * 
+     * @param encoder converts values to bytes
+     * @param decoder converts bytes back to values; returns null for a record it does not
+     *                recognize, which is then treated as missing
+     * @return the tier
+     */
+    public <V> SearchResultCache.Tier<V> asTier(Function<V, byte[]> encoder, Function<byte[], V> decoder) {
+        return new SearchResultCache.Tier<>() {
+            @Override
+            public SearchResultCache.Stored<V> load(SearchResultCache.Key key) {
+                Entry entry = get(keyString(key));
+                V value = entry == null ? null : decoder.apply(entry.value());
+                return value == null ? null
+                    : new SearchResultCache.Stored<>(value, TimeUnit.MILLISECONDS.toNanos(entry.ageMillis()));
+            }
+            
+            @Override
+            public void store(SearchResultCache.Key key, V value) {
+                put(keyString(key), encoder.apply(value));
+            }
+        };
+    }
+    
+    /**
+     * Starts a daemon thread that compacts the store periodically.
+     * 
+     * @param interval the time between compactions
+     */
+    public synchronized void startCompaction(Duration interval) {
+        if (compactor != null || closed) {
+            return;
+        }
+        compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "disk-cache-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = interval.toMillis();
+        compactor.scheduleWithFixedDelay(this::compact, millis, millis, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Drops expired records from the index, then rewrites every sealed segment in which less
+     * than half of the bytes are still live: its live records are copied to the current
+     * segment and the file is deleted. Segments another process is still writing are skipped.
+     */
+    public synchronized void compact() {
+        if (closed) {
+            return;
+        }
+        long now = clock.getAsLong();
+        index.values().removeIf(location -> now - location.writtenAtMillis() >= maxAgeMillis);
+        
+        Map<Segment, List<Map.Entry<String, Location>>> live = new HashMap<>();
+        Map<Segment, Long> liveBytes = new HashMap<>();
+        for (Map.Entry<String, Location> entry : index.entrySet()) {
+            Segment segment = entry.getValue().segment();
+            live.computeIfAbsent(segment, s -> new ArrayList<>()).add(entry);
+            liveBytes.merge(segment, (long) entry.getValue().length(), Long::sum);
+        }
+        
+        for (Segment segment : List.copyOf(segments.values())) {
+            if (segment == active || liveBytes.getOrDefault(segment, 0L) * 2 > segment.end) {
+                continue;
+            }
+            try {
+                compact(segment, live.getOrDefault(segment, List.of()));
+            } catch (IOException e) {
+                log.warn("Failed to compact cache segment {}: {}", segment.path, e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Returns the current statistics.
+     * 
+     * @return store statistics
+     */
+    public Stats stats() {
+        long bytes = 0;
+        for (Segment segment : segments.values()) {
+            bytes += segment.end;
+        }
+        return new Stats(index.size(), segments.size(), bytes, hits.sum(), misses.sum(), writes.sum(),
+            compactedSegments.sum());
+    }
+    
+    /**
+     * Flushes the current segment and releases its lock. Records already written stay readable.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (compactor != null) {
+            compactor.shutdownNow();
+        }
+        if (active != null) {
+            seal(active);
+            active = null;
+        }
+    }
+    
+    /**
+     * Rebuilds the index from the segment files, oldest first.
+     * 
+     * @throws IOException if the directory cannot be listed
+     */
+    private void recover() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            stream.forEach(files::add);
+        }
+        files.sort(null);
+        
+        long now = clock.getAsLong();
+        int recovered = 0;
+        for (Path file : files) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                long size = channel.size();
+                if (size == 0 || size > Integer.MAX_VALUE) {
+                    continue;
+                }
+                Segment segment = new Segment(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, size), null, null);
+                recovered += scan(segment, now);
+                segments.put(file, segment);
+            } catch (IOException e) {
+                log.warn("Skipping unreadable cache segment {}: {}", file, e.getMessage());
+            }
+        }
+        log.info("Recovered {} cached results from {} segments in {}", recovered, segments.size(), directory);
+    }
+    
+    /**
+     * Indexes the records in a segment, stopping at the first record that is incomplete or
+     * fails its checksum.
+     * 
+     * @param segment the segment
+     * @param now the current time in milliseconds
+     * @return the number of unexpired records indexed
+     */
+    private int scan(Segment segment, long now) {
+        ByteBuffer buffer = segment.buffer;
+        int offset = 0;
+        int indexed = 0;
+        int end;
+        while ((end = recordEnd(buffer, offset)) > 0) {
+            long writtenAt = buffer.getLong(offset + 20);
+            if (now - writtenAt < maxAgeMillis) {
+                byte[] keyBytes = new byte[buffer.getInt(offset + 8)];
+                buffer.get(offset + HEADER_BYTES, keyBytes);
+                Location location = new Location(segment, offset, end - offset, writtenAt);
+                index.merge(new String(keyBytes, StandardCharsets.UTF_8), location,
+                    (existing, candidate) -> candidate.writtenAtMillis() >= existing.writtenAtMillis() ? candidate : existing);
+                indexed++;
+            }
+            offset = end;
+        }
+        if (offset + 4 <= buffer.limit() && buffer.getInt(offset) != 0) {
+            log.warn("Ignoring incomplete cache record at offset {} of {}", offset, segment.path);
+        }
+        segment.end = offset;
+        return indexed;
+    }
+    
+    /**
+     * Validates the record at an offset.
+     * 
+     * @param buffer the segment contents
+     * @param offset the record offset
+     * @return the offset just past the record, or -1 if there is no valid record there
+     */
+    private static int recordEnd(ByteBuffer buffer, int offset) {
+        if (offset + HEADER_BYTES > buffer.limit() || buffer.getInt(offset) != MAGIC) {
+            return -1;
+        }
+        int keyLength = buffer.getInt(offset + 8);
+        int valueLength = buffer.getInt(offset + 12);
+        int rawLength = buffer.getInt(offset + 16);
+        if (keyLength <= 0 || valueLength < 0 || rawLength < 0) {
+            return -1;
+        }
+        long end = (long) offset + HEADER_BYTES + keyLength + valueLength;
+        if (end > buffer.limit()) {
+            return -1;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(offset + 8, (int) end - offset - 8));
+        return (int) crc.getValue() == buffer.getInt(offset + 4) ? (int) end : -1;
+    }
+    
+    /**
+     * Appends a record to the current segment, starting a new segment if it is full.
+     * 
+     * @param key the key
+     * @param keyBytes the UTF-8 encoded key
+     * @param compressed the deflated value
+     * @param rawLength the value's uncompressed length
+     * @param writtenAtMillis when the value was stored
+     */
+    private synchronized void append(String key, byte[] keyBytes, byte[] compressed, int rawLength, long writtenAtMillis) {
+        int length = HEADER_BYTES + keyBytes.length + compressed.length;
+        if (closed || length > segmentBytes) {
+            return;
+        }
+        try {
+            if (active == null || active.end + length > segmentBytes) {
+                roll();
+            }
+        } catch (IOException e) {
+            log.warn("Cannot create cache segment in {}: {}", directory, e.getMessage());
+            return;
+        }
+        
+        Segment segment = active;
+        ByteBuffer buffer = segment.buffer;
+        int offset = segment.end;
+        buffer.putInt(offset + 8, keyBytes.length);
+        buffer.putInt(offset + 12, compressed.length);
+        buffer.putInt(offset + 16, rawLength);
+        buffer.putLong(offset + 20, writtenAtMillis);
+        buffer.put(offset + HEADER_BYTES, keyBytes);
+        buffer.put(offset + HEADER_BYTES + keyBytes.length, compressed);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(offset + 8, length - 8));
+        buffer.putInt(offset + 4, (int) crc.getValue());
+        buffer.putInt(offset, MAGIC);
+        segment.end = offset + length;
+        
+        index.put(key, new Location(segment, offset, length, writtenAtMillis));
+        writes.increment();
+    }
+    
+    /**
+     * Seals the current segment and starts a new one, locked for as long as this store writes to it.
+     * 
+     * @throws IOException if the segment file cannot be created
+     */
+    private void roll() throws IOException {
+        if (active != null) {
+            seal(active);
+        }
+        Path file = directory.resolve(String.format(Locale.ROOT, "%s%013d-%08x%s",
+            SEGMENT_PREFIX, clock.getAsLong(), ThreadLocalRandom.current().nextInt(), SEGMENT_SUFFIX));
+        FileChannel channel = FileChannel.open(file,
+            StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            FileLock lock = channel.lock();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+            active = new Segment(file, buffer, channel, lock);
+            segments.put(file, active);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+    
+    /**
+     * Flushes a segment this store wrote and releases its lock.
+     * 
+     * @param segment the segment
+     */
+    private static void seal(Segment segment) {
+        segment.buffer.force();
+        try {
+            segment.channel.close();
+        } catch (IOException e) {
+            log.debug("Failed to close cache segment {}", segment.path, e);
+        }
+    }
+    
+    /**
+     * Copies a segment's live records to the current segment and deletes the file, if no
+     * other process is writing to it.
+     * 
+     * @param segment the segment
+     * @param live the index entries that point into the segment
+     * @throws IOException if the segment cannot be locked or deleted
+     */
+    private void compact(Segment segment, List<Map.Entry<String, Location>> live) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment.path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            FileLock lock;
+            try {
+                lock = channel.tryLock();
+            } catch (OverlappingFileLockException e) {
+                lock = null;
+            }
+            if (lock == null) {
+                log.debug("Cache segment {} is still being written, not compacting", segment.path);
+                return;
+            }
+            
+            ByteBuffer buffer = segment.buffer;
+            for (Map.Entry<String, Location> entry : live) {
+                Location location = entry.getValue();
+                int offset = location.offset();
+                byte[] keyBytes = new byte[buffer.getInt(offset + 8)];
+                byte[] compressed = new byte[buffer.getInt(offset + 12)];
+                buffer.get(offset + HEADER_BYTES, keyBytes);
+                buffer.get(offset + HEADER_BYTES + keyBytes.length, compressed);
+                if (index.get(entry.getKey()) == location) {
+                    append(entry.getKey(), keyBytes, compressed, buffer.getInt(offset + 16), location.writtenAtMillis());
+                }
+            }
+            if (active != null) {
+                active.buffer.force();
+            }
+            Files.delete(segment.path);
+            segments.remove(segment.path);
+            compactedSegments.increment();
+            log.debug("Compacted cache segment {} ({} live records)", segment.path, live.size());
+        } catch (NoSuchFileException e) {
+            // Another process compacted it first; its records stay readable through our mapping
+            segments.remove(segment.path);
+        }
+    }
+    
+    /**
+     * Deflates a value.
+     * 
+     * @param value the value
+     * @return the compressed bytes
+     */
+    private static byte[] compress(byte[] value) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(value);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(value.length / 2 + 64);
+            byte[] chunk = new byte[4096];
+            while (!deflater.finished()) {
+                out.write(chunk, 0, deflater.deflate(chunk));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+    
+    /**
+     * Inflates the value of the record at an offset, straight from the mapped segment.
+     * 
+     * @param buffer the segment contents
+     * @param offset the record offset
+     * @return the value
+     * @throws DataFormatException if the compressed data is corrupt
+     */
+    private static byte[] decompress(ByteBuffer buffer, int offset) throws DataFormatException {
+        int keyLength = buffer.getInt(offset + 8);
+        int valueLength = buffer.getInt(offset + 12);
+        byte[] value = new byte[buffer.getInt(offset + 16)];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(buffer.slice(offset + HEADER_BYTES + keyLength, valueLength));
+            int read = 0;
+            while (read < value.length && !inflater.finished()) {
+                int n = inflater.inflate(value, read, value.length - read);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new DataFormatException("Truncated value");
+                }
+                read += n;
+            }
+            return value;
+        } finally {
+            inflater.end();
+        }
+    }
+    
+    /**
+     * Returns the store key for a cache key.
+     * 
+     * @param key the cache key
+     * @return the store key
+     */
+    private static String keyString(SearchResultCache.Key key) {
+        return key.numResults() + " " + key.query();
+    }
+}
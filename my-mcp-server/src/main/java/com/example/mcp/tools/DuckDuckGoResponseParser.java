@@ -0,0 +1,264 @@
+package com.example.mcp.tools;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streaming parser for DuckDuckGo Instant Answer API responses.
+ * 
+ * Reads straight from the response stream with a Jackson {@link JsonParser} and only
+ * materializes {@code Abstract}, {@code AbstractURL} and the best related topics.
+ * Topics nested in topic groups are included. Related topics pass through a
+ * {@link ResultRanker} as they are read, which drops duplicates and keeps the best ones
+ * for the query. Parsing stops as soon as no later topic could make the cut, so the
+ * rest of a large payload is never tokenized.
+ */
+public final class DuckDuckGoResponseParser {
+    
+    private static final Logger log = LoggerFactory.getLogger(DuckDuckGoResponseParser.class);
+    private static final JsonFactory jsonFactory = new JsonFactory();
+    
+    private static final int PREVIEW_BYTES = 500;
+    
+    private DuckDuckGoResponseParser() {
+    }
+    
+    /**
+     * Parses a response body, keeping related topics in payload order.
+     * If the body is not valid JSON, the returned response carries a preview of its start.
+     * 
+     * @param body the response body stream
+     * @param maxResults the maximum number of related results to keep
+     * @return the parsed response
+     * @throws IOException if reading the stream fails
+     */
+    public static SearchResponse parse(InputStream body, int maxResults) throws IOException {
+        return parse(body, null, maxResults);
+    }
+    
+    /**
+     * Parses a response body, ranking related topics by how well they match the query.
+     * If the body is not valid JSON, the returned response carries a preview of its start.
+     * 
+     * @param body the response body stream
+     * @param query the search query, or null to keep payload order
+     * @param maxResults the maximum number of related results to keep
+     * @return the parsed response
+     * @throws IOException if reading the stream fails
+     */
+    public static SearchResponse parse(InputStream body, String query, int maxResults) throws IOException {
+        PreviewInputStream in = new PreviewInputStream(body, PREVIEW_BYTES);
+        try (JsonParser parser = jsonFactory.createParser(in)) {
+            return parse(parser, new ResultRanker(query, maxResults));
+        } catch (JsonProcessingException e) {
+            log.warn("Failed to parse search results", e);
+            return SearchResponse.unparsed(in.preview());
+        }
+    }
+    
+    /**
+     * Parses the top-level response object.
+     * 
+     * @param parser the JSON parser
+     * @param ranker collects the related results
+     * @return the parsed response
+     * @throws IOException if reading or parsing fails
+     */
+    private static SearchResponse parse(JsonParser parser, ResultRanker ranker) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Expected a JSON object");
+        }
+        
+        String abstractText = null;
+        String abstractUrl = null;
+        boolean topicsRead = false;
+        
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            
+            switch (field) {
+                case "Abstract" -> abstractText = readText(parser);
+                case "AbstractURL" -> abstractUrl = readText(parser);
+                case "RelatedTopics" -> {
+                    topicsRead = true;
+                    if (abstractUrl != null) {
+                        ranker.exclude(abstractUrl);
+                    }
+                    // Once the abstract is known, nothing after the best topics is needed
+                    boolean stopWhenFull = abstractText != null && abstractUrl != null;
+                    if (!readTopics(parser, ranker, 0, stopWhenFull)) {
+                        return response(abstractText, abstractUrl, ranker);
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+            
+            if (abstractText != null && abstractUrl != null && topicsRead) {
+                break;
+            }
+        }
+        
+        return response(abstractText, abstractUrl, ranker);
+    }
+    
+    /**
+     * Reads a RelatedTopics or Topics array, offering entries that have text to the ranker
+     * and descending into topic groups.
+     * 
+     * @param parser the JSON parser, positioned on the array value
+     * @param ranker collects the results
+     * @param depth 0 for RelatedTopics, one more for each enclosing topic group
+     * @param stopWhenFull whether to stop reading as soon as no later topic could be kept;
+     *                     a saturated topic group only has its remaining entries skipped
+     * @return true if the whole array was consumed, false if reading stopped early
+     * @throws IOException if reading or parsing fails
+     */
+    private static boolean readTopics(JsonParser parser, ResultRanker ranker, int depth,
+                                      boolean stopWhenFull) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return true;
+        }
+        
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+            if (ranker.saturated(depth)) {
+                // Later top-level topics may still outscore a full group, so only a
+                // saturated RelatedTopics array ends the parse
+                if (stopWhenFull && depth == 0) {
+                    return false;
+                }
+                parser.skipChildren();
+                continue;
+            }
+            if (token != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            
+            if (!readTopic(parser, ranker, depth, stopWhenFull)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Reads a single topic object: either a topic, offered to the ranker if it has text,
+     * or a topic group whose Topics are read one level deeper.
+     * 
+     * @param parser the JSON parser, positioned on the object start
+     * @param ranker collects the results
+     * @param depth the depth of this topic
+     * @param stopWhenFull whether to stop reading as soon as no later topic could be kept
+     * @return true if the whole object was consumed, false if reading stopped early
+     * @throws IOException if reading or parsing fails
+     */
+    private static boolean readTopic(JsonParser parser, ResultRanker ranker, int depth,
+                                     boolean stopWhenFull) throws IOException {
+        String text = "";
+        String url = "";
+        
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            
+            switch (field) {
+                case "Text" -> text = readText(parser);
+                case "FirstURL" -> url = readText(parser);
+                case "Topics" -> {
+                    if (!readTopics(parser, ranker, depth + 1, stopWhenFull)) {
+                        return false;
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+        
+        if (!text.isEmpty()) {
+            ranker.offer(new SearchResult(text, url), depth);
+        }
+        return true;
+    }
+    
+    /**
+     * Reads the current value as text, skipping it if it is an object or array.
+     * 
+     * @param parser the JSON parser, positioned on the value
+     * @return the text, or an empty string if the value is not scalar
+     * @throws IOException if reading or parsing fails
+     */
+    private static String readText(JsonParser parser) throws IOException {
+        if (parser.currentToken().isStructStart()) {
+            parser.skipChildren();
+            return "";
+        }
+        return parser.getValueAsString("");
+    }
+    
+    /**
+     * Builds the response, treating missing fields as empty.
+     * 
+     * @param abstractText the abstract, or null if absent
+     * @param abstractUrl the abstract URL, or null if absent
+     * @param ranker holds the related results
+     * @return the response
+     */
+    private static SearchResponse response(String abstractText, String abstractUrl, ResultRanker ranker) {
+        return new SearchResponse(
+            abstractText != null ? abstractText : "",
+            abstractUrl != null ? abstractUrl : "",
+            ranker.results(abstractUrl != null ? abstractUrl : ""),
+            null
+        );
+    }
+    
+    /**
+     * Input stream that remembers the first bytes read, for error previews.
+     */
+    private static final class PreviewInputStream extends FilterInputStream {
+        
+        private final byte[] preview;
+        private int previewLength;
+        
+        PreviewInputStream(InputStream in, int previewBytes) {
+            super(in);
+            this.preview = new byte[previewBytes];
+        }
+        
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0 && previewLength < preview.length) {
+                preview[previewLength++] = (byte) b;
+            }
+            return b;
+        }
+        
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0 && previewLength < preview.length) {
+                int copied = Math.min(n, preview.length - previewLength);
+                System.arraycopy(buffer, offset, preview, previewLength, copied);
+                previewLength += copied;
+            }
+            return n;
+        }
+        
+        String preview() {
+            return new String(preview, 0, previewLength, StandardCharsets.UTF_8);
+        }
+    }
+}
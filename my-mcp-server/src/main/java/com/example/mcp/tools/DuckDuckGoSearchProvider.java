@@ -0,0 +1,179 @@
+package com.example.mcp.tools;
+
+import com.example.mcp.metrics.CallMetrics;
+import com.example.mcp.metrics.MetricsRegistry;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Search provider backed by the DuckDuckGo Instant Answer API (free, no API key required).
+ * Note: For production use, consider using Google Custom Search, Bing Search API, or Brave Search API.
+ */
+public class DuckDuckGoSearchProvider implements SearchProvider {
+    
+    public static final String DEFAULT_ENDPOINT = "https://api.duckduckgo.com/";
+    
+    private final OkHttpClient httpClient;
+    private final String endpoint;
+    private final ExecutionMode executionMode;
+    private final CallMetrics upstreamMetrics;
+    
+    /**
+     * Creates a provider for the given endpoint that uses asynchronous calls.
+     * 
+     * @param httpClient the shared HTTP client
+     * @param endpoint the base URL of the Instant Answer API
+     */
+    public DuckDuckGoSearchProvider(OkHttpClient httpClient, String endpoint) {
+        this(httpClient, endpoint, ExecutionMode.ASYNC);
+    }
+    
+    /**
+     * Creates a provider for the given endpoint.
+     * 
+     * @param httpClient the shared HTTP client
+     * @param endpoint the base URL of the Instant Answer API
+     * @param executionMode whether calls are enqueued asynchronously or block a thread of the mode
+     */
+    public DuckDuckGoSearchProvider(OkHttpClient httpClient, String endpoint, ExecutionMode executionMode) {
+        this.httpClient = httpClient;
+        this.endpoint = endpoint;
+        this.executionMode = executionMode;
+        String host = URI.create(endpoint).getHost();
+        this.upstreamMetrics = MetricsRegistry.global().upstream(host != null ? host : endpoint);
+    }
+    
+    @Override
+    public String name() {
+        return "duckduckgo";
+    }
+    
+    @Override
+    public Mono<SearchResponse> search(String query, int maxResults) {
+        String encodedQuery = URLEncoder.encode(query, StandardCharsets.UTF_8);
+        String url = endpoint + "?q=" + encodedQuery + "&format=json&no_html=1";
+        
+        Request request = new Request.Builder()
+            .url(url)
+            .header("User-Agent", "MCP-Server/1.0")
+            .get()
+            .build();
+        
+        return executionMode.blocking() ? executeBlocking(request, query, maxResults) : executeAsync(request, query, maxResults);
+    }
+    
+    /**
+     * Executes an HTTP request synchronously on a thread of the execution mode. The call is
+     * only made on subscription, and cancelling the subscription cancels the underlying call.
+     * 
+     * @param request the request to execute
+     * @param query the search query, used to rank related results
+     * @param maxResults the maximum number of related results to keep
+     * @return the parsed response
+     */
+    private Mono<SearchResponse> executeBlocking(Request request, String query, int maxResults) {
+        return Mono.defer(() -> {
+            Call call = httpClient.newCall(request);
+            return executionMode.run(Mono.fromCallable(() -> execute(call, query, maxResults)))
+                .doOnCancel(call::cancel);
+        });
+    }
+    
+    /**
+     * Executes a call on the current thread and parses the body as it streams in.
+     * 
+     * @param call the call to execute
+     * @param query the search query, used to rank related results
+     * @param maxResults the maximum number of related results to keep
+     * @return the parsed response
+     * @throws IOException if the call fails or returns a non-success status
+     */
+    private SearchResponse execute(Call call, String query, int maxResults) throws IOException {
+        long start = upstreamMetrics.start();
+        boolean failed = true;
+        try (Response response = call.execute()) {
+            if (!response.isSuccessful()) {
+                throw new HttpStatusException(response.code());
+            }
+            SearchResponse parsed = response.body() == null
+                ? SearchResponse.unparsed("")
+                : DuckDuckGoResponseParser.parse(response.body().byteStream(), query, maxResults);
+            failed = false;
+            return parsed;
+        } finally {
+            stop(call, start, failed);
+        }
+    }
+    
+    /**
+     * Executes an HTTP request on OkHttp's dispatcher without blocking the caller, parsing
+     * the body as it streams in. The call is only enqueued on subscription, and cancelling
+     * the subscription cancels the underlying call. The time from enqueue until the body is
+     * parsed is recorded in the upstream metrics for the endpoint's host.
+     * 
+     * @param request the request to execute
+     * @param query the search query, used to rank related results
+     * @param maxResults the maximum number of related results to keep
+     * @return the parsed response
+     */
+    private Mono<SearchResponse> executeAsync(Request request, String query, int maxResults) {
+        return Mono.create(sink -> {
+            Call call = httpClient.newCall(request);
+            sink.onCancel(call::cancel);
+            long start = upstreamMetrics.start();
+            call.enqueue(new Callback() {
+                @Override
+                public void onFailure(Call failedCall, IOException e) {
+                    stop(failedCall, start, true);
+                    sink.error(e);
+                }
+                
+                @Override
+                public void onResponse(Call completedCall, Response response) {
+                    boolean failed = true;
+                    try (response) {
+                        if (!response.isSuccessful()) {
+                            sink.error(new HttpStatusException(response.code()));
+                            return;
+                        }
+                        SearchResponse parsed = response.body() == null
+                            ? SearchResponse.unparsed("")
+                            : DuckDuckGoResponseParser.parse(response.body().byteStream(), query, maxResults);
+                        failed = false;
+                        sink.success(parsed);
+                    } catch (IOException | RuntimeException e) {
+                        // Thrown on OkHttp's thread, a bug in parsing would otherwise never reach the caller
+                        sink.error(e);
+                    } finally {
+                        stop(completedCall, start, failed);
+                    }
+                }
+            });
+        });
+    }
+    
+    /**
+     * Records the end of an upstream call. A call that failed because it was cancelled
+     * counts as cancelled rather than as an error.
+     * 
+     * @param call the call
+     * @param start the value returned by {@code upstreamMetrics.start()}
+     * @param failed whether the call failed
+     */
+    private void stop(Call call, long start, boolean failed) {
+        if (failed && call.isCanceled()) {
+            upstreamMetrics.cancelled();
+        } else {
+            upstreamMetrics.stop(start, failed);
+        }
+    }
+}
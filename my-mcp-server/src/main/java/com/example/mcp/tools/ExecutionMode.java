@@ -0,0 +1,80 @@
+package com.example.mcp.tools;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Locale;
+import java.util.concurrent.Executors;
+
+/**
+ * How tool invocations and their upstream HTTP calls are executed.
+ */
+public enum ExecutionMode {
+    
+    /**
+     * Non-blocking: HTTP calls are enqueued on OkHttp's dispatcher and complete via callbacks.
+     * Concurrency is bounded by the dispatcher limits.
+     */
+    ASYNC,
+    
+    /**
+     * Each tool invocation runs on its own virtual thread, and HTTP calls block that thread.
+     * Thousands of slow calls park cheaply on a few carrier threads.
+     */
+    VIRTUAL_THREADS,
+    
+    /**
+     * Each tool invocation runs on Reactor's bounded elastic pool, and HTTP calls block a
+     * pooled platform thread. Mainly useful as a baseline for comparison.
+     */
+    BOUNDED_ELASTIC;
+    
+    /**
+     * Parses a mode name such as {@code async}, {@code virtual-threads} or {@code bounded-elastic}.
+     * 
+     * @param name the mode name, case-insensitive
+     * @return the execution mode
+     * @throws IllegalArgumentException if the name is not a known mode
+     */
+    public static ExecutionMode parse(String name) {
+        String normalized = name.trim().toUpperCase(Locale.ROOT).replace('-', '_');
+        if (normalized.equals("VIRTUAL")) {
+            return VIRTUAL_THREADS;
+        }
+        return valueOf(normalized);
+    }
+    
+    /**
+     * Returns whether upstream calls block the calling thread in this mode.
+     * 
+     * @return true for the thread-per-call modes
+     */
+    boolean blocking() {
+        return this != ASYNC;
+    }
+    
+    /**
+     * Moves subscription, and so the work of a tool invocation, onto this mode's threads.
+     * In {@link #ASYNC} mode the call is returned unchanged.
+     * 
+     * @param call the call
+     * @param <T> the result type
+     * @return the call, subscribed on this mode's scheduler
+     */
+    public <T> Mono<T> run(Mono<T> call) {
+        return switch (this) {
+            case ASYNC -> call;
+            case VIRTUAL_THREADS -> call.subscribeOn(VirtualThreads.scheduler);
+            case BOUNDED_ELASTIC -> call.subscribeOn(Schedulers.boundedElastic());
+        };
+    }
+    
+    /**
+     * Holds the virtual-thread scheduler, created on first use of {@link #VIRTUAL_THREADS}.
+     */
+    private static final class VirtualThreads {
+        static final Scheduler scheduler = Schedulers.fromExecutorService(
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("mcp-virtual-", 0).factory()));
+    }
+}
@@ -0,0 +1,424 @@
+package com.example.mcp.tools;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Incremental HTML-to-text extractor with a bounded output.
+ * 
+ * Characters are fed in chunks as they arrive, and only the extracted text is kept, so a
+ * page is never held in memory as a whole. Tags are dropped, the contents of
+ * {@code script}, {@code style} and similar elements are skipped, block elements become
+ * line breaks, runs of whitespace collapse to one space, and common character references
+ * are decoded. The {@code title} element is captured separately. Once the text reaches its
+ * cap, {@link #full()} tells the caller to stop reading.
+ * 
+ * This is a tolerant scanner, not a conforming HTML parser: it is meant to get readable
+ * text out of real pages cheaply.
+ */
+final class HtmlTextExtractor {
+    
+    private static final int MAX_TAG_NAME = 16;
+    private static final int MAX_ENTITY = 10;
+    private static final int MAX_TITLE = 300;
+    
+    private static final Set<String> SKIPPED_ELEMENTS = Set.of(
+        "script", "style", "noscript", "template", "svg", "iframe", "object");
+    /** Block elements that end a line rather than a paragraph. */
+    private static final Set<String> LINE_ELEMENTS = Set.of("br", "li", "tr", "dt", "dd");
+    private static final Set<String> BLOCK_ELEMENTS = Set.of(
+        "p", "div", "br", "li", "ul", "ol", "dl", "dt", "dd", "tr", "table", "section", "article",
+        "header", "footer", "nav", "aside", "main", "blockquote", "pre", "hr", "form", "figure",
+        "figcaption", "h1", "h2", "h3", "h4", "h5", "h6", "address", "details", "summary");
+    
+    /**
+     * What was extracted from a page.
+     * 
+     * @param title the page title, or an empty string if none
+     * @param text the extracted text
+     * @param truncated whether the text was cut off at the cap or the input was cut off
+     */
+    record Result(String title, String text, boolean truncated) {
+    }
+    
+    private enum State {
+        TEXT,
+        TAG,
+        COMMENT,
+        ENTITY,
+        SKIPPED
+    }
+    
+    private final int maxChars;
+    private final boolean html;
+    private final StringBuilder text = new StringBuilder();
+    private final StringBuilder title = new StringBuilder();
+    private final StringBuilder tagName = new StringBuilder();
+    private final StringBuilder entity = new StringBuilder();
+    
+    private State state = State.TEXT;
+    private boolean closingTag;
+    private boolean tagNameDone;
+    private boolean selfClosing;
+    private char quote;
+    private int commentDashes;
+    private String skippedElement;
+    private boolean inTitle;
+    private boolean pendingSpace;
+    private int pendingNewlines;
+    private boolean full;
+    
+    /**
+     * Creates an extractor.
+     * 
+     * @param maxChars the most characters of text to keep
+     * @param html whether the input is HTML; plain text is only whitespace-normalized
+     */
+    HtmlTextExtractor(int maxChars, boolean html) {
+        this.maxChars = maxChars;
+        this.html = html;
+    }
+    
+    /**
+     * Reads all of a reader through a new extractor, stopping early once the text is full.
+     * 
+     * @param reader the input
+     * @param maxChars the most characters of text to keep
+     * @param html whether the input is HTML
+     * @return the extracted text; truncated if the cap was reached
+     * @throws IOException if reading fails
+     */
+    static Result extract(Reader reader, int maxChars, boolean html) throws IOException {
+        HtmlTextExtractor extractor = new HtmlTextExtractor(maxChars, html);
+        extractor.read(reader);
+        return extractor.finish(false);
+    }
+    
+    /**
+     * Feeds a reader in chunks until it ends or the text is full. The reader is not closed.
+     * 
+     * @param reader the input
+     * @throws IOException if reading fails
+     */
+    void read(Reader reader) throws IOException {
+        char[] buffer = new char[8192];
+        int n;
+        while (!full && (n = reader.read(buffer)) != -1) {
+            feed(buffer, 0, n);
+        }
+    }
+    
+    /**
+     * Processes the next chunk of input.
+     * 
+     * @param chars the buffer
+     * @param offset the start of the chunk
+     * @param length the chunk length
+     */
+    void feed(char[] chars, int offset, int length) {
+        for (int i = offset; i < offset + length && !full; i++) {
+            char c = chars[i];
+            if (!html) {
+                appendText(c);
+                continue;
+            }
+            switch (state) {
+                case TEXT -> text(c);
+                case TAG -> tag(c);
+                case COMMENT -> comment(c);
+                case ENTITY -> entity(c);
+                case SKIPPED -> skipped(c);
+            }
+        }
+    }
+    
+    /**
+     * Returns whether the text has reached its cap; further input is ignored.
+     * 
+     * @return true once the text is full
+     */
+    boolean full() {
+        return full;
+    }
+    
+    /**
+     * Finishes extraction.
+     * 
+     * @param inputTruncated whether the input was cut off before its end
+     * @return the result
+     */
+    Result finish(boolean inputTruncated) {
+        if (state == State.ENTITY) {
+            appendText('&');
+            appendString(entity);
+        }
+        return new Result(title.toString().trim(), text.toString().strip(), full || inputTruncated);
+    }
+    
+    /**
+     * Handles a character of text content.
+     * 
+     * @param c the character
+     */
+    private void text(char c) {
+        if (c == '<') {
+            state = State.TAG;
+            tagName.setLength(0);
+            closingTag = false;
+            tagNameDone = false;
+            selfClosing = false;
+            quote = 0;
+        } else if (c == '&') {
+            state = State.ENTITY;
+            entity.setLength(0);
+        } else {
+            appendText(c);
+        }
+    }
+    
+    /**
+     * Handles a character inside a tag: reads the tag name, then skips attributes, honoring
+     * quoted values, until the tag ends.
+     * 
+     * @param c the character
+     */
+    private void tag(char c) {
+        if (quote != 0) {
+            if (c == quote) {
+                quote = 0;
+            }
+            return;
+        }
+        if (!tagNameDone) {
+            if (c == '/' && tagName.isEmpty() && !closingTag) {
+                closingTag = true;
+                return;
+            }
+            if (tagName.length() == 2 && tagName.charAt(0) == '!' && tagName.charAt(1) == '-' && c == '-') {
+                state = State.COMMENT;
+                commentDashes = 0;
+                return;
+            }
+            if (Character.isLetterOrDigit(c) || c == '!' || c == '?' || c == '-' || c == ':') {
+                if (tagName.length() < MAX_TAG_NAME) {
+                    tagName.append(Character.toLowerCase(c));
+                }
+                return;
+            }
+            if (tagName.isEmpty() && c != '>') {
+                // Not a tag, such as "a < b": keep it as text
+                state = State.TEXT;
+                appendText('<');
+                appendText(c);
+                return;
+            }
+            tagNameDone = true;
+        }
+        if (c == '"' || c == '\'') {
+            quote = c;
+        } else if (c == '>') {
+            endTag();
+        } else {
+            selfClosing = c == '/';
+            return;
+        }
+        selfClosing = false;
+    }
+    
+    /**
+     * Acts on a complete tag: tracks the title, starts skipping elements such as script, and
+     * turns block elements into line breaks.
+     */
+    private void endTag() {
+        state = State.TEXT;
+        String name = tagName.toString();
+        if (name.isEmpty() || name.charAt(0) == '!' || name.charAt(0) == '?') {
+            return;
+        }
+        if (name.equals("title")) {
+            inTitle = !closingTag;
+            return;
+        }
+        if (!closingTag && !selfClosing && SKIPPED_ELEMENTS.contains(name)) {
+            state = State.SKIPPED;
+            skippedElement = name;
+            tagName.setLength(0);
+            return;
+        }
+        if (BLOCK_ELEMENTS.contains(name)) {
+            lineBreak(LINE_ELEMENTS.contains(name) ? 1 : 2);
+        } else if (name.equals("td") || name.equals("th")) {
+            pendingSpace = true;
+        }
+    }
+    
+    /**
+     * Skips a comment until {@code -->}.
+     * 
+     * @param c the character
+     */
+    private void comment(char c) {
+        if (c == '>' && commentDashes >= 2) {
+            state = State.TEXT;
+        }
+        commentDashes = c == '-' ? commentDashes + 1 : 0;
+    }
+    
+    /**
+     * Reads a character reference until {@code ;}. Anything that is not a known reference is
+     * kept as text.
+     * 
+     * @param c the character
+     */
+    private void entity(char c) {
+        if (c == ';') {
+            state = State.TEXT;
+            String decoded = decodeEntity(entity.toString());
+            if (decoded == null) {
+                appendText('&');
+                appendString(entity);
+                appendText(';');
+            } else {
+                appendString(decoded);
+            }
+        } else if ((Character.isLetterOrDigit(c) || c == '#') && entity.length() < MAX_ENTITY) {
+            entity.append(c);
+        } else {
+            state = State.TEXT;
+            appendText('&');
+            appendString(entity);
+            text(c);
+        }
+    }
+    
+    /**
+     * Skips the content of an element such as script until its closing tag, using tagName
+     * to match the closing tag as it arrives.
+     * 
+     * @param c the next character
+     */
+    private void skipped(char c) {
+        if (c == '<') {
+            tagName.setLength(0);
+            tagName.append('<');
+        } else if (!tagName.isEmpty()) {
+            if (c == '>' || Character.isWhitespace(c)) {
+                if (tagName.toString().equals("</" + skippedElement)) {
+                    // Resume after the closing tag, or after its attributes
+                    state = c == '>' ? State.TEXT : State.TAG;
+                    tagNameDone = true;
+                    quote = 0;
+                }
+                tagName.setLength(0);
+            } else if (tagName.length() <= MAX_TAG_NAME) {
+                tagName.append(Character.toLowerCase(c));
+            } else {
+                tagName.setLength(0);
+            }
+        }
+    }
+    
+    /**
+     * Decodes a numeric or common named character reference.
+     * 
+     * @param name the reference without {@code &} and {@code ;}
+     * @return the decoded text, or null if unknown
+     */
+    private static String decodeEntity(String name) {
+        if (name.startsWith("#")) {
+            try {
+                int codePoint = name.length() > 1 && (name.charAt(1) == 'x' || name.charAt(1) == 'X')
+                    ? Integer.parseInt(name.substring(2), 16)
+                    : Integer.parseInt(name.substring(1));
+                return Character.isValidCodePoint(codePoint) ? new String(Character.toChars(codePoint)) : null;
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return switch (name.toLowerCase(Locale.ROOT)) {
+            case "amp" -> "&";
+            case "lt" -> "<";
+            case "gt" -> ">";
+            case "quot" -> "\"";
+            case "apos" -> "'";
+            case "nbsp" -> " ";
+            case "ndash" -> "–";
+            case "mdash" -> "—";
+            case "hellip" -> "…";
+            case "copy" -> "©";
+            case "rsquo" -> "’";
+            case "lsquo" -> "‘";
+            case "rdquo" -> "”";
+            case "ldquo" -> "“";
+            default -> null;
+        };
+    }
+    
+    /**
+     * Appends text character by character.
+     * 
+     * @param chars the text
+     */
+    private void appendString(CharSequence chars) {
+        for (int i = 0; i < chars.length() && !full; i++) {
+            appendText(chars.charAt(i));
+        }
+    }
+    
+    /**
+     * Appends a character of text, collapsing whitespace and applying pending line breaks.
+     * 
+     * @param c the character
+     */
+    private void appendText(char c) {
+        if (inTitle) {
+            if (title.length() < MAX_TITLE) {
+                title.append(Character.isWhitespace(c) ? ' ' : c);
+            }
+            return;
+        }
+        if (Character.isWhitespace(c) || c == '\u00a0') {
+            if (!html && c == '\n') {
+                pendingNewlines = Math.min(2, pendingNewlines + 1);
+            } else {
+                pendingSpace = true;
+            }
+            return;
+        }
+        if (!text.isEmpty()) {
+            for (int i = 0; i < pendingNewlines; i++) {
+                emit('\n');
+            }
+            if (pendingNewlines == 0 && pendingSpace) {
+                emit(' ');
+            }
+        }
+        pendingNewlines = 0;
+        pendingSpace = false;
+        emit(c);
+    }
+    
+    /**
+     * Adds a character to the output unless it is full.
+     * 
+     * @param c the character
+     */
+    private void emit(char c) {
+        if (text.length() >= maxChars) {
+            full = true;
+            return;
+        }
+        text.append(c);
+    }
+    
+    /**
+     * Requests line breaks before the next text.
+     * 
+     * @param newlines 1 to end a line, 2 to end a paragraph
+     */
+    private void lineBreak(int newlines) {
+        pendingNewlines = Math.max(pendingNewlines, newlines);
+    }
+}
@@ -0,0 +1,475 @@
+package com.example.mcp.tools;
+
+import com.example.mcp.config.ServerConfig;
+import com.example.mcp.metrics.MetricsRegistry;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Connection;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.EventListener;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * The outbound HTTP connection layer shared by searches and page fetches: one dispatcher,
+ * connection pool and DNS cache, and the client built on them.
+ * 
+ * The first call to a host pays for DNS, TCP and TLS before it sends a byte. {@link #warmUp}
+ * pays that at startup instead, and {@link #keepAlive} sends a cheap {@code HEAD} request to
+ * a search endpoint that has gone unused for {@code pool.pingIntervalSeconds}, so the pool
+ * does not drop its connection between searches while clients are connected. Only endpoints
+ * that have served a real call are pinged; warm-up and pings alone do not count. Pings bypass
+ * admission control; they are at most one per endpoint per interval.
+ * 
+ * Per-host connection counts are kept from OkHttp's connection events and exposed as
+ * {@code pool_<host>_*} gauges. A connection counts as open until the pool closes its socket.
+ */
+final class HttpConnections implements AutoCloseable {
+    
+    private static final Logger log = LoggerFactory.getLogger(HttpConnections.class);
+    
+    /** Hosts tracked separately; connections to further hosts are counted under {@value #OVERFLOW_HOST}. */
+    private static final int MAX_HOSTS = 64;
+    private static final String OVERFLOW_HOST = "other";
+    
+    /** How often a disabled keep-alive checks whether a reload enabled it. */
+    private static final Duration DISABLED_RECHECK = Duration.ofSeconds(60);
+    
+    private final Dispatcher dispatcher = new Dispatcher();
+    private final CachingDns dns;
+    private final MetricsRegistry metrics;
+    private final LongSupplier nanoClock;
+    private final Map<String, HostConnections> hosts = new ConcurrentHashMap<>();
+    private final ConnectionEvents events = new ConnectionEvents();
+    private final LongAdder pings = new LongAdder();
+    private volatile OkHttpClient client;
+    private volatile ServerConfig.Upstream upstream;
+    private volatile ServerConfig.Pool pool;
+    private ScheduledExecutorService keepAliveScheduler;
+    
+    /**
+     * Connections to one host, as seen through connection events. Connections are held
+     * weakly: once the pool evicts one, nothing here keeps its socket and buffers alive.
+     */
+    private static final class HostConnections {
+        final Set<Connection> live = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+        final AtomicInteger inUse = new AtomicInteger();
+        final LongAdder connects = new LongAdder();
+        final LongAdder connectFailures = new LongAdder();
+        final LongAdder acquired = new LongAdder();
+        final LongAdder reused = new LongAdder();
+        final AtomicLong lastUsed;
+        volatile boolean served;
+        
+        HostConnections(long now) {
+            this.lastUsed = new AtomicLong(now);
+        }
+        
+        /**
+         * Forgets connections whose socket the pool has closed.
+         * 
+         * @return the connections still open
+         */
+        int open() {
+            synchronized (live) {
+                live.removeIf(connection -> connection.socket().isClosed());
+                return live.size();
+            }
+        }
+    }
+    
+    /** Tags warm-up and keep-alive requests, which do not make a host worth keeping connected. */
+    private enum Ping {
+        INSTANCE
+    }
+    
+    /**
+     * Connection counts for one host.
+     * 
+     * @param open connections the pool holds
+     * @param idle open connections not carrying a call
+     * @param inUse connections carrying a call
+     * @param connects connection attempts
+     * @param connectFailures connection attempts that failed
+     * @param acquired calls that got a connection
+     * @param reused calls that got a connection opened by an earlier call
+     */
+    record HostStats(int open, int idle, int inUse, long connects, long connectFailures, long acquired,
+                     long reused) {
+    }
+    
+    /**
+     * Creates the connection layer and registers its gauges.
+     * 
+     * @param upstream the upstream settings, for the attempt timeout
+     * @param pool the dispatcher, connection pool and DNS settings
+     * @param metrics receives the gauges
+     */
+    HttpConnections(ServerConfig.Upstream upstream, ServerConfig.Pool pool, MetricsRegistry metrics) {
+        this(upstream, pool, metrics, System::nanoTime);
+    }
+    
+    /**
+     * Creates the connection layer with an explicit clock, for tests.
+     * 
+     * @param upstream the upstream settings, for the attempt timeout
+     * @param pool the dispatcher, connection pool and DNS settings
+     * @param metrics receives the gauges
+     * @param nanoClock the time source for keep-alive decisions
+     */
+    HttpConnections(ServerConfig.Upstream upstream, ServerConfig.Pool pool, MetricsRegistry metrics,
+                    LongSupplier nanoClock) {
+        this.dns = new CachingDns(pool.dnsTtl(), pool.dnsMaxEntries());
+        this.metrics = metrics;
+        this.nanoClock = nanoClock;
+        this.upstream = upstream;
+        this.pool = pool;
+        this.client = createClient(upstream, pool, null);
+        
+        metrics.gauge("http_running_calls", dispatcher::runningCallsCount);
+        metrics.gauge("http_queued_calls", dispatcher::queuedCallsCount);
+        metrics.gauge("http_pool_connections", () -> client.connectionPool().connectionCount());
+        metrics.gauge("http_pool_idle_connections", () -> client.connectionPool().idleConnectionCount());
+        metrics.gauge("http_keepalive_pings", pings::sum);
+        metrics.gauge("dns_cache_hits", () -> dns.stats().hits());
+        metrics.gauge("dns_cache_misses", () -> dns.stats().misses());
+        metrics.gauge("dns_cache_stale_on_error", () -> dns.stats().staleOnError());
+        metrics.gauge("dns_cache_failures", () -> dns.stats().failures());
+        metrics.gauge("dns_cache_entries", () -> dns.stats().size());
+    }
+    
+    /**
+     * Returns the client to make calls with. A reload may replace it; calls in flight finish
+     * on the client they started with.
+     * 
+     * @return the current client
+     */
+    OkHttpClient client() {
+        return client;
+    }
+    
+    /**
+     * Applies new settings. Dispatcher limits and the DNS cache change in place. A new attempt
+     * timeout builds a new client on the same pool; a new pool size or keep-alive also
+     * replaces the pool, and the old pool's idle connections are closed.
+     * 
+     * @param upstream the upstream settings
+     * @param pool the dispatcher, connection pool and DNS settings
+     * @return whether the client was replaced
+     */
+    synchronized boolean reconfigure(ServerConfig.Upstream upstream, ServerConfig.Pool pool) {
+        ServerConfig.Upstream previousUpstream = this.upstream;
+        ServerConfig.Pool previousPool = this.pool;
+        this.upstream = upstream;
+        this.pool = pool;
+        dns.reconfigure(pool.dnsTtl(), pool.dnsMaxEntries());
+        
+        boolean samePool = previousPool.maxIdleConnections() == pool.maxIdleConnections()
+            && previousPool.keepAlive().equals(pool.keepAlive());
+        if (samePool && previousUpstream.attemptTimeout().equals(upstream.attemptTimeout())) {
+            dispatcher.setMaxRequests(pool.maxRequests());
+            dispatcher.setMaxRequestsPerHost(pool.maxRequestsPerHost());
+            return false;
+        }
+        OkHttpClient old = client;
+        client = createClient(upstream, pool, samePool ? old.connectionPool() : null);
+        if (!samePool) {
+            old.connectionPool().evictAll();
+        }
+        return true;
+    }
+    
+    /**
+     * Opens a connection to each endpoint in the background, resolving its host on the way.
+     * 
+     * @param endpoints the base URLs to connect to
+     * @return completes with the number of endpoints that answered
+     */
+    CompletableFuture<Integer> warmUp(List<String> endpoints) {
+        long start = System.nanoTime();
+        AtomicInteger answered = new AtomicInteger();
+        CompletableFuture<?>[] calls = endpoints.stream()
+            .map(endpoint -> ping(endpoint).thenAccept(ok -> {
+                if (ok) {
+                    answered.incrementAndGet();
+                }
+            }))
+            .toArray(CompletableFuture[]::new);
+        return CompletableFuture.allOf(calls).thenApply(done -> {
+            log.info("Warmed up connections to {} of {} search endpoints in {} ms", answered.get(),
+                endpoints.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return answered.get();
+        });
+    }
+    
+    /**
+     * Starts pinging idle endpoints on a daemon thread. Each round, while {@code active} says
+     * clients are connected, an endpoint whose host has served a call but not been used for
+     * {@code pool.pingIntervalSeconds} gets a ping. Does nothing if already started.
+     * 
+     * @param endpoints returns the endpoints to keep connected
+     * @param active returns whether any client is connected
+     */
+    synchronized void keepAlive(Supplier<List<String>> endpoints, BooleanSupplier active) {
+        if (keepAliveScheduler != null) {
+            return;
+        }
+        keepAliveScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "http-keepalive");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduleKeepAlive(endpoints, active);
+    }
+    
+    /**
+     * Pings each endpoint that has served a call and been idle for at least the ping interval.
+     * 
+     * @param endpoints the endpoints to keep connected
+     * @return completes when the pings are answered or fail
+     */
+    CompletableFuture<Void> pingIdle(List<String> endpoints) {
+        long interval = pool.pingInterval().toNanos();
+        long now = nanoClock.getAsLong();
+        return CompletableFuture.allOf(endpoints.stream()
+            .filter(endpoint -> {
+                HostConnections host = hosts.get(hostKey(URI.create(endpoint).getHost()));
+                return host != null && host.served && now - host.lastUsed.get() >= interval;
+            })
+            .map(endpoint -> {
+                pings.increment();
+                return ping(endpoint);
+            })
+            .toArray(CompletableFuture[]::new));
+    }
+    
+    /**
+     * Returns connection counts per host.
+     * 
+     * @return counts by host, sorted
+     */
+    Map<String, HostStats> hostStats() {
+        Map<String, HostStats> stats = new TreeMap<>();
+        hosts.forEach((host, connections) -> stats.put(host, stats(connections)));
+        return stats;
+    }
+    
+    /**
+     * Returns DNS cache counters.
+     * 
+     * @return DNS cache statistics
+     */
+    CachingDns.Stats dnsStats() {
+        return dns.stats();
+    }
+    
+    /**
+     * Stops pinging and closes idle connections.
+     */
+    @Override
+    public synchronized void close() {
+        if (keepAliveScheduler != null) {
+            keepAliveScheduler.shutdownNow();
+            keepAliveScheduler = null;
+        }
+        client.connectionPool().evictAll();
+    }
+    
+    /**
+     * Creates a client on the shared dispatcher and DNS cache.
+     * OkHttp's default allows only 5 concurrent requests per host, which would
+     * queue overlapping searches since they all go to the same search API host,
+     * so the dispatcher limits come from {@code pool.maxRequests} and {@code pool.maxRequestsPerHost}.
+     * 
+     * @param upstream the upstream settings
+     * @param pool the dispatcher and connection pool settings
+     * @param connectionPool the connection pool to keep, or null to create one
+     * @return the client
+     */
+    private OkHttpClient createClient(ServerConfig.Upstream upstream, ServerConfig.Pool pool,
+                                      ConnectionPool connectionPool) {
+        dispatcher.setMaxRequests(pool.maxRequests());
+        dispatcher.setMaxRequestsPerHost(pool.maxRequestsPerHost());
+        return new OkHttpClient.Builder()
+            .connectTimeout(upstream.attemptTimeout())
+            .readTimeout(upstream.attemptTimeout())
+            .callTimeout(upstream.attemptTimeout())
+            .dispatcher(dispatcher)
+            .dns(dns)
+            .eventListener(events)
+            .connectionPool(connectionPool != null ? connectionPool
+                : new ConnectionPool(pool.maxIdleConnections(), pool.keepAlive().toMillis(), TimeUnit.MILLISECONDS))
+            .build();
+    }
+    
+    /**
+     * Schedules the next keep-alive round, after the ping interval in effect.
+     * 
+     * @param endpoints returns the endpoints to keep connected
+     * @param active returns whether any client is connected
+     */
+    private synchronized void scheduleKeepAlive(Supplier<List<String>> endpoints, BooleanSupplier active) {
+        if (keepAliveScheduler == null) {
+            return;
+        }
+        Duration interval = pool.pingInterval();
+        // Check at half the interval, so an endpoint is pinged within 1.5 intervals of its last use
+        long delay = (interval.isZero() ? DISABLED_RECHECK : interval.dividedBy(2)).toMillis();
+        keepAliveScheduler.schedule(() -> {
+            try {
+                if (!pool.pingInterval().isZero() && active.getAsBoolean()) {
+                    pingIdle(endpoints.get());
+                }
+            } catch (RuntimeException e) {
+                log.debug("Keep-alive round failed", e);
+            }
+            scheduleKeepAlive(endpoints, active);
+        }, Math.max(delay, 1), TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Sends a {@code HEAD} request to an endpoint and discards the answer.
+     * 
+     * @param endpoint the URL
+     * @return completes with whether the endpoint answered
+     */
+    private CompletableFuture<Boolean> ping(String endpoint) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        Request request;
+        try {
+            request = new Request.Builder().url(endpoint).head().tag(Ping.class, Ping.INSTANCE).build();
+        } catch (IllegalArgumentException e) {
+            log.debug("Cannot ping {}: {}", endpoint, e.getMessage());
+            result.complete(false);
+            return result;
+        }
+        client.newCall(request).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                log.debug("Ping to {} failed: {}", endpoint, e.getMessage());
+                result.complete(false);
+            }
+            
+            @Override
+            public void onResponse(Call call, Response response) {
+                response.close();
+                result.complete(true);
+            }
+        });
+        return result;
+    }
+    
+    /**
+     * Returns the connections to a host, registering its gauges when it is first seen.
+     * 
+     * @param hostname the host
+     * @return the host's connections
+     */
+    private HostConnections host(String hostname) {
+        String key = hostKey(hostname);
+        HostConnections existing = hosts.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        return hosts.computeIfAbsent(key, k -> {
+            HostConnections connections = new HostConnections(nanoClock.getAsLong());
+            String prefix = "pool_" + k.replaceAll("[^A-Za-z0-9]+", "_") + "_";
+            metrics.gauge(prefix + "open", connections::open);
+            metrics.gauge(prefix + "idle", () -> stats(connections).idle());
+            metrics.gauge(prefix + "in_use", connections.inUse::get);
+            metrics.gauge(prefix + "connects", connections.connects::sum);
+            metrics.gauge(prefix + "connect_failures", connections.connectFailures::sum);
+            metrics.gauge(prefix + "reused", connections.reused::sum);
+            return connections;
+        });
+    }
+    
+    /**
+     * Returns the key a host is tracked under.
+     * 
+     * @param hostname the host
+     * @return the host, or {@value #OVERFLOW_HOST} once {@value #MAX_HOSTS} hosts are tracked
+     */
+    private String hostKey(String hostname) {
+        if (hostname == null) {
+            return OVERFLOW_HOST;
+        }
+        return hosts.containsKey(hostname) || hosts.size() < MAX_HOSTS ? hostname : OVERFLOW_HOST;
+    }
+    
+    private static HostStats stats(HostConnections connections) {
+        int open = connections.open();
+        int inUse = connections.inUse.get();
+        return new HostStats(open, Math.max(0, open - inUse), inUse, connections.connects.sum(),
+            connections.connectFailures.sum(), connections.acquired.sum(), connections.reused.sum());
+    }
+    
+    /**
+     * Counts connections per host. One instance serves every call, so it keeps no per-call state.
+     */
+    private final class ConnectionEvents extends EventListener {
+        
+        @Override
+        public void connectStart(Call call, InetSocketAddress address, Proxy proxy) {
+            host(call.request().url().host()).connects.increment();
+        }
+        
+        @Override
+        public void connectFailed(Call call, InetSocketAddress address, Proxy proxy, Protocol protocol,
+                                  IOException e) {
+            host(call.request().url().host()).connectFailures.increment();
+        }
+        
+        @Override
+        public void connectionAcquired(Call call, Connection connection) {
+            HostConnections host = host(call.request().url().host());
+            host.acquired.increment();
+            host.inUse.incrementAndGet();
+            host.lastUsed.set(nanoClock.getAsLong());
+            if (call.request().tag(Ping.class) == null) {
+                host.served = true;
+            }
+            if (!host.live.add(connection)) {
+                host.reused.increment();
+            }
+        }
+        
+        @Override
+        public void connectionReleased(Call call, Connection connection) {
+            HostConnections host = host(call.request().url().host());
+            host.inUse.decrementAndGet();
+            host.lastUsed.set(nanoClock.getAsLong());
+            if (connection.socket().isClosed()) {
+                host.live.remove(connection);
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.mcp.tools;
+
+import java.io.IOException;
+
+/**
+ * Thrown when an upstream HTTP call returns a non-success status.
+ */
+public class HttpStatusException extends IOException {
+    
+    private final int statusCode;
+    
+    /**
+     * Creates an exception for a failed response.
+     * 
+     * @param statusCode the HTTP status code
+     */
+    public HttpStatusException(int statusCode) {
+        super("Upstream request failed with status: " + statusCode);
+        this.statusCode = statusCode;
+    }
+    
+    /**
+     * Returns the HTTP status code.
+     * 
+     * @return the status code
+     */
+    public int statusCode() {
+        return statusCode;
+    }
+    
+    /**
+     * Returns whether the status means the upstream is overloaded or throttling us.
+     * 
+     * @return true for 429 and 503
+     */
+    public boolean overloaded() {
+        return statusCode == 429 || statusCode == 503;
+    }
+    
+    /**
+     * Returns whether the same request may succeed if it is sent again.
+     * 
+     * @return true for 408, 429 and 5xx
+     */
+    public boolean transientFailure() {
+        return statusCode == 408 || statusCode == 429 || statusCode >= 500;
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.mcp.tools;
+
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent requests for the same key into a single upstream call.
+ * 
+ * The first caller for a key subscribes upstream; callers arriving while that call
+ * is in flight share its result. A caller that cancels only detaches itself; the
+ * upstream call is cancelled once every caller has gone.
+ * 
+ * @param <K> the key type
+ * @param <V> the result type
+ */
+public class InFlightRequests<K, V> {
+    
+    private final ConcurrentHashMap<K, Mono<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder upstreamCalls = new LongAdder();
+    private final LongAdder coalescedCalls = new LongAdder();
+    
+    /**
+     * Returns the in-flight result for the key, starting the upstream call if there is none.
+     * 
+     * @param key the request key
+     * @param upstream creates the upstream call
+     * @return the shared result
+     */
+    public Mono<V> execute(K key, Supplier<Mono<V>> upstream) {
+        return Mono.defer(() -> {
+            AtomicBoolean created = new AtomicBoolean();
+            Mono<V> shared = inFlight.computeIfAbsent(key, k -> {
+                created.set(true);
+                return share(k, upstream);
+            });
+            if (!created.get()) {
+                coalescedCalls.increment();
+            }
+            return shared;
+        });
+    }
+    
+    /**
+     * Returns the number of upstream calls made.
+     * 
+     * @return upstream call count
+     */
+    public long upstreamCalls() {
+        return upstreamCalls.sum();
+    }
+    
+    /**
+     * Returns the number of calls that joined an in-flight request.
+     * 
+     * @return coalesced call count
+     */
+    public long coalescedCalls() {
+        return coalescedCalls.sum();
+    }
+    
+    /**
+     * Returns the number of requests currently in flight.
+     * 
+     * @return in-flight request count
+     */
+    public int size() {
+        return inFlight.size();
+    }
+    
+    /**
+     * Wraps an upstream call so that it is shared by reference count and removed once it terminates.
+     * 
+     * @param key the request key
+     * @param upstream creates the upstream call
+     * @return the shared call
+     */
+    private Mono<V> share(K key, Supplier<Mono<V>> upstream) {
+        AtomicReference<Mono<V>> self = new AtomicReference<>();
+        Mono<V> shared = Mono.defer(() -> {
+                upstreamCalls.increment();
+                return upstream.get();
+            })
+            .doFinally(signal -> inFlight.remove(key, self.get()))
+            .share();
+        self.set(shared);
+        return shared;
+    }
+}
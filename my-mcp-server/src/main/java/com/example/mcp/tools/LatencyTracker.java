@@ -0,0 +1,70 @@
+package com.example.mcp.tools;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Tracks recent latencies in a fixed-size window and estimates a percentile from them.
+ * 
+ * Recording is lock-free. The percentile is recomputed from the window at most once
+ * every {@code recomputeEvery} samples, so reading it is cheap on the hot path.
+ */
+class LatencyTracker {
+    
+    private final AtomicLongArray samples;
+    private final AtomicLong count = new AtomicLong();
+    private final double percentile;
+    private final int minSamples;
+    private final int recomputeEvery;
+    
+    private volatile long cachedNanos = -1;
+    private volatile long cachedAtCount;
+    
+    /**
+     * Creates a tracker.
+     * 
+     * @param windowSize number of recent samples kept
+     * @param percentile the percentile to estimate, between 0 and 1
+     * @param minSamples samples required before an estimate is available
+     */
+    LatencyTracker(int windowSize, double percentile, int minSamples) {
+        this.samples = new AtomicLongArray(windowSize);
+        this.percentile = percentile;
+        this.minSamples = minSamples;
+        this.recomputeEvery = Math.max(1, windowSize / 16);
+    }
+    
+    /**
+     * Records a latency sample.
+     * 
+     * @param nanos the latency in nanoseconds
+     */
+    void record(long nanos) {
+        long n = count.getAndIncrement();
+        samples.set((int) (n % samples.length()), nanos);
+    }
+    
+    /**
+     * Returns the estimated percentile latency.
+     * 
+     * @return the latency in nanoseconds, or -1 if there are not enough samples yet
+     */
+    long percentileNanos() {
+        long n = count.get();
+        if (n < minSamples) {
+            return -1;
+        }
+        if (cachedNanos < 0 || n - cachedAtCount >= recomputeEvery) {
+            int size = (int) Math.min(n, samples.length());
+            long[] window = new long[size];
+            for (int i = 0; i < size; i++) {
+                window[i] = samples.get(i);
+            }
+            Arrays.sort(window);
+            cachedNanos = window[(int) Math.min(size - 1, Math.ceil(percentile * size) - 1)];
+            cachedAtCount = n;
+        }
+        return cachedNanos;
+    }
+}
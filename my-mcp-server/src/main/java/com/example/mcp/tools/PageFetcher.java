@@ -0,0 +1,543 @@
+package com.example.mcp.tools;
+
+import com.example.mcp.metrics.CallMetrics;
+import com.example.mcp.metrics.MetricsRegistry;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import reactor.core.publisher.Mono;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Fetches web pages as plain text for the fetch_url tool.
+ * 
+ * The body is streamed through an {@link HtmlTextExtractor}, so a page is never buffered
+ * whole, and reading stops at a byte cap or once the text is full. Extracted pages are
+ * cached by URL together with their {@code ETag} and {@code Last-Modified} validators.
+ * A cached page is served without a request while it is fresh, and after that is
+ * revalidated with a conditional request, which costs a {@code 304} instead of the page.
+ * 
+ * Unless private addresses are allowed, URLs and redirects to loopback, private and
+ * link-local addresses are refused, so the tool cannot reach the server's own network.
+ */
+final class PageFetcher {
+    
+    /** The most redirects followed for a fetch, as in browsers that cap redirect chains. */
+    private static final int MAX_REDIRECTS = 10;
+    
+    private volatile OkHttpClient httpClient;
+    private volatile long maxBytes;
+    private volatile long freshNanos;
+    private volatile int maxEntries;
+    private volatile long maxWeight;
+    private final LongSupplier clock;
+    
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalWeight;
+    
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder revalidated = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    
+    /**
+     * How a page was obtained.
+     */
+    enum Source {
+        /** Downloaded in full. */
+        FETCHED,
+        /** Served from the cache after the server confirmed it is unchanged. */
+        REVALIDATED,
+        /** Served from the cache without a request. */
+        CACHED
+    }
+    
+    /**
+     * A fetched page.
+     * 
+     * @param url the requested URL
+     * @param title the page title, or an empty string if none
+     * @param text the extracted text
+     * @param truncated whether the text was cut off
+     * @param source how the page was obtained
+     */
+    record Page(String url, String title, String text, boolean truncated, Source source) {
+    }
+    
+    /**
+     * Point-in-time cache statistics.
+     * 
+     * @param hits pages served from the cache without a request
+     * @param revalidated pages served from the cache after a {@code 304}
+     * @param misses pages downloaded in full
+     * @param size the number of cached pages
+     * @param weight the total length of cached text
+     */
+    record Stats(long hits, long revalidated, long misses, int size, long weight) {
+    }
+    
+    private record Entry(HtmlTextExtractor.Result result, int maxChars, String etag, String lastModified,
+                         long fetchedAt) {
+        
+        int weight() {
+            return result.text().length() + result.title().length();
+        }
+        
+        boolean covers(int requestedChars) {
+            return !result.truncated() || requestedChars <= maxChars;
+        }
+    }
+    
+    /**
+     * The outcome of a single request.
+     * 
+     * @param page the page, or null if the request was redirected
+     * @param location where the request was redirected to, or null
+     */
+    private record Hop(Page page, URI location) {
+    }
+    
+    /**
+     * Creates a fetcher.
+     * 
+     * @param httpClient the HTTP client; its call timeout caps every fetch
+     * @param allowPrivateAddresses whether URLs on loopback, private and link-local addresses may be fetched
+     * @param maxBytes the most bytes of a body to read
+     * @param freshFor how long a cached page is served without revalidation
+     * @param maxEntries the most pages to cache
+     * @param maxWeight the most characters of text to cache
+     */
+    PageFetcher(OkHttpClient httpClient, boolean allowPrivateAddresses, long maxBytes, Duration freshFor,
+                int maxEntries, long maxWeight) {
+        this(httpClient, allowPrivateAddresses, maxBytes, freshFor, maxEntries, maxWeight, System::nanoTime);
+    }
+    
+    PageFetcher(OkHttpClient httpClient, boolean allowPrivateAddresses, long maxBytes, Duration freshFor,
+                int maxEntries, long maxWeight, LongSupplier clock) {
+        this.httpClient = fetchClient(httpClient, allowPrivateAddresses);
+        this.maxBytes = maxBytes;
+        this.freshNanos = freshFor.toNanos();
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+        this.clock = clock;
+    }
+    
+    /**
+     * Fetches a page. The request is only made on subscription, and cancelling the
+     * subscription cancels it.
+     * 
+     * @param url an http or https URL
+     * @param maxChars the most characters of text to return
+     * @param mode whether the call is enqueued asynchronously or blocks a thread of the mode
+     * @return the page
+     */
+    Mono<Page> fetch(String url, int maxChars, ExecutionMode mode) {
+        return Mono.defer(() -> {
+            URI uri;
+            try {
+                uri = URI.create(url);
+            } catch (IllegalArgumentException e) {
+                return Mono.error(new IOException("Invalid URL: " + url));
+            }
+            OkHttpClient client = httpClient;
+            IOException invalid = checkTarget(client, uri);
+            if (invalid != null) {
+                return Mono.error(invalid);
+            }
+            
+            Entry cached = cachedEntry(url, maxChars);
+            if (cached != null && clock.getAsLong() - cached.fetchedAt() < freshNanos) {
+                hits.increment();
+                return Mono.just(page(url, cached, maxChars, Source.CACHED));
+            }
+            return follow(client, url, uri, cached, maxChars, mode, 0);
+        });
+    }
+    
+    /**
+     * Requests one hop of a fetch, and the hops it redirects to. Redirects are followed here
+     * rather than by OkHttp so that every target is checked like the requested URL.
+     * 
+     * @param client the client the fetch started with
+     * @param url the requested URL, which the page is cached under
+     * @param uri the URL of this hop
+     * @param cached the cached entry to make the request conditional on, or null
+     * @param maxChars the most characters of text to return
+     * @param mode whether the call is enqueued asynchronously or blocks a thread of the mode
+     * @param redirects the number of redirects followed so far
+     * @return the page
+     */
+    private Mono<Page> follow(OkHttpClient client, String url, URI uri, Entry cached, int maxChars,
+                              ExecutionMode mode, int redirects) {
+        return exchange(client, url, uri, cached, maxChars, mode).flatMap(hop -> {
+            if (hop.page() != null) {
+                return Mono.just(hop.page());
+            }
+            if (redirects >= MAX_REDIRECTS) {
+                return Mono.error(new IOException("Too many redirects: " + url));
+            }
+            IOException invalid = checkTarget(client, hop.location());
+            if (invalid != null) {
+                return Mono.error(invalid);
+            }
+            return follow(client, url, hop.location(), cached, maxChars, mode, redirects + 1);
+        });
+    }
+    
+    /**
+     * Makes a single request.
+     * 
+     * @param client the client to make it with
+     * @param url the requested URL, which the page is cached under
+     * @param uri the URL to request
+     * @param cached the cached entry to make the request conditional on, or null
+     * @param maxChars the most characters of text to return
+     * @param mode whether the call is enqueued asynchronously or blocks a thread of the mode
+     * @return the page, or where the request was redirected to
+     */
+    private Mono<Hop> exchange(OkHttpClient client, String url, URI uri, Entry cached, int maxChars,
+                               ExecutionMode mode) {
+        return Mono.defer(() -> {
+            Request.Builder request = new Request.Builder()
+                .url(uri.toString())
+                .header("User-Agent", "MCP-Server/1.0")
+                .header("Accept", "text/html,application/xhtml+xml,text/plain;q=0.9")
+                .get();
+            if (cached != null && cached.etag() != null) {
+                request.header("If-None-Match", cached.etag());
+            }
+            if (cached != null && cached.lastModified() != null) {
+                request.header("If-Modified-Since", cached.lastModified());
+            }
+            CallMetrics metrics = MetricsRegistry.global().upstream(uri.getHost());
+            Call call = client.newCall(request.build());
+            
+            if (mode.blocking()) {
+                return mode.run(Mono.fromCallable(() -> {
+                    long start = metrics.start();
+                    boolean failed = true;
+                    try (Response response = call.execute()) {
+                        Hop hop = read(url, uri, response, cached, maxChars);
+                        failed = false;
+                        return hop;
+                    } finally {
+                        stop(metrics, call, start, failed);
+                    }
+                })).doOnCancel(call::cancel);
+            }
+            return Mono.create(sink -> {
+                sink.onCancel(call::cancel);
+                long start = metrics.start();
+                call.enqueue(new Callback() {
+                    @Override
+                    public void onFailure(Call failedCall, IOException e) {
+                        stop(metrics, failedCall, start, true);
+                        sink.error(e);
+                    }
+                    
+                    @Override
+                    public void onResponse(Call completedCall, Response response) {
+                        boolean failed = true;
+                        try (response) {
+                            Hop hop = read(url, uri, response, cached, maxChars);
+                            failed = false;
+                            sink.success(hop);
+                        } catch (IOException | RuntimeException e) {
+                            // Thrown on OkHttp's thread, a bug in extraction would otherwise never reach the caller
+                            sink.error(e);
+                        } finally {
+                            stop(metrics, completedCall, start, failed);
+                        }
+                    }
+                });
+            });
+        });
+    }
+    
+    /**
+     * Checks that a URL may be fetched: it must be http or https, and unless private
+     * addresses are allowed, its host must not be a literal non-public address. Host names
+     * are checked when the client resolves them.
+     * 
+     * @param client the client that will fetch the URL
+     * @param uri the URL
+     * @return the reason the URL may not be fetched, or null if it may
+     */
+    private static IOException checkTarget(OkHttpClient client, URI uri) {
+        if (uri.getHost() == null || !("http".equalsIgnoreCase(uri.getScheme())
+            || "https".equalsIgnoreCase(uri.getScheme()))) {
+            return new IOException("Only http and https URLs can be fetched: " + uri);
+        }
+        if (client.dns() instanceof PublicAddressDns) {
+            try {
+                PublicAddressDns.checkLiteral(uri.getHost());
+            } catch (UnknownHostException e) {
+                return e;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Changes the client and limits. Fetches already started finish with the old ones, and
+     * if the cache is now over a bound, least recently used pages are evicted at once.
+     * 
+     * @param httpClient the HTTP client; its call timeout caps every fetch
+     * @param allowPrivateAddresses whether URLs on loopback, private and link-local addresses may be fetched
+     * @param maxBytes the most bytes of a body to read
+     * @param freshFor how long a cached page is served without revalidation
+     * @param maxEntries the most pages to cache
+     * @param maxWeight the most characters of text to cache
+     */
+    void reconfigure(OkHttpClient httpClient, boolean allowPrivateAddresses, long maxBytes, Duration freshFor,
+                     int maxEntries, long maxWeight) {
+        synchronized (entries) {
+            this.httpClient = fetchClient(httpClient, allowPrivateAddresses);
+            this.maxBytes = maxBytes;
+            this.freshNanos = freshFor.toNanos();
+            this.maxEntries = maxEntries;
+            this.maxWeight = maxWeight;
+            evictOverCapacity();
+        }
+    }
+    
+    /**
+     * Returns the current cache statistics.
+     * 
+     * @return cache statistics
+     */
+    Stats stats() {
+        synchronized (entries) {
+            return new Stats(hits.sum(), revalidated.sum(), misses.sum(), entries.size(), totalWeight);
+        }
+    }
+    
+    /**
+     * Derives the client fetches are made with. It does not follow redirects, which
+     * {@link #follow} does after checking them, and unless private addresses are allowed,
+     * it refuses to connect to hosts that resolve to them.
+     * 
+     * @param httpClient the HTTP client
+     * @param allowPrivateAddresses whether URLs on loopback, private and link-local addresses may be fetched
+     * @return the client for fetches
+     */
+    private static OkHttpClient fetchClient(OkHttpClient httpClient, boolean allowPrivateAddresses) {
+        OkHttpClient.Builder builder = httpClient.newBuilder().followRedirects(false).followSslRedirects(false);
+        if (!allowPrivateAddresses) {
+            builder.dns(new PublicAddressDns(httpClient.dns()));
+        }
+        return builder.build();
+    }
+    
+    /**
+     * Records the end of an upstream call. A call that failed because it was cancelled
+     * counts as cancelled rather than as an error.
+     * 
+     * @param metrics the host's metrics
+     * @param call the call
+     * @param start the value returned by {@link CallMetrics#start()}
+     * @param failed whether the call failed
+     */
+    private static void stop(CallMetrics metrics, Call call, long start, boolean failed) {
+        if (failed && call.isCanceled()) {
+            metrics.cancelled();
+        } else {
+            metrics.stop(start, failed);
+        }
+    }
+    
+    /**
+     * Turns a response into a page, updating the cache, or into the target of a redirect.
+     * 
+     * @param url the requested URL
+     * @param uri the URL the response is for
+     * @param response the response
+     * @param cached the cached entry the request was conditional on, or null
+     * @param maxChars the most characters of text to return
+     * @return the page, or where the response redirects to
+     * @throws IOException if the response is an error, is not text, or cannot be read
+     */
+    private Hop read(String url, URI uri, Response response, Entry cached, int maxChars) throws IOException {
+        if (response.isRedirect()) {
+            String location = response.header("Location");
+            if (location == null) {
+                throw new HttpStatusException(response.code());
+            }
+            try {
+                return new Hop(null, uri.resolve(location));
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Invalid redirect to " + location + " from " + uri);
+            }
+        }
+        if (response.code() == 304 && cached != null) {
+            Entry refreshed = new Entry(cached.result(), cached.maxChars(),
+                headerOr(response, "ETag", cached.etag()), headerOr(response, "Last-Modified", cached.lastModified()),
+                clock.getAsLong());
+            insert(url, refreshed);
+            revalidated.increment();
+            return new Hop(page(url, refreshed, maxChars, Source.REVALIDATED), null);
+        }
+        if (!response.isSuccessful()) {
+            throw new HttpStatusException(response.code());
+        }
+        
+        ResponseBody body = response.body();
+        MediaType type = body == null ? null : body.contentType();
+        boolean html = type == null || "html".equals(type.subtype()) || "xhtml+xml".equals(type.subtype());
+        if (type != null && !html && !"text".equals(type.type())) {
+            throw new IOException("Unsupported content type: " + type.type() + "/" + type.subtype());
+        }
+        
+        HtmlTextExtractor.Result result;
+        if (body == null) {
+            result = new HtmlTextExtractor.Result("", "", false);
+        } else {
+            LimitedInputStream in = new LimitedInputStream(body.byteStream(), maxBytes);
+            Reader reader = new InputStreamReader(in,
+                type == null ? StandardCharsets.UTF_8 : type.charset(StandardCharsets.UTF_8));
+            HtmlTextExtractor extractor = new HtmlTextExtractor(maxChars, html);
+            extractor.read(reader);
+            result = extractor.finish(in.limitReached());
+        }
+        
+        misses.increment();
+        Entry entry = new Entry(result, maxChars, response.header("ETag"), response.header("Last-Modified"),
+            clock.getAsLong());
+        insert(url, entry);
+        return new Hop(page(url, entry, maxChars, Source.FETCHED), null);
+    }
+    
+    /**
+     * Looks up a cached page that holds enough text for the request.
+     * 
+     * @param url the URL
+     * @param maxChars the requested number of characters
+     * @return the entry, or null if there is none or it was cut off shorter than requested
+     */
+    private Entry cachedEntry(String url, int maxChars) {
+        synchronized (entries) {
+            Entry entry = entries.get(url);
+            return entry != null && entry.covers(maxChars) ? entry : null;
+        }
+    }
+    
+    /**
+     * Caches a page, evicting least recently used pages if the cache is over capacity.
+     * 
+     * @param url the URL
+     * @param entry the entry
+     */
+    private void insert(String url, Entry entry) {
+        synchronized (entries) {
+            Entry previous = entries.put(url, entry);
+            if (previous != null) {
+                totalWeight -= previous.weight();
+            }
+            totalWeight += entry.weight();
+            evictOverCapacity();
+        }
+    }
+    
+    /**
+     * Evicts least recently used pages until the cache is within its bounds. Called with the
+     * entries lock held.
+     */
+    private void evictOverCapacity() {
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || totalWeight > maxWeight) && eldest.hasNext()) {
+            totalWeight -= eldest.next().getValue().weight();
+            eldest.remove();
+        }
+    }
+    
+    /**
+     * Builds the page for a request, trimming cached text that is longer than requested.
+     * 
+     * @param url the URL
+     * @param entry the cached or fetched entry
+     * @param maxChars the requested number of characters
+     * @param source how the page was obtained
+     * @return the page
+     */
+    private static Page page(String url, Entry entry, int maxChars, Source source) {
+        String text = entry.result().text();
+        if (text.length() > maxChars) {
+            return new Page(url, entry.result().title(), text.substring(0, maxChars), true, source);
+        }
+        return new Page(url, entry.result().title(), text, entry.result().truncated(), source);
+    }
+    
+    /**
+     * Returns a response header, or a fallback if the response does not have it.
+     * 
+     * @param response the response
+     * @param name the header name
+     * @param fallback the value to use if the header is missing
+     * @return the header value or the fallback
+     */
+    private static String headerOr(Response response, String name, String fallback) {
+        String value = response.header(name);
+        return value != null ? value : fallback;
+    }
+    
+    /**
+     * Input stream that ends after a number of bytes and remembers whether it cut the input short.
+     */
+    private static final class LimitedInputStream extends FilterInputStream {
+        
+        private long remaining;
+        private boolean limitReached;
+        
+        LimitedInputStream(InputStream in, long limit) {
+            super(in);
+            this.remaining = limit;
+        }
+        
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                limitReached = true;
+                return -1;
+            }
+            int b = super.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+        
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (remaining <= 0) {
+                limitReached = true;
+                return -1;
+            }
+            int n = super.read(buffer, offset, (int) Math.min(length, remaining));
+            if (n > 0) {
+                remaining -= n;
+            }
+            return n;
+        }
+        
+        boolean limitReached() {
+            return limitReached;
+        }
+    }
+}
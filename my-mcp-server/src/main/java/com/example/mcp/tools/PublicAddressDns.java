@@ -0,0 +1,99 @@
+package com.example.mcp.tools;
+
+import okhttp3.Dns;
+
+import java.net.Inet4Address;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * A DNS resolver that refuses hosts resolving to addresses that are not on the public internet.
+ * 
+ * fetch_url takes any URL from the client, so without this it could be pointed at the
+ * server's own loopback interface, the private network it runs in, or a cloud metadata
+ * endpoint such as {@code 169.254.169.254}. A host is refused if any of its addresses is not
+ * public, so a name cannot smuggle a private address in next to a public one. OkHttp does
+ * not resolve IP literals, so they are checked by {@link #checkLiteral(String)} instead.
+ */
+final class PublicAddressDns implements Dns {
+    
+    /** The hosts OkHttp treats as IP literals and connects to without a lookup. */
+    private static final Pattern LITERAL = Pattern.compile("([0-9a-fA-F]*:[0-9a-fA-F:.]*)|([\\d.]+)");
+    
+    private final Dns delegate;
+    
+    /**
+     * Creates a resolver.
+     * 
+     * @param delegate resolves the hosts before their addresses are checked
+     */
+    PublicAddressDns(Dns delegate) {
+        this.delegate = delegate;
+    }
+    
+    @Override
+    public List<InetAddress> lookup(String host) throws UnknownHostException {
+        List<InetAddress> addresses = delegate.lookup(host);
+        for (InetAddress address : addresses) {
+            requirePublic(host, address);
+        }
+        return addresses;
+    }
+    
+    /**
+     * Refuses a host that is an IP literal for an address that is not public. Host names are
+     * left to {@link #lookup(String)}.
+     * 
+     * @param host a URL host, with or without the brackets of an IPv6 literal
+     * @throws UnknownHostException if the host is a literal for a non-public address
+     */
+    static void checkLiteral(String host) throws UnknownHostException {
+        String bare = host.startsWith("[") && host.endsWith("]") ? host.substring(1, host.length() - 1) : host;
+        if (LITERAL.matcher(bare).matches()) {
+            for (InetAddress address : InetAddress.getAllByName(bare)) {
+                requirePublic(host, address);
+            }
+        }
+    }
+    
+    /**
+     * Tells whether an address is on the public internet. Loopback, private, link-local,
+     * carrier-grade NAT, unique local, multicast and unspecified addresses are not.
+     * 
+     * @param address the address
+     * @return whether the address is public
+     */
+    static boolean isPublic(InetAddress address) {
+        if (address.isAnyLocalAddress() || address.isLoopbackAddress() || address.isLinkLocalAddress()
+            || address.isSiteLocalAddress() || address.isMulticastAddress()) {
+            return false;
+        }
+        byte[] bytes = address.getAddress();
+        if (address instanceof Inet4Address) {
+            int first = bytes[0] & 0xff;
+            int second = bytes[1] & 0xff;
+            return first != 0 && !(first == 100 && second >= 64 && second < 128);
+        }
+        if (address instanceof Inet6Address) {
+            return (bytes[0] & 0xfe) != 0xfc;
+        }
+        return true;
+    }
+    
+    /**
+     * Refuses an address that is not public.
+     * 
+     * @param host the host the address belongs to
+     * @param address the address
+     * @throws UnknownHostException if the address is not public
+     */
+    private static void requirePublic(String host, InetAddress address) throws UnknownHostException {
+        if (!isPublic(address)) {
+            throw new UnknownHostException(host + " resolves to the non-public address " + address.getHostAddress()
+                + "; set fetch.allowPrivateAddresses to fetch it");
+        }
+    }
+}
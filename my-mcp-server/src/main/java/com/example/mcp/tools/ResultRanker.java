@@ -0,0 +1,214 @@
+package com.example.mcp.tools;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Keeps the best related results of a response while it is being parsed.
+ * 
+ * Results are offered one at a time in payload order. Duplicates, by canonical URL, are
+ * dropped and only the best {@code maxResults} are held, in a bounded heap, so the whole
+ * payload can be ranked in one pass without materializing it.
+ * 
+ * A result scores higher the more query terms its text contains, and top-level topics
+ * score above those nested in topic groups. Ties keep payload order. Once the heap is full
+ * of results no later one could beat, {@link #saturated} tells the parser to stop.
+ * 
+ * Until {@link #exclude} is called the heap holds one result more than asked for, because
+ * the instant answer's URL may only arrive after the topics and its duplicate then has to
+ * be dropped without leaving a gap.
+ */
+final class ResultRanker {
+    
+    private static final double TERM_WEIGHT = 2.0;
+    private static final double TOP_LEVEL_BONUS = 1.0;
+    
+    /** Worst result first: lowest score, then latest in the payload. */
+    private static final Comparator<Candidate> WORST_FIRST = Comparator.comparingDouble(Candidate::score)
+        .thenComparing(Comparator.comparingInt(Candidate::position).reversed());
+    
+    private record Candidate(SearchResult result, double score, int position) {
+    }
+    
+    private final List<String> terms;
+    private final int maxResults;
+    private int capacity;
+    private final PriorityQueue<Candidate> best;
+    private final Set<String> seen = new HashSet<>();
+    private int position;
+    
+    /**
+     * Creates a ranker.
+     * 
+     * @param query the search query, or null to rank by position only
+     * @param maxResults the number of results to keep
+     */
+    ResultRanker(String query, int maxResults) {
+        this.terms = terms(query);
+        this.maxResults = Math.max(0, maxResults);
+        this.capacity = this.maxResults == 0 ? 0 : this.maxResults + 1;
+        this.best = new PriorityQueue<>(Math.max(1, capacity), WORST_FIRST);
+    }
+    
+    /**
+     * Marks a URL as already shown, such as the instant answer's source, so that related
+     * results pointing to it are dropped. Must be called before any result is offered.
+     * 
+     * @param url the URL; if empty nothing is excluded, but no result is held in reserve either
+     */
+    void exclude(String url) {
+        if (!url.isEmpty()) {
+            seen.add(canonicalUrl(url));
+        }
+        capacity = maxResults;
+    }
+    
+    /**
+     * Offers the next result of the payload.
+     * 
+     * @param result the result
+     * @param depth 0 for a top-level topic, 1 or more for topics nested in groups
+     */
+    void offer(SearchResult result, int depth) {
+        int index = position++;
+        if (capacity == 0 || !seen.add(dedupeKey(result))) {
+            return;
+        }
+        Candidate candidate = new Candidate(result, score(result, depth), index);
+        if (best.size() < capacity) {
+            best.add(candidate);
+        } else if (WORST_FIRST.compare(candidate, best.peek()) > 0) {
+            best.poll();
+            best.add(candidate);
+        }
+    }
+    
+    /**
+     * Returns whether no result at the given depth or deeper could displace a kept one.
+     * 
+     * @param depth the depth of the results still to come
+     * @return true if the rest of the payload at that depth can be skipped
+     */
+    boolean saturated(int depth) {
+        if (best.size() < capacity) {
+            return false;
+        }
+        if (capacity == 0) {
+            return true;
+        }
+        double bestPossible = (terms.isEmpty() ? 0 : TERM_WEIGHT) + (depth == 0 ? TOP_LEVEL_BONUS : 0);
+        return best.peek().score() >= bestPossible;
+    }
+    
+    /**
+     * Returns the kept results, best first.
+     * 
+     * @param abstractUrl the instant answer's source URL, to drop results that repeat it
+     * @return at most {@code maxResults} ranked results
+     */
+    List<SearchResult> results(String abstractUrl) {
+        List<Candidate> ranked = new ArrayList<>(best);
+        ranked.sort(WORST_FIRST.reversed());
+        String excluded = abstractUrl.isEmpty() ? null : canonicalUrl(abstractUrl);
+        List<SearchResult> results = new ArrayList<>(ranked.size());
+        for (Candidate candidate : ranked) {
+            if (results.size() == maxResults) {
+                break;
+            }
+            if (!candidate.result().url().isEmpty() && canonicalUrl(candidate.result().url()).equals(excluded)) {
+                continue;
+            }
+            results.add(candidate.result());
+        }
+        return results;
+    }
+    
+    /**
+     * Returns the key used to detect duplicate results: the canonical URL, or the text if
+     * there is no URL.
+     * 
+     * @param result the search result
+     * @return the dedupe key
+     */
+    static String dedupeKey(SearchResult result) {
+        return result.url().isEmpty() ? result.text() : canonicalUrl(result.url());
+    }
+    
+    /**
+     * Canonicalizes a URL for duplicate detection: ignores the scheme, a leading
+     * {@code www.}, the letter case of the host, a default port, a trailing slash and the
+     * fragment. A URL that cannot be parsed is returned trimmed.
+     * 
+     * @param url the URL
+     * @return the canonical form
+     */
+    static String canonicalUrl(String url) {
+        try {
+            URI uri = new URI(url.trim());
+            if (uri.getHost() == null) {
+                return url.trim();
+            }
+            String host = uri.getHost().toLowerCase(Locale.ROOT);
+            if (host.startsWith("www.")) {
+                host = host.substring(4);
+            }
+            boolean defaultPort = uri.getPort() == -1 || uri.getPort() == 80 || uri.getPort() == 443;
+            String path = uri.getRawPath() == null ? "" : uri.getRawPath();
+            if (path.endsWith("/")) {
+                path = path.substring(0, path.length() - 1);
+            }
+            return host + (defaultPort ? "" : ":" + uri.getPort()) + path
+                + (uri.getRawQuery() == null ? "" : "?" + uri.getRawQuery());
+        } catch (URISyntaxException e) {
+            return url.trim();
+        }
+    }
+    
+    /**
+     * Scores a result by the share of query terms in its text, plus a bonus for top-level topics.
+     * 
+     * @param result the result
+     * @param depth the topic depth
+     * @return the score
+     */
+    private double score(SearchResult result, int depth) {
+        double score = depth == 0 ? TOP_LEVEL_BONUS : 0;
+        if (!terms.isEmpty()) {
+            String text = result.text().toLowerCase(Locale.ROOT);
+            int matched = 0;
+            for (String term : terms) {
+                if (text.contains(term)) {
+                    matched++;
+                }
+            }
+            score += TERM_WEIGHT * matched / terms.size();
+        }
+        return score;
+    }
+    
+    /**
+     * Splits a query into distinct lower-case terms of two or more letters or digits.
+     * 
+     * @param query the query, or null
+     * @return the terms
+     */
+    private static List<String> terms(String query) {
+        List<String> terms = new ArrayList<>();
+        if (query == null) {
+            return terms;
+        }
+        for (String term : query.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (term.length() > 1 && !terms.contains(term)) {
+                terms.add(term);
+            }
+        }
+        return terms;
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.mcp.tools;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Retries idempotent upstream calls that failed transiently, within a deadline.
+ * 
+ * Retries wait with full jitter: a random delay between zero and an exponentially growing
+ * cap, so that callers that failed together do not retry together. Every attempt is cut
+ * short at the deadline, and no retry is started that could not begin before it.
+ */
+final class RetryPolicy {
+    
+    private static final Logger log = LoggerFactory.getLogger(RetryPolicy.class);
+    
+    private final int maxRetries;
+    private final long baseBackoffNanos;
+    private final long maxBackoffNanos;
+    
+    /**
+     * Creates a policy.
+     * 
+     * @param maxRetries the most retries after the first attempt
+     * @param baseBackoff the backoff cap before the first retry, doubled for each further retry
+     * @param maxBackoff the largest backoff cap
+     */
+    RetryPolicy(int maxRetries, Duration baseBackoff, Duration maxBackoff) {
+        this.maxRetries = maxRetries;
+        this.baseBackoffNanos = baseBackoff.toNanos();
+        this.maxBackoffNanos = maxBackoff.toNanos();
+    }
+    
+    /**
+     * Returns the most retries after the first attempt.
+     * 
+     * @return the retry count
+     */
+    int maxRetries() {
+        return maxRetries;
+    }
+    
+    /**
+     * Runs a call, retrying transient upstream failures.
+     * 
+     * @param call creates one attempt; called again for each retry
+     * @param deadlineNanos the {@link System#nanoTime()} by which the call must complete
+     * @param <T> the result type
+     * @return the result of the first successful attempt; fails with a
+     *         {@link java.util.concurrent.TimeoutException} at the deadline, or with the
+     *         last failure once retries are used up
+     */
+    <T> Mono<T> execute(Supplier<Mono<T>> call, long deadlineNanos) {
+        return attempt(call, deadlineNanos, 0);
+    }
+    
+    private <T> Mono<T> attempt(Supplier<Mono<T>> call, long deadlineNanos, int retry) {
+        return Mono.defer(() -> call.get().timeout(remaining(deadlineNanos)))
+            .onErrorResume(e -> {
+                if (retry >= maxRetries || !CircuitBreakerSearchProvider.isUpstreamFailure(e)) {
+                    return Mono.error(e);
+                }
+                long backoff = backoffNanos(retry);
+                if (System.nanoTime() + backoff - deadlineNanos >= 0) {
+                    return Mono.error(e);
+                }
+                log.debug("Retrying after {}ms: {}", backoff / 1_000_000, e.getMessage());
+                return Mono.delay(Duration.ofNanos(backoff)).then(attempt(call, deadlineNanos, retry + 1));
+            });
+    }
+    
+    /**
+     * Picks a random backoff between zero and the cap for the given retry.
+     * 
+     * @param retry the number of retries already made
+     * @return the backoff in nanoseconds
+     */
+    long backoffNanos(int retry) {
+        long cap = Math.min(maxBackoffNanos, baseBackoffNanos << Math.min(retry, 30));
+        return cap <= 0 ? 0 : ThreadLocalRandom.current().nextLong(cap + 1);
+    }
+    
+    /**
+     * Returns the time left until a deadline.
+     * 
+     * @param deadlineNanos the deadline, as a {@link System#nanoTime()} value
+     * @return the time left, zero if it has passed
+     */
+    static Duration remaining(long deadlineNanos) {
+        return Duration.ofNanos(Math.max(0, deadlineNanos - System.nanoTime()));
+    }
+}
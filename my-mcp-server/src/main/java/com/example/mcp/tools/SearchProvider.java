@@ -0,0 +1,28 @@
+package com.example.mcp.tools;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * A web search backend used by the websearch tool.
+ * 
+ * Implementations must be lazy: no request is sent until the returned Mono is
+ * subscribed, and cancelling the subscription should abort the request.
+ */
+public interface SearchProvider {
+    
+    /**
+     * Returns the provider name, used in logs and diagnostics.
+     * 
+     * @return the provider name
+     */
+    String name();
+    
+    /**
+     * Searches for the given query.
+     * 
+     * @param query the search query
+     * @param maxResults the maximum number of related results to return
+     * @return the parsed search response
+     */
+    Mono<SearchResponse> search(String query, int maxResults);
+}
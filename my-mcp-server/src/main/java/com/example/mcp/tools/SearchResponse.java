@@ -0,0 +1,34 @@
+package com.example.mcp.tools;
+
+import java.util.List;
+
+/**
+ * Parsed response from the search API, independent of how many results a caller asked for.
+ * 
+ * @param abstractText the instant answer, or an empty string if none
+ * @param abstractUrl the instant answer source URL, or an empty string if none
+ * @param results related results in upstream order
+ * @param unparsedPreview a preview of the raw response if it could not be parsed, otherwise null
+ */
+public record SearchResponse(String abstractText, String abstractUrl, List<SearchResult> results,
+                             String unparsedPreview) {
+    
+    /**
+     * Creates a response for a payload that could not be parsed.
+     * 
+     * @param rawResponse the raw response body
+     * @return the response
+     */
+    public static SearchResponse unparsed(String rawResponse) {
+        return new SearchResponse("", "", List.of(), rawResponse.substring(0, Math.min(500, rawResponse.length())));
+    }
+    
+    /**
+     * Returns whether the response contains an instant answer.
+     * 
+     * @return true if there is an abstract
+     */
+    public boolean hasAbstract() {
+        return !abstractText.isEmpty();
+    }
+}
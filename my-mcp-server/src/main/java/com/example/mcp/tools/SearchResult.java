@@ -0,0 +1,10 @@
+package com.example.mcp.tools;
+
+/**
+ * A single search result.
+ * 
+ * @param text the result text or snippet
+ * @param url the result URL, or an empty string if none
+ */
+public record SearchResult(String text, String url) {
+}
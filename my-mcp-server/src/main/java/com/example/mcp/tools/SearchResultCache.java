@@ -0,0 +1,417 @@
+package com.example.mcp.tools;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Bounded in-memory cache for search results with TTL expiry and LRU eviction.
+ * 
+ * Entries are fresh for the configured TTL. After that they are served as stale
+ * for a further grace period while a single background refresh replaces them.
+ * An entry past its grace period is reloaded, but is still served, as stale, if the
+ * reload fails. The cache is bounded both by entry count and by total weight; the bounds
+ * and expiry can be changed while the cache is in use.
+ * 
+ * An optional {@link Tier} sits behind the in-memory entries. It is consulted on a miss
+ * and receives every value loaded from upstream, so a tier that survives restarts lets a
+ * new process answer repeat queries without going back to upstream.
+ * 
+ * @param <V> the cached value type
+ */
+public class SearchResultCache<V> {
+    
+    private static final Logger log = LoggerFactory.getLogger(SearchResultCache.class);
+    
+    private volatile long ttlNanos;
+    private volatile long staleNanos;
+    private volatile int maxEntries;
+    private volatile long maxWeight;
+    private final ToIntFunction<V> weigher;
+    private final LongSupplier clock;
+    private final Tier<V> tier;
+    
+    private final LinkedHashMap<Key, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalWeight;
+    
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder tierHits = new LongAdder();
+    private final LongAdder staleOnError = new LongAdder();
+    
+    /**
+     * Cache key: the normalized query plus the requested number of results.
+     * 
+     * @param query the normalized query
+     * @param numResults the requested number of results
+     */
+    public record Key(String query, int numResults) {
+        
+        /**
+         * Creates a key from a raw user query.
+         * 
+         * @param rawQuery the query as entered
+         * @param numResults the requested number of results
+         * @return the cache key
+         */
+        public static Key of(String rawQuery, int numResults) {
+            return new Key(normalize(rawQuery), numResults);
+        }
+        
+        /**
+         * Normalizes a query by trimming, collapsing whitespace and lower-casing.
+         * 
+         * @param query the raw query
+         * @return the normalized query
+         */
+        public static String normalize(String query) {
+            return query.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+        }
+    }
+    
+    /**
+     * Point-in-time cache statistics. Lookups answered from the tier count as hits or stale
+     * hits, and also as tier hits. Misses answered with an expired entry because the reload
+     * failed count as misses and as stale-on-error.
+     */
+    public record Stats(long hits, long staleHits, long misses, long evictions, long expirations,
+                        long tierHits, long staleOnError, int size, long weight) {
+        
+        /**
+         * Returns the fraction of lookups served from the cache, fresh or stale.
+         * 
+         * @return the hit ratio between 0 and 1
+         */
+        public double hitRatio() {
+            long lookups = hits + staleHits + misses;
+            return lookups == 0 ? 0.0 : (double) (hits + staleHits) / lookups;
+        }
+    }
+    
+    /**
+     * How a lookup was answered.
+     */
+    public enum Status {
+        HIT,
+        STALE,
+        MISS
+    }
+    
+    /**
+     * The value returned by a lookup and how it was obtained.
+     * 
+     * @param value the value
+     * @param status how the lookup was answered
+     */
+    public record Lookup<V>(V value, Status status) {
+        
+        /**
+         * Returns whether the value came from the cache, fresh or stale.
+         * 
+         * @return true unless the value was loaded from upstream
+         */
+        public boolean cacheHit() {
+            return status != Status.MISS;
+        }
+    }
+    
+    /**
+     * A slower cache tier behind the in-memory entries.
+     * 
+     * @param <V> the cached value type
+     */
+    public interface Tier<V> {
+        
+        /**
+         * Looks up a value. Called on the lookup thread, so it must be fast.
+         * 
+         * @param key the cache key
+         * @return the stored value and its age, or null if the tier does not hold one
+         */
+        Stored<V> load(Key key);
+        
+        /**
+         * Stores a value loaded from upstream.
+         * 
+         * @param key the cache key
+         * @param value the value
+         */
+        void store(Key key, V value);
+    }
+    
+    /**
+     * A value held by a {@link Tier}.
+     * 
+     * @param value the value
+     * @param ageNanos how long ago the value was loaded from upstream
+     */
+    public record Stored<V>(V value, long ageNanos) {
+    }
+    
+    private static final class Entry<V> {
+        final V value;
+        final int weight;
+        final long freshUntil;
+        final long staleUntil;
+        final AtomicBoolean refreshing = new AtomicBoolean();
+        
+        Entry(V value, int weight, long freshUntil, long staleUntil) {
+            this.value = value;
+            this.weight = weight;
+            this.freshUntil = freshUntil;
+            this.staleUntil = staleUntil;
+        }
+    }
+    
+    /**
+     * Creates a cache using the system clock.
+     * 
+     * @param ttl how long an entry is fresh
+     * @param staleWindow how long an expired entry may still be served while it refreshes
+     * @param maxEntries maximum number of entries
+     * @param maxWeight maximum total weight of all entries
+     * @param weigher computes the weight of a value
+     */
+    public SearchResultCache(Duration ttl, Duration staleWindow, int maxEntries, long maxWeight,
+                             ToIntFunction<V> weigher) {
+        this(ttl, staleWindow, maxEntries, maxWeight, weigher, null, System::nanoTime);
+    }
+    
+    /**
+     * Creates a cache backed by a slower tier, using the system clock.
+     * 
+     * @param ttl how long an entry is fresh
+     * @param staleWindow how long an expired entry may still be served while it refreshes
+     * @param maxEntries maximum number of entries
+     * @param maxWeight maximum total weight of all entries
+     * @param weigher computes the weight of a value
+     * @param tier the tier consulted on a miss, or null for none
+     */
+    public SearchResultCache(Duration ttl, Duration staleWindow, int maxEntries, long maxWeight,
+                             ToIntFunction<V> weigher, Tier<V> tier) {
+        this(ttl, staleWindow, maxEntries, maxWeight, weigher, tier, System::nanoTime);
+    }
+    
+    SearchResultCache(Duration ttl, Duration staleWindow, int maxEntries, long maxWeight,
+                      ToIntFunction<V> weigher, LongSupplier clock) {
+        this(ttl, staleWindow, maxEntries, maxWeight, weigher, null, clock);
+    }
+    
+    SearchResultCache(Duration ttl, Duration staleWindow, int maxEntries, long maxWeight,
+                      ToIntFunction<V> weigher, Tier<V> tier, LongSupplier clock) {
+        this.ttlNanos = ttl.toNanos();
+        this.staleNanos = staleWindow.toNanos();
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+        this.clock = clock;
+        this.tier = tier;
+    }
+    
+    /**
+     * Returns the cached value for the key, loading it on a miss.
+     * A stale entry is returned immediately and refreshed in the background.
+     * 
+     * @param key the cache key
+     * @param loader loads the value from upstream
+     * @return the cached or loaded value
+     */
+    public Mono<V> get(Key key, Function<Key, Mono<V>> loader) {
+        return lookup(key, loader).map(Lookup::value);
+    }
+    
+    /**
+     * Like {@link #get}, but also reports whether the value came from the cache.
+     * 
+     * @param key the cache key
+     * @param loader loads the value from upstream
+     * @return the value and how it was obtained
+     */
+    public Mono<Lookup<V>> lookup(Key key, Function<Key, Mono<V>> loader) {
+        return Mono.defer(() -> {
+            long now = clock.getAsLong();
+            Entry<V> entry = cachedEntry(key, now);
+            Entry<V> expired = null;
+            if (entry != null && now >= entry.staleUntil) {
+                expired = entry;
+                entry = null;
+            }
+            if (entry == null && tier != null) {
+                entry = loadFromTier(key, now);
+            }
+            
+            if (entry != null && now < entry.freshUntil) {
+                hits.increment();
+                return Mono.just(new Lookup<>(entry.value, Status.HIT));
+            }
+            if (entry != null) {
+                staleHits.increment();
+                refreshInBackground(key, entry, loader);
+                return Mono.just(new Lookup<>(entry.value, Status.STALE));
+            }
+            
+            misses.increment();
+            Mono<Lookup<V>> loaded = loader.apply(key)
+                .doOnNext(value -> put(key, value))
+                .map(value -> new Lookup<>(value, Status.MISS));
+            if (expired == null) {
+                return loaded;
+            }
+            V fallback = expired.value;
+            return loaded.onErrorResume(e -> {
+                log.debug("Serving expired entry for {} after reload failed: {}", key, e.getMessage());
+                staleOnError.increment();
+                return Mono.just(new Lookup<>(fallback, Status.STALE));
+            });
+        });
+    }
+    
+    /**
+     * Stores a value, evicting least recently used entries if the cache is over capacity.
+     * 
+     * @param key the cache key
+     * @param value the value to store
+     */
+    public void put(Key key, V value) {
+        long now = clock.getAsLong();
+        insert(key, new Entry<>(value, weigher.applyAsInt(value), now + ttlNanos, now + ttlNanos + staleNanos));
+        if (tier != null) {
+            tier.store(key, value);
+        }
+    }
+    
+    /**
+     * Changes the expiry and bounds. Entries already cached keep their expiry; if the cache
+     * is now over a bound, least recently used entries are evicted at once.
+     * 
+     * @param ttl how long an entry is fresh
+     * @param staleWindow how long an expired entry may still be served while it refreshes
+     * @param maxEntries maximum number of entries
+     * @param maxWeight maximum total weight of all entries
+     */
+    public void reconfigure(Duration ttl, Duration staleWindow, int maxEntries, long maxWeight) {
+        synchronized (entries) {
+            this.ttlNanos = ttl.toNanos();
+            this.staleNanos = staleWindow.toNanos();
+            this.maxEntries = maxEntries;
+            this.maxWeight = maxWeight;
+            evictOverCapacity();
+        }
+    }
+    
+    /**
+     * Returns the current statistics.
+     * 
+     * @return cache statistics
+     */
+    public Stats stats() {
+        synchronized (entries) {
+            return new Stats(hits.sum(), staleHits.sum(), misses.sum(), evictions.sum(), expirations.sum(),
+                tierHits.sum(), staleOnError.sum(), entries.size(), totalWeight);
+        }
+    }
+    
+    /**
+     * Adds an entry, evicting least recently used entries if the cache is over capacity.
+     * 
+     * @param key the cache key
+     * @param entry the entry
+     */
+    private void insert(Key key, Entry<V> entry) {
+        synchronized (entries) {
+            Entry<V> previous = entries.put(key, entry);
+            if (previous != null) {
+                totalWeight -= previous.weight;
+            }
+            totalWeight += entry.weight;
+            evictOverCapacity();
+        }
+    }
+    
+    /**
+     * Evicts least recently used entries until the cache is within its bounds. Called with
+     * the entries lock held.
+     */
+    private void evictOverCapacity() {
+        Iterator<Map.Entry<Key, Entry<V>>> eldest = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || totalWeight > maxWeight) && eldest.hasNext()) {
+            Entry<V> evicted = eldest.next().getValue();
+            eldest.remove();
+            totalWeight -= evicted.weight;
+            evictions.increment();
+        }
+    }
+    
+    /**
+     * Looks up an entry, dropping it from the cache if it is past its stale window.
+     * 
+     * @param key the cache key
+     * @param now the current time in nanoseconds
+     * @return the entry, expired or not, or null if absent
+     */
+    private Entry<V> cachedEntry(Key key, long now) {
+        synchronized (entries) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null && now >= entry.staleUntil) {
+                entries.remove(key);
+                totalWeight -= entry.weight;
+                expirations.increment();
+            }
+            return entry;
+        }
+    }
+    
+    /**
+     * Promotes a value from the tier into memory, keeping the freshness it had when it was stored.
+     * 
+     * @param key the cache key
+     * @param now the current time in nanoseconds
+     * @return the new entry, or null if the tier holds no servable value
+     */
+    private Entry<V> loadFromTier(Key key, long now) {
+        Stored<V> stored = tier.load(key);
+        if (stored == null || stored.ageNanos() >= ttlNanos + staleNanos) {
+            return null;
+        }
+        long storedAt = now - Math.max(0, stored.ageNanos());
+        Entry<V> entry = new Entry<>(stored.value(), weigher.applyAsInt(stored.value()),
+            storedAt + ttlNanos, storedAt + ttlNanos + staleNanos);
+        insert(key, entry);
+        tierHits.increment();
+        return entry;
+    }
+    
+    /**
+     * Starts a single background reload of a stale entry.
+     * 
+     * @param key the cache key
+     * @param entry the stale entry
+     * @param loader loads the value from upstream
+     */
+    private void refreshInBackground(Key key, Entry<V> entry, Function<Key, Mono<V>> loader) {
+        if (!entry.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        log.debug("Refreshing stale cache entry: {}", key);
+        loader.apply(key).subscribe(
+            value -> put(key, value),
+            e -> {
+                log.warn("Background refresh failed for {}: {}", key, e.getMessage());
+                entry.refreshing.set(false);
+            });
+    }
+}
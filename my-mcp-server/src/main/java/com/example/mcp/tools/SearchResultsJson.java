@@ -0,0 +1,184 @@
+package com.example.mcp.tools;
+
+import com.example.mcp.json.JsonOutput;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The structured JSON form of websearch results.
+ * 
+ * This is what the tool returns by default and what the result cache holds; the markdown
+ * rendering is produced from it on request. A payload looks like:
+ * 
+ * <pre>
+ * {"query": "...", "answer": {"text": "...", "url": "..."}, "results": [{"text": "...", "url": "..."}],
+ *  "resultCount": 2}
+ * </pre>
+ * 
+ * {@code answer} is null when there is no instant answer, and a response that could not be
+ * parsed has a {@code rawPreview} field and no results.
+ * 
+ * The cache is keyed by the normalized query, so it holds payloads without a {@code query}
+ * field; {@link #withQuery} adds each caller's own query on the way out.
+ */
+final class SearchResultsJson {
+    
+    private static final JsonFactory jsonFactory = new JsonFactory();
+    
+    private SearchResultsJson() {
+    }
+    
+    /**
+     * Writes a response as JSON, trimmed to the results a caller asked for.
+     * 
+     * @param response the parsed response
+     * @param query the search query, or null to leave the {@code query} field out
+     * @param numResults the most results, counting the instant answer
+     * @return the JSON text
+     */
+    static String write(SearchResponse response, String query, int numResults) {
+        return JsonOutput.write(json -> {
+            json.writeStartObject();
+            if (query != null) {
+                json.writeStringField("query", query);
+            }
+            int count = 0;
+            if (response.hasAbstract() && numResults > 0) {
+                json.writeObjectFieldStart("answer");
+                json.writeStringField("text", response.abstractText());
+                json.writeStringField("url", response.abstractUrl());
+                json.writeEndObject();
+                count++;
+            } else {
+                json.writeNullField("answer");
+            }
+            json.writeArrayFieldStart("results");
+            for (SearchResult result : response.results()) {
+                if (count >= numResults) break;
+                json.writeStartObject();
+                json.writeStringField("text", result.text());
+                json.writeStringField("url", result.url());
+                json.writeEndObject();
+                count++;
+            }
+            json.writeEndArray();
+            json.writeNumberField("resultCount", count);
+            if (response.unparsedPreview() != null) {
+                json.writeStringField("rawPreview", response.unparsedPreview());
+            }
+            json.writeEndObject();
+        });
+    }
+    
+    /**
+     * Returns a payload with its {@code query} field set to the given query, in first place.
+     * 
+     * @param payload the JSON text written by {@link #write}, with or without a query
+     * @param query the caller's search query
+     * @return the JSON text
+     */
+    static String withQuery(String payload, String query) {
+        return JsonOutput.write(json -> writeWithQuery(json, payload, query));
+    }
+    
+    /**
+     * Copies a payload to a generator with its {@code query} field set to the given query.
+     * 
+     * @param json the generator, positioned where a value may be written
+     * @param payload the JSON text written by {@link #write}, with or without a query
+     * @param query the caller's search query
+     * @throws IOException if the payload is not a JSON object or writing fails
+     */
+    static void writeWithQuery(JsonGenerator json, String payload, String query) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(payload)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Expected a JSON object");
+            }
+            json.writeStartObject();
+            json.writeStringField("query", query);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                if (field.equals("query")) {
+                    parser.skipChildren();
+                } else {
+                    json.writeFieldName(field);
+                    json.copyCurrentStructure(parser);
+                }
+            }
+            json.writeEndObject();
+        }
+    }
+    
+    /**
+     * Reads a payload written by {@link #write} back into a response.
+     * 
+     * @param text the JSON text
+     * @return the response
+     * @throws UncheckedIOException if the text is not such a payload
+     */
+    static SearchResponse read(String text) {
+        try (JsonParser parser = jsonFactory.createParser(text)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Expected a JSON object");
+            }
+            String answerText = "";
+            String answerUrl = "";
+            List<SearchResult> results = new ArrayList<>();
+            String rawPreview = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "answer" -> {
+                        if (value == JsonToken.START_OBJECT) {
+                            SearchResult answer = readResult(parser);
+                            answerText = answer.text();
+                            answerUrl = answer.url();
+                        }
+                    }
+                    case "results" -> {
+                        while (parser.nextToken() == JsonToken.START_OBJECT) {
+                            results.add(readResult(parser));
+                        }
+                    }
+                    case "rawPreview" -> rawPreview = parser.getText();
+                    default -> parser.skipChildren();
+                }
+            }
+            return new SearchResponse(answerText, answerUrl, results, rawPreview);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    /**
+     * Reads a {@code {"text", "url"}} object; the parser is at its start.
+     * 
+     * @param parser the JSON parser
+     * @return the result
+     * @throws IOException if reading fails
+     */
+    private static SearchResult readResult(JsonParser parser) throws IOException {
+        String text = "";
+        String url = "";
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "text" -> text = parser.getText();
+                case "url" -> url = parser.getText();
+                default -> parser.skipChildren();
+            }
+        }
+        return new SearchResult(text, url);
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.mcp.tools;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Rate limiter that allows bursts up to a capacity and refills at a steady rate.
+ * 
+ * Implemented as the generic cell rate algorithm: the whole state is one timestamp, the
+ * theoretical arrival time of the next request, advanced by compare-and-set. A caller that
+ * finds the bucket empty reserves a future token and is told how long to wait for it.
+ */
+final class TokenBucket {
+    
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final LongSupplier clock;
+    private final AtomicLong theoreticalArrival;
+    
+    /**
+     * Creates a full bucket.
+     * 
+     * @param permitsPerSecond the refill rate
+     * @param capacity the largest burst allowed
+     */
+    TokenBucket(double permitsPerSecond, int capacity) {
+        this(permitsPerSecond, capacity, System::nanoTime);
+    }
+    
+    TokenBucket(double permitsPerSecond, int capacity, LongSupplier clock) {
+        if (permitsPerSecond <= 0 || capacity < 1) {
+            throw new IllegalArgumentException("Rate and capacity must be positive");
+        }
+        this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+        this.toleranceNanos = intervalNanos * (capacity - 1);
+        this.clock = clock;
+        this.theoreticalArrival = new AtomicLong(clock.getAsLong());
+    }
+    
+    /**
+     * Takes a token, reserving the next one to be refilled if the bucket is empty.
+     * 
+     * @param maxWaitNanos the longest the caller is willing to wait for a token
+     * @return how long to wait before using the token, in nanoseconds, or -1 if that would
+     *         be longer than maxWaitNanos, in which case no token is taken
+     */
+    long reserve(long maxWaitNanos) {
+        while (true) {
+            long now = clock.getAsLong();
+            long arrival = theoreticalArrival.get();
+            long wait = Math.max(0, arrival - toleranceNanos - now);
+            if (wait > maxWaitNanos) {
+                return -1;
+            }
+            if (theoreticalArrival.compareAndSet(arrival, Math.max(arrival, now) + intervalNanos)) {
+                return wait;
+            }
+        }
+    }
+    
+    /**
+     * Puts back a token taken by {@link #reserve} that will not be used, so it is available
+     * to the next caller. The bucket never holds more than its capacity.
+     */
+    void refund() {
+        theoreticalArrival.addAndGet(-intervalNanos);
+    }
+}
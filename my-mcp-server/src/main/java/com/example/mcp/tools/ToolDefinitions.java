@@ -17,7 +17,9 @@ public class ToolDefinitions {
      */
     public static List<Tool> getTools() {
         return List.of(
-            createWebSearchTool()
+            createWebSearchTool(),
+            createWebSearchBatchTool(),
+            createFetchUrlTool()
         );
     }
     
@@ -29,7 +31,7 @@ public class ToolDefinitions {
     private static Tool createWebSearchTool() {
         return new Tool(
             "websearch",
-            "Search the web for information on any topic. Returns relevant search results with titles, URLs, and snippets.",
+            "Search the web for information on any topic. Returns the instant answer and related results with their URLs, as JSON or markdown.",
             Map.of(
                 "type", "object",
                 "properties", Map.of(
@@ -40,10 +42,90 @@ public class ToolDefinitions {
                     "numResults", Map.of(
                         "type", "integer",
                         "description", "Number of search results to return (default: 5, max: 10)"
+                    ),
+                    "format", Map.of(
+                        "type", "string",
+                        "enum", List.of("json", "markdown"),
+                        "description", "Result format: structured JSON (default) or markdown"
+                    ),
+                    "timeoutMs", Map.of(
+                        "type", "integer",
+                        "description", "Maximum time to spend on the search, including retries, in milliseconds"
                     )
                 ),
                 "required", List.of("query")
             )
         );
     }
+    
+    /**
+     * Creates the batch web search tool definition.
+     * 
+     * @return batch web search tool
+     */
+    private static Tool createWebSearchBatchTool() {
+        return new Tool(
+            "websearch_batch",
+            "Run several web searches at once. Returns one section of results per query; a failed query does not fail the others.",
+            Map.of(
+                "type", "object",
+                "properties", Map.of(
+                    "queries", Map.of(
+                        "type", "array",
+                        "items", Map.of("type", "string"),
+                        "description", "The search queries to look up on the web"
+                    ),
+                    "numResults", Map.of(
+                        "type", "integer",
+                        "description", "Number of search results to return per query (default: 5, max: 10)"
+                    ),
+                    "format", Map.of(
+                        "type", "string",
+                        "enum", List.of("json", "markdown"),
+                        "description", "Result format: structured JSON (default) or markdown"
+                    ),
+                    "timeoutMs", Map.of(
+                        "type", "integer",
+                        "description", "Maximum time to spend on the whole batch, in milliseconds"
+                    )
+                ),
+                "required", List.of("queries")
+            )
+        );
+    }
+    
+    /**
+     * Creates the fetch URL tool definition.
+     * 
+     * @return fetch URL tool
+     */
+    private static Tool createFetchUrlTool() {
+        return new Tool(
+            "fetch_url",
+            "Fetch a web page and return its title and readable text, with markup, scripts and styles removed.",
+            Map.of(
+                "type", "object",
+                "properties", Map.of(
+                    "url", Map.of(
+                        "type", "string",
+                        "description", "The http or https URL of the page to fetch"
+                    ),
+                    "maxChars", Map.of(
+                        "type", "integer",
+                        "description", "Maximum number of characters of text to return (default: 20000)"
+                    ),
+                    "format", Map.of(
+                        "type", "string",
+                        "enum", List.of("json", "markdown"),
+                        "description", "Result format: structured JSON (default) or markdown"
+                    ),
+                    "timeoutMs", Map.of(
+                        "type", "integer",
+                        "description", "Maximum time to spend fetching the page, in milliseconds"
+                    )
+                ),
+                "required", List.of("url")
+            )
+        );
+    }
 }
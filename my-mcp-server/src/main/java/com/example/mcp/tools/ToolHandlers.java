@@ -1,34 +1,205 @@
 package com.example.mcp.tools;
 
+import com.example.mcp.config.RuntimeConfig;
+import com.example.mcp.config.ServerConfig;
+import com.example.mcp.json.JsonOutput;
+import com.example.mcp.metrics.MetricsRegistry;
+import com.example.mcp.resources.ResourceHandlers;
+import com.example.mcp.resources.SearchHistory;
+import com.example.mcp.snapshot.VersionedSnapshot;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import io.modelcontextprotocol.server.McpServer;
 import io.modelcontextprotocol.spec.McpSchema.CallToolResult;
 import io.modelcontextprotocol.spec.McpSchema.TextContent;
+import io.modelcontextprotocol.spec.McpSchema.Tool;
 import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.Response;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.io.IOException;
-import java.net.URLEncoder;
+import java.net.URI;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
 
 /**
  * Handles tool execution for the MCP server.
+ * 
+ * The HTTP client, search provider and result cache are created on the first search rather
+ * than at startup, so that a stdio session can answer {@code initialize} and
+ * {@code tools/list} without loading OkHttp or opening the disk cache.
+ * 
+ * Limits, deadlines and sizes come from the {@link RuntimeConfig}. Each call reads the
+ * configuration once, and a reload resizes the caches and pools in place and rebuilds the
+ * search provider if its endpoints or upstream settings changed.
  */
 public class ToolHandlers {
     
     private static final Logger log = LoggerFactory.getLogger(ToolHandlers.class);
-    private static final ObjectMapper objectMapper = new ObjectMapper();
-    private static final OkHttpClient httpClient = new OkHttpClient.Builder()
-        .connectTimeout(30, TimeUnit.SECONDS)
-        .readTimeout(30, TimeUnit.SECONDS)
-        .build();
+    
+    private static volatile ExecutionMode executionMode = ExecutionMode.ASYNC;
+    /** Created on first use from the execution mode and configuration; null until then. */
+    private static volatile SearchProvider searchProvider;
+    
+    private static final InFlightRequests<String, SearchResponse> inFlightSearches = new InFlightRequests<>();
+    
+    private static final VersionedSnapshot<List<Tool>> toolList = VersionedSnapshot.of(ToolDefinitions::getTools);
+    
+    private static volatile RetryPolicy retryPolicy = createRetryPolicy(config().search());
+    
+    /** Circuit breakers by upstream host. */
+    private static final Map<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+    
+    /**
+     * Search results trimmed to one numResults value, in their structured JSON form. Shared
+     * by every spelling of a normalized query, so the JSON has no {@code query} field.
+     * 
+     * @param json the results as written by {@link SearchResultsJson}, without a query
+     * @param resultCount the number of results included
+     */
+    private record FormattedResults(String json, int resultCount) {
+    }
+    
+    /**
+     * The section of a websearch_batch result for one query.
+     * 
+     * @param query the search query
+     * @param results the results, or null if the query failed
+     * @param error the error for a failed query, or null
+     */
+    private record BatchSection(String query, FormattedResults results, String error) {
+        
+        boolean failed() {
+            return results == null;
+        }
+    }
+    
+    /**
+     * How a tool renders its result, chosen by the optional {@code format} argument.
+     */
+    private enum OutputFormat {
+        /** Structured JSON, the default. */
+        JSON,
+        /** Markdown for direct display. */
+        MARKDOWN;
+        
+        /**
+         * Reads the format argument.
+         * 
+         * @param arguments the tool arguments
+         * @return the format, {@link #JSON} if not given
+         * @throws IllegalArgumentException if the format is not supported
+         */
+        static OutputFormat of(JsonNode arguments) {
+            String format = arguments.path("format").asText("json");
+            return switch (format.toLowerCase(Locale.ROOT)) {
+                case "json" -> JSON;
+                case "markdown" -> MARKDOWN;
+                default -> throw new IllegalArgumentException("Unsupported format: " + format
+                    + ", expected 'json' or 'markdown'");
+            };
+        }
+    }
+    
+    static {
+        MetricsRegistry.global().gauge("search_coalesced_in_flight", inFlightSearches::size);
+        RuntimeConfig.global().addListener(ToolHandlers::configChanged);
+    }
+    
+    /**
+     * The shared outbound connection layer, created on first use. A single upstream attempt,
+     * from connecting to reading the last byte, is cut off after
+     * {@code upstream.attemptTimeoutMillis}; the search deadline decides whether it is retried.
+     * 
+     * A new timeout or connection pool setting builds a new client, which in-flight calls do
+     * not notice, and the search provider is rebuilt on it.
+     */
+    private static final class Http {
+        static final HttpConnections connections = new HttpConnections(config().upstream(), config().pool(),
+            MetricsRegistry.global());
+        
+        static {
+            RuntimeConfig.global().addListener((previous, current) -> {
+                if (connections.reconfigure(current.upstream(), current.pool())) {
+                    searchProvider = null;
+                }
+            });
+        }
+    }
+    
+    /**
+     * The websearch result cache and its optional disk tier, created on first use.
+     */
+    private static final class Cache {
+        static final DiskResultStore disk = openDiskStore(config());
+        static final SearchResultCache<FormattedResults> results = new SearchResultCache<>(
+            config().cache().ttl(),
+            config().cache().staleWindow(),
+            config().cache().maxEntries(),
+            config().cache().maxWeight(),
+            formatted -> formatted.json().length(),
+            disk == null ? null : disk.asTier(ToolHandlers::encode, ToolHandlers::decode)
+        );
+        
+        static {
+            if (disk != null) {
+                MetricsRegistry metrics = MetricsRegistry.global();
+                metrics.gauge("disk_cache_entries", () -> disk.stats().entries());
+                metrics.gauge("disk_cache_bytes", () -> disk.stats().bytes());
+            }
+            RuntimeConfig.global().addListener((previous, current) -> {
+                ServerConfig.Cache cache = current.cache();
+                if (!cache.equals(previous.cache())) {
+                    results.reconfigure(cache.ttl(), cache.staleWindow(), cache.maxEntries(), cache.maxWeight());
+                }
+            });
+        }
+    }
+    
+    /**
+     * The fetch_url page fetcher, created on first use. It shares the HTTP client's connection
+     * pool and dispatcher, with its own call timeout of {@code fetch.timeoutMillis}. Its
+     * listener is added after the HTTP client's, so it always picks up a rebuilt client.
+     */
+    private static final class Fetch {
+        static final PageFetcher pages = new PageFetcher(
+            fetchClient(config().fetch()),
+            config().fetch().allowPrivateAddresses(),
+            config().fetch().maxBytes(),
+            config().fetch().freshFor(),
+            config().fetch().cacheEntries(),
+            config().fetch().cacheWeight());
+        
+        static {
+            RuntimeConfig.global().addListener((previous, current) -> {
+                ServerConfig.Fetch fetch = current.fetch();
+                pages.reconfigure(fetchClient(fetch), fetch.allowPrivateAddresses(), fetch.maxBytes(),
+                    fetch.freshFor(), fetch.cacheEntries(), fetch.cacheWeight());
+            });
+            MetricsRegistry metrics = MetricsRegistry.global();
+            metrics.gauge("fetch_cache_hits", () -> pages.stats().hits());
+            metrics.gauge("fetch_cache_revalidated", () -> pages.stats().revalidated());
+            metrics.gauge("fetch_cache_misses", () -> pages.stats().misses());
+            metrics.gauge("fetch_cache_entries", () -> pages.stats().size());
+        }
+        
+        static OkHttpClient fetchClient(ServerConfig.Fetch fetch) {
+            return Http.connections.client().newBuilder().callTimeout(fetch.timeout()).build();
+        }
+    }
     
     /**
      * Registers all tool handlers with the MCP server.
@@ -37,130 +208,741 @@ public class ToolHandlers {
      */
     public static void register(McpServer server) {
         // Register tool list handler
-        server.addToolListHandler(() -> {
-            log.debug("Listing available tools");
-            return Mono.just(ToolDefinitions.getTools());
-        });
+        server.addToolListHandler(ToolHandlers::listTools);
+        
+        // Register websearch handlers
+        server.addToolHandler("websearch", arguments -> callTool("websearch", arguments));
+        server.addToolHandler("websearch_batch", arguments -> callTool("websearch_batch", arguments));
+        server.addToolHandler("fetch_url", arguments -> callTool("fetch_url", arguments));
+    }
+    
+    /**
+     * Lists the available tools. Shared by all transports.
+     * 
+     * @return the tool definitions
+     */
+    public static Mono<List<Tool>> listTools() {
+        log.debug("Listing available tools");
+        return toolList.mono();
+    }
+    
+    /**
+     * Calls a tool on the configured execution mode and records its metrics. Shared by all transports.
+     * 
+     * @param name the tool name
+     * @param arguments the tool arguments
+     * @return the tool response; an unknown tool yields an error result
+     */
+    public static Mono<CallToolResult> callTool(String name, JsonNode arguments) {
+        Mono<CallToolResult> call = switch (name) {
+            case "websearch" -> handleWebSearch(arguments);
+            case "websearch_batch" -> handleWebSearchBatch(arguments);
+            case "fetch_url" -> handleFetchUrl(arguments);
+            default -> null;
+        };
+        if (call == null) {
+            return Mono.just(createErrorResult("Unknown tool: " + name));
+        }
+        return MetricsRegistry.global().tool(name).record(executionMode.run(call), CallToolResult::isError);
+    }
+    
+    /**
+     * Returns the configuration in effect.
+     * 
+     * @return the current configuration
+     */
+    private static ServerConfig config() {
+        return RuntimeConfig.global().current();
+    }
+    
+    /**
+     * Applies a configuration reload to the retry policy and search provider. The HTTP
+     * client and caches apply their own settings once they exist.
+     * 
+     * @param previous the configuration before the reload
+     * @param current the configuration now in effect
+     */
+    private static void configChanged(ServerConfig previous, ServerConfig current) {
+        ServerConfig.Search before = previous.search();
+        ServerConfig.Search after = current.search();
+        if (before.maxRetries() != after.maxRetries() || !before.retryBackoff().equals(after.retryBackoff())
+            || !before.retryMaxBackoff().equals(after.retryMaxBackoff())) {
+            retryPolicy = createRetryPolicy(after);
+        }
+        if (!before.endpoints().equals(after.endpoints()) || !before.strategy().equals(after.strategy())
+            || !before.hedgeInitialDelay().equals(after.hedgeInitialDelay())
+            || !before.hedgeMinDelay().equals(after.hedgeMinDelay())
+            || !previous.upstream().equals(current.upstream())) {
+            // Searches in flight finish on the old provider; the next one builds a new one
+            searchProvider = null;
+        }
+    }
+    
+    /**
+     * Creates the retry policy.
+     * 
+     * @param search the search settings
+     * @return the retry policy
+     */
+    private static RetryPolicy createRetryPolicy(ServerConfig.Search search) {
+        return new RetryPolicy(search.maxRetries(), search.retryBackoff(), search.retryMaxBackoff());
+    }
+    
+    /**
+     * Selects how tool invocations and upstream calls are executed.
+     * Call once at startup, before the server handles requests.
+     * 
+     * @param mode the execution mode
+     */
+    public static void setExecutionMode(ExecutionMode mode) {
+        log.info("Tool execution mode: {}", mode);
+        executionMode = mode;
+        searchProvider = null;
+    }
+    
+    /**
+     * Keeps connections to the search endpoints ready: opens them now if {@code pool.warmUp}
+     * is set, and pings endpoints that have served searches but go idle while clients are
+     * connected. Call once, after the HTTP transport has started; the stdio transport leaves
+     * the HTTP client unbuilt until the first tool call.
+     * 
+     * @param sessionsActive returns whether any client is connected
+     */
+    public static void maintainConnections(BooleanSupplier sessionsActive) {
+        if (config().startup().warmUp()) {
+            Http.connections.warmUp(config().search().endpoints());
+        }
+        Http.connections.keepAlive(() -> config().search().endpoints(), sessionsActive);
+    }
+    
+    /**
+     * Returns the search provider, creating it on first use.
+     * 
+     * @return the search provider
+     */
+    private static SearchProvider searchProvider() {
+        SearchProvider provider = searchProvider;
+        if (provider == null) {
+            synchronized (ToolHandlers.class) {
+                provider = searchProvider;
+                if (provider == null) {
+                    provider = createSearchProvider(executionMode);
+                    searchProvider = provider;
+                }
+            }
+        }
+        return provider;
+    }
+    
+    /**
+     * Opens the disk tier of the result cache if {@code cache.dir} is set.
+     * 
+     * Records are kept for the cache TTL plus the stale window at startup, in segments of
+     * {@code cache.segmentBytes}, and compacted every {@code cache.compactionSeconds}.
+     * 
+     * @param config the configuration at startup
+     * @return the store, or null if it is not configured or cannot be opened
+     */
+    private static DiskResultStore openDiskStore(ServerConfig config) {
+        String dir = config.startup().cacheDir();
+        if (dir == null) {
+            return null;
+        }
+        try {
+            DiskResultStore store = DiskResultStore.open(Path.of(dir),
+                config.cache().ttl().plus(config.cache().staleWindow()), config.startup().cacheSegmentBytes());
+            store.startCompaction(config.startup().cacheCompaction());
+            return store;
+        } catch (IOException e) {
+            log.warn("Persistent result cache disabled, cannot open {}: {}", dir, e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Serializes formatted results for the disk cache.
+     * 
+     * @param results the formatted results
+     * @return the result count followed by the UTF-8 text
+     */
+    private static byte[] encode(FormattedResults results) {
+        byte[] text = results.json().getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(Integer.BYTES + text.length).putInt(results.resultCount()).put(text).array();
+    }
+    
+    /**
+     * Reads formatted results written by {@link #encode}.
+     * 
+     * @param bytes the serialized results
+     * @return the formatted results, or null for a record holding markdown, as written before
+     *         results were cached as JSON
+     */
+    private static FormattedResults decode(byte[] bytes) {
+        if (bytes.length <= Integer.BYTES || bytes[Integer.BYTES] != '{') {
+            return null;
+        }
+        int resultCount = ByteBuffer.wrap(bytes).getInt();
+        return new FormattedResults(
+            new String(bytes, Integer.BYTES, bytes.length - Integer.BYTES, StandardCharsets.UTF_8), resultCount);
+    }
+    
+    /**
+     * Creates the search provider from the configuration.
+     * 
+     * {@code search.endpoints} lists DuckDuckGo-compatible endpoints, primary first.
+     * With more than one endpoint, {@code search.strategy} selects hedged (default)
+     * or fan-out requests across them.
+     * 
+     * @param mode the execution mode for upstream calls
+     * @return the search provider
+     */
+    private static SearchProvider createSearchProvider(ExecutionMode mode) {
+        ServerConfig config = config();
+        List<String> endpoints = config.search().endpoints();
+        circuitBreakers.clear();
+        if (endpoints.size() == 1) {
+            return createProvider(endpoints.get(0), mode, config.upstream());
+        }
+        
+        List<SearchProvider> providers = new ArrayList<>();
+        for (String endpoint : endpoints) {
+            providers.add(createProvider(endpoint, mode, config.upstream()));
+        }
+        CompositeSearchProvider.Strategy strategy = CompositeSearchProvider.Strategy.valueOf(
+            config.search().strategy().toUpperCase(Locale.ROOT).replace('-', '_'));
+        return new CompositeSearchProvider(providers, strategy, config.search().hedgeInitialDelay(),
+            config.search().hedgeMinDelay());
+    }
+    
+    /**
+     * Creates the provider for one endpoint, behind its own circuit breaker and admission control.
+     * 
+     * The breaker opens after {@code upstream.breakerFailures} consecutive failures and lets
+     * a probe through after {@code upstream.breakerOpenSeconds}. The endpoint also gets a
+     * token bucket of {@code upstream.ratePerSecond} requests per second with bursts of
+     * {@code upstream.burst}, and an adaptive concurrency limit that starts at
+     * {@code upstream.initialConcurrency} and stays within 1 and {@code upstream.maxConcurrency}.
+     * Up to {@code upstream.maxQueued} searches wait for admission for at most
+     * {@code upstream.queueTimeoutMillis}.
+     * 
+     * @param endpoint the base URL of the search API
+     * @param mode the execution mode for upstream calls
+     * @param settings the upstream settings
+     * @return the provider
+     */
+    private static SearchProvider createProvider(String endpoint, ExecutionMode mode, ServerConfig.Upstream settings) {
+        AdmissionControlledSearchProvider admission = new AdmissionControlledSearchProvider(
+            new DuckDuckGoSearchProvider(Http.connections.client(), endpoint, mode),
+            new TokenBucket(settings.ratePerSecond(), settings.burst()),
+            new AdaptiveConcurrencyLimiter(
+                settings.initialConcurrency(),
+                1,
+                settings.maxConcurrency(),
+                settings.maxQueued()),
+            settings.queueTimeout());
+        
+        String host = URI.create(endpoint).getHost();
+        String upstream = host != null ? host : endpoint;
+        CircuitBreaker breaker = new CircuitBreaker(upstream,
+            settings.breakerFailures(),
+            settings.breakerOpen(),
+            state -> ResourceHandlers.invalidateConfig());
+        circuitBreakers.put(upstream, breaker);
         
-        // Register websearch handler
-        server.addToolHandler("websearch", ToolHandlers::handleWebSearch);
+        String prefix = "upstream_" + upstream.replaceAll("[^A-Za-z0-9]+", "_") + "_";
+        MetricsRegistry metrics = MetricsRegistry.global();
+        metrics.gauge(prefix + "concurrency_limit", () -> admission.concurrencyLimit().limit());
+        metrics.gauge(prefix + "in_flight", () -> admission.concurrencyLimit().inFlight());
+        metrics.gauge(prefix + "queued", () -> admission.concurrencyLimit().queued());
+        metrics.gauge(prefix + "rejected", admission::rejected);
+        metrics.gauge(prefix + "circuit_open", () -> breaker.state() == CircuitBreaker.State.CLOSED ? 0 : 1);
+        metrics.gauge(prefix + "short_circuited", breaker::shortCircuited);
+        return new CircuitBreakerSearchProvider(admission, breaker, upstream);
+    }
+    
+    /**
+     * Replaces the search provider. Intended for tests that run against local providers.
+     * 
+     * @param provider the search provider
+     */
+    static void setSearchProvider(SearchProvider provider) {
+        searchProvider = provider;
+    }
+    
+    /**
+     * Points the search provider at a DuckDuckGo-compatible endpoint, such as a local test server.
+     * 
+     * @param endpoint the base URL of the search API
+     */
+    public static void setSearchEndpoint(String endpoint) {
+        searchProvider = createProvider(endpoint, executionMode, config().upstream());
+    }
+    
+    /**
+     * Returns the state of each upstream's circuit breaker.
+     * 
+     * @return breaker states by upstream host, sorted by host
+     */
+    public static Map<String, String> getCircuitBreakerStates() {
+        Map<String, String> states = new TreeMap<>();
+        circuitBreakers.forEach((upstream, breaker) -> states.put(upstream, breaker.state().name()));
+        return states;
+    }
+    
+    /**
+     * Returns statistics for the websearch result cache.
+     * 
+     * @return cache statistics
+     */
+    public static SearchResultCache.Stats getSearchCacheStats() {
+        return Cache.results.stats();
+    }
+    
+    /**
+     * Returns statistics for the disk tier of the result cache.
+     * 
+     * @return disk cache statistics, or null if the disk tier is disabled
+     */
+    public static DiskResultStore.Stats getDiskCacheStats() {
+        return Cache.disk == null ? null : Cache.disk.stats();
+    }
+    
+    /**
+     * Returns statistics for the fetch_url page cache.
+     * 
+     * @return cache statistics
+     */
+    static PageFetcher.Stats getFetchCacheStats() {
+        return Fetch.pages.stats();
     }
     
     /**
      * Handles the websearch tool execution.
+     * The returned Mono is lazy: no request is sent until it is subscribed.
+     * 
+     * The search must finish within the deadline given by the optional {@code timeoutMs}
+     * argument, or {@code search.deadlineMillis}, capped at {@code search.maxDeadlineMillis}.
+     * Transient upstream failures are retried up to {@code search.maxRetries} times within
+     * the deadline.
+     * 
+     * The results are JSON as written by {@link SearchResultsJson}, or markdown if the
+     * {@code format} argument is {@code markdown}.
      * 
      * @param arguments the tool arguments
      * @return the tool response
      */
-    private static Mono<CallToolResult> handleWebSearch(JsonNode arguments) {
+    static Mono<CallToolResult> handleWebSearch(JsonNode arguments) {
         log.info("Web search tool called");
         
         if (!arguments.has("query")) {
             return Mono.just(createErrorResult("Missing required 'query' parameter"));
         }
+        OutputFormat format;
+        try {
+            format = OutputFormat.of(arguments);
+        } catch (IllegalArgumentException e) {
+            return Mono.just(createErrorResult(e.getMessage()));
+        }
         
+        ServerConfig.Search settings = config().search();
         String query = arguments.get("query").asText();
-        int numResults = arguments.has("numResults") ? 
-            Math.min(arguments.get("numResults").asInt(), 10) : 5;
+        int numResults = numResults(arguments, settings);
+        Duration deadline = deadline(arguments, settings);
         
         log.debug("Searching for: {} (max {} results)", query, numResults);
         
+        return Mono.defer(() -> search(query, numResults, System.nanoTime() + deadline.toNanos(), settings))
+            .map(results -> createSuccessResult(render(results, query, numResults, format)))
+            .onErrorResume(e -> Mono.just(createErrorResult(describeFailure(e, deadline))));
+    }
+    
+    /**
+     * Handles the websearch_batch tool execution: runs several queries in one call.
+     * 
+     * Up to {@code search.batchConcurrency} queries run at once, through the
+     * same cache and request coalescing as websearch. The whole batch shares one deadline,
+     * set like websearch's; queries that have not finished by then fail. The result has one
+     * section per query, in the order given, and a failed query only fails its own section.
+     * The result is an error only if every query failed.
+     * 
+     * @param arguments the tool arguments
+     * @return the tool response
+     */
+    static Mono<CallToolResult> handleWebSearchBatch(JsonNode arguments) {
+        JsonNode queries = arguments.get("queries");
+        if (queries == null || !queries.isArray() || queries.isEmpty()) {
+            return Mono.just(createErrorResult("Missing required 'queries' array"));
+        }
+        ServerConfig.Search settings = config().search();
+        if (queries.size() > settings.batchMaxQueries()) {
+            return Mono.just(createErrorResult("Too many queries: " + queries.size() + ", at most "
+                + settings.batchMaxQueries() + " are allowed"));
+        }
+        OutputFormat format;
         try {
-            String searchResults = performWebSearch(query, numResults);
-            return Mono.just(createSuccessResult(searchResults));
-        } catch (Exception e) {
-            log.error("Web search failed", e);
-            return Mono.just(createErrorResult("Search failed: " + e.getMessage()));
+            format = OutputFormat.of(arguments);
+        } catch (IllegalArgumentException e) {
+            return Mono.just(createErrorResult(e.getMessage()));
         }
+        
+        List<String> queryList = new ArrayList<>(queries.size());
+        queries.forEach(query -> queryList.add(query.asText()));
+        int numResults = numResults(arguments, settings);
+        Duration deadline = deadline(arguments, settings);
+        
+        log.info("Web search batch tool called with {} queries", queryList.size());
+        
+        return Mono.defer(() -> {
+            long deadlineNanos = System.nanoTime() + deadline.toNanos();
+            return Flux.fromIterable(queryList)
+                .flatMapSequential(query -> batchSection(query, numResults, deadlineNanos, deadline, settings),
+                    settings.batchConcurrency())
+                .collectList()
+                .map(sections -> createBatchResult(sections, numResults, format));
+        });
     }
     
     /**
-     * Performs a web search using DuckDuckGo's HTML interface.
-     * Note: In production, you would use a proper search API like Google, Bing, or Brave Search.
+     * Handles the fetch_url tool execution: fetches a web page and returns its readable text.
+     * The returned Mono is lazy: no request is sent until it is subscribed.
      * 
-     * @param query the search query
-     * @param numResults number of results to return
-     * @return formatted search results
+     * At most {@code maxChars} characters of text are returned (default
+     * {@code fetch.defaultChars}, capped at {@code fetch.maxChars}), and at most
+     * {@code fetch.maxBytes} of the body are read. The fetch must finish within the optional
+     * {@code timeoutMs} argument, or {@code fetch.timeoutMillis}, capped at
+     * {@code search.maxDeadlineMillis}.
+     * 
+     * @param arguments the tool arguments
+     * @return the tool response
      */
-    private static String performWebSearch(String query, int numResults) throws IOException {
-        String encodedQuery = URLEncoder.encode(query, StandardCharsets.UTF_8);
+    static Mono<CallToolResult> handleFetchUrl(JsonNode arguments) {
+        if (!arguments.has("url") || arguments.get("url").asText().isBlank()) {
+            return Mono.just(createErrorResult("Missing required 'url' parameter"));
+        }
+        OutputFormat format;
+        try {
+            format = OutputFormat.of(arguments);
+        } catch (IllegalArgumentException e) {
+            return Mono.just(createErrorResult(e.getMessage()));
+        }
         
-        // Using DuckDuckGo Instant Answer API (free, no API key required)
-        // Note: For production use, consider using Google Custom Search, Bing Search API, or Brave Search API
-        String url = "https://api.duckduckgo.com/?q=" + encodedQuery + "&format=json&no_html=1";
+        ServerConfig config = config();
+        String url = arguments.get("url").asText().trim();
+        int maxChars = arguments.has("maxChars")
+            ? Math.max(1, Math.min(arguments.get("maxChars").asInt(), config.fetch().maxChars()))
+            : config.fetch().defaultChars();
+        Duration timeout = arguments.has("timeoutMs")
+            ? Duration.ofMillis(Math.max(1, Math.min(arguments.get("timeoutMs").asLong(),
+                config.search().maxDeadline().toMillis())))
+            : config.fetch().timeout();
         
-        Request request = new Request.Builder()
-            .url(url)
-            .header("User-Agent", "MCP-Server/1.0")
-            .get()
-            .build();
+        log.info("Fetch URL tool called for {}", url);
         
-        try (Response response = httpClient.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                throw new IOException("Search request failed with status: " + response.code());
+        return Fetch.pages.fetch(url, maxChars, executionMode)
+            .timeout(timeout)
+            .map(page -> createSuccessResult(format == OutputFormat.JSON ? pageJson(page) : formatPage(page)))
+            .onErrorResume(e -> {
+                if (e instanceof TimeoutException) {
+                    log.warn("Fetch of {} timed out after {}ms", url, timeout.toMillis());
+                    return Mono.just(createErrorResult("Fetch timed out after " + timeout.toMillis() + "ms"));
+                }
+                log.warn("Fetch of {} failed: {}", url, e.getMessage());
+                return Mono.just(createErrorResult("Fetch failed: " + e.getMessage()));
+            });
+    }
+    
+    /**
+     * Writes a fetched page as JSON.
+     * 
+     * @param page the page
+     * @return {@code {"url", "title", "text", "truncated"}}
+     */
+    private static String pageJson(PageFetcher.Page page) {
+        return JsonOutput.write(json -> {
+            json.writeStartObject();
+            json.writeStringField("url", page.url());
+            json.writeStringField("title", page.title());
+            json.writeStringField("text", page.text());
+            json.writeBooleanField("truncated", page.truncated());
+            json.writeEndObject();
+        });
+    }
+    
+    /**
+     * Formats a fetched page as markdown.
+     * 
+     * @param page the page
+     * @return the title, URL and text of the page
+     */
+    static String formatPage(PageFetcher.Page page) {
+        StringBuilder text = new StringBuilder();
+        text.append("# ").append(page.title().isEmpty() ? page.url() : page.title()).append("\n\n");
+        text.append("URL: ").append(page.url()).append("\n\n");
+        text.append(page.text().isEmpty() ? "(no text content)" : page.text()).append("\n");
+        if (page.truncated()) {
+            text.append("\n[Content truncated at ").append(page.text().length()).append(" characters]\n");
+        }
+        return text.toString();
+    }
+    
+    /**
+     * Runs one query of a batch.
+     * 
+     * @param query the search query
+     * @param numResults number of results to return
+     * @param deadlineNanos the {@link System#nanoTime()} by which the batch must complete
+     * @param deadline the batch deadline, for error messages
+     * @param settings the search settings the batch started with
+     * @return the query's section; never fails
+     */
+    private static Mono<BatchSection> batchSection(String query, int numResults, long deadlineNanos, Duration deadline,
+                                                   ServerConfig.Search settings) {
+        if (query.isBlank()) {
+            return Mono.just(new BatchSection(query, null, "Empty query"));
+        }
+        return search(query, numResults, deadlineNanos, settings)
+            .map(results -> new BatchSection(query, results, null))
+            .onErrorResume(e -> Mono.just(new BatchSection(query, null, describeFailure(e, deadline))));
+    }
+    
+    /**
+     * Joins the sections of a batch into one result.
+     * 
+     * As JSON, the result is {@code {"searches", "succeeded", "failed", "results"}}, where
+     * each entry of {@code results} is a websearch result, copied from the cache with the
+     * section's own query, or {@code {"query", "error"}} for a failed query.
+     * 
+     * @param sections the sections, in query order
+     * @param numResults number of results per query
+     * @param format how to render the result
+     * @return the tool result
+     */
+    private static CallToolResult createBatchResult(List<BatchSection> sections, int numResults, OutputFormat format) {
+        int failed = 0;
+        for (BatchSection section : sections) {
+            if (section.failed()) {
+                failed++;
+            }
+        }
+        int succeeded = sections.size() - failed;
+        String text;
+        if (format == OutputFormat.JSON) {
+            text = JsonOutput.write(json -> {
+                json.writeStartObject();
+                json.writeNumberField("searches", sections.size());
+                json.writeNumberField("succeeded", succeeded);
+                json.writeNumberField("failed", sections.size() - succeeded);
+                json.writeArrayFieldStart("results");
+                for (BatchSection section : sections) {
+                    if (section.failed()) {
+                        json.writeStartObject();
+                        json.writeStringField("query", section.query());
+                        json.writeStringField("error", section.error());
+                        json.writeEndObject();
+                    } else {
+                        SearchResultsJson.writeWithQuery(json, section.results().json(), section.query());
+                    }
+                }
+                json.writeEndArray();
+                json.writeEndObject();
+            });
+        } else {
+            StringBuilder markdown = new StringBuilder();
+            markdown.append("Batch of ").append(sections.size()).append(" searches: ").append(succeeded)
+                .append(" succeeded, ").append(failed).append(" failed\n");
+            for (BatchSection section : sections) {
+                markdown.append("\n---\n\n");
+                if (section.failed()) {
+                    markdown.append("# Web Search Results for: ").append(section.query()).append("\n\nError: ")
+                        .append(section.error()).append('\n');
+                } else {
+                    markdown.append(render(section.results(), section.query(), numResults, format));
+                }
             }
-            
-            String responseBody = response.body() != null ? response.body().string() : "";
-            return formatSearchResults(responseBody, query, numResults);
+            text = markdown.toString();
+        }
+        return new CallToolResult(List.of(new TextContent(text)), failed == sections.size());
+    }
+    
+    /**
+     * Renders search results in the requested format.
+     * 
+     * @param results the cached results
+     * @param query the search query
+     * @param numResults number of results to return
+     * @param format how to render the results
+     * @return the cached JSON with the caller's query, or markdown rendered from it
+     */
+    private static String render(FormattedResults results, String query, int numResults, OutputFormat format) {
+        return format == OutputFormat.JSON
+            ? SearchResultsJson.withQuery(results.json(), query)
+            : formatSearchResults(SearchResultsJson.read(results.json()), query, numResults);
+    }
+    
+    /**
+     * Reads the numResults argument.
+     * 
+     * @param arguments the tool arguments
+     * @param settings the search settings
+     * @return the number of results, {@code search.defaultResults} if not given, at most
+     *         {@code search.maxResults}
+     */
+    private static int numResults(JsonNode arguments, ServerConfig.Search settings) {
+        return arguments.has("numResults")
+            ? Math.min(arguments.get("numResults").asInt(), settings.maxResults())
+            : settings.defaultResults();
+    }
+    
+    /**
+     * Reads the deadline from the timeoutMs argument.
+     * 
+     * @param arguments the tool arguments
+     * @param settings the search settings
+     * @return the deadline, {@code search.deadlineMillis} if not given, at most
+     *         {@code search.maxDeadlineMillis}
+     */
+    private static Duration deadline(JsonNode arguments, ServerConfig.Search settings) {
+        return arguments.has("timeoutMs")
+            ? Duration.ofMillis(Math.max(1, Math.min(arguments.get("timeoutMs").asLong(),
+                settings.maxDeadline().toMillis())))
+            : settings.deadline();
+    }
+    
+    /**
+     * Describes a failed search for the caller, and logs it.
+     * 
+     * @param e the failure
+     * @param deadline the search deadline
+     * @return the error message
+     */
+    private static String describeFailure(Throwable e, Duration deadline) {
+        if (e instanceof UpstreamOverloadedException) {
+            log.warn("Web search rejected: {}", e.getMessage());
+            return "Search is overloaded, try again shortly: " + e.getMessage();
+        }
+        if (e instanceof CircuitOpenException) {
+            log.warn("Web search short-circuited: {}", e.getMessage());
+            return "Search is unavailable, try again shortly: " + e.getMessage();
         }
+        if (e instanceof TimeoutException) {
+            log.warn("Web search timed out after {}ms", deadline.toMillis());
+            return "Search timed out after " + deadline.toMillis() + "ms";
+        }
+        log.error("Web search failed", e);
+        return "Search failed: " + e.getMessage();
+    }
+    
+    /**
+     * Answers a search from the cache or upstream and records it in the search history.
+     * 
+     * @param query the search query
+     * @param numResults number of results to return
+     * @param deadlineNanos the {@link System#nanoTime()} by which the search must complete
+     * @param settings the search settings the call started with
+     * @return the formatted results
+     */
+    private static Mono<FormattedResults> search(String query, int numResults, long deadlineNanos,
+                                                 ServerConfig.Search settings) {
+        long start = System.nanoTime();
+        return Cache.results.lookup(SearchResultCache.Key.of(query, numResults),
+                key -> fetch(key.query(), numResults, deadlineNanos, settings.maxResults()))
+            .doOnNext(lookup -> ResourceHandlers.addToSearchHistory(new SearchHistory.Entry(
+                query,
+                Instant.now(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                lookup.value().resultCount(),
+                lookup.cacheHit())))
+            .map(SearchResultCache.Lookup::value);
+    }
+    
+    /**
+     * Fetches results from the search provider, sharing the upstream call with concurrent
+     * searches for the same normalized query. The shared call retries within the deadline of
+     * the search that started it; each caller stops waiting at its own deadline.
+     * 
+     * @param normalizedQuery the normalized query sent upstream
+     * @param numResults number of results to return
+     * @param deadlineNanos the {@link System#nanoTime()} by which the search must complete
+     * @param maxResults the number of results to fetch upstream; callers are trimmed to their own numResults
+     * @return the formatted results
+     */
+    private static Mono<FormattedResults> fetch(String normalizedQuery, int numResults, long deadlineNanos,
+                                                int maxResults) {
+        RetryPolicy retries = retryPolicy;
+        return inFlightSearches.execute(normalizedQuery,
+                () -> retries.execute(() -> searchProvider().search(normalizedQuery, maxResults), deadlineNanos))
+            .timeout(RetryPolicy.remaining(deadlineNanos))
+            .map(response -> new FormattedResults(
+                SearchResultsJson.write(response, null, numResults),
+                countResults(response, numResults)));
+    }
+    
+    /**
+     * Counts the results a caller receives: the instant answer plus related results, up to numResults.
+     * 
+     * @param response the parsed response
+     * @param numResults max number of results
+     * @return the number of results
+     */
+    private static int countResults(SearchResponse response, int numResults) {
+        if (response.unparsedPreview() != null) {
+            return 0;
+        }
+        return Math.min(numResults, (response.hasAbstract() ? 1 : 0) + response.results().size());
     }
     
     /**
-     * Formats the DuckDuckGo API response into readable search results.
+     * Formats a search response as markdown.
      * 
-     * @param jsonResponse the raw JSON response
+     * @param response the parsed response
      * @param query the original search query
      * @param numResults max number of results
      * @return formatted results string
      */
-    private static String formatSearchResults(String jsonResponse, String query, int numResults) {
+    static String formatSearchResults(SearchResponse response, String query, int numResults) {
         StringBuilder results = new StringBuilder();
         results.append("# Web Search Results for: ").append(query).append("\n\n");
         
-        try {
-            JsonNode root = objectMapper.readTree(jsonResponse);
-            int count = 0;
-            
-            // Abstract (instant answer)
-            if (root.has("Abstract") && !root.get("Abstract").asText().isEmpty()) {
-                results.append("## Instant Answer\n");
-                results.append(root.get("Abstract").asText()).append("\n");
-                if (root.has("AbstractURL") && !root.get("AbstractURL").asText().isEmpty()) {
-                    results.append("Source: ").append(root.get("AbstractURL").asText()).append("\n");
+        if (response.unparsedPreview() != null) {
+            results.append("Search completed but results could not be parsed.\n");
+            results.append("Raw response preview: ").append(response.unparsedPreview());
+            return results.toString();
+        }
+        
+        int count = 0;
+        
+        // Abstract (instant answer)
+        if (response.hasAbstract()) {
+            results.append("## Instant Answer\n");
+            results.append(response.abstractText()).append("\n");
+            if (!response.abstractUrl().isEmpty()) {
+                results.append("Source: ").append(response.abstractUrl()).append("\n");
+            }
+            results.append("\n");
+            count++;
+        }
+        
+        // Related topics
+        if (!response.results().isEmpty() && count < numResults) {
+            results.append("## Related Results\n\n");
+            for (SearchResult result : response.results()) {
+                if (count >= numResults) break;
+                
+                results.append("### Result ").append(count + 1).append("\n");
+                results.append(result.text()).append("\n");
+                if (!result.url().isEmpty()) {
+                    results.append("URL: ").append(result.url()).append("\n");
                 }
                 results.append("\n");
                 count++;
             }
-            
-            // Related topics
-            if (root.has("RelatedTopics") && root.get("RelatedTopics").isArray()) {
-                results.append("## Related Results\n\n");
-                for (JsonNode topic : root.get("RelatedTopics")) {
-                    if (count >= numResults) break;
-                    
-                    if (topic.has("Text") && !topic.get("Text").asText().isEmpty()) {
-                        results.append("### Result ").append(count + 1).append("\n");
-                        results.append(topic.get("Text").asText()).append("\n");
-                        if (topic.has("FirstURL") && !topic.get("FirstURL").asText().isEmpty()) {
-                            results.append("URL: ").append(topic.get("FirstURL").asText()).append("\n");
-                        }
-                        results.append("\n");
-                        count++;
-                    }
-                }
-            }
-            
-            // If no results found
-            if (count == 0) {
-                results.append("No direct results found. Try refining your search query.\n");
-                results.append("\nTip: For comprehensive web search, consider using a dedicated search API ");
-                results.append("like Google Custom Search, Bing Search API, or Brave Search API.\n");
-            }
-            
-        } catch (Exception e) {
-            log.warn("Failed to parse search results", e);
-            results.append("Search completed but results could not be parsed.\n");
-            results.append("Raw response preview: ").append(jsonResponse.substring(0, Math.min(500, jsonResponse.length())));
+        }
+        
+        // If no results found
+        if (count == 0) {
+            results.append("No direct results found. Try refining your search query.\n");
+            results.append("\nTip: For comprehensive web search, consider using a dedicated search API ");
+            results.append("like Google Custom Search, Bing Search API, or Brave Search API.\n");
         }
         
         return results.toString();
@@ -0,0 +1,19 @@
+package com.example.mcp.tools;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a search is turned away before reaching the upstream because too many
+ * searches are already queued, or its turn would not come in time.
+ */
+public class UpstreamOverloadedException extends IOException {
+    
+    /**
+     * Creates an exception.
+     * 
+     * @param message why the search was turned away
+     */
+    public UpstreamOverloadedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.mcp.transport;
+
+/**
+ * A request failure reported to the client as a JSON-RPC error object.
+ */
+class JsonRpcException extends RuntimeException {
+    
+    static final int PARSE_ERROR = -32700;
+    static final int INVALID_REQUEST = -32600;
+    static final int METHOD_NOT_FOUND = -32601;
+    static final int INVALID_PARAMS = -32602;
+    static final int INTERNAL_ERROR = -32603;
+    /** The client cancelled the request; it ignores this reply, which only closes the exchange. */
+    static final int REQUEST_CANCELLED = -32800;
+    
+    private final int code;
+    
+    /**
+     * Creates an error.
+     * 
+     * @param code the JSON-RPC error code
+     * @param message the error message
+     */
+    JsonRpcException(int code, String message) {
+        super(message);
+        this.code = code;
+    }
+    
+    /**
+     * Returns the JSON-RPC error code.
+     * 
+     * @return the error code
+     */
+    int code() {
+        return code;
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.mcp.transport;
+
+import com.example.mcp.prompts.PromptHandlers;
+import com.example.mcp.resources.ResourceHandlers;
+import com.example.mcp.tools.ToolHandlers;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Maps MCP JSON-RPC requests onto the shared tool, resource and prompt handlers.
+ */
+final class McpRequestDispatcher {
+    
+    static final String PROTOCOL_VERSION = "2025-03-26";
+    
+    private final ObjectMapper objectMapper;
+    
+    /**
+     * Creates a dispatcher.
+     * 
+     * @param objectMapper converts handler results to JSON
+     */
+    McpRequestDispatcher(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+    
+    /**
+     * Returns the result of an initialize request.
+     * 
+     * @param params the request parameters
+     * @return the initialize result
+     */
+    JsonNode initialize(JsonNode params) {
+        ObjectNode result = objectMapper.createObjectNode();
+        result.put("protocolVersion", params.path("protocolVersion").asText(PROTOCOL_VERSION));
+        
+        ObjectNode capabilities = result.putObject("capabilities");
+        capabilities.putObject("tools").put("listChanged", false);
+        capabilities.putObject("resources").put("subscribe", true).put("listChanged", false);
+        capabilities.putObject("prompts").put("listChanged", false);
+        
+        result.putObject("serverInfo").put("name", "my-mcp-server").put("version", "1.0.0");
+        return result;
+    }
+    
+    /**
+     * Dispatches a request within a session.
+     * 
+     * @param session the client session
+     * @param method the JSON-RPC method
+     * @param params the request parameters, or a missing node
+     * @return the JSON result
+     */
+    Mono<JsonNode> dispatch(McpSession session, String method, JsonNode params) {
+        return switch (method) {
+            case "ping" -> Mono.just(objectMapper.createObjectNode());
+            case "tools/list" -> ToolHandlers.listTools().map(tools -> wrap("tools", tools));
+            case "tools/call" -> ToolHandlers.callTool(requiredText(params, "name"), arguments(params))
+                .map(this::toJson);
+            case "resources/list" -> ResourceHandlers.listResources().map(resources -> wrap("resources", resources));
+            case "resources/read" -> ResourceHandlers.readResource(requiredText(params, "uri")).map(this::toJson);
+            case "resources/subscribe" -> Mono.fromSupplier(() -> {
+                session.subscribe(requiredText(params, "uri"));
+                return objectMapper.createObjectNode();
+            });
+            case "resources/unsubscribe" -> Mono.fromSupplier(() -> {
+                session.unsubscribe(requiredText(params, "uri"));
+                return objectMapper.createObjectNode();
+            });
+            case "prompts/list" -> PromptHandlers.listPrompts().map(prompts -> wrap("prompts", prompts));
+            case "prompts/get" -> PromptHandlers.getPrompt(requiredText(params, "name"), promptArguments(params))
+                .map(this::toJson);
+            default -> Mono.error(new JsonRpcException(JsonRpcException.METHOD_NOT_FOUND, "Method not found: " + method));
+        };
+    }
+    
+    /**
+     * Builds a resources/updated notification.
+     * 
+     * @param uri the changed resource
+     * @return the notification JSON
+     */
+    String resourceUpdated(String uri) {
+        ObjectNode notification = objectMapper.createObjectNode();
+        notification.put("jsonrpc", "2.0");
+        notification.put("method", "notifications/resources/updated");
+        notification.putObject("params").put("uri", uri);
+        return notification.toString();
+    }
+    
+    private JsonNode wrap(String field, Object value) {
+        ObjectNode result = objectMapper.createObjectNode();
+        result.set(field, objectMapper.valueToTree(value));
+        return result;
+    }
+    
+    private JsonNode toJson(Object value) {
+        return objectMapper.valueToTree(value);
+    }
+    
+    private JsonNode arguments(JsonNode params) {
+        JsonNode arguments = params.path("arguments");
+        return arguments.isObject() ? arguments : objectMapper.createObjectNode();
+    }
+    
+    private static Map<String, String> promptArguments(JsonNode params) {
+        Map<String, String> arguments = new HashMap<>();
+        params.path("arguments").fields().forEachRemaining(field -> arguments.put(field.getKey(), field.getValue().asText()));
+        return arguments;
+    }
+    
+    private static String requiredText(JsonNode params, String field) {
+        JsonNode value = params.path(field);
+        if (!value.isTextual() || value.asText().isEmpty()) {
+            throw new JsonRpcException(JsonRpcException.INVALID_PARAMS, "Missing required '" + field + "' parameter");
+        }
+        return value.asText();
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.mcp.transport;
+
+import com.example.mcp.resources.ResourceHandlers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * State of one HTTP client session: its resource subscriptions, the requests it has in
+ * progress, and the queue of server-to-client messages waiting for its SSE stream.
+ * 
+ * Everything else (HTTP client, caches, metrics) is shared by all sessions.
+ */
+final class McpSession {
+    
+    private static final Logger log = LoggerFactory.getLogger(McpSession.class);
+    
+    /** Pending messages per session; resource updates are idempotent, so overflow is dropped. */
+    private static final int OUTBOUND_CAPACITY = 256;
+    
+    private final String id;
+    private final Set<String> subscriptions = ConcurrentHashMap.newKeySet();
+    private final Map<String, Runnable> requests = new ConcurrentHashMap<>();
+    private final BlockingQueue<String> outbound = new ArrayBlockingQueue<>(OUTBOUND_CAPACITY);
+    private final AtomicBoolean streaming = new AtomicBoolean();
+    private final Consumer<String> listener;
+    private volatile long lastActivityNanos = System.nanoTime();
+    private volatile boolean closed;
+    
+    /**
+     * Creates a session.
+     * 
+     * @param id the session ID
+     * @param updateMessage builds the resources/updated notification for a URI
+     */
+    McpSession(String id, Function<String, String> updateMessage) {
+        this.id = id;
+        this.listener = uri -> send(updateMessage.apply(uri));
+    }
+    
+    /**
+     * Returns the session ID.
+     * 
+     * @return the ID sent in the Mcp-Session-Id header
+     */
+    String id() {
+        return id;
+    }
+    
+    /**
+     * Subscribes this session to changes of a resource.
+     * 
+     * @param uri the resource URI
+     */
+    void subscribe(String uri) {
+        if (subscriptions.add(uri)) {
+            ResourceHandlers.subscribe(uri, listener);
+        }
+    }
+    
+    /**
+     * Removes this session's subscription to a resource.
+     * 
+     * @param uri the resource URI
+     */
+    void unsubscribe(String uri) {
+        if (subscriptions.remove(uri)) {
+            ResourceHandlers.unsubscribe(uri, listener);
+        }
+    }
+    
+    /**
+     * Registers a request in progress, so that a cancellation from the client can stop it.
+     * 
+     * @param requestId the JSON-RPC request ID, as JSON text
+     * @param cancel stops the request
+     */
+    void started(String requestId, Runnable cancel) {
+        requests.put(requestId, cancel);
+    }
+    
+    /**
+     * Forgets a request that has finished.
+     * 
+     * @param requestId the JSON-RPC request ID, as JSON text
+     * @param cancel the value passed to {@link #started}
+     */
+    void finished(String requestId, Runnable cancel) {
+        requests.remove(requestId, cancel);
+    }
+    
+    /**
+     * Cancels a request in progress.
+     * 
+     * @param requestId the JSON-RPC request ID, as JSON text
+     * @return true if the request was in progress
+     */
+    boolean cancel(String requestId) {
+        Runnable cancel = requests.remove(requestId);
+        if (cancel == null) {
+            return false;
+        }
+        cancel.run();
+        return true;
+    }
+    
+    /**
+     * Queues a message for the session's SSE stream.
+     * 
+     * @param message the JSON-RPC message
+     */
+    void send(String message) {
+        if (!closed && !outbound.offer(message)) {
+            log.debug("Dropping message for session {}: outbound queue full", id);
+        }
+    }
+    
+    /**
+     * Waits for the next queued message.
+     * 
+     * @param timeoutMillis how long to wait
+     * @return the message, or null if none arrived in time
+     * @throws InterruptedException if interrupted while waiting
+     */
+    String poll(long timeoutMillis) throws InterruptedException {
+        return outbound.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Claims the session's single SSE stream.
+     * 
+     * @return true if no other stream is open
+     */
+    boolean openStream() {
+        return streaming.compareAndSet(false, true);
+    }
+    
+    /**
+     * Releases the SSE stream claimed with {@link #openStream}.
+     */
+    void closeStream() {
+        streaming.set(false);
+    }
+    
+    /**
+     * Records client activity, postponing idle expiry.
+     */
+    void touch() {
+        lastActivityNanos = System.nanoTime();
+    }
+    
+    /**
+     * Returns whether the session has been idle longer than the timeout. A session with an
+     * open SSE stream or a request in progress is never idle.
+     * 
+     * @param timeoutNanos the idle timeout
+     * @return true if the session should expire
+     */
+    boolean idleLongerThan(long timeoutNanos) {
+        return !streaming.get() && requests.isEmpty() && System.nanoTime() - lastActivityNanos > timeoutNanos;
+    }
+    
+    /**
+     * Returns whether the session has been closed.
+     * 
+     * @return true once closed
+     */
+    boolean closed() {
+        return closed;
+    }
+    
+    /**
+     * Closes the session, cancels its requests in progress and drops its subscriptions.
+     */
+    void close() {
+        closed = true;
+        for (String requestId : List.copyOf(requests.keySet())) {
+            cancel(requestId);
+        }
+        for (String uri : subscriptions) {
+            unsubscribe(uri);
+        }
+        outbound.clear();
+        // Wake up the stream writer so it notices the session is closed
+        outbound.offer("");
+    }
+}
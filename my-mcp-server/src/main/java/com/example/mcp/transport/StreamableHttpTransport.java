@@ -0,0 +1,461 @@
+package com.example.mcp.transport;
+
+import com.example.mcp.metrics.MetricsRegistry;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Streamable HTTP transport: serves any number of MCP clients from one process.
+ * 
+ * Clients POST JSON-RPC messages to {@code /mcp}. An initialize request creates a session
+ * whose ID is returned in the {@code Mcp-Session-Id} header and must accompany every later
+ * request. A GET with {@code Accept: text/event-stream} opens the session's SSE stream, which
+ * carries resources/updated notifications for the session's subscriptions. DELETE ends the
+ * session. Sessions that stay idle longer than the idle timeout are closed.
+ * 
+ * A {@code notifications/cancelled} message from the client stops the named request: its
+ * upstream calls are cancelled and the waiting POST is answered with a cancellation error.
+ * Closing a session cancels all of its requests in progress.
+ * 
+ * All sessions share the tool, resource and prompt handlers, and with them the HTTP client,
+ * caches and metrics. Only subscriptions are per session. Each exchange is handled on its
+ * own virtual thread, so waiting on a slow tool call or an open stream costs no platform thread.
+ */
+public final class StreamableHttpTransport implements AutoCloseable {
+    
+    private static final Logger log = LoggerFactory.getLogger(StreamableHttpTransport.class);
+    
+    static final String PATH = "/mcp";
+    static final String SESSION_HEADER = "Mcp-Session-Id";
+    
+    private static final Duration REQUEST_TIMEOUT = Duration.ofMinutes(2);
+    private static final long KEEP_ALIVE_MILLIS = 15_000;
+    
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final McpRequestDispatcher dispatcher = new McpRequestDispatcher(objectMapper);
+    private final Map<String, McpSession> sessions = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    private final LongAdder cancelledRequests = new LongAdder();
+    
+    private final InetSocketAddress address;
+    private final long idleTimeoutNanos;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "mcp-session-sweeper");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private HttpServer server;
+    
+    /**
+     * Creates a transport. Call {@link #start} to begin serving.
+     * 
+     * @param host the address to bind, normally a loopback address
+     * @param port the port, or 0 for an ephemeral port
+     * @param idleTimeout how long a session may go without requests before it is closed
+     */
+    public StreamableHttpTransport(String host, int port, Duration idleTimeout) {
+        this.address = new InetSocketAddress(host, port);
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+    }
+    
+    /**
+     * Starts serving.
+     * 
+     * @throws IOException if the address cannot be bound
+     */
+    public synchronized void start() throws IOException {
+        server = HttpServer.create(address, 1024);
+        server.createContext(PATH, this::handle);
+        server.setExecutor(executor);
+        server.start();
+        
+        long sweepMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(idleTimeoutNanos) / 2);
+        sweeper.scheduleAtFixedRate(this::expireIdleSessions, sweepMillis, sweepMillis, TimeUnit.MILLISECONDS);
+        MetricsRegistry.global().gauge("http_sessions", sessions::size);
+        MetricsRegistry.global().gauge("http_requests_cancelled", cancelledRequests::sum);
+        
+        log.info("Streamable HTTP transport listening on http://{}:{}{}",
+            address.getHostString(), port(), PATH);
+    }
+    
+    /**
+     * Returns the port the transport is bound to.
+     * 
+     * @return the local port
+     */
+    public int port() {
+        return server.getAddress().getPort();
+    }
+    
+    /**
+     * Returns the number of open sessions.
+     * 
+     * @return the session count
+     */
+    public int sessionCount() {
+        return sessions.size();
+    }
+    
+    /**
+     * Stops serving and closes all sessions.
+     */
+    @Override
+    public synchronized void close() {
+        if (server != null) {
+            server.stop(0);
+        }
+        sweeper.shutdownNow();
+        sessions.values().forEach(McpSession::close);
+        sessions.clear();
+        executor.shutdownNow();
+    }
+    
+    /**
+     * Routes an exchange by HTTP method.
+     * 
+     * @param exchange the HTTP exchange
+     * @throws IOException if writing the response fails
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!originAllowed(exchange)) {
+                sendStatus(exchange, 403);
+                return;
+            }
+            switch (exchange.getRequestMethod()) {
+                case "POST" -> handlePost(exchange);
+                case "GET" -> handleGet(exchange);
+                case "DELETE" -> handleDelete(exchange);
+                default -> {
+                    exchange.getResponseHeaders().set("Allow", "GET, POST, DELETE");
+                    sendStatus(exchange, 405);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Handles a JSON-RPC message from the client.
+     * 
+     * @param exchange the HTTP exchange
+     * @throws IOException if reading or writing fails
+     */
+    private void handlePost(HttpExchange exchange) throws IOException {
+        JsonNode message;
+        try (InputStream body = exchange.getRequestBody()) {
+            message = objectMapper.readTree(body);
+        } catch (JsonProcessingException e) {
+            sendJson(exchange, 400, error(null, JsonRpcException.PARSE_ERROR, "Parse error"));
+            return;
+        }
+        if (message == null || !message.isObject()) {
+            sendJson(exchange, 400, error(null, JsonRpcException.INVALID_REQUEST, "Expected a JSON-RPC message object"));
+            return;
+        }
+        
+        String method = message.path("method").asText(null);
+        JsonNode id = message.get("id");
+        
+        if ("initialize".equals(method)) {
+            McpSession session = createSession();
+            exchange.getResponseHeaders().set(SESSION_HEADER, session.id());
+            sendJson(exchange, 200, result(id, dispatcher.initialize(message.path("params"))));
+            return;
+        }
+        
+        McpSession session = session(exchange);
+        if (session == null) {
+            return;
+        }
+        session.touch();
+        
+        // Notifications and responses to server requests need no reply
+        if (method == null || id == null) {
+            if ("notifications/cancelled".equals(method)) {
+                cancel(session, message.path("params"));
+            }
+            sendStatus(exchange, 202);
+            return;
+        }
+        
+        ObjectNode response;
+        try {
+            response = result(id, execute(session, id, method, message.path("params")));
+        } catch (CancellationException e) {
+            response = error(id, JsonRpcException.REQUEST_CANCELLED, "Request cancelled");
+        } catch (JsonRpcException e) {
+            response = error(id, e.code(), e.getMessage());
+        } catch (IllegalArgumentException e) {
+            response = error(id, JsonRpcException.INVALID_PARAMS, e.getMessage());
+        } catch (RuntimeException e) {
+            log.warn("Request {} failed", method, e);
+            response = error(id, JsonRpcException.INTERNAL_ERROR, String.valueOf(e.getMessage()));
+        }
+        sendJson(exchange, 200, response);
+    }
+    
+    /**
+     * Runs a request and waits for its result. The request can be cancelled by the client
+     * while it runs, and cancelling it unsubscribes from the handler, which cancels any
+     * upstream calls it has in flight. A request that outlasts the request timeout is
+     * cancelled the same way.
+     * 
+     * @param session the client session
+     * @param id the JSON-RPC request ID
+     * @param method the JSON-RPC method
+     * @param params the request parameters
+     * @return the JSON result
+     * @throws CancellationException if the client cancelled the request
+     */
+    private JsonNode execute(McpSession session, JsonNode id, String method, JsonNode params) {
+        CompletableFuture<JsonNode> result = new CompletableFuture<>();
+        Disposable subscription = Mono.defer(() -> dispatcher.dispatch(session, method, params))
+            .subscribe(result::complete, result::completeExceptionally, () -> result.complete(null));
+        String requestId = id.toString();
+        Runnable cancel = () -> {
+            subscription.dispose();
+            result.cancel(false);
+        };
+        session.started(requestId, cancel);
+        try {
+            return result.get(REQUEST_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            subscription.dispose();
+            throw new JsonRpcException(JsonRpcException.INTERNAL_ERROR,
+                "Request timed out after " + REQUEST_TIMEOUT.toSeconds() + "s");
+        } catch (InterruptedException e) {
+            subscription.dispose();
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException failure) {
+                throw failure;
+            }
+            throw new IllegalStateException(e.getCause().getMessage(), e.getCause());
+        } finally {
+            session.finished(requestId, cancel);
+        }
+    }
+    
+    /**
+     * Handles a cancellation notification by cancelling the named request, if it is still
+     * in progress.
+     * 
+     * @param session the client session
+     * @param params the notification parameters, with the {@code requestId} to cancel
+     */
+    private void cancel(McpSession session, JsonNode params) {
+        JsonNode requestId = params.get("requestId");
+        if (requestId != null && session.cancel(requestId.toString())) {
+            cancelledRequests.increment();
+            log.debug("Cancelled request {} of session {}: {}", requestId, session.id(),
+                params.path("reason").asText("no reason given"));
+        }
+    }
+    
+    /**
+     * Opens the session's SSE stream and writes queued messages until the client disconnects
+     * or the session ends.
+     * 
+     * @param exchange the HTTP exchange
+     * @throws IOException if writing the response headers fails
+     */
+    private void handleGet(HttpExchange exchange) throws IOException {
+        String accept = exchange.getRequestHeaders().getFirst("Accept");
+        if (accept == null || !accept.contains("text/event-stream")) {
+            sendStatus(exchange, 406);
+            return;
+        }
+        McpSession session = session(exchange);
+        if (session == null) {
+            return;
+        }
+        if (!session.openStream()) {
+            sendStatus(exchange, 409);
+            return;
+        }
+        
+        try {
+            exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+            exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+            exchange.sendResponseHeaders(200, 0);
+            OutputStream out = exchange.getResponseBody();
+            // Tells the client the stream is open before the first event arrives
+            out.write(": connected\n\n".getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            
+            while (!session.closed()) {
+                String message = session.poll(KEEP_ALIVE_MILLIS);
+                if (session.closed()) {
+                    break;
+                }
+                String event = message != null ? "event: message\ndata: " + message + "\n\n" : ": keep-alive\n\n";
+                out.write(event.getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                session.touch();
+            }
+        } catch (IOException e) {
+            log.debug("SSE stream for session {} closed: {}", session.id(), e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            session.closeStream();
+            session.touch();
+        }
+    }
+    
+    /**
+     * Ends a session at the client's request.
+     * 
+     * @param exchange the HTTP exchange
+     * @throws IOException if writing the response fails
+     */
+    private void handleDelete(HttpExchange exchange) throws IOException {
+        McpSession session = session(exchange);
+        if (session == null) {
+            return;
+        }
+        closeSession(session);
+        sendStatus(exchange, 204);
+    }
+    
+    /**
+     * Creates and registers a new session.
+     * 
+     * @return the session
+     */
+    private McpSession createSession() {
+        byte[] bytes = new byte[16];
+        random.nextBytes(bytes);
+        McpSession session = new McpSession(HexFormat.of().formatHex(bytes), dispatcher::resourceUpdated);
+        sessions.put(session.id(), session);
+        log.debug("Opened session {} ({} active)", session.id(), sessions.size());
+        return session;
+    }
+    
+    /**
+     * Looks up the exchange's session, answering 400 if the header is missing or 404 if the
+     * session does not exist.
+     * 
+     * @param exchange the HTTP exchange
+     * @return the session, or null if a response has been sent
+     * @throws IOException if writing the response fails
+     */
+    private McpSession session(HttpExchange exchange) throws IOException {
+        String id = exchange.getRequestHeaders().getFirst(SESSION_HEADER);
+        if (id == null) {
+            sendJson(exchange, 400, error(null, JsonRpcException.INVALID_REQUEST, "Missing " + SESSION_HEADER + " header"));
+            return null;
+        }
+        McpSession session = sessions.get(id);
+        if (session == null) {
+            sendJson(exchange, 404, error(null, JsonRpcException.INVALID_REQUEST, "Unknown session"));
+            return null;
+        }
+        return session;
+    }
+    
+    /**
+     * Closes a session and forgets it.
+     * 
+     * @param session the session
+     */
+    private void closeSession(McpSession session) {
+        if (sessions.remove(session.id(), session)) {
+            session.close();
+            log.debug("Closed session {} ({} active)", session.id(), sessions.size());
+        }
+    }
+    
+    /**
+     * Closes sessions that have been idle longer than the idle timeout.
+     */
+    private void expireIdleSessions() {
+        Iterator<McpSession> iterator = sessions.values().iterator();
+        while (iterator.hasNext()) {
+            McpSession session = iterator.next();
+            if (session.idleLongerThan(idleTimeoutNanos)) {
+                log.debug("Expiring idle session {}", session.id());
+                closeSession(session);
+            }
+        }
+    }
+    
+    /**
+     * Rejects cross-origin browser requests from non-loopback origins, which could otherwise
+     * reach a local server through DNS rebinding.
+     * 
+     * @param exchange the HTTP exchange
+     * @return true if the request has no Origin header or a loopback origin
+     */
+    private static boolean originAllowed(HttpExchange exchange) {
+        String origin = exchange.getRequestHeaders().getFirst("Origin");
+        if (origin == null) {
+            return true;
+        }
+        try {
+            String host = URI.create(origin).getHost();
+            return "localhost".equals(host) || "127.0.0.1".equals(host) || "[::1]".equals(host);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+    
+    private ObjectNode result(JsonNode id, JsonNode result) {
+        ObjectNode response = objectMapper.createObjectNode();
+        response.put("jsonrpc", "2.0");
+        response.set("id", id);
+        response.set("result", result);
+        return response;
+    }
+    
+    private ObjectNode error(JsonNode id, int code, String message) {
+        ObjectNode response = objectMapper.createObjectNode();
+        response.put("jsonrpc", "2.0");
+        response.set("id", id);
+        response.putObject("error").put("code", code).put("message", message);
+        return response;
+    }
+    
+    private void sendJson(HttpExchange exchange, int status, JsonNode body) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+    
+    private static void sendStatus(HttpExchange exchange, int status) throws IOException {
+        exchange.sendResponseHeaders(status, -1);
+    }
+}
@@ -33,6 +33,11 @@ class McpServerTest {
         assertNotNull(websearchTool, "websearch tool should be defined");
         assertNotNull(websearchTool.description());
         assertNotNull(websearchTool.inputSchema());
+        
+        assertTrue(tools.stream().anyMatch(t -> "websearch_batch".equals(t.name())),
+            "websearch_batch tool should be defined");
+        assertTrue(tools.stream().anyMatch(t -> "fetch_url".equals(t.name())),
+            "fetch_url tool should be defined");
     }
     
     @Test
@@ -41,7 +46,7 @@ class McpServerTest {
         
         assertNotNull(resources);
         assertFalse(resources.isEmpty());
-        assertEquals(2, resources.size());
+        assertEquals(4, resources.size());
         
         // Verify search history resource
         Resource historyResource = resources.stream()
@@ -52,6 +57,22 @@ class McpServerTest {
         assertNotNull(historyResource, "search history resource should be defined");
         assertEquals("Search History", historyResource.name());
         
+        // Verify search cache resource
+        Resource cacheResource = resources.stream()
+            .filter(r -> "resource://search/cache".equals(r.uri()))
+            .findFirst()
+            .orElse(null);
+        
+        assertNotNull(cacheResource, "search cache resource should be defined");
+        
+        // Verify metrics resource
+        Resource metricsResource = resources.stream()
+            .filter(r -> "resource://metrics".equals(r.uri()))
+            .findFirst()
+            .orElse(null);
+        
+        assertNotNull(metricsResource, "metrics resource should be defined");
+        
         // Verify config resource
         Resource configResource = resources.stream()
             .filter(r -> "resource://config".equals(r.uri()))
@@ -0,0 +1,131 @@
+package com.example.mcp.config;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for reading the configuration from a file, the environment and system properties.
+ */
+class ConfigLoaderTest {
+    
+    @TempDir
+    Path directory;
+    
+    @Test
+    void testDefaultsWhenNothingIsSet() throws Exception {
+        ServerConfig config = new ConfigLoader(null, Map.of(), new Properties()).load();
+        
+        assertEquals(ServerConfig.defaults(), config);
+        assertEquals(List.of("https://api.duckduckgo.com/"), config.search().endpoints());
+        assertEquals(Duration.ofSeconds(10), config.search().deadline());
+        assertEquals(1000, config.history().capacity());
+        assertNull(config.startup().cacheDir());
+    }
+    
+    @Test
+    void testReadsNestedObjectsAndArrays() throws Exception {
+        Path file = write("""
+            {"search": {"deadlineMillis": 2000, "endpoints": ["http://a.test/", "http://b.test/"]},
+             "cache": {"ttlSeconds": 30, "dir": null},
+             "history": {"capacity": 50}}
+            """);
+        
+        ServerConfig config = new ConfigLoader(file, Map.of(), new Properties()).load();
+        
+        assertEquals(Duration.ofMillis(2000), config.search().deadline());
+        assertEquals(List.of("http://a.test/", "http://b.test/"), config.search().endpoints());
+        assertEquals(Duration.ofSeconds(30), config.cache().ttl());
+        assertNull(config.startup().cacheDir());
+        assertEquals(50, config.history().capacity());
+    }
+    
+    @Test
+    void testSystemPropertiesOverrideEnvironmentOverridesFile() throws Exception {
+        Path file = write("{\"search\": {\"maxRetries\": 1, \"batchConcurrency\": 2, \"maxResults\": 7}}");
+        Properties properties = new Properties();
+        properties.setProperty("mcp.search.maxRetries", "3");
+        Map<String, String> environment = Map.of(
+            "MCP_SEARCH_MAX_RETRIES", "4",
+            "MCP_SEARCH_BATCH_CONCURRENCY", "5");
+        
+        ServerConfig config = new ConfigLoader(file, environment, properties).load();
+        
+        assertEquals(3, config.search().maxRetries());
+        assertEquals(5, config.search().batchConcurrency());
+        assertEquals(7, config.search().maxResults());
+    }
+    
+    @Test
+    void testEnvironmentName() {
+        assertEquals("MCP_SEARCH_DEADLINE_MILLIS", ConfigLoader.environmentName("search.deadlineMillis"));
+        assertEquals("MCP_EXECUTION_MODE", ConfigLoader.environmentName("execution.mode"));
+        assertEquals("MCP_METRICS_PROMETHEUS_FILE", ConfigLoader.environmentName("metrics.prometheusFile"));
+    }
+    
+    @Test
+    void testRejectsInvalidValues() {
+        assertInvalid("search.maxResults", "0");
+        assertInvalid("search.maxResults", "ten");
+        assertInvalid("search.endpoints", "ftp://example.com/");
+        assertInvalid("search.strategy", "random");
+        assertInvalid("upstream.ratePerSecond", "-1");
+        assertInvalid("search.defaultResults", "50");
+        assertInvalid("search.deadlineMillis", "60000");
+        assertInvalid("search.retryBackoffMillis", "5000");
+        assertInvalid("search.hedgeMinDelayMillis", "3000");
+        assertInvalid("pool.warmUp", "yes");
+    }
+    
+    @Test
+    void testDefaultCharsIsCutToLoweredMaximum() {
+        ServerConfig config = ConfigLoader.parse(key -> key.equals("fetch.maxChars") ? "500" : null);
+        
+        assertEquals(500, config.fetch().defaultChars());
+    }
+    
+    @Test
+    void testRejectsFileThatIsNotAnObject() throws Exception {
+        Path file = write("[1, 2]");
+        
+        assertThrows(java.io.IOException.class, () -> new ConfigLoader(file, Map.of(), new Properties()).load());
+    }
+    
+    @Test
+    void testReportedValuesReadBackToSameConfig() {
+        Map<String, Object> settings = ConfigLoader.parse(key -> switch (key) {
+            case "search.endpoints" -> "http://a.test/,http://b.test/";
+            case "cache.dir" -> "/tmp/cache";
+            case "upstream.ratePerSecond" -> "2.5";
+            default -> null;
+        }).toMap();
+        
+        ServerConfig reread = ConfigLoader.parse(key -> {
+            Object value = settings.get(key);
+            return value instanceof List<?> list ? String.join(",", list.stream().map(String::valueOf).toList())
+                : value == null ? null : value.toString();
+        });
+        
+        assertEquals(settings, reread.toMap());
+    }
+    
+    private static void assertInvalid(String key, String value) {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+            () -> ConfigLoader.parse(k -> k.equals(key) ? value : null));
+        assertTrue(e.getMessage().startsWith("Invalid value for " + key), e.getMessage());
+    }
+    
+    private Path write(String json) throws Exception {
+        Path file = directory.resolve("config.json");
+        Files.writeString(file, json);
+        return file;
+    }
+}
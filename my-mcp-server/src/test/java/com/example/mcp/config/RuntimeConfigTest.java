@@ -0,0 +1,107 @@
+package com.example.mcp.config;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for reloading the configuration in effect.
+ */
+class RuntimeConfigTest {
+    
+    @TempDir
+    Path directory;
+    
+    @Test
+    void testReloadSwapsConfigAndNotifiesListeners() throws Exception {
+        Path file = write("{\"search\": {\"maxRetries\": 1}}");
+        RuntimeConfig config = load(file);
+        List<String> seen = new ArrayList<>();
+        config.addListener((previous, current) ->
+            seen.add(previous.search().maxRetries() + "->" + config.current().search().maxRetries()));
+        
+        write("{\"search\": {\"maxRetries\": 3}, \"history\": {\"capacity\": 10}}");
+        Set<String> changed = config.reload();
+        
+        assertEquals(Set.of("search.maxRetries", "history.capacity"), changed);
+        assertEquals(List.of("1->3"), seen);
+        assertEquals(10, config.current().history().capacity());
+        assertEquals(1, config.reloads());
+    }
+    
+    @Test
+    void testInvalidFileKeepsCurrentConfig() throws Exception {
+        Path file = write("{\"search\": {\"maxRetries\": 1}}");
+        RuntimeConfig config = load(file);
+        ServerConfig before = config.current();
+        
+        write("{\"search\": {\"maxRetries\": -1}}");
+        assertTrue(config.reload().isEmpty());
+        write("{not json");
+        assertTrue(config.reload().isEmpty());
+        
+        assertSame(before, config.current());
+        assertEquals(0, config.reloads());
+    }
+    
+    @Test
+    void testStartupSettingsAreNotApplied() throws Exception {
+        Path file = write("{\"execution\": {\"mode\": \"async\"}}");
+        RuntimeConfig config = load(file);
+        
+        write("{\"execution\": {\"mode\": \"virtual-threads\"}, \"cache\": {\"maxEntries\": 5}}");
+        Set<String> changed = config.reload();
+        
+        assertEquals(Set.of("cache.maxEntries"), changed);
+        assertEquals("async", config.current().startup().executionMode());
+        assertEquals(5, config.current().cache().maxEntries());
+    }
+    
+    @Test
+    void testUnchangedReloadDoesNothing() throws Exception {
+        Path file = write("{\"search\": {\"maxRetries\": 1}}");
+        RuntimeConfig config = load(file);
+        List<ServerConfig> notified = new ArrayList<>();
+        config.addListener((previous, current) -> notified.add(current));
+        
+        write("{\"search\": {\"maxRetries\": 1}}");
+        
+        assertTrue(config.reload().isEmpty());
+        assertTrue(notified.isEmpty());
+    }
+    
+    @Test
+    void testFailingListenerDoesNotStopOthers() throws Exception {
+        Path file = write("{}");
+        RuntimeConfig config = load(file);
+        List<Integer> capacities = new ArrayList<>();
+        config.addListener((previous, current) -> {
+            throw new IllegalStateException("boom");
+        });
+        config.addListener((previous, current) -> capacities.add(current.history().capacity()));
+        
+        write("{\"history\": {\"capacity\": 20}}");
+        config.reload();
+        
+        assertEquals(List.of(20), capacities);
+    }
+    
+    private static RuntimeConfig load(Path file) throws Exception {
+        return new RuntimeConfig(new ConfigLoader(file, Map.of(), new Properties()));
+    }
+    
+    private Path write(String json) throws Exception {
+        Path file = directory.resolve("config.json");
+        Files.writeString(file, json);
+        return file;
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.mcp.json;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for pooled JSON output.
+ */
+class JsonOutputTest {
+    
+    @Test
+    void testEscapesStringsIncludingControlCharacters() {
+        String json = JsonOutput.write(out -> {
+            out.writeStartObject();
+            out.writeStringField("query", "say \"hi\" \\ C:\\path\n\ttab \u0001 bell\u0007");
+            out.writeEndObject();
+        });
+        
+        assertEquals("{\"query\":\"say \\\"hi\\\" \\\\ C:\\\\path\\n\\ttab \\u0001 bell\\u0007\"}", json);
+    }
+    
+    @Test
+    void testConsecutivePayloadsDoNotShareOutput() {
+        String first = JsonOutput.write(out -> out.writeNumber(1));
+        String second = JsonOutput.write(out -> {
+            out.writeStartArray();
+            out.writeString("a");
+            out.writeEndArray();
+        });
+        
+        assertEquals("1", first);
+        assertEquals("[\"a\"]", second, "no root separator or leftover text between payloads");
+    }
+    
+    @Test
+    void testFailedPayloadDoesNotCorruptLaterOnes() {
+        assertThrows(UncheckedIOException.class, () -> JsonOutput.write(out -> {
+            out.writeStartObject();
+            out.writeStringField("partial", "value");
+            throw new IOException("failed mid-payload");
+        }));
+        
+        for (int i = 0; i < 100; i++) {
+            assertEquals("{\"ok\":true}", JsonOutput.write(out -> {
+                out.writeStartObject();
+                out.writeBooleanField("ok", true);
+                out.writeEndObject();
+            }));
+        }
+    }
+    
+    @Test
+    void testConcurrentWritersGetTheirOwnBuffers() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                String name = "writer-" + t;
+                results.add(executor.submit(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        int n = i;
+                        String json = JsonOutput.write(out -> {
+                            out.writeStartObject();
+                            out.writeStringField("name", name);
+                            out.writeNumberField("n", n);
+                            out.writeEndObject();
+                        });
+                        if (!json.equals("{\"name\":\"" + name + "\",\"n\":" + n + "}")) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.mcp.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the lock-free latency histogram.
+ */
+class LatencyHistogramTest {
+    
+    @Test
+    void testPercentilesAreWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long millis = 1; millis <= 1000; millis++) {
+            histogram.record(millis * 1_000_000);
+        }
+        
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        
+        assertEquals(1000, snapshot.count());
+        assertEquals(1_000_000_000L, snapshot.max());
+        assertWithin(500_000_000L, snapshot.p50());
+        assertWithin(900_000_000L, snapshot.p90());
+        assertWithin(990_000_000L, snapshot.p99());
+        assertEquals(500.5 * 1_000_000, snapshot.mean(), 1.0);
+        assertWithin(999_000_000L, histogram.percentile(0.999));
+    }
+    
+    @Test
+    void testSmallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(3);
+        histogram.record(-5);
+        
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        
+        assertEquals(0, snapshot.p50());
+        assertEquals(3, snapshot.max());
+    }
+    
+    @Test
+    void testBucketsCoverTheWholeRange() {
+        assertEquals(0, LatencyHistogram.bucket(0));
+        assertEquals(16, LatencyHistogram.bucket(16));
+        assertTrue(LatencyHistogram.bucket(Long.MAX_VALUE) < (Long.SIZE - 4) * 16);
+        for (long value = 1; value > 0 && value < Long.MAX_VALUE / 3; value = value * 3 + 1) {
+            long reported = LatencyHistogram.bucketValue(LatencyHistogram.bucket(value));
+            assertTrue(Math.abs(reported - value) <= value / 16, "value " + value + " reported as " + reported);
+        }
+    }
+    
+    @Test
+    void testConcurrentRecordingLosesNoSamples() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        histogram.record(i);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        
+        assertEquals(80_000, histogram.snapshot().count());
+        assertEquals(9_999, histogram.snapshot().max());
+    }
+    
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(Math.abs(actual - expected) <= expected * 0.04, "expected ~" + expected + " but was " + actual);
+    }
+}
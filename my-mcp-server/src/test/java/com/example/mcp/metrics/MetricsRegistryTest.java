@@ -0,0 +1,95 @@
+package com.example.mcp.metrics;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the metrics registry and its exports.
+ */
+class MetricsRegistryTest {
+    
+    @Test
+    void testRecordCountsCallsErrorsAndInFlight() {
+        MetricsRegistry registry = new MetricsRegistry(8);
+        CallMetrics tool = registry.tool("websearch");
+        
+        tool.record(Mono.just("ok"), value -> false).block();
+        tool.record(Mono.just("bad"), "bad"::equals).block();
+        assertThrows(IllegalStateException.class,
+            () -> tool.record(Mono.<String>error(new IllegalStateException("down")), value -> false).block());
+        
+        CallMetrics.Snapshot snapshot = tool.snapshot();
+        assertEquals(3, snapshot.calls());
+        assertEquals(2, snapshot.errors());
+        assertEquals(0, snapshot.inFlight());
+        assertEquals(3, snapshot.latency().count());
+        assertSame(tool, registry.tool("websearch"));
+    }
+    
+    @Test
+    void testCancelledCallsAreNeitherErrorsNorTimed() {
+        MetricsRegistry registry = new MetricsRegistry(8);
+        CallMetrics tool = registry.tool("websearch");
+        
+        Disposable call = tool.record(Mono.<String>never(), value -> false).subscribe();
+        assertEquals(1, tool.snapshot().inFlight());
+        call.dispose();
+        
+        CallMetrics.Snapshot snapshot = tool.snapshot();
+        assertEquals(1, snapshot.calls());
+        assertEquals(1, snapshot.cancelled());
+        assertEquals(0, snapshot.errors());
+        assertEquals(0, snapshot.inFlight());
+        assertEquals(0, snapshot.latency().count());
+    }
+    
+    @Test
+    void testRecordIsLazy() {
+        MetricsRegistry registry = new MetricsRegistry(8);
+        CallMetrics tool = registry.tool("websearch");
+        
+        Mono<String> timed = tool.record(Mono.just("ok"), value -> false);
+        
+        assertEquals(0, tool.snapshot().calls());
+        timed.block();
+        assertEquals(1, tool.snapshot().calls());
+    }
+    
+    @Test
+    void testNamesBeyondTheLimitShareOneEntry() {
+        MetricsRegistry registry = new MetricsRegistry(2);
+        registry.resource("resource://a");
+        registry.resource("resource://b");
+        
+        CallMetrics overflow = registry.resource("resource://c");
+        
+        assertSame(overflow, registry.resource("resource://d"));
+        assertTrue(registry.toJson().contains("\"" + MetricsRegistry.OVERFLOW_NAME + "\""));
+    }
+    
+    @Test
+    void testJsonAndPrometheusExports() {
+        MetricsRegistry registry = new MetricsRegistry(8);
+        long start = registry.upstream("api.duckduckgo.com").start();
+        registry.upstream("api.duckduckgo.com").stop(start, false);
+        registry.prompt("say \"hi\"").stop(registry.prompt("say \"hi\"").start(), true);
+        registry.gauge("http_queued_calls", () -> 7);
+        
+        String json = registry.toJson();
+        assertTrue(json.contains("\"api.duckduckgo.com\":{\"calls\":1,\"errors\":0,\"inFlight\":0"));
+        assertTrue(json.contains("\"say \\\"hi\\\"\""));
+        assertTrue(json.contains("\"http_queued_calls\":7"));
+        assertTrue(json.contains("\"tools\":{},"));
+        
+        String prometheus = registry.toPrometheus();
+        assertTrue(prometheus.contains("# TYPE mcp_upstream_http_latency_seconds summary\n"));
+        assertTrue(prometheus.contains("mcp_upstream_http_calls_total{name=\"api.duckduckgo.com\"} 1\n"));
+        assertTrue(prometheus.contains("mcp_prompt_errors_total{name=\"say \\\"hi\\\"\"} 1\n"));
+        assertTrue(prometheus.contains("mcp_upstream_http_latency_seconds{name=\"api.duckduckgo.com\",quantile=\"0.99\"} "));
+        assertTrue(prometheus.contains("mcp_http_queued_calls 7\n"));
+        assertFalse(prometheus.contains("mcp_tool_"));
+    }
+}
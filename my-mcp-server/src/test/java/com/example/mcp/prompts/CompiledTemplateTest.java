@@ -0,0 +1,42 @@
+package com.example.mcp.prompts;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for compiled text templates.
+ */
+class CompiledTemplateTest {
+    
+    @Test
+    void testRendersPlaceholders() {
+        CompiledTemplate template = CompiledTemplate.compile("Research {{topic}} at {{ depth }} depth: {{topic}}");
+        
+        assertEquals("Research java at quick depth: java",
+            template.render(Map.of("topic", "java", "depth", "quick")::get));
+    }
+    
+    @Test
+    void testMissingValuesRenderAsEmpty() {
+        CompiledTemplate template = CompiledTemplate.compile("[{{missing}}]");
+        
+        assertEquals("[]", template.render(key -> null));
+    }
+    
+    @Test
+    void testUnterminatedPlaceholderStaysLiteral() {
+        CompiledTemplate template = CompiledTemplate.compile("{{a}} and {{b");
+        
+        assertEquals("x and {{b", template.render(key -> "x"));
+    }
+    
+    @Test
+    void testTemplateWithoutPlaceholdersReturnsText() {
+        String text = "No placeholders here";
+        
+        assertSame(text, CompiledTemplate.compile(text).render(key -> "x"));
+    }
+}
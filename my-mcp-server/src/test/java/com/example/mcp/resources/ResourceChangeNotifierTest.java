@@ -0,0 +1,68 @@
+package com.example.mcp.resources;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for coalesced resource change notifications.
+ */
+class ResourceChangeNotifierTest {
+    
+    private static final Duration WINDOW = Duration.ofMillis(50);
+    
+    private final List<String> sent = new CopyOnWriteArrayList<>();
+    private final ResourceChangeNotifier notifier = new ResourceChangeNotifier(WINDOW, Schedulers.parallel(), sent::add);
+    
+    @Test
+    void testBurstIsCoalescedIntoOneNotification() throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            notifier.markChanged("resource://search/history");
+        }
+        
+        Thread.sleep(WINDOW.toMillis() * 4);
+        
+        assertEquals(List.of("resource://search/history"), sent);
+        assertEquals(500, notifier.changes());
+    }
+    
+    @Test
+    void testSustainedChangesProduceOneNotificationPerWindow() throws InterruptedException {
+        long end = System.nanoTime() + Duration.ofMillis(500).toNanos();
+        while (System.nanoTime() < end) {
+            notifier.markChanged("resource://search/history");
+            Thread.sleep(1);
+        }
+        
+        Thread.sleep(WINDOW.toMillis() * 4);
+        
+        // About 500ms / 50ms windows; allow for scheduling jitter
+        assertTrue(sent.size() >= 2 && sent.size() <= 15, "sent " + sent.size() + " notifications");
+    }
+    
+    @Test
+    void testEachChangedUriIsNotifiedOnce() throws InterruptedException {
+        notifier.markChanged("resource://search/history");
+        notifier.markChanged("resource://search/cache");
+        notifier.markChanged("resource://search/history");
+        
+        Thread.sleep(WINDOW.toMillis() * 4);
+        
+        assertEquals(2, sent.size());
+        assertTrue(sent.contains("resource://search/history"));
+        assertTrue(sent.contains("resource://search/cache"));
+    }
+    
+    @Test
+    void testNoChangesProduceNoNotifications() throws InterruptedException {
+        Thread.sleep(WINDOW.toMillis() * 4);
+        
+        assertTrue(sent.isEmpty());
+        assertEquals(0, notifier.published());
+    }
+}
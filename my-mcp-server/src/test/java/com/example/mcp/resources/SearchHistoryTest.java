@@ -0,0 +1,136 @@
+package com.example.mcp.resources;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the lock-free search history ring buffer.
+ */
+class SearchHistoryTest {
+    
+    @Test
+    void testKeepsMostRecentEntriesInOrder() {
+        SearchHistory history = new SearchHistory(3);
+        for (int i = 0; i < 5; i++) {
+            history.record(entry("q" + i));
+        }
+        
+        List<String> queries = history.snapshot().stream().map(SearchHistory.Entry::query).toList();
+        
+        assertEquals(List.of("q2", "q3", "q4"), queries);
+        assertEquals(5, history.totalRecorded());
+    }
+    
+    @Test
+    void testSnapshotBeforeWrapAround() {
+        SearchHistory history = new SearchHistory(10);
+        history.record(entry("only"));
+        
+        assertEquals(1, history.snapshot().size());
+    }
+    
+    @Test
+    void testResizeKeepsMostRecentEntries() {
+        SearchHistory history = new SearchHistory(5);
+        for (int i = 0; i < 7; i++) {
+            history.record(entry("q" + i));
+        }
+        
+        history.resize(3);
+        assertEquals(List.of("q4", "q5", "q6"), history.snapshot().stream().map(SearchHistory.Entry::query).toList());
+        
+        history.resize(4);
+        history.record(entry("q7"));
+        history.record(entry("q8"));
+        
+        assertEquals(4, history.capacity());
+        assertEquals(List.of("q5", "q6", "q7", "q8"),
+            history.snapshot().stream().map(SearchHistory.Entry::query).toList());
+        assertEquals(9, history.totalRecorded());
+    }
+    
+    @Test
+    void testPublishedCountNeverRunsAheadOfSnapshots() throws Exception {
+        int writers = 4;
+        int perWriter = 10_000;
+        SearchHistory history = new SearchHistory(writers * perWriter);
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        List<Future<?>> futures = new ArrayList<>();
+        
+        for (int w = 0; w < writers; w++) {
+            int writer = w;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < perWriter; i++) {
+                    history.record(entry(writer + "-" + i));
+                }
+                return null;
+            }));
+        }
+        while (futures.stream().anyMatch(future -> !future.isDone())) {
+            long published = history.totalPublished();
+            int visible = history.snapshot().size();
+            assertTrue(visible >= published, "snapshot after version " + published + " showed " + visible + " entries");
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        
+        assertEquals(history.totalRecorded(), history.totalPublished());
+    }
+    
+    @Test
+    void testConcurrentWritersLoseNoSequence() throws Exception {
+        int writers = 8;
+        int perWriter = 10_000;
+        SearchHistory history = new SearchHistory(1000);
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        
+        for (int w = 0; w < writers; w++) {
+            int writer = w;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < perWriter; i++) {
+                    history.record(entry(writer + "-" + i));
+                    if (i % 1000 == 0) {
+                        // Snapshots run alongside writers and must never exceed capacity
+                        List<SearchHistory.Entry> snapshot = history.snapshot();
+                        assertTrue(snapshot.size() <= history.capacity());
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        
+        List<SearchHistory.Entry> snapshot = history.snapshot();
+        Set<String> unique = new HashSet<>();
+        snapshot.forEach(e -> unique.add(e.query()));
+        
+        assertEquals((long) writers * perWriter, history.totalRecorded());
+        assertEquals(history.capacity(), snapshot.size());
+        assertEquals(snapshot.size(), unique.size());
+    }
+    
+    private static SearchHistory.Entry entry(String query) {
+        return new SearchHistory.Entry(query, Instant.now(), 10, 5, false);
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.mcp.snapshot;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for versioned response snapshots.
+ */
+class VersionedSnapshotTest {
+    
+    @Test
+    void testReadsReuseTheSamePayload() {
+        AtomicInteger builds = new AtomicInteger();
+        VersionedSnapshot<String> snapshot = VersionedSnapshot.of(() -> "payload-" + builds.incrementAndGet());
+        
+        assertSame(snapshot.mono(), snapshot.mono());
+        assertEquals("payload-1", snapshot.get());
+        assertEquals(1, builds.get());
+        assertEquals(1, snapshot.version());
+    }
+    
+    @Test
+    void testNothingIsBuiltBeforeFirstRead() {
+        AtomicInteger builds = new AtomicInteger();
+        VersionedSnapshot<String> snapshot = VersionedSnapshot.of(() -> "payload-" + builds.incrementAndGet());
+        
+        assertEquals(0, builds.get());
+        assertEquals("payload-1", snapshot.get());
+    }
+    
+    @Test
+    void testInvalidateRebuildsAndBumpsVersion() {
+        AtomicInteger builds = new AtomicInteger();
+        VersionedSnapshot<String> snapshot = VersionedSnapshot.of(() -> "payload-" + builds.incrementAndGet());
+        
+        snapshot.invalidate();
+        
+        assertEquals("payload-2", snapshot.get());
+        assertEquals(2, snapshot.version());
+    }
+    
+    @Test
+    void testTrackedSourceRebuildsOnlyWhenItChanges() {
+        AtomicLong source = new AtomicLong();
+        AtomicInteger builds = new AtomicInteger();
+        VersionedSnapshot<String> snapshot = new VersionedSnapshot<>(source::get,
+            version -> "v" + version + "-build" + builds.incrementAndGet());
+        
+        snapshot.get();
+        snapshot.get();
+        assertEquals(1, builds.get());
+        
+        source.incrementAndGet();
+        assertEquals("v2-build2", snapshot.get());
+        snapshot.get();
+        assertEquals(2, builds.get());
+    }
+}
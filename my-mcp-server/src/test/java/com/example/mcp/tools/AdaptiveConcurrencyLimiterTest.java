@@ -0,0 +1,161 @@
+package com.example.mcp.tools;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the adaptive concurrency limiter.
+ */
+class AdaptiveConcurrencyLimiterTest {
+    
+    private static final Duration WAIT = Duration.ofSeconds(5);
+    private static final long FAST = Duration.ofMillis(10).toNanos();
+    
+    @Test
+    void testWaiterGetsReleasedPermit() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 1, 10);
+        AdaptiveConcurrencyLimiter.Permit first = limiter.acquire(WAIT).block();
+        
+        CompletableFuture<AdaptiveConcurrencyLimiter.Permit> second = limiter.acquire(WAIT).toFuture();
+        assertFalse(second.isDone());
+        assertEquals(1, limiter.queued());
+        
+        first.release(AdaptiveConcurrencyLimiter.Outcome.SUCCESS, FAST);
+        
+        assertNotNull(second.get(1, TimeUnit.SECONDS));
+        assertEquals(1, limiter.inFlight());
+        assertEquals(0, limiter.queued());
+    }
+    
+    @Test
+    void testReleaseIsIdempotent() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 2, 10);
+        AdaptiveConcurrencyLimiter.Permit permit = limiter.acquire(WAIT).block();
+        
+        permit.release(AdaptiveConcurrencyLimiter.Outcome.IGNORED, 0);
+        permit.release(AdaptiveConcurrencyLimiter.Outcome.IGNORED, 0);
+        
+        assertEquals(0, limiter.inFlight());
+    }
+    
+    @Test
+    void testFullQueueFailsFast() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 1, 0);
+        limiter.acquire(WAIT).block();
+        
+        long start = System.nanoTime();
+        Mono<AdaptiveConcurrencyLimiter.Permit> rejected = limiter.acquire(WAIT);
+        
+        assertThrows(UpstreamOverloadedException.class, () -> unwrap(rejected));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1), "rejection should not wait");
+    }
+    
+    @Test
+    void testWaitTimesOut() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 1, 10);
+        limiter.acquire(WAIT).block();
+        
+        assertThrows(UpstreamOverloadedException.class, () -> unwrap(limiter.acquire(Duration.ofMillis(50))));
+        assertEquals(0, limiter.queued(), "timed-out waiter should leave the queue");
+    }
+    
+    @Test
+    void testCancelledWaiterLeavesQueue() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 1, 10);
+        AdaptiveConcurrencyLimiter.Permit first = limiter.acquire(WAIT).block();
+        
+        limiter.acquire(WAIT).subscribe().dispose();
+        first.release(AdaptiveConcurrencyLimiter.Outcome.SUCCESS, FAST);
+        
+        assertEquals(0, limiter.queued());
+        assertEquals(0, limiter.inFlight(), "no permit should be handed to a cancelled waiter");
+    }
+    
+    @Test
+    void testCancelRacingAGrantLosesNoSlot() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 1, 10);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int i = 0; i < 1000; i++) {
+                AdaptiveConcurrencyLimiter.Permit first = limiter.acquire(WAIT).block();
+                AtomicReference<AdaptiveConcurrencyLimiter.Permit> delivered = new AtomicReference<>();
+                Disposable waiting = limiter.acquire(WAIT).subscribe(delivered::set);
+                CountDownLatch start = new CountDownLatch(1);
+                
+                Future<?> release = executor.submit(() -> {
+                    start.await();
+                    first.release(AdaptiveConcurrencyLimiter.Outcome.IGNORED, 0);
+                    return null;
+                });
+                Future<?> cancel = executor.submit(() -> {
+                    start.await();
+                    waiting.dispose();
+                    return null;
+                });
+                start.countDown();
+                release.get(1, TimeUnit.SECONDS);
+                cancel.get(1, TimeUnit.SECONDS);
+                if (delivered.get() != null) {
+                    delivered.get().release(AdaptiveConcurrencyLimiter.Outcome.IGNORED, 0);
+                }
+                
+                assertEquals(0, limiter.inFlight(), "slot lost in round " + i);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    @Test
+    void testLimitGrowsWhileFastAndShrinksWhenThrottled() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 1, 100, 10);
+        
+        for (int round = 0; round < 50; round++) {
+            runBatch(limiter, limiter.limit(), AdaptiveConcurrencyLimiter.Outcome.SUCCESS, FAST);
+        }
+        int grown = limiter.limit();
+        assertTrue(grown > 4, "limit should grow while calls stay fast, was " + grown);
+        
+        runBatch(limiter, 1, AdaptiveConcurrencyLimiter.Outcome.DROPPED, FAST);
+        assertTrue(limiter.limit() <= grown / 2 + 1, "throttling should halve the limit");
+        
+        int beforeSlow = limiter.limit();
+        runBatch(limiter, 1, AdaptiveConcurrencyLimiter.Outcome.SUCCESS, FAST * 10);
+        assertTrue(limiter.limit() < beforeSlow, "slow calls should shrink the limit");
+    }
+    
+    /**
+     * Acquires permits up to the limit, then releases them all with the same outcome.
+     */
+    private static void runBatch(AdaptiveConcurrencyLimiter limiter, int calls,
+                                 AdaptiveConcurrencyLimiter.Outcome outcome, long latencyNanos) {
+        AdaptiveConcurrencyLimiter.Permit[] permits = new AdaptiveConcurrencyLimiter.Permit[calls];
+        for (int i = 0; i < calls; i++) {
+            permits[i] = limiter.acquire(WAIT).block();
+        }
+        for (AdaptiveConcurrencyLimiter.Permit permit : permits) {
+            permit.release(outcome, latencyNanos);
+        }
+    }
+    
+    private static <T> T unwrap(Mono<T> mono) throws Exception {
+        try {
+            return mono.toFuture().get(5, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            throw (Exception) e.getCause();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.mcp.tools;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.modelcontextprotocol.spec.McpSchema.CallToolResult;
+import io.modelcontextprotocol.spec.McpSchema.TextContent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for rate and concurrency admission in front of a search provider.
+ */
+class AdmissionControlledSearchProviderTest {
+    
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+    
+    @AfterEach
+    void restoreProvider() {
+        ToolHandlers.setSearchEndpoint(DuckDuckGoSearchProvider.DEFAULT_ENDPOINT);
+    }
+    
+    @Test
+    void testExcessConcurrentSearchesFailFast() {
+        AdmissionControlledSearchProvider provider = admission(100, 100, 1, 0, Mono.never());
+        Disposable first = provider.search("first", 5).subscribe();
+        
+        long start = System.nanoTime();
+        assertThrows(UpstreamOverloadedException.class, () -> provider.search("second", 5).block(Duration.ofSeconds(5)));
+        
+        assertTrue(System.nanoTime() - start < Duration.ofSeconds(1).toNanos(), "rejection should be immediate");
+        assertEquals(1, upstreamCalls.get());
+        assertEquals(1, provider.rejected());
+        
+        first.dispose();
+        assertEquals(0, provider.concurrencyLimit().inFlight(), "cancelled search should free its slot");
+    }
+    
+    @Test
+    void testRejectedSearchReturnsItsToken() {
+        AdmissionControlledSearchProvider provider = admission(0.5, 2, 1, 0, Mono.never());
+        Disposable first = provider.search("first", 5).subscribe();
+        assertThrows(UpstreamOverloadedException.class, () -> provider.search("second", 5).block(Duration.ofSeconds(5)));
+        first.dispose();
+        
+        Disposable third = provider.search("third", 5).subscribe();
+        
+        assertEquals(2, upstreamCalls.get(), "the rejected search's token should admit the next one");
+        assertEquals(1, provider.rejected());
+        third.dispose();
+    }
+    
+    @Test
+    void testRateLimitedSearchWaitsForToken() {
+        AdmissionControlledSearchProvider provider = admission(20, 1, 10, 10, Mono.just(response()));
+        provider.search("first", 5).block(Duration.ofSeconds(5));
+        
+        long start = System.nanoTime();
+        provider.search("second", 5).block(Duration.ofSeconds(5));
+        long elapsedMs = Duration.ofNanos(System.nanoTime() - start).toMillis();
+        
+        assertTrue(elapsedMs >= 40, "second search should wait for the next token, took " + elapsedMs + "ms");
+        assertEquals(2, upstreamCalls.get());
+    }
+    
+    @Test
+    void testRejectionIsReportedAsToolError() {
+        AdmissionControlledSearchProvider provider = admission(0.1, 1, 10, 10, Mono.just(response()));
+        ToolHandlers.setSearchProvider(provider);
+        ObjectMapper mapper = new ObjectMapper();
+        
+        ToolHandlers.handleWebSearch(mapper.createObjectNode().put("query", "admission first")).block();
+        CallToolResult result = ToolHandlers.handleWebSearch(mapper.createObjectNode().put("query", "admission second")).block();
+        
+        assertTrue(result.isError());
+        assertTrue(((TextContent) result.content().get(0)).text().contains("overloaded"));
+        assertEquals(1, upstreamCalls.get());
+    }
+    
+    private AdmissionControlledSearchProvider admission(double ratePerSecond, int burst, int limit, int maxQueued,
+                                                        Mono<SearchResponse> upstream) {
+        SearchProvider delegate = new SearchProvider() {
+            @Override
+            public String name() {
+                return "stub";
+            }
+            
+            @Override
+            public Mono<SearchResponse> search(String query, int maxResults) {
+                return Mono.defer(() -> {
+                    upstreamCalls.incrementAndGet();
+                    return upstream;
+                });
+            }
+        };
+        return new AdmissionControlledSearchProvider(delegate, new TokenBucket(ratePerSecond, burst),
+            new AdaptiveConcurrencyLimiter(limit, 1, limit, maxQueued), Duration.ofMillis(500));
+    }
+    
+    private static SearchResponse response() {
+        return new SearchResponse("Answer", "https://example.com", List.of(), null);
+    }
+}
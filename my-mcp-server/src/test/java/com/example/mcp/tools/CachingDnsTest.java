@@ -0,0 +1,94 @@
+package com.example.mcp.tools;
+
+import okhttp3.Dns;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the DNS cache.
+ */
+class CachingDnsTest {
+    
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicInteger lookups = new AtomicInteger();
+    private final AtomicBoolean failing = new AtomicBoolean();
+    
+    private final Dns resolver = hostname -> {
+        lookups.incrementAndGet();
+        if (failing.get()) {
+            throw new UnknownHostException(hostname);
+        }
+        return List.of(InetAddress.getByAddress(hostname, new byte[] {10, 0, 0, (byte) lookups.get()}));
+    };
+    
+    @Test
+    void testAnswerIsCachedForTtl() throws Exception {
+        CachingDns dns = new CachingDns(resolver, Duration.ofSeconds(60), 10, clock::get);
+        
+        List<InetAddress> first = dns.lookup("example.com");
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(59));
+        assertEquals(first, dns.lookup("example.com"));
+        assertEquals(1, lookups.get());
+        
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertNotEquals(first, dns.lookup("example.com"));
+        assertEquals(2, lookups.get());
+        
+        CachingDns.Stats stats = dns.stats();
+        assertEquals(1, stats.hits());
+        assertEquals(2, stats.misses());
+        assertEquals(1, stats.size());
+    }
+    
+    @Test
+    void testExpiredAnswerIsUsedWhenResolverFails() throws Exception {
+        CachingDns dns = new CachingDns(resolver, Duration.ofSeconds(60), 10, clock::get);
+        List<InetAddress> known = dns.lookup("example.com");
+        
+        failing.set(true);
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(120));
+        
+        assertEquals(known, dns.lookup("example.com"));
+        assertThrows(UnknownHostException.class, () -> dns.lookup("unknown.example"));
+        assertEquals(1, dns.stats().staleOnError());
+        assertEquals(1, dns.stats().failures());
+    }
+    
+    @Test
+    void testLeastRecentlyUsedHostIsEvicted() throws Exception {
+        CachingDns dns = new CachingDns(resolver, Duration.ofSeconds(60), 2, clock::get);
+        
+        dns.lookup("a.test");
+        dns.lookup("b.test");
+        dns.lookup("a.test");
+        dns.lookup("c.test");
+        dns.lookup("a.test");
+        assertEquals(3, lookups.get(), "recently used host should survive eviction");
+        
+        dns.lookup("b.test");
+        assertEquals(4, lookups.get(), "least recently used host should have been evicted");
+    }
+    
+    @Test
+    void testZeroTtlDisablesCaching() throws Exception {
+        CachingDns dns = new CachingDns(resolver, Duration.ofSeconds(60), 10, clock::get);
+        dns.lookup("example.com");
+        
+        dns.reconfigure(Duration.ZERO, 10);
+        dns.lookup("example.com");
+        dns.lookup("example.com");
+        
+        assertEquals(3, lookups.get());
+        assertEquals(0, dns.stats().size());
+    }
+}
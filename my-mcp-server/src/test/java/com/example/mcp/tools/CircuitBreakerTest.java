@@ -0,0 +1,91 @@
+package com.example.mcp.tools;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the upstream circuit breaker.
+ */
+class CircuitBreakerTest {
+    
+    private final AtomicLong clock = new AtomicLong();
+    private final List<CircuitBreaker.State> transitions = new ArrayList<>();
+    private final CircuitBreaker breaker = new CircuitBreaker("test", 3, Duration.ofSeconds(10), transitions::add, clock::get);
+    
+    @Test
+    void testOpensAfterConsecutiveFailures() {
+        failCalls(2);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        
+        failCalls(1);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertFalse(breaker.tryAcquire(), "open breaker should refuse calls");
+        assertEquals(1, breaker.shortCircuited());
+        assertEquals(List.of(CircuitBreaker.State.OPEN), transitions);
+    }
+    
+    @Test
+    void testSuccessResetsFailureCount() {
+        failCalls(2);
+        assertTrue(breaker.tryAcquire());
+        breaker.onSuccess();
+        failCalls(2);
+        
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        assertTrue(transitions.isEmpty());
+    }
+    
+    @Test
+    void testSingleProbeAfterOpenPeriod() {
+        failCalls(3);
+        clock.addAndGet(Duration.ofSeconds(10).toNanos());
+        
+        assertTrue(breaker.tryAcquire(), "first call after the open period should probe");
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+        assertFalse(breaker.tryAcquire(), "only one probe may be in flight");
+        
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        assertTrue(breaker.tryAcquire());
+        assertEquals(List.of(CircuitBreaker.State.OPEN, CircuitBreaker.State.HALF_OPEN, CircuitBreaker.State.CLOSED),
+            transitions);
+    }
+    
+    @Test
+    void testFailedProbeReopens() {
+        failCalls(3);
+        clock.addAndGet(Duration.ofSeconds(10).toNanos());
+        
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+        
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        clock.addAndGet(Duration.ofSeconds(5).toNanos());
+        assertFalse(breaker.tryAcquire(), "reopened breaker should wait a full open period");
+    }
+    
+    @Test
+    void testIgnoredProbeAllowsAnotherProbe() {
+        failCalls(3);
+        clock.addAndGet(Duration.ofSeconds(10).toNanos());
+        
+        assertTrue(breaker.tryAcquire());
+        breaker.onIgnored();
+        
+        assertTrue(breaker.tryAcquire(), "a cancelled probe should not block the next one");
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+    }
+    
+    private void failCalls(int times) {
+        for (int i = 0; i < times; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onFailure();
+        }
+    }
+}
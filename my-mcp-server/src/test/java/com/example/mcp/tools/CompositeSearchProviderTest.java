@@ -0,0 +1,199 @@
+package com.example.mcp.tools;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for hedged and fan-out search across local stub providers.
+ */
+class CompositeSearchProviderTest {
+    
+    private static final Duration HEDGE_DELAY = Duration.ofMillis(50);
+    
+    @Test
+    void testHedgedRequestGoesToBackupWhenPrimaryIsSlow() {
+        AtomicBoolean primaryCancelled = new AtomicBoolean();
+        StubProvider primary = new StubProvider("primary", Duration.ofSeconds(5), result("https://a.example", "slow"));
+        primary.onCancel = () -> primaryCancelled.set(true);
+        StubProvider backup = new StubProvider("backup", Duration.ofMillis(10), result("https://b.example", "fast"));
+        
+        CompositeSearchProvider provider = hedged(primary, backup);
+        
+        long start = System.nanoTime();
+        SearchResponse response = provider.search("java", 5).block(Duration.ofSeconds(10));
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        
+        assertNotNull(response);
+        assertEquals("fast", response.results().get(0).text());
+        assertTrue(elapsedMs < 1000, "hedged request took " + elapsedMs + "ms");
+        assertTrue(primaryCancelled.get(), "losing primary request should be cancelled");
+    }
+    
+    @Test
+    void testBackupIsNotCalledWhenPrimaryAnswersQuickly() {
+        StubProvider primary = new StubProvider("primary", Duration.ZERO, result("https://a.example", "primary"));
+        StubProvider backup = new StubProvider("backup", Duration.ZERO, result("https://b.example", "backup"));
+        
+        SearchResponse response = hedged(primary, backup).search("java", 5).block(Duration.ofSeconds(10));
+        
+        assertNotNull(response);
+        assertEquals("primary", response.results().get(0).text());
+        assertEquals(0, backup.calls.get());
+    }
+    
+    @Test
+    void testHedgeDelayCountsPrimariesThatLostToTheBackup() {
+        StubProvider primary = new StubProvider("primary", Duration.ofSeconds(5), result("https://a.example", "slow"));
+        StubProvider backup = new StubProvider("backup", Duration.ofMillis(60), result("https://b.example", "fast"));
+        CompositeSearchProvider provider = hedged(primary, backup);
+        
+        for (int i = 0; i < 20; i++) {
+            SearchResponse response = provider.search("java", 5).block(Duration.ofSeconds(10));
+            assertNotNull(response);
+            assertEquals("fast", response.results().get(0).text());
+        }
+        
+        // Every primary was cancelled after the hedge delay plus the backup's latency.
+        assertTrue(provider.hedgeDelay().toMillis() >= 60, "hedge delay was " + provider.hedgeDelay());
+    }
+    
+    @Test
+    void testBackupStartsImmediatelyWhenPrimaryFails() {
+        StubProvider primary = StubProvider.failing("primary");
+        StubProvider backup = new StubProvider("backup", Duration.ZERO, result("https://b.example", "backup"));
+        CompositeSearchProvider provider = new CompositeSearchProvider(List.of(primary, backup),
+            CompositeSearchProvider.Strategy.HEDGED, Duration.ofSeconds(5), Duration.ofSeconds(5));
+        
+        long start = System.nanoTime();
+        SearchResponse response = provider.search("java", 5).block(Duration.ofSeconds(10));
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        
+        assertNotNull(response);
+        assertEquals("backup", response.results().get(0).text());
+        assertTrue(elapsedMs < 1000, "backup should not wait for the hedge delay after a failure");
+    }
+    
+    @Test
+    void testFanOutMergesAndDedupesByUrl() {
+        StubProvider first = new StubProvider("first", Duration.ZERO,
+            result("https://a.example", "a"), result("https://shared.example", "shared"));
+        StubProvider second = new StubProvider("second", Duration.ofMillis(20),
+            result("https://shared.example", "shared again"), result("https://c.example", "c"));
+        CompositeSearchProvider provider = new CompositeSearchProvider(List.of(first, second),
+            CompositeSearchProvider.Strategy.FAN_OUT, HEDGE_DELAY, HEDGE_DELAY);
+        
+        SearchResponse response = provider.search("java", 10).block(Duration.ofSeconds(10));
+        
+        assertNotNull(response);
+        assertEquals(List.of("a", "shared", "c"), response.results().stream().map(SearchResult::text).toList());
+    }
+    
+    @Test
+    void testFanOutReturnsFirstCompleteAnswer() {
+        StubProvider fast = new StubProvider("fast", Duration.ZERO,
+            result("https://a.example", "a"), result("https://b.example", "b"));
+        StubProvider slow = new StubProvider("slow", Duration.ofSeconds(5), result("https://c.example", "c"));
+        CompositeSearchProvider provider = new CompositeSearchProvider(List.of(fast, slow),
+            CompositeSearchProvider.Strategy.FAN_OUT, HEDGE_DELAY, HEDGE_DELAY);
+        
+        long start = System.nanoTime();
+        SearchResponse response = provider.search("java", 2).block(Duration.ofSeconds(10));
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        
+        assertNotNull(response);
+        assertEquals(2, response.results().size());
+        assertTrue(elapsedMs < 1000, "complete answer should not wait for the slow provider");
+    }
+    
+    @Test
+    void testFanOutFailsWhenAllProvidersFail() {
+        CompositeSearchProvider provider = new CompositeSearchProvider(
+            List.of(StubProvider.failing("a"), StubProvider.failing("b")),
+            CompositeSearchProvider.Strategy.FAN_OUT, HEDGE_DELAY, HEDGE_DELAY);
+        
+        assertThrows(IOException.class, () -> {
+            try {
+                provider.search("java", 5).block(Duration.ofSeconds(10));
+            } catch (RuntimeException e) {
+                throw e.getCause() != null ? e.getCause() : e;
+            }
+        });
+    }
+    
+    @Test
+    void testHedgedFailsWithTheProviderErrorWhenAllProvidersFail() {
+        CompositeSearchProvider provider = hedged(StubProvider.failing("a"), StubProvider.failing("b"));
+        
+        IOException error = assertThrows(IOException.class, () -> {
+            try {
+                provider.search("java", 5).block(Duration.ofSeconds(10));
+            } catch (RuntimeException e) {
+                throw e.getCause() != null ? e.getCause() : e;
+            }
+        });
+        assertEquals("b unavailable", error.getMessage());
+        assertEquals(1, error.getSuppressed().length);
+        assertEquals("a unavailable", error.getSuppressed()[0].getMessage());
+        assertTrue(CircuitBreakerSearchProvider.isUpstreamFailure(error));
+    }
+    
+    private static CompositeSearchProvider hedged(SearchProvider primary, SearchProvider backup) {
+        return new CompositeSearchProvider(List.of(primary, backup),
+            CompositeSearchProvider.Strategy.HEDGED, HEDGE_DELAY, HEDGE_DELAY);
+    }
+    
+    private static SearchResult result(String url, String text) {
+        return new SearchResult(text, url);
+    }
+    
+    /**
+     * Stub provider that answers after a fixed delay, or fails if it has no results.
+     */
+    private static final class StubProvider implements SearchProvider {
+        
+        private final String name;
+        private final Duration delay;
+        private final List<SearchResult> results;
+        private final AtomicInteger calls = new AtomicInteger();
+        private Runnable onCancel = () -> { };
+        
+        StubProvider(String name, Duration delay, SearchResult... results) {
+            this(name, delay, List.of(results));
+        }
+        
+        private StubProvider(String name, Duration delay, List<SearchResult> results) {
+            this.name = name;
+            this.delay = delay;
+            this.results = results;
+        }
+        
+        static StubProvider failing(String name) {
+            return new StubProvider(name, Duration.ZERO, (List<SearchResult>) null);
+        }
+        
+        @Override
+        public String name() {
+            return name;
+        }
+        
+        @Override
+        public Mono<SearchResponse> search(String query, int maxResults) {
+            return Mono.defer(() -> {
+                calls.incrementAndGet();
+                Mono<SearchResponse> response = results == null
+                    ? Mono.error(new IOException(name + " unavailable"))
+                    : Mono.just(new SearchResponse("", "", results, null));
+                return Mono.delay(delay).then(response).doOnCancel(onCancel);
+            });
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.mcp.tools;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the disk-backed result store.
+ */
+class DiskResultStoreTest {
+    
+    private static final Duration MAX_AGE = Duration.ofMinutes(10);
+    private static final int SEGMENT_BYTES = 4096;
+    
+    @TempDir
+    Path directory;
+    
+    private final AtomicLong clock = new AtomicLong(1_000_000);
+    
+    @Test
+    void testValuesSurviveRestart() throws IOException {
+        try (DiskResultStore store = open()) {
+            store.put("5 java", bytes("Java results"));
+            store.put("5 kotlin", bytes("Kotlin results"));
+        }
+        
+        clock.addAndGet(1000);
+        try (DiskResultStore store = open()) {
+            DiskResultStore.Entry entry = store.get("5 java");
+            
+            assertEquals("Java results", text(entry.value()));
+            assertEquals(1000, entry.ageMillis());
+            assertEquals("Kotlin results", text(store.get("5 kotlin").value()));
+            assertEquals(2, store.stats().entries());
+        }
+    }
+    
+    @Test
+    void testNewestValueWins() throws IOException {
+        try (DiskResultStore store = open()) {
+            store.put("5 java", bytes("old"));
+            clock.addAndGet(1);
+            store.put("5 java", bytes("new"));
+            assertEquals("new", text(store.get("5 java").value()));
+        }
+        
+        try (DiskResultStore store = open()) {
+            assertEquals("new", text(store.get("5 java").value()));
+        }
+    }
+    
+    @Test
+    void testExpiredValuesAreNotServed() throws IOException {
+        try (DiskResultStore store = open()) {
+            store.put("5 java", bytes("Java results"));
+            clock.addAndGet(MAX_AGE.toMillis());
+            
+            assertNull(store.get("5 java"));
+        }
+        
+        try (DiskResultStore store = open()) {
+            assertEquals(0, store.stats().entries(), "expired records should not be recovered");
+        }
+    }
+    
+    @Test
+    void testTornRecordIsIgnoredOnRecovery() throws IOException {
+        try (DiskResultStore store = open()) {
+            store.put("5 java", bytes("Java results"));
+            store.put("5 kotlin", bytes("Kotlin results"));
+        }
+        
+        // Corrupt the last byte of the second record, as a crash mid-write would
+        Path segment = segments().get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            int end = 0;
+            while (buffer.getInt(end) != 0) {
+                end += 28 + buffer.getInt(end + 8) + buffer.getInt(end + 12);
+            }
+            buffer.put(end - 1, (byte) ~buffer.get(end - 1));
+        }
+        
+        try (DiskResultStore store = open()) {
+            assertEquals("Java results", text(store.get("5 java").value()));
+            assertNull(store.get("5 kotlin"));
+            
+            store.put("5 kotlin", bytes("Kotlin again"));
+            assertEquals("Kotlin again", text(store.get("5 kotlin").value()));
+        }
+    }
+    
+    @Test
+    void testCompactionDropsDeadSegments() throws IOException {
+        String large = "x".repeat(64) + "y".repeat(64);
+        try (DiskResultStore store = open()) {
+            for (int i = 0; i < 200; i++) {
+                store.put("5 query " + (i % 3), bytes(large + i));
+            }
+            int before = store.stats().segments();
+            
+            store.compact();
+            
+            assertTrue(store.stats().segments() < before, "overwritten segments should be compacted");
+            assertTrue(store.stats().compactedSegments() > 0);
+            assertEquals(large + 198, text(store.get("5 query 0").value()));
+            assertEquals(store.stats().segments(), segments().size());
+        }
+        
+        try (DiskResultStore store = open()) {
+            assertEquals(3, store.stats().entries());
+            assertEquals(large + 199, text(store.get("5 query 1").value()));
+        }
+    }
+    
+    @Test
+    void testTierKeepsAge() throws IOException {
+        try (DiskResultStore store = open()) {
+            SearchResultCache.Tier<String> tier = store.asTier(DiskResultStoreTest::bytes, DiskResultStoreTest::text);
+            SearchResultCache.Key key = SearchResultCache.Key.of("Java", 5);
+            tier.store(key, "Java results");
+            clock.addAndGet(250);
+            
+            SearchResultCache.Stored<String> stored = tier.load(key);
+            
+            assertEquals("Java results", stored.value());
+            assertEquals(Duration.ofMillis(250).toNanos(), stored.ageNanos());
+            assertNull(tier.load(SearchResultCache.Key.of("Java", 10)));
+        }
+    }
+    
+    private DiskResultStore open() throws IOException {
+        return DiskResultStore.open(directory, MAX_AGE, SEGMENT_BYTES, clock::get);
+    }
+    
+    private List<Path> segments() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "segment-*.log")) {
+            stream.forEach(files::add);
+        }
+        return files;
+    }
+    
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+    
+    private static String text(byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.mcp.tools;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the streaming DuckDuckGo response parser.
+ */
+class DuckDuckGoResponseParserTest {
+    
+    @Test
+    void testParsesAbstractAndRelatedTopics() throws IOException {
+        SearchResponse response = parse("""
+            {
+              "Abstract": "Java is a programming language.",
+              "AbstractSource": "Wikipedia",
+              "AbstractURL": "https://en.wikipedia.org/wiki/Java",
+              "Image": "",
+              "RelatedTopics": [
+                {"FirstURL": "https://duckduckgo.com/Java_SE", "Icon": {"URL": ""}, "Result": "<a>Java SE</a>", "Text": "Java SE"},
+                {"FirstURL": "https://duckduckgo.com/JVM", "Text": "Java virtual machine"}
+              ],
+              "Results": []
+            }
+            """, 10);
+        
+        assertEquals("Java is a programming language.", response.abstractText());
+        assertEquals("https://en.wikipedia.org/wiki/Java", response.abstractUrl());
+        assertEquals(2, response.results().size());
+        assertEquals(new SearchResult("Java SE", "https://duckduckgo.com/Java_SE"), response.results().get(0));
+        assertNull(response.unparsedPreview());
+    }
+    
+    @Test
+    void testSkipsTopicsWithoutText() throws IOException {
+        SearchResponse response = parse("""
+            {"RelatedTopics": [
+              {"Name": "Group", "Topics": [{"Text": "nested", "FirstURL": "https://a.example"}]},
+              {"Text": "", "FirstURL": "https://b.example"},
+              {"Text": "kept", "FirstURL": "https://c.example"}
+            ]}
+            """, 10);
+        
+        assertEquals(2, response.results().size());
+        assertEquals("kept", response.results().get(0).text(), "top-level topics rank above grouped ones");
+        assertEquals("nested", response.results().get(1).text());
+        assertEquals("", response.abstractText());
+    }
+    
+    @Test
+    void testFillsResultsFromNestedGroups() throws IOException {
+        SearchResponse response = parse("""
+            {"RelatedTopics": [
+              {"Text": "top", "FirstURL": "https://top.example"},
+              {"Name": "Group", "Topics": [
+                {"Text": "first", "FirstURL": "https://1.example"},
+                {"Name": "Subgroup", "Topics": [{"Text": "second", "FirstURL": "https://2.example"}]}
+              ]},
+              {"Name": "Other", "Topics": [{"Text": "third", "FirstURL": "https://3.example"}]}
+            ]}
+            """, 3);
+        
+        assertEquals(List.of("top", "first", "second"), texts(response));
+    }
+    
+    @Test
+    void testDropsDuplicateUrls() throws IOException {
+        SearchResponse response = parse("""
+            {"AbstractURL": "https://en.wikipedia.org/wiki/Java", "Abstract": "Java", "RelatedTopics": [
+              {"Text": "same as abstract", "FirstURL": "http://en.wikipedia.org/wiki/Java/"},
+              {"Text": "original", "FirstURL": "https://example.com/page"},
+              {"Name": "Group", "Topics": [
+                {"Text": "duplicate", "FirstURL": "https://WWW.example.com/page#section"},
+                {"Text": "distinct", "FirstURL": "https://example.com/page?id=2"}
+              ]}
+            ]}
+            """, 10);
+        
+        assertEquals(List.of("original", "distinct"), texts(response));
+    }
+    
+    @Test
+    void testRanksTopicsMatchingTheQuery() throws IOException {
+        String json = """
+            {"RelatedTopics": [
+              {"Text": "Coffee, a drink", "FirstURL": "https://coffee.example"},
+              {"Text": "Island of Indonesia", "FirstURL": "https://island.example"},
+              {"Name": "Programming", "Topics": [
+                {"Text": "Java programming language", "FirstURL": "https://java.example"}
+              ]}
+            ]}
+            """;
+        
+        SearchResponse response = DuckDuckGoResponseParser.parse(
+            new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), "java programming", 2);
+        
+        assertEquals(List.of("Java programming language", "Coffee, a drink"), texts(response));
+    }
+    
+    @Test
+    void testStopsReadingOnceResultsAreFull() throws IOException {
+        // Truncated after the third topic: only parses if the parser stops after two
+        String truncated = """
+            {"Abstract": "", "AbstractURL": "", "RelatedTopics": [
+              {"Text": "one", "FirstURL": "https://1.example"},
+              {"Text": "two", "FirstURL": "https://2.example"},
+              {"Text": "three", "FirstURL": "https://3.ex""";
+        
+        SearchResponse response = parse(truncated, 2);
+        
+        assertNull(response.unparsedPreview());
+        assertEquals(2, response.results().size());
+        assertEquals("two", response.results().get(1).text());
+    }
+    
+    @Test
+    void testFullGroupDoesNotHideBetterTopLevelTopics() throws IOException {
+        String json = """
+            {"Abstract": "Java", "AbstractURL": "https://java.example", "RelatedTopics": [
+              {"Name": "Group", "Topics": [
+                {"Text": "Java one", "FirstURL": "https://1.example"},
+                {"Text": "Java two", "FirstURL": "https://2.example"},
+                {"Text": "Java three", "FirstURL": "https://3.example"}
+              ]},
+              {"Text": "Java top", "FirstURL": "https://top.example"}
+            ]}
+            """;
+        
+        SearchResponse response = DuckDuckGoResponseParser.parse(
+            new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), "java", 2);
+        
+        assertEquals(List.of("Java top", "Java one"), texts(response));
+    }
+    
+    @Test
+    void testAbstractUrlAfterTopicsDoesNotCostAResult() throws IOException {
+        SearchResponse response = parse("""
+            {
+              "RelatedTopics": [
+                {"Text": "Java", "FirstURL": "https://en.wikipedia.org/wiki/Java"},
+                {"Text": "Java SE", "FirstURL": "https://duckduckgo.com/Java_SE"},
+                {"Text": "Java virtual machine", "FirstURL": "https://duckduckgo.com/JVM"}
+              ],
+              "Abstract": "Java is a programming language.",
+              "AbstractURL": "https://en.wikipedia.org/wiki/Java"
+            }
+            """, 2);
+        
+        assertEquals(List.of("Java SE", "Java virtual machine"), texts(response));
+    }
+    
+    @Test
+    void testInvalidJsonReturnsPreview() throws IOException {
+        SearchResponse response = parse("<html>rate limited</html>", 10);
+        
+        assertNotNull(response.unparsedPreview());
+        assertTrue(response.unparsedPreview().startsWith("<html>"));
+        assertTrue(response.results().isEmpty());
+    }
+    
+    private static List<String> texts(SearchResponse response) {
+        return response.results().stream().map(SearchResult::text).toList();
+    }
+    
+    private static SearchResponse parse(String json, int maxResults) throws IOException {
+        return DuckDuckGoResponseParser.parse(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), maxResults);
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.mcp.tools;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for tool execution modes.
+ */
+class ExecutionModeTest {
+    
+    @Test
+    void testParseAcceptsCommandLineSpellings() {
+        assertEquals(ExecutionMode.ASYNC, ExecutionMode.parse("async"));
+        assertEquals(ExecutionMode.VIRTUAL_THREADS, ExecutionMode.parse("virtual-threads"));
+        assertEquals(ExecutionMode.VIRTUAL_THREADS, ExecutionMode.parse("Virtual"));
+        assertEquals(ExecutionMode.BOUNDED_ELASTIC, ExecutionMode.parse(" bounded-elastic "));
+        assertThrows(IllegalArgumentException.class, () -> ExecutionMode.parse("threads"));
+    }
+    
+    @Test
+    void testVirtualThreadModeRunsEachCallOnItsOwnVirtualThread() {
+        Mono<Thread> currentThread = Mono.fromCallable(Thread::currentThread);
+        
+        Thread first = ExecutionMode.VIRTUAL_THREADS.run(currentThread).block();
+        Thread second = ExecutionMode.VIRTUAL_THREADS.run(currentThread).block();
+        
+        assertNotNull(first);
+        assertTrue(first.isVirtual());
+        assertNotSame(first, second);
+    }
+    
+    @Test
+    void testAsyncModeLeavesTheCallUnchanged() {
+        Mono<String> call = Mono.just("result");
+        
+        assertSame(call, ExecutionMode.ASYNC.run(call));
+    }
+}
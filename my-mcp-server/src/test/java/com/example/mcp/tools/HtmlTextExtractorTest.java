@@ -0,0 +1,94 @@
+package com.example.mcp.tools;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the incremental HTML-to-text extractor.
+ */
+class HtmlTextExtractorTest {
+    
+    @Test
+    void testExtractsTitleAndBlockText() throws IOException {
+        HtmlTextExtractor.Result result = extract("""
+            <!DOCTYPE html>
+            <html><head><title>Java &amp; the JVM</title>
+            <meta charset="utf-8"><style>body { color: red; }</style></head>
+            <body><h1>Java</h1><p>Java is a <b>programming</b>   language.</p>
+            <ul><li>Fast</li><li>Portable</li></ul></body></html>
+            """, 1000);
+        
+        assertEquals("Java & the JVM", result.title());
+        assertEquals("Java\n\nJava is a programming language.\n\nFast\nPortable", result.text());
+        assertFalse(result.truncated());
+    }
+    
+    @Test
+    void testSkipsScriptsCommentsAndAttributes() throws IOException {
+        HtmlTextExtractor.Result result = extract("""
+            <p data-x="a > b">before</p>
+            <!-- <p>hidden</p> -->
+            <script type="text/javascript">if (a < b && c > d) { document.write("<p>x</p>"); }</script >
+            <svg/><p>after</p>
+            """, 1000);
+        
+        assertEquals("before\n\nafter", result.text());
+    }
+    
+    @Test
+    void testDecodesCharacterReferences() throws IOException {
+        HtmlTextExtractor.Result result = extract("<p>a&lt;b &#65;&#x42; caf&eacute; fish &chips; AT&T</p>", 1000);
+        
+        assertEquals("a<b AB caf&eacute; fish &chips; AT&T", result.text(), "unknown references are kept as text");
+    }
+    
+    @Test
+    void testKeepsStrayAngleBracketsAsText() throws IOException {
+        assertEquals("1 < 2 and 3 > 2", extract("1 < 2 and 3 > 2", 1000).text());
+    }
+    
+    @Test
+    void testStopsAtMaxChars() throws IOException {
+        HtmlTextExtractor.Result result = extract("<p>" + "word ".repeat(10_000) + "</p>", 100);
+        
+        assertTrue(result.text().length() <= 100 && result.text().length() >= 99, "text should fill the cap");
+        assertTrue(result.truncated());
+    }
+    
+    @Test
+    void testChunkBoundariesDoNotChangeTheResult() {
+        String html = "<p class='x'>one &amp; two</p><script>skip()</script><br/>three<!-- c -->four";
+        HtmlTextExtractor extractor = new HtmlTextExtractor(1000, true);
+        for (char c : html.toCharArray()) {
+            extractor.feed(new char[] {c}, 0, 1);
+        }
+        
+        assertEquals("one & two\n\nthreefour", extractor.finish(false).text());
+    }
+    
+    @Test
+    void testPlainTextIsOnlyWhitespaceNormalized() throws IOException {
+        HtmlTextExtractor.Result result = HtmlTextExtractor.extract(
+            new StringReader("line  <one>\n\n\n\nline &amp; two"), 1000, false);
+        
+        assertEquals("line <one>\n\nline &amp; two", result.text());
+        assertEquals("", result.title());
+    }
+    
+    @Test
+    void testTruncatedInputIsReported() {
+        HtmlTextExtractor extractor = new HtmlTextExtractor(1000, true);
+        char[] chars = "<p>cut off".toCharArray();
+        extractor.feed(chars, 0, chars.length);
+        
+        assertTrue(extractor.finish(true).truncated());
+    }
+    
+    private static HtmlTextExtractor.Result extract(String html, int maxChars) throws IOException {
+        return HtmlTextExtractor.extract(new StringReader(html), maxChars, true);
+    }
+}
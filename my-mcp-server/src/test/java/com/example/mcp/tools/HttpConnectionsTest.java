@@ -0,0 +1,117 @@
+package com.example.mcp.tools;
+
+import com.example.mcp.config.ServerConfig;
+import com.example.mcp.metrics.MetricsRegistry;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the shared outbound connection layer against a local web server.
+ */
+class HttpConnectionsTest {
+    
+    private final AtomicLong clock = new AtomicLong();
+    private final MetricsRegistry metrics = new MetricsRegistry(16);
+    private MockWebServer server;
+    private HttpConnections connections;
+    private String endpoint;
+    
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        endpoint = server.url("/").toString();
+        ServerConfig defaults = ServerConfig.defaults();
+        connections = new HttpConnections(defaults.upstream(), defaults.pool(), metrics, clock::get);
+    }
+    
+    @AfterEach
+    void tearDown() throws IOException {
+        connections.close();
+        server.close();
+    }
+    
+    @Test
+    void testWarmUpOpensConnectionThatSearchesReuse() throws Exception {
+        server.enqueue(new MockResponse());
+        server.enqueue(new MockResponse().setBody("{}"));
+        
+        int answered = connections.warmUp(List.of(endpoint)).get(5, TimeUnit.SECONDS);
+        
+        assertEquals(1, answered);
+        assertEquals("HEAD", server.takeRequest().getMethod());
+        
+        try (Response response = connections.client().newCall(new Request.Builder().url(endpoint).build()).execute()) {
+            assertTrue(response.isSuccessful());
+        }
+        
+        HttpConnections.HostStats stats = connections.hostStats().get(server.getHostName());
+        assertEquals(1, stats.connects(), "the search should reuse the warmed-up connection");
+        assertEquals(1, stats.reused());
+        assertEquals(1, stats.open());
+        assertEquals(1, stats.idle());
+        assertEquals(0, stats.inUse());
+        assertTrue(metrics.toJson().contains("pool_" + server.getHostName().replaceAll("[^A-Za-z0-9]+", "_")));
+    }
+    
+    @Test
+    void testWarmUpCountsUnreachableEndpoints() throws Exception {
+        server.enqueue(new MockResponse());
+        
+        int answered = connections.warmUp(List.of(endpoint, "http://127.0.0.1:1/")).get(10, TimeUnit.SECONDS);
+        
+        assertEquals(1, answered);
+    }
+    
+    @Test
+    void testOnlyIdleEndpointsThatServedSearchesArePinged() throws Exception {
+        server.enqueue(new MockResponse());
+        server.enqueue(new MockResponse().setBody("{}"));
+        server.enqueue(new MockResponse());
+        connections.warmUp(List.of(endpoint)).get(5, TimeUnit.SECONDS);
+        
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(60));
+        connections.pingIdle(List.of(endpoint)).get(5, TimeUnit.SECONDS);
+        assertEquals(1, server.getRequestCount(), "an endpoint that never served a search is not pinged");
+        
+        try (Response response = connections.client().newCall(new Request.Builder().url(endpoint).build()).execute()) {
+            assertTrue(response.isSuccessful());
+        }
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(30));
+        connections.pingIdle(List.of(endpoint)).get(5, TimeUnit.SECONDS);
+        assertEquals(2, server.getRequestCount(), "a recently used endpoint is not pinged");
+        
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(30));
+        connections.pingIdle(List.of(endpoint)).get(5, TimeUnit.SECONDS);
+        assertEquals(3, server.getRequestCount());
+        assertEquals(1, connections.hostStats().get(server.getHostName()).connects());
+    }
+    
+    @Test
+    void testNewPoolSettingsReplaceClient() {
+        ServerConfig defaults = ServerConfig.defaults();
+        ServerConfig.Pool pool = defaults.pool();
+        ServerConfig.Pool morePerHost = new ServerConfig.Pool(pool.maxRequests(), 8, pool.maxIdleConnections(),
+            pool.keepAlive(), pool.pingInterval(), pool.dnsTtl(), pool.dnsMaxEntries());
+        ServerConfig.Pool moreIdle = new ServerConfig.Pool(pool.maxRequests(), 8, 10, pool.keepAlive(),
+            pool.pingInterval(), Duration.ZERO, pool.dnsMaxEntries());
+        
+        assertFalse(connections.reconfigure(defaults.upstream(), morePerHost));
+        assertEquals(8, connections.client().dispatcher().getMaxRequestsPerHost());
+        
+        assertTrue(connections.reconfigure(defaults.upstream(), moreIdle));
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.mcp.tools;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for in-flight request coalescing.
+ */
+class InFlightRequestsTest {
+    
+    private final InFlightRequests<String, String> inFlight = new InFlightRequests<>();
+    
+    @Test
+    void testConcurrentCallersShareOneUpstreamCall() {
+        Sinks.One<String> upstream = Sinks.one();
+        AtomicReference<String> first = new AtomicReference<>();
+        AtomicReference<String> second = new AtomicReference<>();
+        
+        inFlight.execute("java", upstream::asMono).subscribe(first::set);
+        inFlight.execute("java", upstream::asMono).subscribe(second::set);
+        upstream.tryEmitValue("result");
+        
+        assertEquals("result", first.get());
+        assertEquals("result", second.get());
+        assertEquals(1, inFlight.upstreamCalls());
+        assertEquals(1, inFlight.coalescedCalls());
+        assertEquals(0, inFlight.size(), "completed request should be removed");
+    }
+    
+    @Test
+    void testCancellingOneCallerDoesNotCancelOthers() {
+        Sinks.One<String> upstream = Sinks.one();
+        AtomicBoolean upstreamCancelled = new AtomicBoolean();
+        AtomicReference<String> survivor = new AtomicReference<>();
+        
+        Disposable dropped = inFlight.execute("java", () -> upstream.asMono().doOnCancel(() -> upstreamCancelled.set(true)))
+            .subscribe();
+        inFlight.execute("java", upstream::asMono).subscribe(survivor::set);
+        
+        dropped.dispose();
+        assertFalse(upstreamCancelled.get(), "upstream should keep running for the remaining caller");
+        
+        upstream.tryEmitValue("result");
+        assertEquals("result", survivor.get());
+    }
+    
+    @Test
+    void testUpstreamIsCancelledWhenAllCallersCancel() {
+        Sinks.One<String> upstream = Sinks.one();
+        AtomicBoolean upstreamCancelled = new AtomicBoolean();
+        
+        Disposable first = inFlight.execute("java", () -> upstream.asMono().doOnCancel(() -> upstreamCancelled.set(true)))
+            .subscribe();
+        Disposable second = inFlight.execute("java", upstream::asMono).subscribe();
+        
+        first.dispose();
+        second.dispose();
+        
+        assertTrue(upstreamCancelled.get());
+        assertEquals(0, inFlight.size());
+    }
+    
+    @Test
+    void testDifferentKeysAreNotCoalesced() {
+        inFlight.execute("a", () -> Mono.just("a")).block();
+        inFlight.execute("b", () -> Mono.just("b")).block();
+        
+        assertEquals(2, inFlight.upstreamCalls());
+        assertEquals(0, inFlight.coalescedCalls());
+    }
+}
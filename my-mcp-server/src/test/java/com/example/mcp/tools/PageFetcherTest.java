@@ -0,0 +1,211 @@
+package com.example.mcp.tools;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the fetch_url page fetcher against a local web server.
+ */
+class PageFetcherTest {
+    
+    private static final String PAGE = "<html><head><title>Example</title></head><body><p>Hello, world.</p></body></html>";
+    
+    private final AtomicLong now = new AtomicLong();
+    private MockWebServer server;
+    private PageFetcher fetcher;
+    
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        fetcher = new PageFetcher(new OkHttpClient.Builder().callTimeout(Duration.ofSeconds(5)).build(), true,
+            1024, Duration.ofSeconds(60), 10, 100_000, now::get);
+    }
+    
+    @AfterEach
+    void tearDown() throws IOException {
+        server.close();
+    }
+    
+    @Test
+    void testExtractsTextFromHtml() {
+        server.enqueue(new MockResponse().setHeader("Content-Type", "text/html; charset=utf-8").setBody(PAGE));
+        
+        PageFetcher.Page page = fetch(1000);
+        
+        assertEquals("Example", page.title());
+        assertEquals("Hello, world.", page.text());
+        assertFalse(page.truncated());
+        assertEquals(PageFetcher.Source.FETCHED, page.source());
+    }
+    
+    @Test
+    void testFreshPageIsServedFromCache() {
+        server.enqueue(new MockResponse().setHeader("Content-Type", "text/html").setBody(PAGE));
+        
+        fetch(1000);
+        PageFetcher.Page second = fetch(5);
+        
+        assertEquals(PageFetcher.Source.CACHED, second.source());
+        assertEquals("Hello", second.text());
+        assertTrue(second.truncated(), "cached text longer than requested is trimmed");
+        assertEquals(1, server.getRequestCount());
+    }
+    
+    @Test
+    void testStalePageIsRevalidatedWithEtag() throws InterruptedException {
+        server.enqueue(new MockResponse()
+            .setHeader("Content-Type", "text/html")
+            .setHeader("ETag", "\"v1\"")
+            .setHeader("Last-Modified", "Wed, 01 Jan 2025 00:00:00 GMT")
+            .setBody(PAGE));
+        server.enqueue(new MockResponse().setResponseCode(304));
+        
+        fetch(1000);
+        now.addAndGet(TimeUnit.SECONDS.toNanos(61));
+        PageFetcher.Page revalidated = fetch(1000);
+        
+        assertEquals(PageFetcher.Source.REVALIDATED, revalidated.source());
+        assertEquals("Hello, world.", revalidated.text());
+        server.takeRequest();
+        RecordedRequest conditional = server.takeRequest();
+        assertEquals("\"v1\"", conditional.getHeader("If-None-Match"));
+        assertEquals("Wed, 01 Jan 2025 00:00:00 GMT", conditional.getHeader("If-Modified-Since"));
+        assertEquals(1, fetcher.stats().revalidated());
+    }
+    
+    @Test
+    void testChangedPageReplacesCachedCopy() {
+        server.enqueue(new MockResponse().setHeader("Content-Type", "text/html").setHeader("ETag", "\"v1\"").setBody(PAGE));
+        server.enqueue(new MockResponse().setHeader("Content-Type", "text/html").setHeader("ETag", "\"v2\"")
+            .setBody("<p>Changed.</p>"));
+        
+        fetch(1000);
+        now.addAndGet(TimeUnit.SECONDS.toNanos(61));
+        PageFetcher.Page changed = fetch(1000);
+        
+        assertEquals(PageFetcher.Source.FETCHED, changed.source());
+        assertEquals("Changed.", changed.text());
+        assertEquals(2, fetcher.stats().misses());
+    }
+    
+    @Test
+    void testBodyIsCutOffAtMaxBytes() {
+        server.enqueue(new MockResponse().setHeader("Content-Type", "text/plain").setBody("x ".repeat(10_000)));
+        
+        PageFetcher.Page page = fetch(100_000);
+        
+        assertTrue(page.truncated());
+        assertTrue(page.text().length() <= 1024, "only the first 1024 bytes should be read");
+    }
+    
+    @Test
+    void testShorterCachedTextIsRefetchedForLargerRequest() {
+        server.enqueue(new MockResponse().setHeader("Content-Type", "text/html").setBody(PAGE));
+        server.enqueue(new MockResponse().setHeader("Content-Type", "text/html").setBody(PAGE));
+        
+        assertTrue(fetch(5).truncated());
+        PageFetcher.Page full = fetch(1000);
+        
+        assertEquals("Hello, world.", full.text());
+        assertEquals(2, server.getRequestCount());
+    }
+    
+    @Test
+    void testErrorStatusFails() {
+        server.enqueue(new MockResponse().setResponseCode(404));
+        
+        Exception e = assertThrows(Exception.class, () -> fetch(1000));
+        
+        assertTrue(e.getCause() instanceof HttpStatusException, "expected an HTTP status failure: " + e);
+    }
+    
+    @Test
+    void testUnsupportedContentTypeFails() {
+        server.enqueue(new MockResponse().setHeader("Content-Type", "image/png").setBody("png"));
+        
+        assertThrows(Exception.class, () -> fetch(1000));
+    }
+    
+    @Test
+    void testRejectsNonHttpUrls() {
+        assertThrows(Exception.class,
+            () -> fetcher.fetch("file:///etc/passwd", 1000, ExecutionMode.ASYNC).block(Duration.ofSeconds(5)));
+        assertEquals(0, server.getRequestCount());
+    }
+    
+    @Test
+    void testFollowsRedirects() throws InterruptedException {
+        server.enqueue(new MockResponse().setResponseCode(302).setHeader("Location", "/moved"));
+        server.enqueue(new MockResponse().setHeader("Content-Type", "text/html").setBody(PAGE));
+        
+        PageFetcher.Page page = fetch(1000);
+        
+        assertEquals("Hello, world.", page.text());
+        assertEquals("/page", server.takeRequest().getPath());
+        assertEquals("/moved", server.takeRequest().getPath());
+    }
+    
+    @Test
+    void testRedirectTargetsAreChecked() {
+        server.enqueue(new MockResponse().setResponseCode(302).setHeader("Location", "file:///etc/passwd"));
+        
+        assertThrows(Exception.class, () -> fetch(1000));
+        assertEquals(1, server.getRequestCount());
+    }
+    
+    @Test
+    void testRedirectLoopIsCutOff() {
+        for (int i = 0; i < 20; i++) {
+            server.enqueue(new MockResponse().setResponseCode(302).setHeader("Location", "/page"));
+        }
+        
+        assertThrows(Exception.class, () -> fetch(1000));
+        assertEquals(11, server.getRequestCount());
+    }
+    
+    @Test
+    void testRejectsPrivateAddressesUnlessAllowed() {
+        PageFetcher guarded = new PageFetcher(new OkHttpClient.Builder().callTimeout(Duration.ofSeconds(5)).build(),
+            false, 1024, Duration.ofSeconds(60), 10, 100_000);
+        String byName = "http://localhost:" + server.getPort() + "/page";
+        String byAddress = "http://127.0.0.1:" + server.getPort() + "/page";
+        
+        for (String url : List.of(byName, byAddress, "http://169.254.169.254/latest/meta-data/", "http://[::1]/")) {
+            assertThrows(Exception.class, () -> guarded.fetch(url, 1000, ExecutionMode.ASYNC).block(Duration.ofSeconds(5)),
+                url + " should be refused");
+        }
+        assertEquals(0, server.getRequestCount());
+    }
+    
+    @Test
+    void testSlowBodyIsCutOffByCallTimeout() {
+        PageFetcher slow = new PageFetcher(new OkHttpClient.Builder().callTimeout(Duration.ofMillis(300)).build(),
+            true, 1024, Duration.ofSeconds(60), 10, 100_000);
+        server.enqueue(new MockResponse().setHeader("Content-Type", "text/html").setBody(PAGE)
+            .throttleBody(8, 1, TimeUnit.SECONDS));
+        
+        long start = System.nanoTime();
+        assertThrows(Exception.class,
+            () -> slow.fetch(server.url("/slow").toString(), 1000, ExecutionMode.ASYNC).block(Duration.ofSeconds(10)));
+        
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 5000, "fetch should stop at the call timeout");
+    }
+    
+    private PageFetcher.Page fetch(int maxChars) {
+        return fetcher.fetch(server.url("/page").toString(), maxChars, ExecutionMode.ASYNC).block(Duration.ofSeconds(10));
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.mcp.tools;
+
+import okhttp3.Dns;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the resolver that keeps fetch_url off non-public addresses.
+ */
+class PublicAddressDnsTest {
+    
+    @Test
+    void testClassifiesAddresses() throws UnknownHostException {
+        for (String address : List.of("8.8.8.8", "93.184.216.34", "2606:4700::1111")) {
+            assertTrue(PublicAddressDns.isPublic(InetAddress.getByName(address)), address);
+        }
+        for (String address : List.of("127.0.0.1", "10.1.2.3", "172.16.0.1", "192.168.1.1", "169.254.169.254",
+            "100.64.0.1", "0.0.0.0", "224.0.0.1", "::1", "::", "fe80::1", "fd00::1", "::ffff:127.0.0.1")) {
+            assertFalse(PublicAddressDns.isPublic(InetAddress.getByName(address)), address);
+        }
+    }
+    
+    @Test
+    void testRefusesHostsWithAnyNonPublicAddress() throws UnknownHostException {
+        InetAddress publicAddress = InetAddress.getByName("93.184.216.34");
+        InetAddress privateAddress = InetAddress.getByName("10.0.0.1");
+        Dns resolver = host -> host.startsWith("mixed")
+            ? List.of(publicAddress, privateAddress)
+            : List.of(publicAddress);
+        PublicAddressDns dns = new PublicAddressDns(resolver);
+        
+        assertEquals(List.of(publicAddress), dns.lookup("example.com"));
+        assertThrows(UnknownHostException.class, () -> dns.lookup("mixed.example.com"));
+    }
+    
+    @Test
+    void testChecksLiteralsButNotNames() throws UnknownHostException {
+        for (String host : List.of("127.0.0.1", "127.1", "[::1]", "169.254.169.254")) {
+            assertThrows(UnknownHostException.class, () -> PublicAddressDns.checkLiteral(host), host);
+        }
+        PublicAddressDns.checkLiteral("93.184.216.34");
+        PublicAddressDns.checkLiteral("[2606:4700::1111]");
+        PublicAddressDns.checkLiteral("localhost");
+    }
+}
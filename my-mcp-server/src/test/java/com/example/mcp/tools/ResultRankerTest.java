@@ -0,0 +1,62 @@
+package com.example.mcp.tools;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ranking and deduplicating related results.
+ */
+class ResultRankerTest {
+    
+    @Test
+    void testCanonicalUrlIgnoresCosmeticDifferences() {
+        String canonical = ResultRanker.canonicalUrl("https://example.com/a/b");
+        
+        assertEquals(canonical, ResultRanker.canonicalUrl("http://www.Example.COM/a/b/"));
+        assertEquals(canonical, ResultRanker.canonicalUrl(" https://example.com:443/a/b#top "));
+        assertNotEquals(canonical, ResultRanker.canonicalUrl("https://example.com/a/B"));
+        assertNotEquals(canonical, ResultRanker.canonicalUrl("https://example.com/a/b?page=2"));
+        assertEquals("not a url", ResultRanker.canonicalUrl("not a url"));
+    }
+    
+    @Test
+    void testKeepsBestResultsInPayloadOrderOnTies() {
+        ResultRanker ranker = new ResultRanker("rust", 2);
+        ranker.offer(new SearchResult("Iron oxide", "https://1.example"), 0);
+        ranker.offer(new SearchResult("Corrosion", "https://2.example"), 0);
+        ranker.offer(new SearchResult("Rust language", "https://3.example"), 1);
+        
+        assertEquals(List.of("Rust language", "Iron oxide"),
+            ranker.results("").stream().map(SearchResult::text).toList());
+    }
+    
+    @Test
+    void testKeepsASpareResultUntilTheAbstractUrlIsKnown() {
+        ResultRanker ranker = new ResultRanker(null, 2);
+        ranker.offer(new SearchResult("Abstract again", "https://abstract.example"), 0);
+        ranker.offer(new SearchResult("first", "https://1.example"), 0);
+        ranker.offer(new SearchResult("second", "https://2.example"), 0);
+        ranker.offer(new SearchResult("third", "https://3.example"), 0);
+        
+        assertEquals(List.of("first", "second"),
+            ranker.results("https://www.abstract.example/").stream().map(SearchResult::text).toList());
+    }
+    
+    @Test
+    void testSaturatesOnlyWhenNoLaterResultCouldRankHigher() {
+        ResultRanker byPosition = new ResultRanker(null, 1);
+        byPosition.exclude("");
+        byPosition.offer(new SearchResult("first", "https://1.example"), 0);
+        assertTrue(byPosition.saturated(0));
+        
+        ResultRanker byQuery = new ResultRanker("java", 1);
+        byQuery.exclude("");
+        byQuery.offer(new SearchResult("Coffee", "https://1.example"), 0);
+        assertFalse(byQuery.saturated(0), "a later topic mentioning java would rank higher");
+        byQuery.offer(new SearchResult("Java", "https://2.example"), 0);
+        assertTrue(byQuery.saturated(0));
+    }
+}
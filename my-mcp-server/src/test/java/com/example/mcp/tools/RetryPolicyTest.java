@@ -0,0 +1,79 @@
+package com.example.mcp.tools;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for deadline-bounded retries.
+ */
+class RetryPolicyTest {
+    
+    private final RetryPolicy policy = new RetryPolicy(2, Duration.ofMillis(10), Duration.ofMillis(50));
+    private final AtomicInteger attempts = new AtomicInteger();
+    
+    @Test
+    void testTransientFailureIsRetried() {
+        String result = policy.execute(() -> attempts.incrementAndGet() < 3
+            ? Mono.error(new HttpStatusException(503))
+            : Mono.just("ok"), deadline(Duration.ofSeconds(5))).block(Duration.ofSeconds(5));
+        
+        assertEquals("ok", result);
+        assertEquals(3, attempts.get());
+    }
+    
+    @Test
+    void testRetriesAreBounded() {
+        Mono<String> call = policy.execute(() -> {
+            attempts.incrementAndGet();
+            return Mono.error(new IOException("connection reset"));
+        }, deadline(Duration.ofSeconds(5)));
+        
+        assertThrows(RuntimeException.class, () -> call.block(Duration.ofSeconds(5)));
+        assertEquals(3, attempts.get());
+    }
+    
+    @Test
+    void testPermanentFailureIsNotRetried() {
+        Mono<String> call = policy.execute(() -> {
+            attempts.incrementAndGet();
+            return Mono.error(new HttpStatusException(404));
+        }, deadline(Duration.ofSeconds(5)));
+        
+        assertThrows(RuntimeException.class, () -> call.block(Duration.ofSeconds(5)));
+        assertEquals(1, attempts.get());
+    }
+    
+    @Test
+    void testDeadlineCutsAttemptShort() {
+        long start = System.nanoTime();
+        Mono<String> call = policy.execute(() -> {
+            attempts.incrementAndGet();
+            return Mono.never();
+        }, deadline(Duration.ofMillis(100)));
+        
+        RuntimeException e = assertThrows(RuntimeException.class, () -> call.block(Duration.ofSeconds(5)));
+        
+        assertTrue(e.getCause() instanceof TimeoutException, "deadline should end the call with a timeout");
+        assertEquals(1, attempts.get(), "a timed-out attempt leaves no time for a retry");
+        assertTrue(System.nanoTime() - start < Duration.ofSeconds(1).toNanos());
+    }
+    
+    @Test
+    void testBackoffStaysWithinCap() {
+        for (int retry = 0; retry < 10; retry++) {
+            long backoff = policy.backoffNanos(retry);
+            assertTrue(backoff >= 0 && backoff <= Duration.ofMillis(Math.min(50, 10L << retry)).toNanos());
+        }
+    }
+    
+    private static long deadline(Duration timeout) {
+        return System.nanoTime() + timeout.toNanos();
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.mcp.tools;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the websearch result cache.
+ */
+class SearchResultCacheTest {
+    
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicInteger loads = new AtomicInteger();
+    
+    @Test
+    void testHitAfterMiss() {
+        SearchResultCache<String> cache = newCache(10, 1000);
+        SearchResultCache.Key key = SearchResultCache.Key.of("Java", 5);
+        
+        assertEquals("java#1", cache.get(key, this::load).block());
+        assertEquals("java#1", cache.get(SearchResultCache.Key.of("  JAVA ", 5), this::load).block());
+        
+        SearchResultCache.Stats stats = cache.stats();
+        assertEquals(1, stats.misses());
+        assertEquals(1, stats.hits());
+        assertEquals(0.5, stats.hitRatio(), 0.0001);
+    }
+    
+    @Test
+    void testNumResultsIsPartOfKey() {
+        SearchResultCache<String> cache = newCache(10, 1000);
+        
+        cache.get(SearchResultCache.Key.of("java", 5), this::load).block();
+        cache.get(SearchResultCache.Key.of("java", 10), this::load).block();
+        
+        assertEquals(2, loads.get());
+    }
+    
+    @Test
+    void testStaleEntryIsServedWhileRefreshing() {
+        SearchResultCache<String> cache = newCache(10, 1000);
+        SearchResultCache.Key key = SearchResultCache.Key.of("java", 5);
+        cache.get(key, this::load).block();
+        
+        clock.addAndGet(Duration.ofSeconds(90).toNanos());
+        
+        assertEquals("java#1", cache.get(key, this::load).block(), "stale value should be served");
+        assertEquals(2, loads.get(), "stale hit should trigger a refresh");
+        assertEquals("java#2", cache.get(key, this::load).block(), "refreshed value should replace stale one");
+        assertEquals(1, cache.stats().staleHits());
+    }
+    
+    @Test
+    void testExpiredEntryIsReloaded() {
+        SearchResultCache<String> cache = newCache(10, 1000);
+        SearchResultCache.Key key = SearchResultCache.Key.of("java", 5);
+        cache.get(key, this::load).block();
+        
+        clock.addAndGet(Duration.ofSeconds(200).toNanos());
+        
+        assertEquals("java#2", cache.get(key, this::load).block());
+        assertEquals(1, cache.stats().expirations());
+        assertEquals(2, cache.stats().misses());
+    }
+    
+    @Test
+    void testExpiredEntryIsServedWhenReloadFails() {
+        SearchResultCache<String> cache = newCache(10, 1000);
+        SearchResultCache.Key key = SearchResultCache.Key.of("java", 5);
+        cache.get(key, this::load).block();
+        
+        clock.addAndGet(Duration.ofSeconds(200).toNanos());
+        SearchResultCache.Lookup<String> lookup = cache.lookup(key, k -> Mono.error(new IOException("down"))).block();
+        
+        assertEquals("java#1", lookup.value());
+        assertEquals(SearchResultCache.Status.STALE, lookup.status());
+        assertEquals(1, cache.stats().staleOnError());
+        assertThrows(RuntimeException.class, () -> cache.get(SearchResultCache.Key.of("other", 5),
+            k -> Mono.error(new IOException("down"))).block());
+    }
+    
+    @Test
+    void testLeastRecentlyUsedEntryIsEvicted() {
+        SearchResultCache<String> cache = newCache(2, 1000);
+        SearchResultCache.Key a = SearchResultCache.Key.of("a", 5);
+        SearchResultCache.Key b = SearchResultCache.Key.of("b", 5);
+        SearchResultCache.Key c = SearchResultCache.Key.of("c", 5);
+        
+        cache.get(a, this::load).block();
+        cache.get(b, this::load).block();
+        cache.get(a, this::load).block();
+        cache.get(c, this::load).block();
+        
+        assertEquals(1, cache.stats().evictions());
+        cache.get(a, this::load).block();
+        assertEquals(3, loads.get(), "recently used entry should survive eviction");
+        cache.get(b, this::load).block();
+        assertEquals(4, loads.get(), "least recently used entry should have been evicted");
+    }
+    
+    @Test
+    void testWeightCapEvicts() {
+        SearchResultCache<String> cache = newCache(100, 10);
+        
+        cache.get(SearchResultCache.Key.of("first", 5), this::load).block();
+        cache.get(SearchResultCache.Key.of("second", 5), this::load).block();
+        
+        SearchResultCache.Stats stats = cache.stats();
+        assertEquals(1, stats.size());
+        assertTrue(stats.weight() <= 10);
+        assertEquals(1, stats.evictions());
+    }
+    
+    @Test
+    void testShrinkingReconfigureEvictsAtOnce() {
+        SearchResultCache<String> cache = newCache(10, 1000);
+        for (String query : new String[] {"a", "b", "c"}) {
+            cache.get(SearchResultCache.Key.of(query, 5), this::load).block();
+        }
+        
+        cache.reconfigure(Duration.ofSeconds(60), Duration.ofSeconds(60), 1, 1000);
+        
+        SearchResultCache.Stats stats = cache.stats();
+        assertEquals(1, stats.size());
+        assertEquals(2, stats.evictions());
+        cache.get(SearchResultCache.Key.of("c", 5), this::load).block();
+        assertEquals(3, loads.get(), "most recently used entry should survive");
+    }
+    
+    @Test
+    void testMissIsAnsweredFromTier() {
+        Map<SearchResultCache.Key, String> stored = new HashMap<>();
+        SearchResultCache.Tier<String> tier = new SearchResultCache.Tier<>() {
+            @Override
+            public SearchResultCache.Stored<String> load(SearchResultCache.Key key) {
+                String value = stored.get(key);
+                return value == null ? null : new SearchResultCache.Stored<>(value, Duration.ofSeconds(90).toNanos());
+            }
+            
+            @Override
+            public void store(SearchResultCache.Key key, String value) {
+                stored.put(key, value);
+            }
+        };
+        SearchResultCache.Key key = SearchResultCache.Key.of("java", 5);
+        
+        newCache(10, 1000, tier).get(key, this::load).block();
+        SearchResultCache<String> restarted = newCache(10, 1000, tier);
+        SearchResultCache.Lookup<String> lookup = restarted.lookup(key, this::load).block();
+        
+        assertEquals("java#1", lookup.value());
+        assertEquals(SearchResultCache.Status.STALE, lookup.status(), "tier value should keep its age");
+        assertEquals(1, restarted.stats().tierHits());
+        assertEquals(0, restarted.stats().misses());
+    }
+    
+    private SearchResultCache<String> newCache(int maxEntries, long maxWeight) {
+        return new SearchResultCache<>(Duration.ofSeconds(60), Duration.ofSeconds(60), maxEntries, maxWeight,
+            String::length, clock::get);
+    }
+    
+    private SearchResultCache<String> newCache(int maxEntries, long maxWeight, SearchResultCache.Tier<String> tier) {
+        return new SearchResultCache<>(Duration.ofSeconds(60), Duration.ofSeconds(60), maxEntries, maxWeight,
+            String::length, tier, clock::get);
+    }
+    
+    private Mono<String> load(SearchResultCache.Key key) {
+        return Mono.fromSupplier(() -> key.query() + "#" + loads.incrementAndGet());
+    }
+}
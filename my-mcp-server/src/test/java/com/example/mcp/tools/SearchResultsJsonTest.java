@@ -0,0 +1,76 @@
+package com.example.mcp.tools;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the JSON form of websearch results.
+ */
+class SearchResultsJsonTest {
+    
+    private static final SearchResponse RESPONSE = new SearchResponse(
+        "Java is a \"programming\" language.\n",
+        "https://en.wikipedia.org/wiki/Java",
+        List.of(
+            new SearchResult("Java SE", "https://duckduckgo.com/Java_SE"),
+            new SearchResult("JVM", "https://duckduckgo.com/JVM"),
+            new SearchResult("Jakarta EE", "https://duckduckgo.com/Jakarta_EE")),
+        null);
+    
+    @Test
+    void testTrimsToNumResultsCountingTheAnswer() {
+        String json = SearchResultsJson.write(RESPONSE, "java", 2);
+        
+        assertEquals("{\"query\":\"java\",\"answer\":{\"text\":\"Java is a \\\"programming\\\" language.\\n\","
+            + "\"url\":\"https://en.wikipedia.org/wiki/Java\"},\"results\":[{\"text\":\"Java SE\","
+            + "\"url\":\"https://duckduckgo.com/Java_SE\"}],\"resultCount\":2}", json);
+    }
+    
+    @Test
+    void testWithQuerySetsTheCallersQuery() {
+        String cached = SearchResultsJson.write(RESPONSE, null, 1);
+        
+        assertEquals("{\"answer\":{\"text\":\"Java is a \\\"programming\\\" language.\\n\","
+            + "\"url\":\"https://en.wikipedia.org/wiki/Java\"},\"results\":[],\"resultCount\":1}", cached);
+        assertEquals("{\"query\":\"Java  SE\"," + cached.substring(1), SearchResultsJson.withQuery(cached, "Java  SE"));
+        assertEquals(SearchResultsJson.write(RESPONSE, "jvm", 1),
+            SearchResultsJson.withQuery(SearchResultsJson.write(RESPONSE, "java", 1), "jvm"));
+    }
+    
+    @Test
+    void testReadsBackWhatWasWritten() {
+        SearchResponse read = SearchResultsJson.read(SearchResultsJson.write(RESPONSE, "java", 10));
+        
+        assertEquals(RESPONSE, read);
+    }
+    
+    @Test
+    void testMarkdownFromJsonMatchesMarkdownFromResponse() {
+        SearchResponse read = SearchResultsJson.read(SearchResultsJson.write(RESPONSE, "java", 3));
+        
+        assertEquals(ToolHandlers.formatSearchResults(RESPONSE, "java", 3), ToolHandlers.formatSearchResults(read, "java", 3));
+    }
+    
+    @Test
+    void testResponseWithoutAnswer() {
+        SearchResponse noAnswer = new SearchResponse("", "", List.of(new SearchResult("only", "")), null);
+        
+        String json = SearchResultsJson.write(noAnswer, "q", 5);
+        
+        assertTrue(json.contains("\"answer\":null"));
+        assertEquals(noAnswer, SearchResultsJson.read(json));
+    }
+    
+    @Test
+    void testUnparsedResponseKeepsItsPreview() {
+        SearchResponse unparsed = SearchResponse.unparsed("<html>not json</html>");
+        
+        String json = SearchResultsJson.write(unparsed, "q", 5);
+        
+        assertTrue(json.contains("\"resultCount\":0"));
+        assertEquals(unparsed, SearchResultsJson.read(json));
+    }
+}
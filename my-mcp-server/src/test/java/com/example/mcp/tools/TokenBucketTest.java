@@ -0,0 +1,68 @@
+package com.example.mcp.tools;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the token bucket rate limiter.
+ */
+class TokenBucketTest {
+    
+    private static final long MS = Duration.ofMillis(1).toNanos();
+    
+    private final AtomicLong clock = new AtomicLong(1_000_000_000L);
+    
+    @Test
+    void testBurstIsAdmittedImmediately() {
+        TokenBucket bucket = new TokenBucket(10, 5, clock::get);
+        
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, bucket.reserve(0), "token " + i + " should be available");
+        }
+        assertEquals(-1, bucket.reserve(0), "bucket should be empty after the burst");
+    }
+    
+    @Test
+    void testEmptyBucketReservesFutureTokens() {
+        TokenBucket bucket = new TokenBucket(10, 1, clock::get);
+        bucket.reserve(0);
+        
+        assertEquals(100 * MS, bucket.reserve(1000 * MS));
+        assertEquals(200 * MS, bucket.reserve(1000 * MS));
+        assertEquals(-1, bucket.reserve(250 * MS), "a wait beyond the caller's limit should be refused");
+        assertEquals(300 * MS, bucket.reserve(300 * MS), "a refused reservation should not take a token");
+    }
+    
+    @Test
+    void testRefundedTokenIsAvailableAgain() {
+        TokenBucket bucket = new TokenBucket(10, 1, clock::get);
+        bucket.reserve(0);
+        assertEquals(100 * MS, bucket.reserve(1000 * MS));
+        
+        bucket.refund();
+        bucket.refund();
+        
+        assertEquals(0, bucket.reserve(0), "refunds should put the tokens back");
+        assertEquals(-1, bucket.reserve(0), "refunds should not raise the capacity");
+    }
+    
+    @Test
+    void testTokensRefillOverTime() {
+        TokenBucket bucket = new TokenBucket(10, 2, clock::get);
+        bucket.reserve(0);
+        bucket.reserve(0);
+        
+        clock.addAndGet(100 * MS);
+        assertEquals(0, bucket.reserve(0));
+        assertEquals(-1, bucket.reserve(0));
+        
+        clock.addAndGet(1000 * MS);
+        assertEquals(0, bucket.reserve(0));
+        assertEquals(0, bucket.reserve(0));
+        assertEquals(-1, bucket.reserve(0), "refill should stop at the capacity");
+    }
+}
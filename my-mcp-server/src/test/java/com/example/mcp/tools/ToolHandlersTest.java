@@ -0,0 +1,358 @@
+package com.example.mcp.tools;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.example.mcp.metrics.CallMetrics;
+import com.example.mcp.metrics.MetricsRegistry;
+import io.modelcontextprotocol.spec.McpSchema.CallToolResult;
+import io.modelcontextprotocol.spec.McpSchema.TextContent;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the websearch and fetch_url tools against a local server.
+ */
+class ToolHandlersTest {
+    
+    private static final long DELAY_MS = 1000;
+    private static final int CONCURRENT_CALLS = 16;
+    private static final String SAMPLE_RESPONSE = """
+        {
+          "Abstract": "Java is a programming language.",
+          "AbstractURL": "https://en.wikipedia.org/wiki/Java",
+          "RelatedTopics": [
+            {"Text": "Java SE", "FirstURL": "https://duckduckgo.com/Java_SE"}
+          ]
+        }
+        """;
+    
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicInteger failuresToServe = new AtomicInteger();
+    private MockWebServer server;
+    
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                if (failuresToServe.getAndDecrement() > 0) {
+                    return new MockResponse().setResponseCode(503);
+                }
+                if (request.getPath().contains("broken")) {
+                    return new MockResponse().setResponseCode(404);
+                }
+                if (request.getPath().contains("unanswered")) {
+                    return new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE);
+                }
+                return new MockResponse()
+                    .setBody(SAMPLE_RESPONSE)
+                    .setHeadersDelay(DELAY_MS, TimeUnit.MILLISECONDS);
+            }
+        });
+        server.start();
+        ToolHandlers.setSearchEndpoint(server.url("/").toString());
+    }
+    
+    @AfterEach
+    void tearDown() throws IOException {
+        ToolHandlers.setSearchEndpoint(DuckDuckGoSearchProvider.DEFAULT_ENDPOINT);
+        server.close();
+    }
+    
+    @Test
+    void testSearchIsLazy() throws InterruptedException {
+        Mono<CallToolResult> result = ToolHandlers.handleWebSearch(arguments("java"));
+        
+        Thread.sleep(100);
+        assertEquals(0, server.getRequestCount(), "no request should be sent before subscription");
+        
+        CallToolResult toolResult = result.block(Duration.ofSeconds(10));
+        assertNotNull(toolResult);
+        assertFalse(toolResult.isError());
+        assertEquals(1, server.getRequestCount());
+    }
+    
+    @Test
+    void testOverlappingSlowSearchesRunConcurrently() {
+        long start = System.nanoTime();
+        
+        List<CallToolResult> results = Flux.range(0, CONCURRENT_CALLS)
+            .flatMap(i -> ToolHandlers.handleWebSearch(arguments("query " + i)), CONCURRENT_CALLS)
+            .collectList()
+            .block(Duration.ofSeconds(30));
+        
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        
+        assertNotNull(results);
+        assertEquals(CONCURRENT_CALLS, results.size());
+        results.forEach(r -> assertFalse(r.isError(), "search should succeed"));
+        assertEquals(CONCURRENT_CALLS, server.getRequestCount());
+        assertTrue(elapsedMs < DELAY_MS * 2,
+            CONCURRENT_CALLS + " overlapping calls took " + elapsedMs + "ms, expected about " + DELAY_MS + "ms");
+    }
+    
+    @Test
+    void testVirtualThreadModeRunsOverlappingBlockingSearchesConcurrently() {
+        ToolHandlers.setExecutionMode(ExecutionMode.VIRTUAL_THREADS);
+        ToolHandlers.setSearchEndpoint(server.url("/").toString());
+        try {
+            long start = System.nanoTime();
+            
+            List<CallToolResult> results = Flux.range(0, CONCURRENT_CALLS)
+                .flatMap(i -> ToolHandlers.handleWebSearch(arguments("virtual query " + i)), CONCURRENT_CALLS)
+                .collectList()
+                .block(Duration.ofSeconds(30));
+            
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            
+            assertNotNull(results);
+            assertEquals(CONCURRENT_CALLS, results.size());
+            results.forEach(r -> assertFalse(r.isError(), "search should succeed"));
+            assertTrue(elapsedMs < DELAY_MS * 2,
+                CONCURRENT_CALLS + " overlapping blocking calls took " + elapsedMs + "ms, expected about " + DELAY_MS + "ms");
+        } finally {
+            ToolHandlers.setExecutionMode(ExecutionMode.ASYNC);
+        }
+    }
+    
+    @Test
+    void testRepeatedSearchIsServedFromCache() throws IOException {
+        CallToolResult first = ToolHandlers.handleWebSearch(arguments("Cached  Query")).block(Duration.ofSeconds(10));
+        CallToolResult second = ToolHandlers.handleWebSearch(arguments("cached query")).block(Duration.ofSeconds(10));
+        
+        assertNotNull(first);
+        assertNotNull(second);
+        ObjectNode firstJson = (ObjectNode) objectMapper.readTree(((TextContent) first.content().get(0)).text());
+        ObjectNode secondJson = (ObjectNode) objectMapper.readTree(((TextContent) second.content().get(0)).text());
+        assertEquals("Cached  Query", firstJson.remove("query").asText());
+        assertEquals("cached query", secondJson.remove("query").asText(), "each caller should see its own query");
+        assertEquals(firstJson, secondJson);
+        assertEquals(1, server.getRequestCount(), "normalized repeat query should not reach upstream");
+    }
+    
+    @Test
+    void testBurstOfIdenticalSearchesMakesOneUpstreamCall() {
+        List<CallToolResult> results = Flux.range(1, CONCURRENT_CALLS)
+            .flatMap(i -> ToolHandlers.handleWebSearch(arguments("Burst Query", 1 + i % 3)), CONCURRENT_CALLS)
+            .collectList()
+            .block(Duration.ofSeconds(30));
+        
+        assertNotNull(results);
+        assertEquals(CONCURRENT_CALLS, results.size());
+        results.forEach(r -> assertFalse(r.isError(), "search should succeed"));
+        assertEquals(1, server.getRequestCount(), "identical in-flight searches should share one upstream call");
+    }
+    
+    @Test
+    void testTransientUpstreamFailureIsRetried() {
+        failuresToServe.set(1);
+        
+        CallToolResult result = ToolHandlers.handleWebSearch(arguments("retried query")).block(Duration.ofSeconds(10));
+        
+        assertNotNull(result);
+        assertFalse(result.isError(), "search should succeed on retry");
+        assertEquals(2, server.getRequestCount());
+    }
+    
+    @Test
+    void testDeadlineFromArgumentsCapsSearch() {
+        long start = System.nanoTime();
+        
+        CallToolResult result = ToolHandlers.handleWebSearch(arguments("deadline query").put("timeoutMs", 200))
+            .block(Duration.ofSeconds(10));
+        
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertNotNull(result);
+        assertTrue(result.isError());
+        assertTrue(((TextContent) result.content().get(0)).text().contains("timed out"));
+        assertTrue(elapsedMs < DELAY_MS, "search should give up at its deadline, took " + elapsedMs + "ms");
+    }
+    
+    @Test
+    void testSearchReturnsStructuredJson() throws IOException {
+        CallToolResult result = ToolHandlers.handleWebSearch(arguments("json \"quoted\"\tquery", 2))
+            .block(Duration.ofSeconds(10));
+        
+        assertNotNull(result);
+        assertFalse(result.isError());
+        JsonNode json = objectMapper.readTree(((TextContent) result.content().get(0)).text());
+        assertEquals("json \"quoted\"\tquery", json.path("query").asText());
+        assertEquals("Java is a programming language.", json.path("answer").path("text").asText());
+        assertEquals("https://en.wikipedia.org/wiki/Java", json.path("answer").path("url").asText());
+        assertEquals("Java SE", json.path("results").path(0).path("text").asText());
+        assertEquals(2, json.path("resultCount").asInt());
+    }
+    
+    @Test
+    void testSearchRendersMarkdownOnRequest() {
+        ToolHandlers.handleWebSearch(arguments("markdown query")).block(Duration.ofSeconds(10));
+        
+        CallToolResult result = ToolHandlers.handleWebSearch(arguments("markdown query").put("format", "markdown"))
+            .block(Duration.ofSeconds(10));
+        
+        assertNotNull(result);
+        String text = ((TextContent) result.content().get(0)).text();
+        assertTrue(text.startsWith("# Web Search Results for: markdown query"));
+        assertTrue(text.contains("## Instant Answer\nJava is a programming language."));
+        assertTrue(text.contains("URL: https://duckduckgo.com/Java_SE"));
+        assertEquals(1, server.getRequestCount(), "markdown should be rendered from the cached results");
+    }
+    
+    @Test
+    void testUnsupportedFormatIsRejected() {
+        CallToolResult result = ToolHandlers.handleWebSearch(arguments("any").put("format", "xml")).block();
+        
+        assertNotNull(result);
+        assertTrue(result.isError());
+        assertEquals(0, server.getRequestCount());
+    }
+    
+    @Test
+    void testBatchRunsQueriesConcurrently() throws IOException {
+        long start = System.nanoTime();
+        
+        CallToolResult result = ToolHandlers.handleWebSearchBatch(batchArguments("batch a", "batch b", "batch c", "batch d"))
+            .block(Duration.ofSeconds(10));
+        
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertNotNull(result);
+        assertFalse(result.isError());
+        JsonNode json = objectMapper.readTree(((TextContent) result.content().get(0)).text());
+        assertEquals(4, json.path("succeeded").asInt());
+        assertEquals(0, json.path("failed").asInt());
+        assertEquals("batch a", json.path("results").path(0).path("query").asText(), "sections should keep query order");
+        assertEquals("batch d", json.path("results").path(3).path("query").asText());
+        assertEquals(4, server.getRequestCount());
+        assertTrue(elapsedMs < DELAY_MS * 2, "4 queries took " + elapsedMs + "ms, expected about " + DELAY_MS + "ms");
+    }
+    
+    @Test
+    void testBatchSharesCacheAndIsolatesFailures() {
+        ToolHandlers.handleWebSearch(arguments("batch cached")).block(Duration.ofSeconds(10));
+        
+        ObjectNode arguments = batchArguments("Batch  Cached", "broken query");
+        arguments.put("format", "markdown");
+        CallToolResult result = ToolHandlers.handleWebSearchBatch(arguments).block(Duration.ofSeconds(10));
+        
+        assertNotNull(result);
+        assertFalse(result.isError(), "one failed query should not fail the batch");
+        String text = ((TextContent) result.content().get(0)).text();
+        assertTrue(text.startsWith("Batch of 2 searches: 1 succeeded, 1 failed"));
+        assertTrue(text.contains("Java is a programming language."));
+        assertTrue(text.contains("Error: Search failed"));
+        assertEquals(2, server.getRequestCount(), "cached query should not reach upstream again");
+    }
+    
+    @Test
+    void testBatchDeadlineFailsUnfinishedQueries() {
+        ObjectNode arguments = batchArguments("late a", "late b");
+        arguments.put("timeoutMs", 200);
+        
+        CallToolResult result = ToolHandlers.handleWebSearchBatch(arguments).block(Duration.ofSeconds(10));
+        
+        assertNotNull(result);
+        assertTrue(result.isError(), "a batch whose queries all failed is an error");
+        assertTrue(((TextContent) result.content().get(0)).text().contains("timed out"));
+    }
+    
+    @Test
+    void testCancelledBatchReleasesItsUpstreamCalls() throws InterruptedException {
+        CallMetrics upstream = MetricsRegistry.global().upstream(server.getHostName());
+        CallMetrics batch = MetricsRegistry.global().tool("websearch_batch");
+        long cancelledBefore = batch.snapshot().cancelled();
+        
+        Disposable call = ToolHandlers.callTool("websearch_batch", batchArguments("unanswered a", "unanswered b", "unanswered c"))
+            .subscribe();
+        for (int i = 0; i < 3; i++) {
+            assertNotNull(server.takeRequest(5, TimeUnit.SECONDS), "every query should reach upstream");
+        }
+        call.dispose();
+        
+        long deadline = System.nanoTime() + Duration.ofSeconds(1).toNanos();
+        while (upstream.snapshot().inFlight() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, upstream.snapshot().inFlight(), "cancelling the batch should cancel its upstream calls");
+        assertEquals(cancelledBefore + 1, batch.snapshot().cancelled());
+        assertEquals(0, batch.snapshot().inFlight());
+    }
+    
+    @Test
+    void testBatchRequiresQueries() {
+        CallToolResult result = ToolHandlers.handleWebSearchBatch(objectMapper.createObjectNode()).block();
+        
+        assertNotNull(result);
+        assertTrue(result.isError());
+    }
+    
+    @Test
+    void testFetchUrlReturnsPageText() throws IOException {
+        CallToolResult result = ToolHandlers.handleFetchUrl(objectMapper.createObjectNode()
+                .put("url", server.url("/page").toString()))
+            .block(Duration.ofSeconds(10));
+        
+        assertNotNull(result);
+        assertFalse(result.isError());
+        JsonNode json = objectMapper.readTree(((TextContent) result.content().get(0)).text());
+        assertEquals(server.url("/page").toString(), json.path("url").asText());
+        assertTrue(json.path("text").asText().contains("Java is a programming language."));
+        assertFalse(json.path("truncated").asBoolean());
+    }
+    
+    @Test
+    void testFetchUrlGivesUpAtTimeout() {
+        CallToolResult result = ToolHandlers.handleFetchUrl(objectMapper.createObjectNode()
+                .put("url", server.url("/slow-page").toString())
+                .put("timeoutMs", 200))
+            .block(Duration.ofSeconds(10));
+        
+        assertNotNull(result);
+        assertTrue(result.isError());
+        assertTrue(((TextContent) result.content().get(0)).text().contains("timed out"));
+    }
+    
+    @Test
+    void testFetchUrlRequiresUrl() {
+        CallToolResult result = ToolHandlers.handleFetchUrl(objectMapper.createObjectNode()).block();
+        
+        assertNotNull(result);
+        assertTrue(result.isError());
+    }
+    
+    private ObjectNode batchArguments(String... queries) {
+        ObjectNode arguments = objectMapper.createObjectNode();
+        ArrayNode array = arguments.putArray("queries");
+        for (String query : queries) {
+            array.add(query);
+        }
+        return arguments;
+    }
+    
+    private ObjectNode arguments(String query) {
+        return objectMapper.createObjectNode().put("query", query);
+    }
+    
+    private ObjectNode arguments(String query, int numResults) {
+        return arguments(query).put("numResults", numResults);
+    }
+}
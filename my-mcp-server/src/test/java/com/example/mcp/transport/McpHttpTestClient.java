@@ -0,0 +1,115 @@
+package com.example.mcp.transport;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Minimal streamable HTTP MCP client for tests.
+ */
+final class McpHttpTestClient {
+    
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    
+    private final HttpClient httpClient;
+    private final URI endpoint;
+    private final AtomicLong nextId = new AtomicLong();
+    private String sessionId;
+    
+    McpHttpTestClient(HttpClient httpClient, int port) {
+        this.httpClient = httpClient;
+        this.endpoint = URI.create("http://127.0.0.1:" + port + StreamableHttpTransport.PATH);
+    }
+    
+    /**
+     * Sends initialize and the initialized notification, and remembers the session ID.
+     */
+    JsonNode initialize() throws IOException, InterruptedException {
+        ObjectNode params = objectMapper.createObjectNode().put("protocolVersion", McpRequestDispatcher.PROTOCOL_VERSION);
+        HttpResponse<String> response = post(message("initialize", params, true));
+        sessionId = response.headers().firstValue(StreamableHttpTransport.SESSION_HEADER).orElseThrow();
+        post(message("notifications/initialized", objectMapper.createObjectNode(), false));
+        return objectMapper.readTree(response.body());
+    }
+    
+    /**
+     * Sends a request and returns the JSON-RPC response.
+     */
+    JsonNode request(String method, ObjectNode params) throws IOException, InterruptedException {
+        return objectMapper.readTree(post(message(method, params, true)).body());
+    }
+    
+    /**
+     * Posts a raw JSON-RPC message.
+     */
+    HttpResponse<String> post(ObjectNode message) throws IOException, InterruptedException {
+        return httpClient.send(postRequest(message), HttpResponse.BodyHandlers.ofString());
+    }
+    
+    /**
+     * Posts a raw JSON-RPC message without waiting for the reply.
+     */
+    CompletableFuture<HttpResponse<String>> postAsync(ObjectNode message) {
+        return httpClient.sendAsync(postRequest(message), HttpResponse.BodyHandlers.ofString());
+    }
+    
+    private HttpRequest postRequest(ObjectNode message) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(endpoint)
+            .header("Content-Type", "application/json")
+            .header("Accept", "application/json, text/event-stream")
+            .POST(HttpRequest.BodyPublishers.ofString(message.toString()));
+        if (sessionId != null) {
+            request.header(StreamableHttpTransport.SESSION_HEADER, sessionId);
+        }
+        return request.build();
+    }
+    
+    /**
+     * Opens the session's SSE stream.
+     */
+    HttpResponse<Stream<String>> openStream() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(endpoint)
+            .header("Accept", "text/event-stream")
+            .header(StreamableHttpTransport.SESSION_HEADER, sessionId)
+            .GET()
+            .build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.ofLines());
+    }
+    
+    /**
+     * Ends the session.
+     */
+    int delete() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(endpoint)
+            .header(StreamableHttpTransport.SESSION_HEADER, sessionId)
+            .DELETE()
+            .build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+    
+    void sessionId(String sessionId) {
+        this.sessionId = sessionId;
+    }
+    
+    ObjectNode params() {
+        return objectMapper.createObjectNode();
+    }
+    
+    ObjectNode message(String method, ObjectNode params, boolean withId) {
+        ObjectNode message = objectMapper.createObjectNode().put("jsonrpc", "2.0").put("method", method);
+        if (withId) {
+            message.put("id", nextId.incrementAndGet());
+        }
+        message.set("params", params);
+        return message;
+    }
+}
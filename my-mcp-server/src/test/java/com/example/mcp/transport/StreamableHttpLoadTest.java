@@ -0,0 +1,130 @@
+package com.example.mcp.transport;
+
+import com.example.mcp.tools.DuckDuckGoSearchProvider;
+import com.example.mcp.tools.ToolHandlers;
+import com.fasterxml.jackson.databind.JsonNode;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Local load test: hundreds of concurrent HTTP sessions against one server process.
+ * 
+ * Every session subscribes to the search history, opens its SSE stream and runs a search.
+ * The sessions share one HTTP client and cache, so the ten distinct queries reach the
+ * slow upstream only about ten times, and every session receives its own notification.
+ */
+class StreamableHttpLoadTest {
+    
+    private static final int SESSIONS = 300;
+    private static final int DISTINCT_QUERIES = 10;
+    private static final long UPSTREAM_DELAY_MS = 500;
+    
+    private MockWebServer upstream;
+    private StreamableHttpTransport transport;
+    private ExecutorService executor;
+    private HttpClient httpClient;
+    
+    @BeforeEach
+    void setUp() throws IOException {
+        upstream = new MockWebServer();
+        upstream.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse()
+                    .setBody("{\"Abstract\": \"Load test answer\", \"AbstractURL\": \"https://example.com\", \"RelatedTopics\": []}")
+                    .setHeadersDelay(UPSTREAM_DELAY_MS, TimeUnit.MILLISECONDS);
+            }
+        });
+        upstream.start();
+        ToolHandlers.setSearchEndpoint(upstream.url("/").toString());
+        
+        transport = new StreamableHttpTransport("127.0.0.1", 0, Duration.ofMinutes(1));
+        transport.start();
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        httpClient = HttpClient.newBuilder().executor(executor).build();
+    }
+    
+    @AfterEach
+    void tearDown() throws IOException {
+        ToolHandlers.setSearchEndpoint(DuckDuckGoSearchProvider.DEFAULT_ENDPOINT);
+        transport.close();
+        executor.shutdownNow();
+        upstream.close();
+    }
+    
+    @Test
+    @Timeout(60)
+    void testHundredsOfConcurrentSessions() throws Exception {
+        String prefix = "load " + System.nanoTime() + " ";
+        long start = System.nanoTime();
+        
+        List<Future<?>> sessions = new ArrayList<>();
+        for (int i = 0; i < SESSIONS; i++) {
+            String query = prefix + (i % DISTINCT_QUERIES);
+            sessions.add(executor.submit(() -> {
+                runSession(query);
+                return null;
+            }));
+        }
+        for (Future<?> session : sessions) {
+            session.get();
+        }
+        
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        
+        assertTrue(upstream.getRequestCount() <= DISTINCT_QUERIES,
+            "sessions should share the cache and in-flight searches, but upstream saw " + upstream.getRequestCount());
+        assertEquals(0, transport.sessionCount());
+        assertTrue(elapsedMs < 30_000, SESSIONS + " sessions took " + elapsedMs + "ms");
+    }
+    
+    private void runSession(String query) throws Exception {
+        McpHttpTestClient client = new McpHttpTestClient(httpClient, transport.port());
+        client.initialize();
+        client.request("resources/subscribe", client.params().put("uri", "resource://search/history"));
+        HttpResponse<Stream<String>> stream = client.openStream();
+        
+        JsonNode result = client.request("tools/call", client.params()
+            .put("name", "websearch")
+            .set("arguments", client.params().put("query", query)));
+        assertFalse(result.path("result").path("isError").asBoolean(), "search should succeed: " + result);
+        assertTrue(result.path("result").toString().contains("Load test answer"));
+        
+        assertTrue(awaitUpdate(stream.body()), "session should be notified that the history changed");
+        assertEquals(204, client.delete());
+    }
+    
+    private static boolean awaitUpdate(Stream<String> lines) {
+        try (lines) {
+            Iterator<String> iterator = lines.iterator();
+            while (iterator.hasNext()) {
+                String line = iterator.next();
+                if (line.startsWith("data:") && line.contains("notifications/resources/updated")) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.mcp.transport;
+
+import com.example.mcp.metrics.CallMetrics;
+import com.example.mcp.metrics.MetricsRegistry;
+import com.example.mcp.tools.DuckDuckGoSearchProvider;
+import com.example.mcp.tools.ToolHandlers;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.SocketPolicy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Protocol tests for the streamable HTTP transport.
+ */
+class StreamableHttpTransportTest {
+    
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private StreamableHttpTransport transport;
+    private McpHttpTestClient client;
+    
+    @BeforeEach
+    void setUp() throws IOException {
+        transport = new StreamableHttpTransport("127.0.0.1", 0, Duration.ofMinutes(1));
+        transport.start();
+        client = new McpHttpTestClient(httpClient, transport.port());
+    }
+    
+    @AfterEach
+    void tearDown() {
+        transport.close();
+    }
+    
+    @Test
+    void testInitializeCreatesSession() throws Exception {
+        JsonNode response = client.initialize();
+        
+        assertEquals("my-mcp-server", response.path("result").path("serverInfo").path("name").asText());
+        assertTrue(response.path("result").path("capabilities").path("resources").path("subscribe").asBoolean());
+        assertEquals(1, transport.sessionCount());
+    }
+    
+    @Test
+    void testRequestsAreDispatchedToSharedHandlers() throws Exception {
+        client.initialize();
+        
+        JsonNode tools = client.request("tools/list", client.params());
+        JsonNode config = client.request("resources/read", client.params().put("uri", "resource://config"));
+        JsonNode prompt = client.request("prompts/get",
+            client.params().put("name", "fact-check").set("arguments", client.params().put("claim", "water is wet")));
+        
+        assertEquals("websearch", tools.path("result").path("tools").path(0).path("name").asText());
+        assertEquals("resource://config", config.path("result").path("contents").path(0).path("uri").asText());
+        assertEquals(3, prompt.path("result").path("messages").size());
+    }
+    
+    @Test
+    void testErrorsAreReportedAsJsonRpcErrors() throws Exception {
+        client.initialize();
+        
+        JsonNode unknownMethod = client.request("tools/unknown", client.params());
+        JsonNode missingParam = client.request("resources/read", client.params());
+        
+        assertEquals(JsonRpcException.METHOD_NOT_FOUND, unknownMethod.path("error").path("code").asInt());
+        assertEquals(JsonRpcException.INVALID_PARAMS, missingParam.path("error").path("code").asInt());
+    }
+    
+    @Test
+    void testRequestsNeedAKnownSession() throws Exception {
+        HttpResponse<String> noSession = client.post(client.message("tools/list", client.params(), true));
+        client.sessionId("unknown");
+        HttpResponse<String> unknownSession = client.post(client.message("tools/list", client.params(), true));
+        
+        assertEquals(400, noSession.statusCode());
+        assertEquals(404, unknownSession.statusCode());
+    }
+    
+    @Test
+    void testDeleteEndsSession() throws Exception {
+        client.initialize();
+        
+        assertEquals(204, client.delete());
+        assertEquals(0, transport.sessionCount());
+        assertEquals(404, client.post(client.message("ping", client.params(), true)).statusCode());
+    }
+    
+    @Test
+    void testNotificationsAreAccepted() throws Exception {
+        client.initialize();
+        
+        HttpResponse<String> response = client.post(client.message("notifications/initialized", client.params(), false));
+        
+        assertEquals(202, response.statusCode());
+    }
+    
+    @Test
+    void testCancelledRequestStopsItsUpstreamCall() throws Exception {
+        try (MockWebServer upstream = new MockWebServer()) {
+            upstream.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+            upstream.start();
+            ToolHandlers.setSearchEndpoint(upstream.url("/").toString());
+            try {
+                client.initialize();
+                CallMetrics upstreamMetrics = MetricsRegistry.global().upstream(upstream.getHostName());
+                long cancelledBefore = MetricsRegistry.global().tool("websearch").snapshot().cancelled();
+                ObjectNode call = client.message("tools/call", client.params().put("name", "websearch")
+                    .set("arguments", client.params().put("query", "never answered")), true);
+                CompletableFuture<HttpResponse<String>> pending = client.postAsync(call);
+                assertNotNull(upstream.takeRequest(5, TimeUnit.SECONDS), "the search should reach upstream");
+                
+                HttpResponse<String> cancelled = client.post(client.message("notifications/cancelled",
+                    client.params().set("requestId", call.get("id")), false));
+                JsonNode response = new ObjectMapper().readTree(pending.get(1, TimeUnit.SECONDS).body());
+                
+                assertEquals(202, cancelled.statusCode());
+                assertEquals(JsonRpcException.REQUEST_CANCELLED, response.path("error").path("code").asInt());
+                assertEquals(cancelledBefore + 1, MetricsRegistry.global().tool("websearch").snapshot().cancelled());
+                long deadline = System.nanoTime() + Duration.ofSeconds(1).toNanos();
+                while (upstreamMetrics.snapshot().inFlight() > 0 && System.nanoTime() < deadline) {
+                    Thread.sleep(10);
+                }
+                assertEquals(0, upstreamMetrics.snapshot().inFlight(), "the upstream call should be cancelled");
+            } finally {
+                ToolHandlers.setSearchEndpoint(DuckDuckGoSearchProvider.DEFAULT_ENDPOINT);
+            }
+        }
+    }
+    
+    @Test
+    void testCrossOriginRequestsAreRejected() throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + transport.port() + "/mcp"))
+            .header("Origin", "https://attacker.example")
+            .POST(HttpRequest.BodyPublishers.ofString("{}"))
+            .build();
+        
+        assertEquals(403, httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode());
+    }
+    
+    @Test
+    void testIdleSessionsExpire() throws Exception {
+        transport.close();
+        transport = new StreamableHttpTransport("127.0.0.1", 0, Duration.ofMillis(200));
+        transport.start();
+        client = new McpHttpTestClient(httpClient, transport.port());
+        client.initialize();
+        
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (transport.sessionCount() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        
+        assertEquals(0, transport.sessionCount());
+    }
+}